@@ -16,8 +16,9 @@
 
 package io.cdap.plugin.batch.sink;
 
-import com.google.common.base.CharMatcher;
-import com.google.common.base.Preconditions;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
@@ -28,20 +29,18 @@ import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
 import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.batch.BatchSinkContext;
-import io.cdap.cdap.format.StructuredRecordStringConverter;
 import io.cdap.plugin.common.ReferenceBatchSink;
 import io.cdap.plugin.common.ReferencePluginConfig;
+import io.cdap.plugin.common.SchemaCache;
 import org.apache.cassandra.hadoop.cql3.CqlOutputFormat;
-import org.apache.cassandra.utils.ByteBufferUtil;
 
-import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -58,6 +57,10 @@ import javax.annotation.Nullable;
 public class BatchCassandraSink
   extends ReferenceBatchSink<StructuredRecord, Map<String, ByteBuffer>, List<ByteBuffer>> {
   private final CassandraBatchConfig config;
+  private List<String> primaryKeys;
+  private List<String> columns;
+  private final SchemaCache<CassandraRecordEncoder> encoders =
+    new SchemaCache<>(schema -> new CassandraRecordEncoder(schema, primaryKeys, columns));
 
   public BatchCassandraSink(CassandraBatchConfig config) {
     super(config);
@@ -65,66 +68,34 @@ public class BatchCassandraSink
   }
 
   @Override
-  public void prepareRun(BatchSinkContext context) {
-    context.addOutput(Output.of(config.referenceName, new CassandraOutputFormatProvider(config)));
+  public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
+    super.configurePipeline(pipelineConfigurer);
+    config.validate();
+    Schema inputSchema = pipelineConfigurer.getStageConfigurer().getInputSchema();
+    if (inputSchema != null) {
+      // fails if a key or column is missing from the input or has an unsupported type
+      new CassandraRecordEncoder(inputSchema, config.getPrimaryKeys(), config.getColumns());
+    }
   }
 
   @Override
-  public void transform(StructuredRecord record,
-                        Emitter<KeyValue<Map<String, ByteBuffer>, List<ByteBuffer>>> emitter) throws Exception {
-    Map<String, ByteBuffer> keys = new LinkedHashMap<>();
-    for (String key : CharMatcher.WHITESPACE.removeFrom(config.primaryKey).split(",")) {
-      Preconditions.checkNotNull(record.get(key), String.format("Primary key %s is not present in this record: %s",
-                                                                key, StructuredRecordStringConverter
-                                                                       .toDelimitedString(record, ";")));
-      keys.put(key, encodeObject(record.get(key), record.getSchema().getField(key).getSchema()));
-    }
-    emitter.emit(new KeyValue<>(keys, getColumns(record)));
+  public void prepareRun(BatchSinkContext context) {
+    config.validate();
+    context.addOutput(Output.of(config.referenceName, new CassandraOutputFormatProvider(config)));
   }
 
-  private List<ByteBuffer> getColumns(StructuredRecord record) throws Exception {
-    List<ByteBuffer> columns = new ArrayList<>();
-    List<String> primaryKeys = Arrays.asList(CharMatcher.WHITESPACE.removeFrom(config.primaryKey).split(","));
-    for (String columnName : CharMatcher.WHITESPACE.removeFrom(config.columns).split(",")) {
-
-      //Cassandra allows multiple primary keys, so splitting that list on a comma
-      // and checking that the current column isn't a primary key
-      if (!primaryKeys.contains(columnName)) {
-        columns.add(encodeObject(record.get(columnName),
-                                 record.getSchema().getField(columnName).getSchema()));
-      }
-    }
-    return columns;
+  @Override
+  public void initialize(BatchRuntimeContext context) throws Exception {
+    super.initialize(context);
+    primaryKeys = config.getPrimaryKeys();
+    columns = config.getColumns();
   }
 
-  private ByteBuffer encodeObject(Object object, Schema schema) throws IOException {
-    switch (schema.getType()) {
-      case NULL:
-        return ByteBufferUtil.EMPTY_BYTE_BUFFER;
-      case BOOLEAN:
-        byte[] bytes = new byte[1];
-        bytes[0] = (byte) ((boolean) object ? 1 : 0);
-        return ByteBuffer.wrap(bytes);
-      case INT:
-        return ByteBufferUtil.bytes((int) object);
-      case LONG:
-        return ByteBufferUtil.bytes((long) object);
-      case FLOAT:
-        return ByteBufferUtil.bytes((float) object);
-      case DOUBLE:
-        return ByteBufferUtil.bytes((double) object);
-      case BYTES:
-        return ByteBuffer.wrap((byte[]) object);
-      case STRING:
-      case ENUM:
-        // Currently there is no standard container to represent enum type
-        return ByteBufferUtil.bytes((String) object);
-      case UNION:
-        if (schema.isNullableSimple()) {
-          return object == null ? ByteBufferUtil.EMPTY_BYTE_BUFFER : encodeObject(object, schema.getNonNullable());
-        }
-    }
-    throw new IOException("Unsupported field type; only simple types are supported: " + schema);
+  @Override
+  public void transform(StructuredRecord record,
+                        Emitter<KeyValue<Map<String, ByteBuffer>, List<ByteBuffer>>> emitter) throws Exception {
+    CassandraRecordEncoder encoder = encoders.get(record.getSchema());
+    emitter.emit(new KeyValue<>(encoder.encodeKeys(record), encoder.encodeColumns(record)));
   }
 
   /**
@@ -167,8 +138,29 @@ public class BatchCassandraSink
     @Description("A comma-separated list of primary keys. For example: \"key1,key2\".")
     private String primaryKey;
 
+    @Name(Cassandra.BATCH_SIZE)
+    @Nullable
+    @Description("The maximum number of rows of the same partition that are written in one unlogged batch. " +
+      "If this is greater than 1, rows are written over the native protocol port instead of the RPC port, " +
+      "grouped by partition key. Defaults to 1, which writes every row on its own over the RPC port.")
+    @Macro
+    private Integer batchSize;
+
+    @Name(Cassandra.NATIVE_PORT)
+    @Nullable
+    @Description("The native protocol port for Cassandra, used when the batch size is greater than 1. " +
+      "Defaults to 9042.")
+    @Macro
+    private Integer nativePort;
+
     public CassandraBatchConfig(String referenceName, String partitioner, @Nullable Integer port, String columnFamily,
                                 String keyspace, String initialAddress, String columns, String primaryKey) {
+      this(referenceName, partitioner, port, columnFamily, keyspace, initialAddress, columns, primaryKey, null, null);
+    }
+
+    public CassandraBatchConfig(String referenceName, String partitioner, @Nullable Integer port, String columnFamily,
+                                String keyspace, String initialAddress, String columns, String primaryKey,
+                                @Nullable Integer batchSize, @Nullable Integer nativePort) {
       super(referenceName);
       this.partitioner = partitioner;
       this.initialAddress = initialAddress;
@@ -177,15 +169,63 @@ public class BatchCassandraSink
       this.keyspace = keyspace;
       this.columns = columns;
       this.primaryKey = primaryKey;
+      this.batchSize = batchSize;
+      this.nativePort = nativePort;
+    }
+
+    List<String> getPrimaryKeys() {
+      return ImmutableList.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(primaryKey));
+    }
+
+    List<String> getColumns() {
+      return ImmutableList.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(columns));
+    }
+
+    int getBatchSize() {
+      return batchSize == null ? 1 : batchSize;
+    }
+
+    void validate() {
+      if (!containsMacro(Cassandra.BATCH_SIZE) && getBatchSize() < 1) {
+        throw new IllegalArgumentException(
+          String.format("Invalid batch size %d. The batch size must be at least 1.", batchSize));
+      }
+      if (getPrimaryKeys().isEmpty()) {
+        throw new IllegalArgumentException("At least one primary key must be specified.");
+      }
+      List<String> valueColumns = new ArrayList<>(getColumns());
+      valueColumns.removeAll(getPrimaryKeys());
+      if (valueColumns.isEmpty()) {
+        throw new IllegalArgumentException("At least one column that is not a primary key must be specified.");
+      }
     }
   }
 
   private static class CassandraOutputFormatProvider implements OutputFormatProvider {
     private final Map<String, String> conf;
+    private final String outputFormatClassName;
 
     CassandraOutputFormatProvider(CassandraBatchConfig config) {
       this.conf = new HashMap<>();
+      List<String> primaryKeys = config.getPrimaryKeys();
+      List<String> columns = config.getColumns();
+
+      if (config.getBatchSize() > 1) {
+        outputFormatClassName = CassandraBatchOutputFormat.class.getName();
+        conf.put(CassandraBatchOutputFormat.ADDRESS, config.initialAddress);
+        conf.put(CassandraBatchOutputFormat.PORT, config.nativePort == null ?
+          Integer.toString(CassandraBatchOutputFormat.DEFAULT_PORT) : Integer.toString(config.nativePort));
+        conf.put(CassandraBatchOutputFormat.KEYSPACE, config.keyspace);
+        conf.put(CassandraBatchOutputFormat.COLUMN_FAMILY, config.columnFamily);
+        conf.put(CassandraBatchOutputFormat.PRIMARY_KEYS, Joiner.on(',').join(primaryKeys));
+        conf.put(CassandraBatchOutputFormat.COLUMNS, Joiner.on(',').join(columns));
+        conf.put(CassandraBatchOutputFormat.BATCH_SIZE, Integer.toString(config.getBatchSize()));
+        return;
+      }
 
+      // ideally, we will use CqlBulkOutputFormat once Cassandra implements the patch
+      // to make the Hadoop-CQL package compatible with Hadoop
+      outputFormatClassName = CqlOutputFormat.class.getName();
       conf.put("cassandra.output.thrift.port", config.port == null ? "9160" : Integer.toString(config.port));
       conf.put("cassandra.output.thrift.address", config.initialAddress);
       conf.put("cassandra.output.keyspace", config.keyspace);
@@ -195,21 +235,19 @@ public class BatchCassandraSink
       // The query needs to include the non-primary key columns.
       // For example, the query might be "UPDATE keyspace.columnFamily SET column1 = ?, column2 = ? "
       // The primary keys are then added by Cassandra
-      String query = String.format("UPDATE %s.%s SET ", config.keyspace, config.columnFamily);
-      for (String column : config.columns.split(",")) {
-        if (!Arrays.asList(config.primaryKey.split(",")).contains(column)) {
-          query += column + " = ?, ";
+      List<String> assignments = new ArrayList<>();
+      for (String column : columns) {
+        if (!primaryKeys.contains(column)) {
+          assignments.add(column + " = ?");
         }
       }
-      query = query.substring(0, query.lastIndexOf(",")) + " "; //to remove the last comma
-      conf.put("cassandra.output.cql", query);
+      conf.put("cassandra.output.cql", String.format("UPDATE %s.%s SET %s ", config.keyspace, config.columnFamily,
+                                                     Joiner.on(", ").join(assignments)));
     }
 
     @Override
     public String getOutputFormatClassName() {
-      // ideally, we will use CqlBulkOutputFormat once Cassandra implements the patch
-      // to make the Hadoop-CQL package compatible with Hadoop
-      return CqlOutputFormat.class.getName();
+      return outputFormatClassName;
     }
 
     @Override
@@ -229,5 +267,7 @@ public class BatchCassandraSink
     public static final String INITIAL_ADDRESS = "initialAddress";
     public static final String COLUMNS = "columns";
     public static final String PRIMARY_KEY = "primaryKey";
+    public static final String BATCH_SIZE = "batchSize";
+    public static final String NATIVE_PORT = "nativePort";
   }
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.sink;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TableMetadata;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes rows to Cassandra over the native protocol, grouping rows that belong to the same partition into
+ * unlogged batches. All statements in a batch go to the same replicas, so the coordinator applies them as a
+ * single mutation instead of one round trip per row.
+ */
+public class CassandraBatchOutputFormat extends NullOutputFormat<Map<String, ByteBuffer>, List<ByteBuffer>> {
+  public static final String ADDRESS = "cdap.cassandra.output.address";
+  public static final String PORT = "cdap.cassandra.output.native.port";
+  public static final String KEYSPACE = "cdap.cassandra.output.keyspace";
+  public static final String COLUMN_FAMILY = "cdap.cassandra.output.column.family";
+  public static final String PRIMARY_KEYS = "cdap.cassandra.output.primary.keys";
+  public static final String COLUMNS = "cdap.cassandra.output.columns";
+  public static final String BATCH_SIZE = "cdap.cassandra.output.batch.size";
+  /**
+   * Maximum number of rows buffered across all partitions before every partition is flushed.
+   */
+  public static final String MAX_BUFFERED_ROWS = "cdap.cassandra.output.max.buffered.rows";
+  /**
+   * Maximum number of batches that are sent without waiting for a response.
+   */
+  public static final String MAX_PENDING_BATCHES = "cdap.cassandra.output.max.pending.batches";
+  public static final int DEFAULT_PORT = 9042;
+  private static final int DEFAULT_MAX_BUFFERED_ROWS = 10000;
+  private static final int DEFAULT_MAX_PENDING_BATCHES = 16;
+
+  @Override
+  public RecordWriter<Map<String, ByteBuffer>, List<ByteBuffer>> getRecordWriter(TaskAttemptContext context) {
+    return new BatchRecordWriter(context.getConfiguration());
+  }
+
+  /**
+   * Buffers bound statements by partition key and sends each partition as one unlogged batch.
+   */
+  private static class BatchRecordWriter extends RecordWriter<Map<String, ByteBuffer>, List<ByteBuffer>> {
+    private final Cluster cluster;
+    private final Session session;
+    private final PreparedStatement statement;
+    private final String[] primaryKeys;
+    private final int[] partitionKeyIndexes;
+    private final int numColumns;
+    private final int batchSize;
+    private final int maxBufferedRows;
+    private final int maxPendingBatches;
+    private final Map<List<ByteBuffer>, List<BoundStatement>> partitions = new HashMap<>();
+    private final Deque<ResultSetFuture> pending = new ArrayDeque<>();
+    private int bufferedRows;
+
+    BatchRecordWriter(Configuration conf) {
+      String keyspace = conf.get(KEYSPACE);
+      String columnFamily = conf.get(COLUMN_FAMILY);
+      this.primaryKeys = conf.getTrimmedStrings(PRIMARY_KEYS);
+      List<String> valueColumns = new ArrayList<>(Arrays.asList(conf.getTrimmedStrings(COLUMNS)));
+      valueColumns.removeAll(Arrays.asList(primaryKeys));
+      this.numColumns = valueColumns.size();
+      this.batchSize = conf.getInt(BATCH_SIZE, 1);
+      this.maxBufferedRows = Math.max(batchSize, conf.getInt(MAX_BUFFERED_ROWS, DEFAULT_MAX_BUFFERED_ROWS));
+      this.maxPendingBatches = conf.getInt(MAX_PENDING_BATCHES, DEFAULT_MAX_PENDING_BATCHES);
+
+      this.cluster = Cluster.builder()
+        .addContactPoints(conf.getTrimmedStrings(ADDRESS))
+        .withPort(conf.getInt(PORT, DEFAULT_PORT))
+        .build();
+      try {
+        this.session = cluster.connect();
+        this.partitionKeyIndexes = getPartitionKeyIndexes(keyspace, columnFamily);
+        this.statement = session.prepare(getQuery(keyspace, columnFamily, valueColumns));
+      } catch (RuntimeException e) {
+        cluster.close();
+        throw e;
+      }
+    }
+
+    @Override
+    public void write(Map<String, ByteBuffer> keys, List<ByteBuffer> values) throws IOException {
+      // bind the non-key columns first, followed by the keys in the WHERE clause
+      BoundStatement bound = statement.bind();
+      for (int i = 0; i < numColumns; i++) {
+        bound.setBytesUnsafe(i, values.get(i));
+      }
+      for (int i = 0; i < primaryKeys.length; i++) {
+        bound.setBytesUnsafe(numColumns + i, keys.get(primaryKeys[i]));
+      }
+
+      List<ByteBuffer> partitionKey = new ArrayList<>(partitionKeyIndexes.length);
+      for (int index : partitionKeyIndexes) {
+        partitionKey.add(keys.get(primaryKeys[index]));
+      }
+      List<BoundStatement> partition = partitions.get(partitionKey);
+      if (partition == null) {
+        partition = new ArrayList<>();
+        partitions.put(partitionKey, partition);
+      }
+      partition.add(bound);
+      bufferedRows++;
+
+      if (partition.size() >= batchSize) {
+        partitions.remove(partitionKey);
+        flush(partition);
+      } else if (bufferedRows >= maxBufferedRows) {
+        flushAll();
+      }
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) throws IOException {
+      try {
+        flushAll();
+        while (!pending.isEmpty()) {
+          pending.poll().getUninterruptibly();
+        }
+      } finally {
+        cluster.close();
+      }
+    }
+
+    private void flushAll() {
+      for (List<BoundStatement> partition : partitions.values()) {
+        flush(partition);
+      }
+      partitions.clear();
+    }
+
+    private void flush(List<BoundStatement> partition) {
+      bufferedRows -= partition.size();
+      if (partition.size() == 1) {
+        send(partition.get(0));
+        return;
+      }
+      BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+      for (BoundStatement bound : partition) {
+        batch.add(bound);
+      }
+      send(batch);
+    }
+
+    private void send(Statement statement) {
+      // wait for the oldest batch once too many are in flight, which also surfaces write errors early
+      if (pending.size() >= maxPendingBatches) {
+        pending.poll().getUninterruptibly();
+      }
+      pending.add(session.executeAsync(statement));
+    }
+
+    private int[] getPartitionKeyIndexes(String keyspace, String columnFamily) {
+      KeyspaceMetadata keyspaceMetadata = cluster.getMetadata().getKeyspace(keyspace);
+      TableMetadata table = keyspaceMetadata == null ? null : keyspaceMetadata.getTable(columnFamily);
+      if (table == null) {
+        throw new IllegalArgumentException(
+          String.format("Column family %s does not exist in keyspace %s", columnFamily, keyspace));
+      }
+      List<ColumnMetadata> partitionKey = table.getPartitionKey();
+      int[] indexes = new int[partitionKey.size()];
+      for (int i = 0; i < indexes.length; i++) {
+        indexes[i] = indexOfIgnoreCase(primaryKeys, partitionKey.get(i).getName());
+        if (indexes[i] < 0) {
+          throw new IllegalArgumentException(
+            String.format("Partition key column %s is not one of the primary keys %s",
+                          partitionKey.get(i).getName(), Arrays.toString(primaryKeys)));
+        }
+      }
+      return indexes;
+    }
+
+    /**
+     * Returns the index of a column in the configured primary keys. Unquoted CQL identifiers are case insensitive
+     * and the table metadata has them in lower case, so the names are compared ignoring case.
+     */
+    private int indexOfIgnoreCase(String[] names, String name) {
+      for (int i = 0; i < names.length; i++) {
+        if (names[i].equalsIgnoreCase(name)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private String getQuery(String keyspace, String columnFamily, List<String> valueColumns) {
+      StringBuilder query = new StringBuilder(String.format("UPDATE %s.%s SET ", keyspace, columnFamily));
+      for (int i = 0; i < valueColumns.size(); i++) {
+        query.append(i == 0 ? "" : ", ").append(valueColumns.get(i)).append(" = ?");
+      }
+      for (int i = 0; i < primaryKeys.length; i++) {
+        query.append(i == 0 ? " WHERE " : " AND ").append(primaryKeys[i]).append(" = ?");
+      }
+      return query.toString();
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts {@link StructuredRecord StructuredRecords} of a single schema into the primary key and column values
+ * expected by the Cassandra output formats. The schema of every key and column and the serializer for its type are
+ * resolved once, when the encoder is created, instead of for every record.
+ */
+final class CassandraRecordEncoder {
+  private static final ByteBuffer TRUE = ByteBuffer.wrap(new byte[] { 1 });
+  private static final ByteBuffer FALSE = ByteBuffer.wrap(new byte[] { 0 });
+
+  private final String[] keyNames;
+  private final Serializer[] keySerializers;
+  private final String[] columnNames;
+  private final Serializer[] columnSerializers;
+
+  /**
+   * Creates an encoder for the given schema.
+   *
+   * @param schema the schema of the records to encode
+   * @param primaryKeys the primary key fields, in the order they should be emitted
+   * @param columns the columns of the column family, which may include the primary keys
+   * @throws IllegalArgumentException if a key or column is not in the schema or has an unsupported type
+   */
+  CassandraRecordEncoder(Schema schema, List<String> primaryKeys, List<String> columns) {
+    this.keyNames = primaryKeys.toArray(new String[primaryKeys.size()]);
+    this.keySerializers = new Serializer[keyNames.length];
+    for (int i = 0; i < keyNames.length; i++) {
+      keySerializers[i] = createSerializer(schema, keyNames[i]);
+    }
+
+    List<String> valueColumns = new ArrayList<>(columns);
+    valueColumns.removeAll(primaryKeys);
+    this.columnNames = valueColumns.toArray(new String[valueColumns.size()]);
+    this.columnSerializers = new Serializer[columnNames.length];
+    for (int i = 0; i < columnNames.length; i++) {
+      columnSerializers[i] = createSerializer(schema, columnNames[i]);
+    }
+  }
+
+  /**
+   * Encodes the primary key values of a record, keyed by column name in primary key order.
+   *
+   * @throws IllegalArgumentException if any primary key is null
+   */
+  Map<String, ByteBuffer> encodeKeys(StructuredRecord record) {
+    Map<String, ByteBuffer> keys = new LinkedHashMap<>(keyNames.length * 2);
+    for (int i = 0; i < keyNames.length; i++) {
+      Object value = record.get(keyNames[i]);
+      if (value == null) {
+        // only build the message on failure, since converting the record to a string is expensive
+        throw new IllegalArgumentException(
+          String.format("Primary key %s is not present in this record: %s", keyNames[i],
+                        StructuredRecordStringConverter.toDelimitedString(record, ";")));
+      }
+      keys.put(keyNames[i], keySerializers[i].serialize(value));
+    }
+    return keys;
+  }
+
+  /**
+   * Encodes the values of all columns that are not part of the primary key, in column order.
+   */
+  List<ByteBuffer> encodeColumns(StructuredRecord record) {
+    List<ByteBuffer> values = new ArrayList<>(columnNames.length);
+    for (int i = 0; i < columnNames.length; i++) {
+      values.add(columnSerializers[i].serialize(record.get(columnNames[i])));
+    }
+    return values;
+  }
+
+  private static Serializer createSerializer(Schema schema, String name) {
+    Schema.Field field = schema.getField(name);
+    if (field == null) {
+      throw new IllegalArgumentException(
+        String.format("Column %s is not present in the input schema %s", name, schema));
+    }
+    Schema fieldSchema = field.getSchema();
+    if (fieldSchema.isNullable()) {
+      if (!fieldSchema.isNullableSimple()) {
+        throw unsupported(name, fieldSchema);
+      }
+      Serializer serializer = createSerializer(name, fieldSchema.getNonNullable());
+      return value -> value == null ? ByteBufferUtil.EMPTY_BYTE_BUFFER : serializer.serialize(value);
+    }
+    return createSerializer(name, fieldSchema);
+  }
+
+  private static Serializer createSerializer(String name, Schema schema) {
+    switch (schema.getType()) {
+      case NULL:
+        return value -> ByteBufferUtil.EMPTY_BYTE_BUFFER;
+      case BOOLEAN:
+        return value -> ((Boolean) value ? TRUE : FALSE).duplicate();
+      case INT:
+        return value -> ByteBufferUtil.bytes((int) value);
+      case LONG:
+        return value -> ByteBufferUtil.bytes((long) value);
+      case FLOAT:
+        return value -> ByteBufferUtil.bytes((float) value);
+      case DOUBLE:
+        return value -> ByteBufferUtil.bytes((double) value);
+      case BYTES:
+        return value -> value instanceof ByteBuffer ? (ByteBuffer) value : ByteBuffer.wrap((byte[]) value);
+      case STRING:
+      case ENUM:
+        // Currently there is no standard container to represent enum type
+        return value -> ByteBufferUtil.bytes(value.toString());
+      default:
+        throw unsupported(name, schema);
+    }
+  }
+
+  private static IllegalArgumentException unsupported(String name, Schema schema) {
+    return new IllegalArgumentException(
+      String.format("Unsupported type for column %s; only simple types are supported: %s", name, schema));
+  }
+
+  /**
+   * Serializes a non-null field value into the Cassandra representation of its type.
+   */
+  private interface Serializer {
+    ByteBuffer serialize(Object value);
+  }
+}
@@ -18,9 +18,9 @@ package io.cdap.plugin.batch.source;
 
 import com.datastax.driver.core.Row;
 import com.google.common.base.CharMatcher;
+import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
-import com.google.common.collect.ImmutableMap;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
@@ -31,6 +31,7 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSource;
 import io.cdap.cdap.etl.api.batch.BatchSourceContext;
 import io.cdap.plugin.common.LineageRecorder;
@@ -43,8 +44,8 @@ import org.apache.cassandra.hadoop.cql3.CqlInputFormat;
 import org.apache.hadoop.conf.Configuration;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -62,16 +63,8 @@ import javax.annotation.Nullable;
 @Description("CDAP Cassandra Batch Source will select the rows returned by the user's query " +
   "and convert each row to a structured record using the schema specified by the user. ")
 public class BatchCassandraSource extends ReferenceBatchSource<Long, Row, StructuredRecord> {
-  private static final Map<Schema.Type, Class<?>> TYPE_CLASS_MAP = new ImmutableMap.Builder<Schema.Type, Class<?>>()
-                                                                    .put(Schema.Type.BOOLEAN, boolean.class)
-                                                                    .put(Schema.Type.BYTES, ByteBuffer.class)
-                                                                    .put(Schema.Type.DOUBLE, double.class)
-                                                                    .put(Schema.Type.FLOAT, float.class)
-                                                                    .put(Schema.Type.INT, int.class)
-                                                                    .put(Schema.Type.LONG, long.class)
-                                                                    .put(Schema.Type.ENUM, String.class)
-                                                                    .build();
   private final CassandraSourceConfig config;
+  private CassandraRowDecoder decoder;
 
   public BatchCassandraSource(CassandraSourceConfig config) {
     super(config);
@@ -82,16 +75,21 @@ public class BatchCassandraSource extends ReferenceBatchSource<Long, Row, Struct
   public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
     super.configurePipeline(pipelineConfigurer);
     Preconditions.checkArgument(!Strings.isNullOrEmpty(config.schema), "Schema must be specified.");
+    Schema schema;
     try {
-      Schema schema = Schema.parseJson(config.schema);
-      pipelineConfigurer.getStageConfigurer().setOutputSchema(schema);
+      schema = Schema.parseJson(config.schema);
     } catch (Exception e) {
       throw new IllegalArgumentException("Invalid output schema: " + e.getMessage(), e);
     }
+    // fails if a field has a type that can't be read from Cassandra
+    new CassandraRowDecoder(schema);
+    config.validate();
+    pipelineConfigurer.getStageConfigurer().setOutputSchema(schema);
   }
 
   @Override
   public void prepareRun(BatchSourceContext context) throws Exception {
+    config.validate();
     Configuration conf = new Configuration();
     conf.clear();
 
@@ -114,58 +112,36 @@ public class BatchCassandraSource extends ReferenceBatchSource<Long, Row, Struct
                  CharMatcher.WHITESPACE.trimFrom(pair.split(":")[1]));
       }
     }
-    CqlConfigHelper.setInputCql(conf, config.query);
+    if (config.splitSize != null) {
+      ConfigHelper.setInputSplitSize(conf, config.splitSize);
+    }
+    if (config.pageSize != null) {
+      CqlConfigHelper.setInputCQLPageRowSize(conf, Integer.toString(config.pageSize));
+    }
+    if (Strings.isNullOrEmpty(config.query)) {
+      // let the record reader build the token range query, selecting only the columns in the schema
+      List<String> columns = new ArrayList<>();
+      for (Schema.Field field : config.getSchema().getFields()) {
+        columns.add(field.getName());
+      }
+      CqlConfigHelper.setInputColumns(conf, Joiner.on(',').join(columns));
+    } else {
+      CqlConfigHelper.setInputCql(conf, config.query);
+    }
     LineageRecorder lineageRecorder = new LineageRecorder(context, config.referenceName);
     lineageRecorder.createExternalDataset(config.getSchema());
     context.setInput(Input.of(config.referenceName, new SourceInputFormatProvider(CqlInputFormat.class, conf)));
   }
 
   @Override
-  public void transform(KeyValue<Long, Row> input, Emitter<StructuredRecord> emitter) throws Exception {
-    Schema schema = config.getSchema();
-    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-    for (Schema.Field field : schema.getFields()) {
-      builder.set(field.getName(), extractValue(input.getValue(), field));
-    }
-    emitter.emit(builder.build());
+  public void initialize(BatchRuntimeContext context) throws Exception {
+    super.initialize(context);
+    decoder = new CassandraRowDecoder(config.getSchema());
   }
 
-  private Object extractValue(Row row, Schema.Field field) throws Exception {
-    switch (field.getSchema().getType()) {
-      case NULL:
-        return null;
-      case BOOLEAN:
-        return row.getBool(field.getName());
-      case INT:
-        return row.getInt(field.getName());
-      case LONG:
-        return row.getLong(field.getName());
-      case FLOAT:
-        return row.getFloat(field.getName());
-      case DOUBLE:
-        return row.getDouble(field.getName());
-      case BYTES:
-        return row.getBytes(field.getName());
-      case STRING:
-      case ENUM:
-        // Currently there is no standard container to represent enum type
-        return row.getString(field.getName());
-      case ARRAY:
-        return row.getList(field.getName(), TYPE_CLASS_MAP.get(field.getSchema().getType()));
-      case MAP:
-        return row.getMap(field.getName(), TYPE_CLASS_MAP.get(field.getSchema().getMapSchema().getKey().getType()),
-                          TYPE_CLASS_MAP.get(field.getSchema().getMapSchema().getValue().getType()));
-      case UNION:
-        if (field.getSchema().isNullableSimple()) {
-          try {
-            return extractValue(row, Schema.Field.of(field.getName(), field.getSchema().getNonNullable()));
-          } catch (Exception e) {
-            return null;
-          }
-        }
-    }
-    throw new IOException(String.format("Unsupported schema: %s for field: \'%s\'",
-                                        field.getSchema(), field.getName()));
+  @Override
+  public void transform(KeyValue<Long, Row> input, Emitter<StructuredRecord> emitter) throws Exception {
+    emitter.emit(decoder.decode(input.getValue()));
   }
 
   /**
@@ -215,10 +191,26 @@ public class BatchCassandraSource extends ReferenceBatchSource<Long, Row, Struct
 
     @Name(Cassandra.QUERY)
     @Description("The query to select data on. For example: \'SELECT * from table " +
-      "where token(id) > ? and token(id) <= ?\'")
+      "where token(id) > ? and token(id) <= ?\'. If this is empty, only the columns in the schema are " +
+      "selected from the column family, one token range at a time.")
+    @Nullable
     @Macro
     private String query;
 
+    @Name(Cassandra.SPLIT_SIZE)
+    @Description("The approximate number of rows in each split. Each token range of the ring is divided into " +
+      "splits of about this many rows, which are read in parallel. Defaults to 65536.")
+    @Nullable
+    @Macro
+    private Integer splitSize;
+
+    @Name(Cassandra.PAGE_SIZE)
+    @Description("The number of rows fetched from Cassandra in each page while reading a split. " +
+      "Defaults to 1000.")
+    @Nullable
+    @Macro
+    private Integer pageSize;
+
     @Name(Cassandra.SCHEMA)
     @Description("The schema for the data as it will be formatted in CDAP. Sample schema: {\n" +
       "    \"type\": \"record\",\n" +
@@ -259,6 +251,17 @@ public class BatchCassandraSource extends ReferenceBatchSource<Long, Row, Struct
       this.properties = properties;
     }
 
+    private void validate() {
+      if (!containsMacro(Cassandra.SPLIT_SIZE) && splitSize != null && splitSize < 1) {
+        throw new IllegalArgumentException(
+          String.format("Invalid split size %d. The split size must be at least 1.", splitSize));
+      }
+      if (!containsMacro(Cassandra.PAGE_SIZE) && pageSize != null && pageSize < 1) {
+        throw new IllegalArgumentException(
+          String.format("Invalid page size %d. The page size must be at least 1.", pageSize));
+      }
+    }
+
     @Nullable
     private Schema getSchema() {
       try {
@@ -283,6 +286,8 @@ public class BatchCassandraSource extends ReferenceBatchSource<Long, Row, Struct
     public static final String QUERY = "query";
     public static final String SCHEMA = "schema";
     public static final String PROPERTIES = "properties";
+    public static final String SPLIT_SIZE = "splitSize";
+    public static final String PAGE_SIZE = "pageSize";
   }
 }
 
@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.source;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.Row;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts Cassandra {@link Row Rows} into {@link StructuredRecord StructuredRecords} of a single schema.
+ * A typed decoder is chosen for every field when the decoder is created. The position of each field in the
+ * result set is looked up once per result set, so decoding a row reads every column by index.
+ */
+final class CassandraRowDecoder {
+  private static final Map<Schema.Type, Class<?>> TYPE_CLASS_MAP = new ImmutableMap.Builder<Schema.Type, Class<?>>()
+                                                                    .put(Schema.Type.BOOLEAN, Boolean.class)
+                                                                    .put(Schema.Type.BYTES, ByteBuffer.class)
+                                                                    .put(Schema.Type.DOUBLE, Double.class)
+                                                                    .put(Schema.Type.FLOAT, Float.class)
+                                                                    .put(Schema.Type.INT, Integer.class)
+                                                                    .put(Schema.Type.LONG, Long.class)
+                                                                    .put(Schema.Type.STRING, String.class)
+                                                                    .put(Schema.Type.ENUM, String.class)
+                                                                    .build();
+
+  private final Schema schema;
+  private final String[] names;
+  private final boolean[] nullable;
+  private final Decoder[] decoders;
+  private final int[] indexes;
+  private ColumnDefinitions columnDefinitions;
+
+  CassandraRowDecoder(Schema schema) {
+    this.schema = schema;
+    List<Schema.Field> fields = schema.getFields();
+    this.names = new String[fields.size()];
+    this.nullable = new boolean[fields.size()];
+    this.decoders = new Decoder[fields.size()];
+    this.indexes = new int[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
+      Schema fieldSchema = field.getSchema();
+      names[i] = field.getName();
+      if (fieldSchema.getType() == Schema.Type.UNION) {
+        if (!fieldSchema.isNullableSimple()) {
+          throw unsupported(field.getName(), fieldSchema);
+        }
+        nullable[i] = true;
+        fieldSchema = fieldSchema.getNonNullable();
+      }
+      decoders[i] = createDecoder(field.getName(), fieldSchema);
+    }
+  }
+
+  /**
+   * Converts a row into a record. Nullable fields are null if the column is null or not in the result.
+   *
+   * @throws IllegalArgumentException if a non-nullable field is not in the result
+   */
+  StructuredRecord decode(Row row) {
+    // all rows of a result set share the same definitions, so the indexes only change between queries
+    if (row.getColumnDefinitions() != columnDefinitions) {
+      resolveIndexes(row.getColumnDefinitions());
+    }
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (int i = 0; i < names.length; i++) {
+      int index = indexes[i];
+      if (index < 0 || (nullable[i] && row.isNull(index))) {
+        builder.set(names[i], null);
+      } else {
+        builder.set(names[i], decoders[i].decode(row, index));
+      }
+    }
+    return builder.build();
+  }
+
+  private void resolveIndexes(ColumnDefinitions definitions) {
+    for (int i = 0; i < names.length; i++) {
+      if (definitions.contains(names[i])) {
+        indexes[i] = definitions.getIndexOf(names[i]);
+      } else if (nullable[i]) {
+        indexes[i] = -1;
+      } else {
+        throw new IllegalArgumentException(
+          String.format("Field '%s' is not nullable but is not in the result of the query.", names[i]));
+      }
+    }
+    columnDefinitions = definitions;
+  }
+
+  private static Decoder createDecoder(String name, Schema schema) {
+    switch (schema.getType()) {
+      case NULL:
+        return (row, index) -> null;
+      case BOOLEAN:
+        return Row::getBool;
+      case INT:
+        return Row::getInt;
+      case LONG:
+        return Row::getLong;
+      case FLOAT:
+        return Row::getFloat;
+      case DOUBLE:
+        return Row::getDouble;
+      case BYTES:
+        return Row::getBytes;
+      case STRING:
+      case ENUM:
+        // Currently there is no standard container to represent enum type
+        return Row::getString;
+      case ARRAY:
+        Class<?> elementClass = getElementClass(name, schema.getComponentSchema());
+        return (row, index) -> row.getList(index, elementClass);
+      case MAP:
+        Class<?> keyClass = getElementClass(name, schema.getMapSchema().getKey());
+        Class<?> valueClass = getElementClass(name, schema.getMapSchema().getValue());
+        return (row, index) -> row.getMap(index, keyClass, valueClass);
+      default:
+        throw unsupported(name, schema);
+    }
+  }
+
+  private static Class<?> getElementClass(String name, Schema schema) {
+    Class<?> elementClass = TYPE_CLASS_MAP.get(schema.getType());
+    if (elementClass == null) {
+      throw unsupported(name, schema);
+    }
+    return elementClass;
+  }
+
+  private static IllegalArgumentException unsupported(String name, Schema schema) {
+    return new IllegalArgumentException(String.format("Unsupported schema: %s for field: '%s'", schema, name));
+  }
+
+  /**
+   * Reads the value of a non-null column of a row.
+   */
+  private interface Decoder {
+    Object decode(Row row, int index);
+  }
+}
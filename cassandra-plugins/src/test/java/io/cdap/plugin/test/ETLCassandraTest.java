@@ -45,6 +45,7 @@ import io.cdap.cdap.test.DataSetManager;
 import io.cdap.cdap.test.TestConfiguration;
 import io.cdap.cdap.test.WorkflowManager;
 import io.cdap.plugin.batch.sink.BatchCassandraSink;
+import io.cdap.plugin.batch.sink.CassandraBatchOutputFormat;
 import io.cdap.plugin.batch.source.BatchCassandraSource;
 import io.cdap.plugin.common.Constants;
 import org.apache.cassandra.hadoop.ColumnFamilySplit;
@@ -110,7 +111,8 @@ public class ETLCassandraTest extends HydratorTestBase {
     addPluginArtifact(NamespaceId.DEFAULT.artifact("cassandra-plugins", "1.0.0"),
                       parents,
                       BatchCassandraSink.class, BatchCassandraSource.class,
-                      CqlInputFormat.class, CqlOutputFormat.class, ColumnFamilySplit.class);
+                      CqlInputFormat.class, CqlOutputFormat.class, ColumnFamilySplit.class,
+                      CassandraBatchOutputFormat.class);
 
     rpcPort = 9160;
     EmbeddedCassandraServerHelper.startEmbeddedCassandra("cassandra210.yaml", 30 * 1000);
@@ -125,6 +127,10 @@ public class ETLCassandraTest extends HydratorTestBase {
     client.execute_cql3_query(
       ByteBufferUtil.bytes("CREATE TABLE testtablebatch ( ticker text PRIMARY KEY, price double, num int );"),
       Compression.NONE, ConsistencyLevel.ALL);
+    client.execute_cql3_query(
+      ByteBufferUtil.bytes("CREATE TABLE testtablebatched ( ticker text, num int, price double, " +
+                             "PRIMARY KEY (ticker, num) );"),
+      Compression.NONE, ConsistencyLevel.ALL);
     client.execute_cql3_query(
       ByteBufferUtil.bytes("CREATE TABLE testtablerealtime ( name text, graduated boolean, " +
                              "id int, score double, time bigint PRIMARY KEY );"),
@@ -140,6 +146,7 @@ public class ETLCassandraTest extends HydratorTestBase {
   public void testCassandra() throws Exception {
     testCassandraSink();
     testCassandraSource();
+    testCassandraSourceProjection();
   }
 
   public void testCassandraSink() throws Exception {
@@ -202,6 +209,108 @@ public class ETLCassandraTest extends HydratorTestBase {
     Assert.assertEquals(ByteBufferUtil.bytes(212.36), result.getRows().get(1).getColumns().get(2).bufferForValue());
   }
 
+  @Test
+  public void testCassandraSinkUnloggedBatches() throws Exception {
+    String inputDatasetName = "input-batchedsinktest";
+    ETLStage source = new ETLStage("source", MockSource.getPlugin(inputDatasetName));
+
+    Map<String, String> sinkProperties = new ImmutableMap.Builder<String, String>()
+      .put(Constants.Reference.REFERENCE_NAME, "TestCassBatched")
+      .put(BatchCassandraSink.Cassandra.INITIAL_ADDRESS, "localhost")
+      .put(BatchCassandraSink.Cassandra.PARTITIONER, "org.apache.cassandra.dht.Murmur3Partitioner")
+      .put(BatchCassandraSink.Cassandra.KEYSPACE, "testkeyspace")
+      .put(BatchCassandraSink.Cassandra.COLUMN_FAMILY, "testtablebatched")
+      .put(BatchCassandraSink.Cassandra.COLUMNS, "ticker, num, price")
+      .put(BatchCassandraSink.Cassandra.PRIMARY_KEY, "ticker, num")
+      .put(BatchCassandraSink.Cassandra.BATCH_SIZE, "2")
+      .put(BatchCassandraSink.Cassandra.NATIVE_PORT, "9042")
+      .build();
+    ETLStage sink = new ETLStage("sink", new ETLPlugin("Cassandra", BatchSink.PLUGIN_TYPE, sinkProperties, null));
+
+    ETLBatchConfig etlConfig = ETLBatchConfig.builder("* * * * *")
+      .addStage(source)
+      .addStage(sink)
+      .addConnection(source.getName(), sink.getName())
+      .build();
+
+    AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(ETLBATCH_ARTIFACT, etlConfig);
+    ApplicationId appId = NamespaceId.DEFAULT.app("cassandraBatchedSinkTest");
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    // three rows of the AAPL partition fill one batch and leave one row for the final flush
+    List<StructuredRecord> input = ImmutableList.of(
+      StructuredRecord.builder(SCHEMA).set("ticker", "AAPL").set("num", 1).set("price", 500.32d).build(),
+      StructuredRecord.builder(SCHEMA).set("ticker", "CDAP").set("num", 2).set("price", 212.36d).build(),
+      StructuredRecord.builder(SCHEMA).set("ticker", "AAPL").set("num", 3).set("price", 501.10d).build(),
+      StructuredRecord.builder(SCHEMA).set("ticker", "AAPL").set("num", 4).set("price", 499.87d).build()
+    );
+    DataSetManager<Table> inputManager = getDataset(inputDatasetName);
+    MockSource.writeInput(inputManager, input);
+
+    WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+    workflowManager.start();
+    workflowManager.waitForRuns(ProgramRunStatus.COMPLETED, 1, 5, TimeUnit.MINUTES);
+
+    CqlResult result = client.execute_cql3_query(
+      ByteBufferUtil.bytes("SELECT price from testtablebatched WHERE ticker = 'AAPL'"),
+      Compression.NONE, ConsistencyLevel.ALL);
+    Assert.assertEquals(3, result.getRowsSize());
+    Assert.assertEquals(ByteBufferUtil.bytes(500.32), result.getRows().get(0).getColumns().get(0).bufferForValue());
+    Assert.assertEquals(ByteBufferUtil.bytes(499.87), result.getRows().get(2).getColumns().get(0).bufferForValue());
+
+    result = client.execute_cql3_query(ByteBufferUtil.bytes("SELECT * from testtablebatched WHERE ticker = 'CDAP'"),
+                                       Compression.NONE, ConsistencyLevel.ALL);
+    Assert.assertEquals(1, result.getRowsSize());
+  }
+
+  private void testCassandraSourceProjection() throws Exception {
+    Schema schema = Schema.recordOf(
+      "event",
+      Schema.Field.of("ticker", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("price", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+    // without a query, only the columns of the schema are read, one token range at a time
+    Map<String, String> sourceProperties = new ImmutableMap.Builder<String, String>()
+      .put(Constants.Reference.REFERENCE_NAME, "TestCassProjection")
+      .put(BatchCassandraSource.Cassandra.INITIAL_ADDRESS, "localhost")
+      .put(BatchCassandraSource.Cassandra.PARTITIONER, "org.apache.cassandra.dht.Murmur3Partitioner")
+      .put(BatchCassandraSource.Cassandra.KEYSPACE, "testkeyspace")
+      .put(BatchCassandraSource.Cassandra.COLUMN_FAMILY, "testtablebatch")
+      .put(BatchCassandraSource.Cassandra.SPLIT_SIZE, "1024")
+      .put(BatchCassandraSource.Cassandra.PAGE_SIZE, "1")
+      .put(BatchCassandraSource.Cassandra.SCHEMA, schema.toString())
+      .build();
+    ETLStage source =
+      new ETLStage("source", new ETLPlugin("Cassandra", BatchSource.PLUGIN_TYPE, sourceProperties, null));
+
+    String outputDatasetName = "output-batchsourceprojectiontest";
+    ETLStage sink = new ETLStage("sink", MockSink.getPlugin(outputDatasetName));
+
+    ETLBatchConfig etlConfig = ETLBatchConfig.builder("* * * * *")
+      .addStage(source)
+      .addStage(sink)
+      .addConnection(source.getName(), sink.getName())
+      .build();
+
+    AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(ETLBATCH_ARTIFACT, etlConfig);
+    ApplicationId appId = NamespaceId.DEFAULT.app("CassandraSourceProjectionTest");
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+    workflowManager.start();
+    workflowManager.waitForRuns(ProgramRunStatus.COMPLETED, 1, 5, TimeUnit.MINUTES);
+
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    List<StructuredRecord> output = MockSink.readOutput(outputManager);
+
+    Map<String, Double> results = new HashMap<>();
+    for (StructuredRecord record : output) {
+      results.put((String) record.get("ticker"), (Double) record.get("price"));
+    }
+    Assert.assertEquals(2, results.size());
+    Assert.assertEquals(500.32, results.get("AAPL"), 0.000001);
+    Assert.assertEquals(212.36, results.get("CDAP"), 0.000001);
+  }
+
   private void testCassandraSource() throws Exception {
     Map<String, String> sourceProperties = new ImmutableMap.Builder<String, String>()
       .put(Constants.Reference.REFERENCE_NAME, "TestCass")
@@ -22,6 +22,8 @@ import io.cdap.cdap.api.data.batch.Output;
 import io.cdap.cdap.api.dataset.DatasetManagementException;
 import io.cdap.cdap.api.dataset.DatasetProperties;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.StageMetrics;
+import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.batch.BatchSinkContext;
 import io.cdap.plugin.common.BatchReadableWritableConfig;
@@ -39,7 +41,17 @@ import java.util.Map;
  * @param <VAL_OUT> the type of value the sink outputs
  */
 public abstract class BatchWritableSink<IN, KEY_OUT, VAL_OUT> extends BatchSink<IN, KEY_OUT, VAL_OUT> {
+  /**
+   * Number of bytes of keys and values written to the dataset.
+   */
+  public static final String BYTES_WRITTEN_METRIC = "bytes.written";
+  // metrics are reported in batches, since a metrics update costs more than encoding a small record
+  private static final int METRICS_BATCH_SIZE = 1000;
+
   private final BatchReadableWritableConfig batchReadableWritableConfig;
+  private StageMetrics metrics;
+  private long pendingBytes;
+  private int pendingWrites;
 
   protected BatchWritableSink(BatchReadableWritableConfig batchReadableWritableConfig) {
     this.batchReadableWritableConfig = batchReadableWritableConfig;
@@ -65,6 +77,36 @@ public abstract class BatchWritableSink<IN, KEY_OUT, VAL_OUT> extends BatchSink<
     }
   }
 
+  @Override
+  public void initialize(BatchRuntimeContext context) throws Exception {
+    super.initialize(context);
+    metrics = context.getMetrics();
+  }
+
+  /**
+   * Records the size of a key and value that was written. Subclasses should call this for every record they emit.
+   */
+  protected void countWrite(long bytes) {
+    pendingBytes += bytes;
+    if (++pendingWrites >= METRICS_BATCH_SIZE || pendingBytes >= Integer.MAX_VALUE / 2) {
+      flushMetrics();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    flushMetrics();
+    super.destroy();
+  }
+
+  private void flushMetrics() {
+    if (metrics != null && pendingBytes > 0) {
+      metrics.count(BYTES_WRITTEN_METRIC, (int) Math.min(pendingBytes, Integer.MAX_VALUE));
+    }
+    pendingBytes = 0;
+    pendingWrites = 0;
+  }
+
   protected boolean shouldSkipCreateAtConfigure() {
     return false;
   }
@@ -30,6 +30,7 @@ import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.plugin.common.BatchReadableWritableConfig;
 import io.cdap.plugin.common.Properties;
+import io.cdap.plugin.common.SchemaCache;
 import io.cdap.plugin.common.SchemaValidator;
 
 import java.nio.ByteBuffer;
@@ -76,6 +77,7 @@ public class KVTableSink extends BatchWritableSink<StructuredRecord, byte[], byt
   }
 
   private final KVTableConfig kvTableConfig;
+  private final SchemaCache<RecordEncoder> encoders = new SchemaCache<>(RecordEncoder::new);
 
   public KVTableSink(KVTableConfig kvTableConfig) {
     super(kvTableConfig);
@@ -124,43 +126,84 @@ public class KVTableSink extends BatchWritableSink<StructuredRecord, byte[], byt
   public void transform(StructuredRecord input, Emitter<KeyValue<byte[], byte[]>> emitter) throws Exception {
     Object key = input.get(kvTableConfig.keyField);
     Preconditions.checkArgument(key != null, "Key cannot be null.");
-    byte[] keyBytes;
+    RecordEncoder encoder = encoders.get(input.getSchema());
+    if (encoder.valueEncoder == null) {
+      throw new Exception("Value Field " + kvTableConfig.valueField + " is missing in the input record");
+    }
+
+    byte[] keyBytes = encoder.keyEncoder.encode(key);
+    Object val = input.get(kvTableConfig.valueField);
+    byte[] valBytes = val == null ? null : encoder.valueEncoder.encode(val);
+    countWrite(keyBytes.length + (valBytes == null ? 0 : valBytes.length));
+    emitter.emit(new KeyValue<>(keyBytes, valBytes));
+  }
 
-    Schema keyFieldSchema = input.getSchema().getField(kvTableConfig.keyField).getSchema();
+  private Encoder createKeyEncoder(Schema inputSchema) {
+    Schema keyFieldSchema = inputSchema.getField(kvTableConfig.keyField).getSchema();
     if (keyFieldSchema.getType().equals(Schema.Type.STRING)) {
-      keyBytes = Bytes.toBytes((String) key);
+      return value -> Bytes.toBytes((String) value);
     } else if (keyFieldSchema.getType().equals(Schema.Type.BYTES)) {
-      keyBytes = key instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) key) : (byte[]) key;
+      return KVTableSink::toBytes;
     } else if (keyFieldSchema.isNullable()) {
-      throw new Exception(
-        String.format("Key field %s cannot have nullable schema %s", kvTableConfig.keyField, keyFieldSchema));
-    } else {
+      return value -> {
+        throw new Exception(
+          String.format("Key field %s cannot have nullable schema %s", kvTableConfig.keyField, keyFieldSchema));
+      };
+    }
+    return value -> {
       throw new Exception(
         String.format("Key field %s cannot have schema %s. It must of either String or Bytes",
                       kvTableConfig.keyField, keyFieldSchema));
-    }
+    };
+  }
 
-    Schema.Field valueFieldSchema = input.getSchema().getField(kvTableConfig.valueField);
+  /**
+   * Returns the encoder of the value field, or null if the field is not in the schema.
+   */
+  @Nullable
+  private Encoder createValueEncoder(Schema inputSchema) {
+    Schema.Field valueFieldSchema = inputSchema.getField(kvTableConfig.valueField);
     if (valueFieldSchema == null) {
-      throw new Exception("Value Field " + kvTableConfig.valueField + " is missing in the input record");
+      return null;
+    }
+    Schema.Type valueFieldType =
+      valueFieldSchema.getSchema().isNullable() ? valueFieldSchema.getSchema().getNonNullable().getType() :
+        valueFieldSchema.getSchema().getType();
+    if (valueFieldType.equals(Schema.Type.STRING)) {
+      return value -> Bytes.toBytes((String) value);
+    } else if (valueFieldType.equals(Schema.Type.BYTES)) {
+      return KVTableSink::toBytes;
     }
+    // null values are written without being encoded, so an unsupported type only fails for non-null values
+    return value -> {
+      throw new Exception(
+        String.format("Value field %s cannot have schema %s. It must of either String or Bytes",
+                      kvTableConfig.valueField, valueFieldSchema));
+    };
+  }
 
-    byte[] valBytes = null;
-    Object val = input.get(kvTableConfig.valueField);
-    if (val != null) {
-      Schema.Type valueFieldType =
-        valueFieldSchema.getSchema().isNullable() ? valueFieldSchema.getSchema().getNonNullable().getType() :
-          valueFieldSchema.getSchema().getType();
-      if (valueFieldType.equals(Schema.Type.STRING)) {
-        valBytes = Bytes.toBytes((String) val);
-      } else if (valueFieldType.equals(Schema.Type.BYTES)) {
-        valBytes = val instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) val) : (byte[]) val;
-      } else {
-        throw new Exception(
-          String.format("Value field %s cannot have schema %s. It must of either String or Bytes",
-                        kvTableConfig.valueField, valueFieldSchema));
-      }
+  private static byte[] toBytes(Object value) {
+    return value instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) value) : (byte[]) value;
+  }
+
+  /**
+   * The key and value encoders for one input schema.
+   */
+  private final class RecordEncoder {
+    private final Encoder keyEncoder;
+    @Nullable
+    private final Encoder valueEncoder;
+
+    private RecordEncoder(Schema inputSchema) {
+      this.keyEncoder = createKeyEncoder(inputSchema);
+      this.valueEncoder = createValueEncoder(inputSchema);
     }
-    emitter.emit(new KeyValue<>(keyBytes, valBytes));
+  }
+
+  /**
+   * Serializes a non-null key or value into the bytes stored in the table.
+   */
+  private interface Encoder {
+    byte[] encode(Object value) throws Exception;
   }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.sink;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.dataset.table.Put;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Converts {@link StructuredRecord StructuredRecords} of a single schema into Table {@link Put Puts}.
+ * The column name bytes and the encoder for every field are computed once, when the encoder is created, so
+ * converting a record only reads its values.
+ */
+final class TableRecordEncoder {
+  private final String rowField;
+  private final Encoder rowEncoder;
+  private final String[] names;
+  private final byte[][] columns;
+  private final boolean[] nullable;
+  private final Encoder[] encoders;
+
+  /**
+   * Creates an encoder for the given schema.
+   *
+   * @param schema the schema of the records to encode
+   * @param rowField the field to use as the row key
+   * @param outputSchema the schema of the table. If given, only its fields are written and their types are used.
+   * @throws IllegalArgumentException if the row field is not in the schema, a field has an unsupported type or
+   *   a field has a different type in the output schema
+   */
+  TableRecordEncoder(Schema schema, String rowField, @Nullable Schema outputSchema) {
+    this.rowField = rowField;
+    Schema.Field keyField = schema.getField(rowField);
+    if (keyField == null) {
+      throw new IllegalArgumentException(String.format("Could not find key field '%s' in record.", rowField));
+    }
+    this.rowEncoder = createEncoder(rowField, getSchema(keyField, outputSchema));
+
+    List<Schema.Field> fields = new ArrayList<>();
+    for (Schema.Field field : schema.getFields()) {
+      // skip the row key and fields that are not in the output schema
+      if (field.getName().equals(rowField)) {
+        continue;
+      }
+      if (outputSchema == null || outputSchema.getField(field.getName()) != null) {
+        fields.add(field);
+      }
+    }
+    this.names = new String[fields.size()];
+    this.columns = new byte[fields.size()][];
+    this.nullable = new boolean[fields.size()];
+    this.encoders = new Encoder[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      Schema fieldSchema = getSchema(fields.get(i), outputSchema);
+      names[i] = fields.get(i).getName();
+      columns[i] = Bytes.toBytes(names[i]);
+      nullable[i] = fieldSchema.isNullable();
+      encoders[i] = createEncoder(names[i], fieldSchema);
+    }
+  }
+
+  /**
+   * Converts a record into a put. Null values are not written, since a null value in a put deletes the column.
+   *
+   * @throws IllegalArgumentException if the row key or a non-nullable field is null
+   */
+  Put toPut(StructuredRecord record) {
+    Object key = record.get(rowField);
+    if (key == null) {
+      throw new IllegalArgumentException(String.format("Record must contain a value for the key field '%s'.",
+                                                       rowField));
+    }
+    Put put = new Put(rowEncoder.encode(key));
+    for (int i = 0; i < names.length; i++) {
+      Object value = record.get(names[i]);
+      if (value != null) {
+        put.add(columns[i], encoders[i].encode(value));
+      } else if (!nullable[i]) {
+        throw new IllegalArgumentException(String.format("Field '%s' is not nullable but has a null value.",
+                                                         names[i]));
+      }
+    }
+    return put;
+  }
+
+  /**
+   * Returns the schema that a field is written with. Values are encoded by the type of the output field, so it
+   * must have the same type as the field of the records.
+   */
+  private static Schema getSchema(Schema.Field field, @Nullable Schema outputSchema) {
+    Schema.Field outputField = outputSchema == null ? null : outputSchema.getField(field.getName());
+    if (outputField == null) {
+      return field.getSchema();
+    }
+    Schema inputType = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+    Schema outputType = outputField.getSchema().isNullable() ?
+      outputField.getSchema().getNonNullable() : outputField.getSchema();
+    if (!inputType.equals(outputType)) {
+      throw new IllegalArgumentException(
+        String.format("Field '%s' is of type %s in the input schema but of type %s in the output schema.",
+                      field.getName(), inputType.getDisplayName(), outputType.getDisplayName()));
+    }
+    return outputField.getSchema();
+  }
+
+  private static Encoder createEncoder(String name, Schema schema) {
+    if (schema.isNullable()) {
+      if (!schema.isNullableSimple()) {
+        throw unsupported(name, schema);
+      }
+      schema = schema.getNonNullable();
+    }
+    switch (schema.getType()) {
+      case BOOLEAN:
+        return value -> Bytes.toBytes((Boolean) value);
+      case INT:
+        return value -> Bytes.toBytes((Integer) value);
+      case LONG:
+        return value -> Bytes.toBytes((Long) value);
+      case FLOAT:
+        return value -> Bytes.toBytes((Float) value);
+      case DOUBLE:
+        return value -> Bytes.toBytes((Double) value);
+      case BYTES:
+        return value -> value instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) value) : (byte[]) value;
+      case STRING:
+        return value -> Bytes.toBytes((String) value);
+      default:
+        throw unsupported(name, schema);
+    }
+  }
+
+  private static IllegalArgumentException unsupported(String name, Schema schema) {
+    return new IllegalArgumentException(
+      String.format("Field '%s' is of unsupported type %s; only simple types are supported.", name, schema));
+  }
+
+  /**
+   * Serializes a non-null field value into the bytes stored in the table.
+   */
+  private interface Encoder {
+    byte[] encode(Object value);
+  }
+}
@@ -30,13 +30,14 @@ import io.cdap.cdap.api.dataset.table.Put;
 import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.api.lineage.field.EndPoint;
 import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSinkContext;
 import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
 import io.cdap.cdap.etl.api.lineage.field.FieldWriteOperation;
-import io.cdap.cdap.format.RecordPutTransformer;
 import io.cdap.plugin.common.Properties;
+import io.cdap.plugin.common.SchemaCache;
 import io.cdap.plugin.common.SchemaValidator;
 import io.cdap.plugin.common.TableSinkConfig;
 
@@ -57,7 +58,9 @@ import java.util.stream.Collectors;
 public class TableSink extends BatchWritableSink<StructuredRecord, byte[], Put> {
 
   private final TableSinkConfig tableSinkConfig;
-  private RecordPutTransformer recordPutTransformer;
+  private Schema outputSchema;
+  private final SchemaCache<TableRecordEncoder> encoders = new SchemaCache<>(
+    schema -> new TableRecordEncoder(schema, tableSinkConfig.getRowField(), outputSchema));
 
   public TableSink(TableSinkConfig tableSinkConfig) {
     super(tableSinkConfig);
@@ -80,6 +83,19 @@ public class TableSink extends BatchWritableSink<StructuredRecord, byte[], Put>
       if (outputSchema.getFields().size() == 1) {
         throw new IllegalArgumentException("Output schema should have columns other than rowkey.");
       }
+      // the records are encoded by the types of the output schema, so they have to be the types of the input fields.
+      // The encoder is only checked if the schemas are otherwise valid, so mismatches are not reported twice.
+      Schema inputSchema = pipelineConfigurer.getStageConfigurer().getInputSchema();
+      FailureCollector collector = pipelineConfigurer.getStageConfigurer().getFailureCollector();
+      if (inputSchema != null && collector.getValidationFailures().isEmpty() &&
+        !tableSinkConfig.containsMacro(Properties.Table.PROPERTY_SCHEMA_ROW_FIELD)) {
+        try {
+          new TableRecordEncoder(inputSchema, tableSinkConfig.getRowField(), outputSchema);
+        } catch (IllegalArgumentException e) {
+          collector.addFailure(e.getMessage(), "Change the output schema to match the input schema.")
+            .withConfigProperty(Properties.Table.PROPERTY_SCHEMA);
+        }
+      }
     }
 
     // NOTE: this is done only for testing, once CDAP-4575 is implemented, we can use this schema in initialize
@@ -117,14 +133,12 @@ public class TableSink extends BatchWritableSink<StructuredRecord, byte[], Put>
   @Override
   public void initialize(BatchRuntimeContext context) throws Exception {
     super.initialize(context);
-    Schema outputSchema = null;
     // If a schema string is present in the properties, use that to construct the outputSchema and pass it to the
-    // recordPutTransformer
+    // record encoder
     String schemaString = tableSinkConfig.getSchemaStr();
     if (schemaString != null) {
       outputSchema = Schema.parseJson(schemaString);
     }
-    recordPutTransformer = new RecordPutTransformer(tableSinkConfig.getRowField(), outputSchema);
   }
 
   @Override
@@ -139,7 +153,12 @@ public class TableSink extends BatchWritableSink<StructuredRecord, byte[], Put>
 
   @Override
   public void transform(StructuredRecord input, Emitter<KeyValue<byte[], Put>> emitter) throws Exception {
-    Put put = recordPutTransformer.toPut(input);
+    Put put = encoders.get(input.getSchema()).toPut(input);
+    long size = put.getRow().length;
+    for (Map.Entry<byte[], byte[]> column : put.getValues().entrySet()) {
+      size += column.getKey().length + column.getValue().length;
+    }
+    countWrite(size);
     emitter.emit(new KeyValue<>(put.getRow(), put));
   }
 }
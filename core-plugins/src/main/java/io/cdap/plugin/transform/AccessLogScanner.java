@@ -0,0 +1,434 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.transform;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import javax.annotation.Nullable;
+
+/**
+ * Scans access log lines field by field, in a single pass and without backtracking. After a line was scanned
+ * successfully, the getters return the fields of that line. Instances are not thread safe.
+ */
+final class AccessLogScanner {
+  private static final DateTimeFormatter STRFTIME_FORMAT =
+    DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+
+  /**
+   * The supported log formats.
+   */
+  enum Format {
+    CLF("CLF"),
+    S3("S3"),
+    CLOUDFRONT("Cloudfront"),
+    NGINX("Nginx"),
+    ELB("ELB");
+
+    private final String name;
+
+    Format(String name) {
+      this.name = name;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    /**
+     * @return the format with the given name, or null if there is no such format
+     */
+    @Nullable
+    static Format fromName(String name) {
+      for (Format format : values()) {
+        if (format.name.equals(name)) {
+          return format;
+        }
+      }
+      return null;
+    }
+  }
+
+  private final Format format;
+  private String line;
+  private int pos;
+
+  private String uri;
+  private String ip;
+  private String userAgent;
+  private int httpStatus;
+  private Long timestamp;
+  // most lines of a log share their time with the line before, so the last time that was parsed is kept
+  private String lastTime;
+  private Long lastTimestamp;
+
+  AccessLogScanner(Format format) {
+    this.format = format;
+  }
+
+  /**
+   * Scans a log line.
+   *
+   * @return whether the line matched the format of this scanner
+   */
+  boolean scan(String line) {
+    this.line = line;
+    this.pos = 0;
+    switch (format) {
+      case CLF:
+        return scanCombined(false);
+      case NGINX:
+        return scanCombined(true);
+      case S3:
+        return scanS3();
+      case CLOUDFRONT:
+        return scanCloudfront();
+      case ELB:
+        return scanElb();
+      default:
+        throw new IllegalStateException("Unsupported log format " + format);
+    }
+  }
+
+  /**
+   * @return the URI of the request, or null if the request of the line is not made of a method and a URI
+   */
+  @Nullable
+  String getUri() {
+    return uri;
+  }
+
+  String getIp() {
+    return ip;
+  }
+
+  String getUserAgent() {
+    return userAgent;
+  }
+
+  int getHttpStatus() {
+    return httpStatus;
+  }
+
+  /**
+   * @return the time of the line in milliseconds since the epoch, or null if it could not be parsed
+   */
+  @Nullable
+  Long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Scans the Apache combined log format, which is also the nginx 'combined' format. The CLF format requires the
+   * same fields as the log parser always did, while the nginx format allows empty quoted fields, IPv6 addresses
+   * and additional fields at the end of the line, such as the forwarded address of the nginx 'main' format.
+   */
+  private boolean scanCombined(boolean lenient) {
+    //   ip  id  user  [date]  "request"  status  size  "referrer"  "user agent"
+    ip = token();
+    if (ip == null || (!lenient && !isAddress(ip)) || !skip(' ') || token() == null || !skip(' ')
+      || token() == null || !skip(' ')) {
+      return false;
+    }
+    String time = enclosed('[', ']', false);
+    if (time == null || !skip(' ')) {
+      return false;
+    }
+    String request = enclosed('"', '"', lenient);
+    if (request == null || !skip(' ') || !scanStatus() || !skip(' ') || !isSize(token()) || !skip(' ')
+      || enclosed('"', '"', lenient) == null || !skip(' ')) {
+      return false;
+    }
+    userAgent = enclosed('"', '"', lenient);
+    // only the lenient format allows more fields after the user agent
+    if (userAgent == null || (pos < line.length() && (!lenient || !skip(' ')))) {
+      return false;
+    }
+    uri = getRequestUri(request);
+    timestamp = parseStrftime(time);
+    return true;
+  }
+
+  private boolean scanS3() {
+    //  owner  bucket  [time]  ip  requester  request id  operation  key  "request"
+    if (token() == null || !skip(' ') || token() == null || !skip(' ')) {
+      return false;
+    }
+    String time = enclosed('[', ']', false);
+    if (time == null || !skip(' ')) {
+      return false;
+    }
+    ip = token();
+    if (!isAddress(ip) || !skip(' ') || !skipTokens(4)) {
+      return false;
+    }
+    String request = enclosed('"', '"', false);
+    // status  error code  bytes sent  object size  total time  turn around time  "referrer"  "user agent"  version id
+    if (request == null || !skip(' ') || !scanStatus() || !skip(' ') || token() == null || !skip(' ')
+      || !isSize(token()) || !skip(' ') || !isSize(token()) || !skip(' ') || !isDigits(token()) || !skip(' ')
+      || !isSize(token()) || !skip(' ') || enclosed('"', '"', false) == null || !skip(' ')) {
+      return false;
+    }
+    userAgent = enclosed('"', '"', false);
+    // the version id and any fields that were added to the format after it
+    if (userAgent == null || !skip(' ') || pos == line.length()) {
+      return false;
+    }
+    uri = getRequestUri(request);
+    timestamp = parseStrftime(time);
+    return true;
+  }
+
+  /**
+   * Scans the tab separated Cloudfront web distribution format. Comment lines must be skipped by the caller.
+   */
+  private boolean scanCloudfront() {
+    // date  time  edge location  bytes  ip  method  host  uri  status  referrer  user agent
+    String date = field('\t');
+    String time = field('\t');
+    skipFields(2);
+    ip = field('\t');
+    skipFields(2);
+    uri = field('\t');
+    String status = field('\t');
+    skipFields(1);
+    userAgent = field('\t');
+    if (userAgent == null || !isStatus(status)) {
+      return false;
+    }
+    httpStatus = Integer.parseInt(status);
+    try {
+      timestamp = LocalDate.parse(date).atTime(LocalTime.parse(time)).toInstant(ZoneOffset.UTC).toEpochMilli();
+    } catch (DateTimeException e) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Scans the Classic Load Balancer access log format.
+   */
+  private boolean scanElb() {
+    // time  name  client:port  backend:port  request, backend and response processing times  status
+    String time = token();
+    if (time == null || !skip(' ') || token() == null || !skip(' ')) {
+      return false;
+    }
+    String client = token();
+    if (client == null || !skip(' ') || !skipTokens(4) || !scanStatus() || !skip(' ')) {
+      return false;
+    }
+    // backend status  received bytes  sent bytes  "request"  "user agent"  ssl cipher  ssl protocol
+    if (!skipTokens(3)) {
+      return false;
+    }
+    String request = enclosed('"', '"', true);
+    if (request == null || !skip(' ')) {
+      return false;
+    }
+    userAgent = enclosed('"', '"', true);
+    if (userAgent == null) {
+      return false;
+    }
+    int port = client.lastIndexOf(':');
+    ip = port < 0 ? client : client.substring(0, port);
+    uri = getRequestUri(request);
+    try {
+      timestamp = time.equals(lastTime) ? lastTimestamp : Instant.parse(time).toEpochMilli();
+    } catch (DateTimeException e) {
+      return false;
+    }
+    lastTime = time;
+    lastTimestamp = timestamp;
+    return true;
+  }
+
+  private boolean scanStatus() {
+    String status = token();
+    if (!isStatus(status)) {
+      return false;
+    }
+    httpStatus = Integer.parseInt(status);
+    return true;
+  }
+
+  @Nullable
+  private Long parseStrftime(String time) {
+    if (!time.equals(lastTime)) {
+      lastTime = time;
+      try {
+        lastTimestamp = OffsetDateTime.parse(time, STRFTIME_FORMAT).toInstant().toEpochMilli();
+      } catch (DateTimeException e) {
+        lastTimestamp = null;
+      }
+    }
+    return lastTimestamp;
+  }
+
+  /**
+   * Returns the second of the whitespace separated parts of a request such as {@code GET /index.html HTTP/1.1},
+   * or null if the request does not start with a method and a URI.
+   */
+  @Nullable
+  private static String getRequestUri(String request) {
+    int i = 0;
+    while (i < request.length() && !isWhitespace(request.charAt(i))) {
+      i++;
+    }
+    if (i == 0 || i == request.length()) {
+      return null;
+    }
+    int start = ++i;
+    while (i < request.length() && !isWhitespace(request.charAt(i))) {
+      i++;
+    }
+    return i == start ? null : request.substring(start, i);
+  }
+
+  /**
+   * Reads a non empty run of characters that are not whitespace.
+   */
+  @Nullable
+  private String token() {
+    int start = pos;
+    while (pos < line.length() && !isWhitespace(line.charAt(pos))) {
+      pos++;
+    }
+    return pos == start ? null : line.substring(start, pos);
+  }
+
+  /**
+   * Skips the given number of tokens, each followed by a space.
+   */
+  private boolean skipTokens(int count) {
+    for (int i = 0; i < count; i++) {
+      if (token() == null || !skip(' ')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads the text between an opening and a closing character, which must not contain the closing character.
+   */
+  @Nullable
+  private String enclosed(char open, char close, boolean allowEmpty) {
+    if (!skip(open)) {
+      return null;
+    }
+    int end = line.indexOf(close, pos);
+    if (end < 0 || (end == pos && !allowEmpty)) {
+      return null;
+    }
+    String value = line.substring(pos, end);
+    pos = end + 1;
+    return value;
+  }
+
+  /**
+   * Reads the text up to the next separator or the end of the line, and skips the separator.
+   */
+  @Nullable
+  private String field(char separator) {
+    if (pos > line.length()) {
+      return null;
+    }
+    int end = line.indexOf(separator, pos);
+    if (end < 0) {
+      end = line.length();
+    }
+    String value = line.substring(pos, end);
+    pos = end + 1;
+    return value;
+  }
+
+  private void skipFields(int count) {
+    for (int i = 0; i < count && pos <= line.length(); i++) {
+      int end = line.indexOf('\t', pos);
+      pos = end < 0 ? line.length() + 1 : end + 1;
+    }
+  }
+
+  private boolean skip(char c) {
+    if (pos < line.length() && line.charAt(pos) == c) {
+      pos++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether a value is an IPv4 address or a short IPv6 loopback address such as {@code ::1}.
+   */
+  private static boolean isAddress(@Nullable String value) {
+    if (value == null) {
+      return false;
+    }
+    if (value.length() == 3 && value.startsWith("::")) {
+      return Character.isDigit(value.charAt(2));
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c != '.' && (c < '0' || c > '9')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isStatus(@Nullable String value) {
+    return value != null && value.length() == 3 && isDigits(value);
+  }
+
+  private static boolean isDigits(@Nullable String value) {
+    if (value == null) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns whether a value is a byte count, which is '-' if no bytes were sent.
+   */
+  private static boolean isSize(@Nullable String value) {
+    if (value == null) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c != '-' && c != '"' && (c < '0' || c > '9')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+}
@@ -28,6 +28,7 @@ import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.InvalidEntry;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.Transform;
+import io.cdap.cdap.etl.api.TransformContext;
 import net.sf.uadetector.ReadableUserAgent;
 import net.sf.uadetector.UserAgentStringParser;
 import net.sf.uadetector.service.UADetectorServiceFactory;
@@ -35,10 +36,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -59,38 +60,23 @@ public class LogParserTransform extends Transform<StructuredRecord, StructuredRe
     Schema.Field.of("ts", Schema.of(Schema.Type.LONG))
   );
   private static final String LOG_FORMAT_DESCRIPTION = "Log format to parse. Currently supports S3, " +
-    "CLF, and Cloudfront formats.";
+    "CLF, Cloudfront, Nginx, and ELB formats.";
   private static final String INPUT_NAME_DESCRIPTION = "Name of the field in the input schema which encodes the " +
     "log information. The given field must be of type String or Bytes.";
   private static final Logger LOG = LoggerFactory.getLogger(LogParserTransform.class);
-  //Regex used to parse a CLF log, each field is commented above
-  private static final Pattern CLF_LOG_PATTERN = Pattern.compile(
-    //   IP                    id    user      date          request     code     size    referrer    user agent
-    "^([\\d.]+|[:][:][\\d]) (\\S+) (\\S+) \\[([^\\]]+)\\] \"([^\"]+)\" (\\d{3}) ([-\"\\d]+) \"([^\"]+)\" \"([^\"]+)\"");
-  //Regex used to parse a S3 log, each field is commented above
-  private static final Pattern S3_LOG_PATTERN = Pattern.compile(
-    // bucket owner name   time           ip                    req   reqID operation  key    request
-    "^(\\S+) (\\S+) \\[(\\p{Print}+)\\] ([\\d.]+|[:][:][\\d]) (\\S+) (\\S+) (\\S+) (\\S+) \"([^\"]+)\" " +
-      //  HTTP stat error code  bytes sent     obj size  time    turn time  referrer         user agent
-      "(\\d{3}) (\\p{Print}+) ([-\"\\d]+) ([-\"\\d]+) ([\\d]+) ([-\"\\d]+) \"(\\p{Print}+)\" \"([^\"]+)\" " +
-      //  version id
-      "(\\p{Print}+)");
-  //Regex used to parse the request field for the URI
-  private static final Pattern REQUEST_PAGE_PATTERN = Pattern.compile("(\\S+)\\s(\\S+).*");
-  //Indices of which group request, time, ip, user agent, and HTTP status code are in the S3 regex
-  private static final int[] S3_INDICES = {9, 3, 4, 17, 10};
-  //Indices of which group request, time, ip, user agent, and HTTP status code are in the CLF regex
-  private static final int[] CLF_INDICES = {5, 4, 1, 9, 6};
-  //Number of groups matched in the S3 regex
-  private static final int S3_REGEX_LENGTH = 18;
-  //Number of groups matched in the CLF regex
-  private static final int CLF_REGEX_LENGTH = 9;
-  private static final String S3_LOG = "S3";
-  private static final String CLF_LOG = "CLF";
-  private static final String CLOUDFRONT_LOG = "Cloudfront";
+  // Most traffic comes from a few hundred user agents, so the browser and device of the most recent ones are cached
+  private static final int MAX_CACHED_USER_AGENTS = 1000;
   private final LogParserConfig config;
-  private final SimpleDateFormat sdfStrftime = new SimpleDateFormat("dd/MMM/yyyy:HH:mm:ss Z");
-  private final SimpleDateFormat sdfCloudfront = new SimpleDateFormat("yyyy-MM-dd:HH:mm:ss z");
+  private final Map<String, ParsedUserAgent> userAgents =
+    new LinkedHashMap<String, ParsedUserAgent>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ParsedUserAgent> eldest) {
+        return size() > MAX_CACHED_USER_AGENTS;
+      }
+    };
+  private AccessLogScanner.Format format;
+  private AccessLogScanner scanner;
+  private UserAgentStringParser userAgentParser;
 
   public LogParserTransform(LogParserConfig config) {
     this.config = config;
@@ -100,11 +86,14 @@ public class LogParserTransform extends Transform<StructuredRecord, StructuredRe
   public void configurePipeline(PipelineConfigurer pipelineConfigurer) throws IllegalArgumentException {
     super.configurePipeline(pipelineConfigurer);
     FailureCollector collector = pipelineConfigurer.getStageConfigurer().getFailureCollector();
-    if (!S3_LOG.equals(config.logFormat) && !CLF_LOG.equals(config.logFormat) &&
-      !CLOUDFRONT_LOG.equals(config.logFormat)) {
+    if (AccessLogScanner.Format.fromName(config.logFormat) == null) {
       LOG.error("Log format not currently supported.");
+      List<String> formats = new ArrayList<>();
+      for (AccessLogScanner.Format supported : AccessLogScanner.Format.values()) {
+        formats.add(supported.getName());
+      }
       collector.addFailure(String.format("Format '%s' is not supported.", config.logFormat),
-                           String.format("Supported formats are: %s, %s, and %s.", S3_LOG, CLF_LOG, CLOUDFRONT_LOG))
+                           String.format("Supported formats are: %s.", String.join(", ", formats)))
         .withConfigProperty(LogParserConfig.LOG_FORMAT);
     }
     Schema inputSchema = pipelineConfigurer.getStageConfigurer().getInputSchema();
@@ -126,6 +115,20 @@ public class LogParserTransform extends Transform<StructuredRecord, StructuredRe
     pipelineConfigurer.getStageConfigurer().setOutputSchema(LOG_SCHEMA);
   }
 
+  @Override
+  public void initialize(TransformContext context) throws Exception {
+    super.initialize(context);
+    format = AccessLogScanner.Format.fromName(config.logFormat);
+    if (format == null) {
+      FailureCollector collector = context.getFailureCollector();
+      collector.addFailure(String.format("Format '%s' is not supported.", config.logFormat), null)
+        .withConfigProperty(LogParserConfig.LOG_FORMAT);
+      collector.getOrThrowException();
+    }
+    scanner = new AccessLogScanner(format);
+    userAgentParser = UADetectorServiceFactory.getResourceModuleParser();
+  }
+
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) throws Exception {
     String log = getLog(input);
@@ -134,53 +137,51 @@ public class LogParserTransform extends Transform<StructuredRecord, StructuredRe
       return;
     }
 
-    StructuredRecord output;
-    if (S3_LOG.equals(config.logFormat)) {
-      Matcher logMatcher = S3_LOG_PATTERN.matcher(log);
-      if (!logMatcher.matches() || logMatcher.groupCount() < S3_REGEX_LENGTH) {
-        LOG.debug("Couldn't parse log because log did not match the S3 format, log: {}", log);
-        emitter.emitError(new InvalidEntry<>(31, "Couldn't parse log, because the log did not match the S3 format.",
-                                             input));
-        return;
-      }
-      output = parseRequest(logMatcher, S3_INDICES);
-    } else if (CLF_LOG.equals(config.logFormat)) {
-      Matcher logMatcher = CLF_LOG_PATTERN.matcher(log);
-      if (!logMatcher.matches() || logMatcher.groupCount() < CLF_REGEX_LENGTH) {
-        LOG.debug("Couldn't parse log because the log did not match the CLF format. log: {}", log);
-        emitter.emitError(new InvalidEntry<>(31, "Couldn't parse log, because the log did not match the CLF format.",
-                                             input));
-        return;
-      }
-      output = parseRequest(logMatcher, CLF_INDICES);
-    } else {
-      if (log.startsWith("#")) {
-        LOG.trace("Log is a comment. Ignoring...");
-        return;
-      }
-
-      String[] fields = log.split("\\t");
-      String uri = fields[7];
-      String ip = fields[4];
-      long ts = sdfCloudfront.parse(String.format("%s:%s UTC", fields[0], fields[1])).getTime();
-      UserAgentStringParser parser = UADetectorServiceFactory.getResourceModuleParser();
-      ReadableUserAgent userAgent = parser.parse(fields[10]);
-      String browser = userAgent.getFamily().getName();
-      String device = userAgent.getDeviceCategory().getCategory().getName();
-      int httpStatus = Integer.parseInt(fields[8]);
+    if (format == AccessLogScanner.Format.CLOUDFRONT && log.startsWith("#")) {
+      LOG.trace("Log is a comment. Ignoring...");
+      return;
+    }
 
-      output = StructuredRecord.builder(LOG_SCHEMA)
-        .set("uri", uri)
-        .set("ip", ip)
-        .set("browser", browser)
-        .set("device", device)
-        .set("httpStatus", httpStatus)
-        .set("ts", ts)
-        .build();
+    if (!scanner.scan(log)) {
+      LOG.debug("Couldn't parse log because the log did not match the {} format. log: {}", format.getName(), log);
+      emitter.emitError(new InvalidEntry<>(31, String.format(
+        "Couldn't parse log, because the log did not match the %s format.", format.getName()), input));
+      return;
     }
-    if (output != null) {
-      emitter.emit(output);
+    String uri = scanner.getUri();
+    if (uri == null) {
+      LOG.debug("Couldn't parse uri because request does not match request pattern, log: {}", log);
+      return;
+    }
+    Long ts = scanner.getTimestamp();
+    if (ts == null) {
+      LOG.debug("Couldn't parse time from the input record, using current timestamp instead.");
+      ts = System.currentTimeMillis();
+    }
+    ParsedUserAgent userAgent = parseUserAgent(scanner.getUserAgent());
+
+    emitter.emit(StructuredRecord.builder(LOG_SCHEMA)
+                   .set("uri", uri)
+                   .set("ip", scanner.getIp())
+                   .set("browser", userAgent.browser)
+                   .set("device", userAgent.device)
+                   .set("httpStatus", scanner.getHttpStatus())
+                   .set("ts", ts)
+                   .build());
+  }
+
+  /**
+   * Returns the browser and device of a user agent, from the cache if it was parsed recently.
+   */
+  private ParsedUserAgent parseUserAgent(String userAgentString) {
+    ParsedUserAgent parsed = userAgents.get(userAgentString);
+    if (parsed == null) {
+      ReadableUserAgent userAgent = userAgentParser.parse(userAgentString);
+      parsed = new ParsedUserAgent(userAgent.getFamily().getName(),
+                                   userAgent.getDeviceCategory().getCategory().getName());
+      userAgents.put(userAgentString, parsed);
     }
+    return parsed;
   }
 
   /**
@@ -256,45 +257,16 @@ public class LogParserTransform extends Transform<StructuredRecord, StructuredRe
   }
 
   /**
-   * Parses a request for the URI, IP, Browser, Device, and Time
-   *
-   * @param logMatcher the regex matcher to use
-   * @param indices array of indices that define what position in the regex the fields are, in the order of Request,
-   *                Time, IP, User Agent, and HTTP status code.
+   * The browser and device of a user agent.
    */
-  @Nullable
-  private StructuredRecord parseRequest(Matcher logMatcher, int[] indices) {
-    String request = logMatcher.group(indices[0]);
-    Matcher requestMatcher = REQUEST_PAGE_PATTERN.matcher(request);
-    if (!requestMatcher.matches() || requestMatcher.groupCount() < 2) {
-      LOG.debug("Couldn't parse uri because request does not match request pattern, request: {}", request);
-      return null;
-    }
+  private static final class ParsedUserAgent {
+    private final String browser;
+    private final String device;
 
-    String uri = requestMatcher.group(2);
-    long ts = System.currentTimeMillis();
-    try {
-      ts = sdfStrftime.parse(logMatcher.group(indices[1])).getTime();
-    } catch (ParseException e) {
-      LOG.debug("Couldn't parse time from the input record, using current timestamp instead. Exception: {}",
-                e.getMessage());
+    private ParsedUserAgent(String browser, String device) {
+      this.browser = browser;
+      this.device = device;
     }
-
-    String ip = logMatcher.group(indices[2]);
-    UserAgentStringParser parser = UADetectorServiceFactory.getResourceModuleParser();
-    ReadableUserAgent userAgent = parser.parse(logMatcher.group(indices[3]));
-    String browser = userAgent.getFamily().getName();
-    String device = userAgent.getDeviceCategory().getCategory().getName();
-    int httpStatus = Integer.parseInt(logMatcher.group(indices[4]));
-
-    return StructuredRecord.builder(LOG_SCHEMA)
-      .set("uri", uri)
-      .set("ip", ip)
-      .set("browser", browser)
-      .set("device", device)
-      .set("httpStatus", httpStatus)
-      .set("ts", ts)
-      .build();
   }
 
   /**
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.sink;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.dataset.table.Put;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TableRecordEncoder}.
+ */
+public class TableRecordEncoderTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "purchase",
+    Schema.Field.of("rowkey", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("user", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("count", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("price", Schema.of(Schema.Type.DOUBLE))
+  );
+
+  @Test
+  public void testToPut() {
+    TableRecordEncoder encoder = new TableRecordEncoder(SCHEMA, "rowkey", null);
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("rowkey", "row1").set("user", "samuel").set("count", 5).set("price", 1.5d).build();
+    Put put = encoder.toPut(record);
+    Assert.assertArrayEquals(Bytes.toBytes("row1"), put.getRow());
+    Assert.assertEquals(3, put.getValues().size());
+    Assert.assertArrayEquals(Bytes.toBytes("samuel"), put.getValues().get(Bytes.toBytes("user")));
+    Assert.assertArrayEquals(Bytes.toBytes(5), put.getValues().get(Bytes.toBytes("count")));
+    Assert.assertArrayEquals(Bytes.toBytes(1.5d), put.getValues().get(Bytes.toBytes("price")));
+
+    // null values are skipped rather than written as deletes
+    record = StructuredRecord.builder(SCHEMA).set("rowkey", "row2").set("count", 1).set("price", 2d).build();
+    Assert.assertEquals(2, encoder.toPut(record).getValues().size());
+  }
+
+  @Test
+  public void testOutputSchemaProjection() {
+    Schema outputSchema = Schema.recordOf(
+      "purchase",
+      Schema.Field.of("rowkey", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("count", Schema.of(Schema.Type.INT)));
+    TableRecordEncoder encoder = new TableRecordEncoder(SCHEMA, "rowkey", outputSchema);
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("rowkey", "row1").set("user", "samuel").set("count", 5).set("price", 1.5d).build();
+    Put put = encoder.toPut(record);
+    Assert.assertEquals(1, put.getValues().size());
+    Assert.assertArrayEquals(Bytes.toBytes(5), put.getValues().get(Bytes.toBytes("count")));
+  }
+
+  @Test
+  public void testOutputSchemaTypeMismatch() {
+    // nullability may differ, since null values are checked for every record
+    Schema outputSchema = Schema.recordOf(
+      "purchase",
+      Schema.Field.of("rowkey", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("count", Schema.of(Schema.Type.LONG)));
+    try {
+      new TableRecordEncoder(SCHEMA, "rowkey", outputSchema);
+      Assert.fail("Expected a field with a different type in the output schema to fail.");
+    } catch (IllegalArgumentException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("'count'"));
+    }
+
+    outputSchema = Schema.recordOf(
+      "purchase",
+      Schema.Field.of("rowkey", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("user", Schema.of(Schema.Type.STRING)));
+    TableRecordEncoder encoder = new TableRecordEncoder(SCHEMA, "rowkey", outputSchema);
+    Put put = encoder.toPut(StructuredRecord.builder(SCHEMA)
+                              .set("rowkey", "row1").set("user", "samuel").set("count", 5).set("price", 1.5d).build());
+    Assert.assertArrayEquals(Bytes.toBytes("samuel"), put.getValues().get(Bytes.toBytes("user")));
+  }
+}
@@ -331,6 +331,56 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
     Assert.assertTrue(outputValue.contains("CDAP,Platform"));
   }
 
+  @Test
+  public void testCheckpoint() throws Exception {
+    File inputFolder = temporaryFolder.newFolder();
+    FileUtils.writeStringToFile(new File(inputFolder, "a.txt"), "a1\na2");
+    FileUtils.writeStringToFile(new File(inputFolder, "b.txt"), "b1");
+
+    Assert.assertEquals(ImmutableSet.of("a1", "a2", "b1"), runCheckpointPipeline(inputFolder, "checkpoint-first"));
+
+    // only new files and files whose length or modification time changed are read again
+    FileUtils.writeStringToFile(new File(inputFolder, "b.txt"), "b1\nb2");
+    FileUtils.writeStringToFile(new File(inputFolder, "c.txt"), "c1");
+    Assert.assertEquals(ImmutableSet.of("b1", "b2", "c1"), runCheckpointPipeline(inputFolder, "checkpoint-second"));
+
+    Assert.assertEquals(ImmutableSet.of(), runCheckpointPipeline(inputFolder, "checkpoint-third"));
+  }
+
+  private Set<String> runCheckpointPipeline(File inputFolder, String outputDatasetName) throws Exception {
+    Map<String, String> sourceProperties = new ImmutableMap.Builder<String, String>()
+      .put(Constants.Reference.REFERENCE_NAME, "TestCase")
+      .put(Properties.File.PATH, inputFolder.getAbsolutePath())
+      .put(Properties.File.FORMAT, "text")
+      .put("checkpointTable", "file-checkpoint")
+      .put("listingThreads", "2")
+      .build();
+
+    ETLStage source = new ETLStage("FileInput", new ETLPlugin("File", BatchSource.PLUGIN_TYPE, sourceProperties, null));
+    ETLStage sink = new ETLStage("sink", MockSink.getPlugin(outputDatasetName));
+
+    ETLBatchConfig etlConfig = ETLBatchConfig.builder()
+      .addStage(source)
+      .addStage(sink)
+      .addConnection(source.getName(), sink.getName())
+      .build();
+
+    AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(DATAPIPELINE_ARTIFACT, etlConfig);
+    ApplicationId appId = NamespaceId.DEFAULT.app("FileTest-" + outputDatasetName);
+
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    Set<String> output = new HashSet<>();
+    for (StructuredRecord record : MockSink.readOutput(outputManager)) {
+      output.add(record.get("body"));
+    }
+    return output;
+  }
+
   @Test
   public void testPathGlobbing() throws Exception {
     Map<String, String> sourceProperties = new ImmutableMap.Builder<String, String>()
@@ -467,6 +517,73 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
     Assert.assertArrayEquals(byteContent2, contents.get(file2.toURI().toString()));
   }
 
+  @Test
+  public void testReadBlobChunked() throws Exception {
+    File testFolder = temporaryFolder.newFolder();
+    File file = new File(testFolder, "test");
+    FileUtils.writeStringToFile(file, "abc\ndef\nghi\njkl");
+    String outputDatasetName = UUID.randomUUID().toString();
+
+    Schema schema = Schema.recordOf("blob",
+                                    Schema.Field.of("body", Schema.of(Schema.Type.BYTES)),
+                                    Schema.Field.of("offset", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("chunkIndex", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+    // splits that are not aligned to chunks, so that chunks have to be read past the end of a split
+    String appName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp(
+      appName, testFolder, FileFormat.BLOB.name(), outputDatasetName, schema,
+      ImmutableMap.of("blobMode", "chunked", "chunkSize", "4", "maxSplitSize", "6"));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    List<StructuredRecord> output = MockSink.readOutput(getDataset(outputDatasetName));
+    Map<Long, String> chunks = new HashMap<>();
+    for (StructuredRecord record : output) {
+      long offset = record.get("offset");
+      Assert.assertEquals(offset / 4, (long) record.get("chunkIndex"));
+      Assert.assertEquals(file.toURI().toString(), record.get("file"));
+      chunks.put(offset, Bytes.toString((ByteBuffer) record.get("body")));
+    }
+    Assert.assertEquals(4, output.size());
+    Assert.assertEquals(ImmutableMap.of(0L, "abc\n", 4L, "def\n", 8L, "ghi\n", 12L, "jkl"), chunks);
+  }
+
+  @Test
+  public void testReadBlobMetadata() throws Exception {
+    File testFolder = temporaryFolder.newFolder();
+    File file1 = new File(testFolder, "test1");
+    File file2 = new File(testFolder, "test2");
+    FileUtils.writeStringToFile(file1, "abc");
+    FileUtils.writeStringToFile(file2, "123456");
+    String outputDatasetName = UUID.randomUUID().toString();
+
+    Schema schema = Schema.recordOf("blob",
+                                    Schema.Field.of("length", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("modificationTime", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+    String appName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp(appName, testFolder, FileFormat.BLOB.name(),
+                                                             outputDatasetName, schema,
+                                                             ImmutableMap.of("blobMode", "metadata"));
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    List<StructuredRecord> output = MockSink.readOutput(getDataset(outputDatasetName));
+    Assert.assertEquals(2, output.size());
+    Map<String, StructuredRecord> records = new HashMap<>();
+    for (StructuredRecord record : output) {
+      records.put(record.get("file"), record);
+    }
+    for (File file : ImmutableList.of(file1, file2)) {
+      StructuredRecord record = records.get(file.toURI().toString());
+      Assert.assertEquals(file.length(), (long) record.get("length"));
+      Assert.assertEquals(file.lastModified(), (long) record.get("modificationTime"));
+    }
+  }
+
   @Test
   public void testReadJson() throws Exception {
     File fileText = new File(temporaryFolder.newFolder(), "test.json");
@@ -892,16 +1009,22 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
   private ApplicationManager createSourceAndDeployApp(String appName, File file, String format,
                                                       String outputDatasetName, Schema schema,
                                                       @Nullable String delimiter) throws Exception {
+    Map<String, String> properties = delimiter == null ?
+      ImmutableMap.of() : ImmutableMap.of("delimiter", delimiter);
+    return createSourceAndDeployApp(appName, file, format, outputDatasetName, schema, properties);
+  }
+
+  private ApplicationManager createSourceAndDeployApp(String appName, File file, String format,
+                                                      String outputDatasetName, Schema schema,
+                                                      Map<String, String> properties) throws Exception {
 
     ImmutableMap.Builder<String, String> sourceProperties = ImmutableMap.<String, String>builder()
       .put(Constants.Reference.REFERENCE_NAME, appName + "TestFile")
       .put(Properties.File.PATH, file.getAbsolutePath())
       .put(Properties.File.FORMAT, format)
       .put(Properties.File.IGNORE_NON_EXISTING_FOLDERS, "false")
-      .put("pathField", "file");
-    if (delimiter != null) {
-      sourceProperties.put("delimiter", delimiter);
-    }
+      .put("pathField", "file")
+      .putAll(properties);
 
     if (schema != null) {
       String schemaString = schema.toString();
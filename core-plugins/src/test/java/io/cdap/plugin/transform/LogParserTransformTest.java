@@ -27,11 +27,13 @@ import io.cdap.cdap.etl.api.validation.ValidationException;
 import io.cdap.cdap.etl.api.validation.ValidationFailure.Cause;
 import io.cdap.cdap.etl.mock.common.MockEmitter;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 public class LogParserTransformTest {
   private static final Schema STRING_SCHEMA = Schema.recordOf(
@@ -44,15 +46,14 @@ public class LogParserTransformTest {
   );
   private static final LogParserTransform.LogParserConfig S3_CONFIG =
     new LogParserTransform.LogParserConfig("S3", "body");
-  private static final Transform<StructuredRecord, StructuredRecord> S3_TRANSFORM = new LogParserTransform(S3_CONFIG);
   private static final LogParserTransform.LogParserConfig CLF_CONFIG =
     new LogParserTransform.LogParserConfig("CLF", "body");
-  private static final Transform<StructuredRecord, StructuredRecord> CLF_TRANSFORM =
-    new LogParserTransform(CLF_CONFIG);
   private static final LogParserTransform.LogParserConfig CLOUDFRONT_CONFIG =
     new LogParserTransform.LogParserConfig("Cloudfront", "body");
-  private static final Transform<StructuredRecord, StructuredRecord> CLOUDFRONT_TRANSFORM =
-    new LogParserTransform(CLOUDFRONT_CONFIG);
+  private static final LogParserTransform.LogParserConfig NGINX_CONFIG =
+    new LogParserTransform.LogParserConfig("Nginx", "body");
+  private static final LogParserTransform.LogParserConfig ELB_CONFIG =
+    new LogParserTransform.LogParserConfig("ELB", "body");
 
   private static final Schema LOG_SCHEMA = Schema.recordOf(
     "event",
@@ -75,7 +76,7 @@ public class LogParserTransformTest {
 
 
     MockPipelineConfigurer mockConfigurer = new MockPipelineConfigurer(inputSchemaString, Collections.emptyMap());
-    S3_TRANSFORM.configurePipeline(mockConfigurer);
+    new LogParserTransform(S3_CONFIG).configurePipeline(mockConfigurer);
     Assert.assertEquals(LOG_SCHEMA, mockConfigurer.getOutputSchema());
 
     Schema inputSchemaBytes = Schema.recordOf(
@@ -85,7 +86,7 @@ public class LogParserTransformTest {
 
 
     mockConfigurer = new MockPipelineConfigurer(inputSchemaBytes, Collections.emptyMap());
-    CLF_TRANSFORM.configurePipeline(mockConfigurer);
+    new LogParserTransform(CLF_CONFIG).configurePipeline(mockConfigurer);
     Assert.assertEquals(LOG_SCHEMA, mockConfigurer.getOutputSchema());
   }
 
@@ -93,7 +94,7 @@ public class LogParserTransformTest {
   public void testConfigurePipelineSchemaValidationError() {
     MockPipelineConfigurer mockConfigurer = new MockPipelineConfigurer(Schema.of(Schema.Type.BYTES),
                                                                        Collections.emptyMap());
-    S3_TRANSFORM.configurePipeline(mockConfigurer);
+    new LogParserTransform(S3_CONFIG).configurePipeline(mockConfigurer);
     Assert.assertEquals(LOG_SCHEMA, mockConfigurer.getOutputSchema());
     FailureCollector collector = mockConfigurer.getStageConfigurer().getFailureCollector();
     Assert.assertEquals(1, mockConfigurer.getStageConfigurer().getFailureCollector().getValidationFailures().size());
@@ -109,7 +110,7 @@ public class LogParserTransformTest {
       Schema.Field.of("body", Schema.of(Schema.Type.INT)));
     MockPipelineConfigurer mockConfigurer = new MockPipelineConfigurer(inputSchemaString, Collections.emptyMap());
     try {
-      S3_TRANSFORM.configurePipeline(mockConfigurer);
+      new LogParserTransform(S3_CONFIG).configurePipeline(mockConfigurer);
     } catch (ValidationException e) {
       Assert.assertEquals(1, e.getFailures().size());
       Assert.assertEquals(1, e.getFailures().get(0).getCauses().size());
@@ -128,7 +129,7 @@ public class LogParserTransformTest {
       // "body" is config.inputName and we skip that, causing that field to be null
     );
     MockPipelineConfigurer mockConfigurer = new MockPipelineConfigurer(inputSchemaString, Collections.emptyMap());
-    S3_TRANSFORM.configurePipeline(mockConfigurer);
+    new LogParserTransform(S3_CONFIG).configurePipeline(mockConfigurer);
     FailureCollector collector = mockConfigurer.getStageConfigurer().getFailureCollector();
     Assert.assertEquals(1, collector.getValidationFailures().size());
     Assert.assertEquals(1, collector.getValidationFailures().get(0).getCauses().size());
@@ -155,8 +156,9 @@ public class LogParserTransformTest {
         "\"-\" \"Mozilla/5.0 Gecko/20100115 Firefox/3.6\" -")
       .build();
 
+    Transform<StructuredRecord, StructuredRecord> transform = createTransform(S3_CONFIG);
     MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
-    S3_TRANSFORM.transform(botRecord, emitter);
+    transform.transform(botRecord, emitter);
     StructuredRecord output = emitter.getEmitted().get(0);
     Assert.assertEquals("/my/uri.gif", output.get("uri"));
     Assert.assertEquals("122.122.111.11", output.get("ip"));
@@ -165,7 +167,7 @@ public class LogParserTransformTest {
     Assert.assertEquals(403, output.<Integer>get("httpStatus").intValue());
     Assert.assertEquals(1421924601000L, output.<Long>get("ts").longValue());
 
-    S3_TRANSFORM.transform(browserRecord, emitter);
+    transform.transform(browserRecord, emitter);
     output = emitter.getEmitted().get(1);
     Assert.assertEquals("/my/uri.jpg", output.get("uri"));
     Assert.assertEquals("133.133.133.133", output.get("ip"));
@@ -194,8 +196,9 @@ public class LogParserTransformTest {
       .set("body", comment)
       .build();
 
+    Transform<StructuredRecord, StructuredRecord> transform = createTransform(CLOUDFRONT_CONFIG);
     MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
-    CLOUDFRONT_TRANSFORM.transform(record, emitter);
+    transform.transform(record, emitter);
     StructuredRecord output = emitter.getEmitted().get(0);
     Assert.assertEquals("/coopr-standalone-vm/0.9.8/coopr-standalone-vm-0.9.8.ova", output.get("uri"));
     Assert.assertEquals("11.111.111.11", output.get("ip"));
@@ -204,7 +207,7 @@ public class LogParserTransformTest {
     Assert.assertEquals(200, output.<Integer>get("httpStatus").intValue());
     Assert.assertEquals(1429277748000L, output.<Long>get("ts").longValue());
 
-    CLOUDFRONT_TRANSFORM.transform(commentRecord, emitter);
+    transform.transform(commentRecord, emitter);
     Assert.assertEquals(1, emitter.getEmitted().size());
   }
 
@@ -219,7 +222,7 @@ public class LogParserTransformTest {
       .build();
 
     MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
-    CLF_TRANSFORM.transform(record, emitter);
+    createTransform(CLF_CONFIG).transform(record, emitter);
     StructuredRecord output = emitter.getEmitted().get(0);
     Assert.assertEquals("/apache_pb.gif", output.get("uri"));
     Assert.assertEquals("127.0.0.1", output.get("ip"));
@@ -229,6 +232,69 @@ public class LogParserTransformTest {
     Assert.assertEquals(971211336000L, output.<Long>get("ts").longValue());
   }
 
+  @Test
+  public void testNginxLogTransform() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform = createTransform(NGINX_CONFIG);
+    // the nginx 'main' format, which adds the forwarded address to the combined format
+    StructuredRecord record = StructuredRecord.builder(STRING_SCHEMA)
+      .set("body", "2001:db8::1 - - [17/May/2015:08:05:32 +0000] \"GET /downloads/product_1 HTTP/1.1\" 304 0 " +
+        "\"-\" \"Mozilla/5.0 Gecko/20100115 Firefox/3.6\" \"-\"")
+      .build();
+    StructuredRecord emptyUserAgentRecord = StructuredRecord.builder(STRING_SCHEMA)
+      .set("body", "10.0.0.2 - - [17/May/2015:08:05:33 +0000] \"GET /downloads/product_2 HTTP/1.1\" 200 490 " +
+        "\"-\" \"\"")
+      .build();
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(record, emitter);
+    transform.transform(emptyUserAgentRecord, emitter);
+    Assert.assertEquals(2, emitter.getEmitted().size());
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals("/downloads/product_1", output.get("uri"));
+    Assert.assertEquals("2001:db8::1", output.get("ip"));
+    Assert.assertEquals("Firefox", output.get("browser"));
+    Assert.assertEquals("Personal computer", output.get("device"));
+    Assert.assertEquals(304, output.<Integer>get("httpStatus").intValue());
+    Assert.assertEquals(1431849932000L, output.<Long>get("ts").longValue());
+
+    output = emitter.getEmitted().get(1);
+    Assert.assertEquals("/downloads/product_2", output.get("uri"));
+    Assert.assertEquals("10.0.0.2", output.get("ip"));
+    Assert.assertEquals(200, output.<Integer>get("httpStatus").intValue());
+    Assert.assertEquals(1431849933000L, output.<Long>get("ts").longValue());
+  }
+
+  @Test
+  public void testELBLogTransform() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform = createTransform(ELB_CONFIG);
+    StructuredRecord record = StructuredRecord.builder(STRING_SCHEMA)
+      .set("body", "2015-05-13T23:39:43.945958Z my-loadbalancer 192.168.131.39:2817 10.0.0.1:80 0.000073 " +
+        "0.001048 0.000057 200 200 0 29 \"GET http://www.example.com:80/ HTTP/1.1\" " +
+        "\"Mozilla/5.0 Gecko/20100115 Firefox/3.6\" - -")
+      .build();
+    // requests to TCP listeners have no status
+    StructuredRecord tcpRecord = StructuredRecord.builder(STRING_SCHEMA)
+      .set("body", "2015-05-13T23:39:43.945958Z my-loadbalancer 192.168.131.39:2817 10.0.0.1:80 0.001069 " +
+        "0.000028 0.000041 - - 82 305 \"- - - \" \"-\" - -")
+      .build();
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(record, emitter);
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals("http://www.example.com:80/", output.get("uri"));
+    Assert.assertEquals("192.168.131.39", output.get("ip"));
+    Assert.assertEquals("Firefox", output.get("browser"));
+    Assert.assertEquals("Personal computer", output.get("device"));
+    Assert.assertEquals(200, output.<Integer>get("httpStatus").intValue());
+    Assert.assertEquals(1431560383945L, output.<Long>get("ts").longValue());
+
+    transform.transform(tcpRecord, emitter);
+    Assert.assertEquals(1, emitter.getEmitted().size());
+    Assert.assertEquals(1, emitter.getErrors().size());
+    Assert.assertEquals("Couldn't parse log, because the log did not match the ELB format.",
+                        emitter.getErrors().get(0).getErrorMsg());
+  }
+
   @Test
   public void testErrorDatasetForInvalidCLFLog() throws Exception {
     StructuredRecord record = StructuredRecord.builder(BYTE_SCHEMA)
@@ -238,7 +304,7 @@ public class LogParserTransformTest {
                                                     "")))).build();
 
     MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
-    CLF_TRANSFORM.transform(record, emitter);
+    createTransform(CLF_CONFIG).transform(record, emitter);
 
     Assert.assertEquals(0, emitter.getEmitted().size());
     Assert.assertEquals(1, emitter.getErrors().size());
@@ -259,7 +325,7 @@ public class LogParserTransformTest {
       .build();
 
     MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
-    S3_TRANSFORM.transform(botRecord, emitter);
+    createTransform(S3_CONFIG).transform(botRecord, emitter);
     Assert.assertEquals(0, emitter.getEmitted().size());
     Assert.assertEquals(1, emitter.getErrors().size());
     InvalidEntry<StructuredRecord> invalidEntry = emitter.getErrors().get(0);
@@ -268,4 +334,66 @@ public class LogParserTransformTest {
                         invalidEntry.getErrorMsg());
     Assert.assertEquals("Error Record", botRecord, invalidEntry.getInvalidRecord());
   }
+
+  @Test
+  public void testUnsupportedFormat() throws Exception {
+    try {
+      createTransform(new LogParserTransform.LogParserConfig("W3C", "body"));
+      Assert.fail("Expected initializing with an unsupported format to fail.");
+    } catch (ValidationException e) {
+      Assert.assertEquals(1, e.getFailures().size());
+      Assert.assertEquals(1, e.getFailures().get(0).getCauses().size());
+      Cause expectedCause = new Cause();
+      expectedCause.addAttribute(CauseAttributes.STAGE_CONFIG, LogParserTransform.LogParserConfig.LOG_FORMAT);
+      expectedCause.addAttribute(stage, mockStage);
+      Assert.assertEquals(expectedCause, e.getFailures().get(0).getCauses().get(0));
+    }
+  }
+
+  @Test
+  public void testCLFLines() throws Exception {
+    String[] userAgents = {
+      "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_10_3) AppleWebKit/537.36 (KHTML, like Gecko) " +
+        "Chrome/43.0.2357.124 Safari/537.36",
+      "Mozilla/5.0 Gecko/20100115 Firefox/3.6",
+      "Debian APT-HTTP/1.3 (0.8.16~exp12ubuntu10.  17)"
+    };
+    String[] browsers = { "Chrome", "Firefox", "unknown" };
+    int count = 200;
+    StructuredRecord[] records = new StructuredRecord[count];
+    for (int i = 0; i < count; i++) {
+      records[i] = StructuredRecord.builder(STRING_SCHEMA)
+        .set("body", String.format("10.0.%d.%d - frank [10/Oct/2000:13:%02d:%02d -0700] \"GET /file/%d HTTP/1.0\" " +
+                                     "200 %d \"http://www.example.com/start.html\" \"%s\"",
+                                   i / 256 % 256, i % 256, i / 60 % 60, i % 60, i, i, userAgents[i % 3]))
+        .build();
+    }
+
+    Transform<StructuredRecord, StructuredRecord> transform = createTransform(CLF_CONFIG);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    for (StructuredRecord record : records) {
+      transform.transform(record, emitter);
+    }
+
+    Assert.assertEquals(count, emitter.getEmitted().size());
+    Assert.assertTrue(emitter.getErrors().isEmpty());
+    for (int i = 0; i < count; i++) {
+      StructuredRecord output = emitter.getEmitted().get(i);
+      Assert.assertEquals("/file/" + i, output.get("uri"));
+      Assert.assertEquals(String.format("10.0.%d.%d", i / 256 % 256, i % 256), output.get("ip"));
+      Assert.assertEquals(browsers[i % 3], output.get("browser"));
+      Assert.assertEquals(200, output.<Integer>get("httpStatus").intValue());
+      // 13:00:00 -0700 on the 10th of October 2000
+      long hour = 971208000000L;
+      Assert.assertEquals(hour + TimeUnit.MINUTES.toMillis(i / 60 % 60) + TimeUnit.SECONDS.toMillis(i % 60),
+                          output.<Long>get("ts").longValue());
+    }
+  }
+
+  private static Transform<StructuredRecord, StructuredRecord> createTransform(
+    LogParserTransform.LogParserConfig config) throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform = new LogParserTransform(config);
+    transform.initialize(new MockTransformContext());
+    return transform;
+  }
 }
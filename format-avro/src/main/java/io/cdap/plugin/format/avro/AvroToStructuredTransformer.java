@@ -61,6 +61,13 @@ public class AvroToStructuredTransformer extends RecordConverter<GenericRecord,
     return builder;
   }
 
+  @Nullable
+  @Override
+  protected String getRecordName(Object value) {
+    // the record schema is converted from the Avro schema, so its record name is the Avro name
+    return value instanceof GenericRecord ? ((GenericRecord) value).getSchema().getName() : null;
+  }
+
   public Schema convertSchema(org.apache.avro.Schema schema) throws IOException {
     int hashCode = schema.hashCode();
     Schema structuredSchema;
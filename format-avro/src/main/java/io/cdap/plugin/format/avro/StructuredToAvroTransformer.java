@@ -66,6 +66,12 @@ public class StructuredToAvroTransformer extends RecordConverter<StructuredRecor
     return recordBuilder.build();
   }
 
+  @Nullable
+  @Override
+  protected String getRecordName(Object value) {
+    return value instanceof StructuredRecord ? ((StructuredRecord) value).getSchema().getRecordName() : null;
+  }
+
   @Override
   protected Object convertBytes(Object field) {
     if (field instanceof ByteBuffer) {
@@ -16,11 +16,14 @@
 
 package io.cdap.plugin.format.blob.input;
 
+import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.validation.FormatContext;
 import io.cdap.cdap.etl.api.validation.ValidatingInputFormat;
@@ -29,10 +32,16 @@ import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
- * Reads the entire contents of a File into a single record
+ * Reads the entire contents of a File into a single record, or optionally into a record per fixed-size chunk.
  */
 @Plugin(type = ValidatingInputFormat.PLUGIN_TYPE)
 @Name(BlobInputFormatProvider.NAME)
@@ -40,9 +49,7 @@ import java.util.List;
 public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<BlobInputFormatProvider.BlobConfig> {
   static final String NAME = "blob";
   static final String DESC = "Plugin for reading files in blob format.";
-  public static final PluginClass PLUGIN_CLASS =
-    new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC, BlobInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+  public static final PluginClass PLUGIN_CLASS = getPluginClass();
 
   public BlobInputFormatProvider(BlobConfig conf) {
     super(conf);
@@ -106,6 +113,22 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
       throw collector.getOrThrowException();
     }
 
+    BlobMode mode;
+    try {
+      mode = conf.getMode();
+    } catch (IllegalArgumentException e) {
+      collector.addFailure(e.getMessage(), null).withConfigProperty(BlobConfig.NAME_BLOB_MODE);
+      throw collector.getOrThrowException();
+    }
+    if (!conf.containsMacro(BlobConfig.NAME_CHUNK_SIZE) && conf.chunkSize != null && conf.chunkSize < 1) {
+      collector.addFailure(String.format("Invalid chunk size '%d'.", conf.chunkSize), "It must be at least 1 byte.")
+        .withConfigProperty(BlobConfig.NAME_CHUNK_SIZE);
+    }
+    if (mode != BlobMode.WHOLE) {
+      validateStreamingSchema(collector, schema, mode);
+      return;
+    }
+
     String pathField = conf.getPathField();
     Schema.Field bodyField = schema.getField(BlobConfig.NAME_BODY);
     if (bodyField == null) {
@@ -145,12 +168,114 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
     }
   }
 
+  private void validateStreamingSchema(FailureCollector collector, Schema schema, BlobMode mode) {
+    String pathField = conf.getPathField();
+    Set<String> allowedFields = new HashSet<>();
+    if (pathField != null) {
+      allowedFields.add(pathField);
+    }
+    if (mode == BlobMode.CHUNKED) {
+      validateFieldType(collector, schema, BlobConfig.NAME_BODY, Schema.Type.BYTES, true);
+      validateFieldType(collector, schema, BlobConfig.NAME_OFFSET, Schema.Type.LONG, false);
+      validateFieldType(collector, schema, BlobConfig.NAME_CHUNK_INDEX, Schema.Type.LONG, false);
+      allowedFields.addAll(Arrays.asList(BlobConfig.NAME_BODY, BlobConfig.NAME_OFFSET, BlobConfig.NAME_CHUNK_INDEX));
+    } else {
+      if (pathField == null) {
+        collector.addFailure("A path field must be given when reading blobs in 'metadata' mode.",
+                             "Set the path field so that files can be read later on.")
+          .withConfigProperty("pathField");
+      }
+      validateFieldType(collector, schema, BlobConfig.NAME_LENGTH, Schema.Type.LONG, false);
+      validateFieldType(collector, schema, BlobConfig.NAME_MODIFICATION_TIME, Schema.Type.LONG, false);
+      allowedFields.addAll(Arrays.asList(BlobConfig.NAME_LENGTH, BlobConfig.NAME_MODIFICATION_TIME));
+    }
+
+    for (Schema.Field field : schema.getFields()) {
+      if (!allowedFields.contains(field.getName())) {
+        collector.addFailure(
+          String.format("The schema for the 'blob' format in '%s' mode must only contain the fields %s.",
+                        mode.name().toLowerCase(), allowedFields),
+          String.format("Remove additional field '%s'.", field.getName()))
+          .withOutputSchemaField(field.getName());
+      }
+    }
+  }
+
+  private void validateFieldType(FailureCollector collector, Schema schema, String name, Schema.Type expectedType,
+                                 boolean required) {
+    Schema.Field field = schema.getField(name);
+    if (field == null) {
+      if (required) {
+        collector.addFailure(String.format("The schema for the 'blob' format must have a field named '%s' of type "
+                                             + "'%s'.", name, expectedType.name().toLowerCase()), null)
+          .withConfigProperty(BlobConfig.NAME_SCHEMA);
+      }
+      return;
+    }
+    Schema fieldSchema = field.getSchema();
+    Schema nonNullableSchema = fieldSchema.isNullable() ? fieldSchema.getNonNullable() : fieldSchema;
+    if (nonNullableSchema.getType() != expectedType) {
+      collector.addFailure(
+        String.format("Field '%s' is of unexpected type '%s'.", name, nonNullableSchema.getDisplayName()),
+        String.format("Change type to '%s'.", expectedType.name().toLowerCase())).withOutputSchemaField(name);
+    }
+  }
+
+  @Override
+  protected void addFormatProperties(Map<String, String> properties) {
+    properties.put(PathTrackingBlobInputFormat.MODE, conf.getMode().name());
+    if (conf.chunkSize != null) {
+      properties.put(PathTrackingBlobInputFormat.CHUNK_SIZE, String.valueOf(conf.chunkSize));
+    }
+  }
+
+  private static PluginClass getPluginClass() {
+    Map<String, PluginPropertyField> properties = new HashMap<>(PathTrackingConfig.FIELDS);
+    properties.put(BlobConfig.NAME_BLOB_MODE, new PluginPropertyField(BlobConfig.NAME_BLOB_MODE,
+                                                                      BlobConfig.BLOB_MODE_DESC,
+                                                                      "string", false, true));
+    properties.put(BlobConfig.NAME_CHUNK_SIZE, new PluginPropertyField(BlobConfig.NAME_CHUNK_SIZE,
+                                                                       BlobConfig.CHUNK_SIZE_DESC,
+                                                                       "int", false, true));
+    return new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC, BlobInputFormatProvider.class.getName(),
+                           "conf", properties);
+  }
+
   /**
    * Config for blob format. Overrides getSchema method to return the default schema if it is not provided.
    */
   public static class BlobConfig extends PathTrackingConfig {
     static final String NAME_SCHEMA = "schema";
     static final String NAME_BODY = "body";
+    static final String NAME_OFFSET = "offset";
+    static final String NAME_CHUNK_INDEX = "chunkIndex";
+    static final String NAME_LENGTH = "length";
+    static final String NAME_MODIFICATION_TIME = "modificationTime";
+    static final String NAME_BLOB_MODE = "blobMode";
+    static final String NAME_CHUNK_SIZE = "chunkSize";
+    private static final String BLOB_MODE_DESC = "How files are read. 'whole' reads each file into a single record. "
+      + "'chunked' reads each file as fixed-size chunks, with a record per chunk that contains the 'offset' and "
+      + "'chunkIndex' of the chunk. 'metadata' does not read files, but emits their 'length' and "
+      + "'modificationTime' along with the path field, which can be used to read the file later on. "
+      + "The default is 'whole'.";
+    private static final String CHUNK_SIZE_DESC = "Size in bytes of each chunk when reading files in 'chunked' mode. "
+      + "The default is 8MB.";
+
+    @Macro
+    @Nullable
+    @Name(NAME_BLOB_MODE)
+    @Description(BLOB_MODE_DESC)
+    private String blobMode;
+
+    @Macro
+    @Nullable
+    @Name(NAME_CHUNK_SIZE)
+    @Description(CHUNK_SIZE_DESC)
+    private Integer chunkSize;
+
+    BlobMode getMode() {
+      return Strings.isNullOrEmpty(blobMode) ? BlobMode.WHOLE : BlobMode.from(blobMode);
+    }
 
     /**
      * Return the configured schema, or the default schema if none was given. Should never be called if the
@@ -173,7 +298,17 @@ public class BlobInputFormatProvider extends PathTrackingInputFormatProvider<Blo
 
     private Schema getDefaultSchema() {
       List<Schema.Field> fields = new ArrayList<>();
-      fields.add(Schema.Field.of(NAME_BODY, Schema.of(Schema.Type.BYTES)));
+      BlobMode mode = containsMacro(NAME_BLOB_MODE) ? BlobMode.WHOLE : getMode();
+      if (mode == BlobMode.METADATA) {
+        fields.add(Schema.Field.of(NAME_LENGTH, Schema.of(Schema.Type.LONG)));
+        fields.add(Schema.Field.of(NAME_MODIFICATION_TIME, Schema.of(Schema.Type.LONG)));
+      } else {
+        fields.add(Schema.Field.of(NAME_BODY, Schema.of(Schema.Type.BYTES)));
+      }
+      if (mode == BlobMode.CHUNKED) {
+        fields.add(Schema.Field.of(NAME_OFFSET, Schema.of(Schema.Type.LONG)));
+        fields.add(Schema.Field.of(NAME_CHUNK_INDEX, Schema.of(Schema.Type.LONG)));
+      }
       if (pathField != null && !pathField.isEmpty()) {
         fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
       }
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.blob.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.IOException;
+
+/**
+ * Emits a single record with the metadata of a file, without reading its contents. The file can be read lazily
+ * later on through the path of the file.
+ */
+class BlobMetadataRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+  private final Schema schema;
+  private final boolean hasLengthField;
+  private final boolean hasModificationTimeField;
+  private Path path;
+  private TaskAttemptContext context;
+  private FileStatus status;
+  private boolean hasNext;
+
+  BlobMetadataRecordReader(Schema schema) {
+    this.schema = schema;
+    this.hasLengthField = schema.getField(BlobInputFormatProvider.BlobConfig.NAME_LENGTH) != null;
+    this.hasModificationTimeField = schema.getField(BlobInputFormatProvider.BlobConfig.NAME_MODIFICATION_TIME) != null;
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) {
+    this.path = ((FileSplit) split).getPath();
+    this.context = context;
+    this.hasNext = true;
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    if (!hasNext) {
+      return false;
+    }
+    hasNext = false;
+    status = path.getFileSystem(context.getConfiguration()).getFileStatus(path);
+    return true;
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentValue() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    if (hasLengthField) {
+      builder.set(BlobInputFormatProvider.BlobConfig.NAME_LENGTH, status.getLen());
+    }
+    if (hasModificationTimeField) {
+      builder.set(BlobInputFormatProvider.BlobConfig.NAME_MODIFICATION_TIME, status.getModificationTime());
+    }
+    return builder;
+  }
+
+  @Override
+  public float getProgress() {
+    return hasNext ? 0.0f : 1.0f;
+  }
+
+  @Override
+  public void close() {
+    // no-op
+  }
+}
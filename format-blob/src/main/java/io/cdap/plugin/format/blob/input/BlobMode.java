@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.blob.input;
+
+/**
+ * How the blob format turns a file into records.
+ */
+public enum BlobMode {
+  /**
+   * Reads the entire file into the 'body' field of a single record.
+   */
+  WHOLE,
+  /**
+   * Reads the file as fixed-size chunks, one record per chunk, with the 'offset' and 'chunkIndex' of the chunk.
+   */
+  CHUNKED,
+  /**
+   * Emits a single record per file with its 'length' and 'modificationTime', without reading the file.
+   * The path field can be used to read the file lazily.
+   */
+  METADATA;
+
+  /**
+   * Parses the mode from a case insensitive string.
+   *
+   * @throws IllegalArgumentException if the mode is invalid
+   */
+  public static BlobMode from(String mode) {
+    try {
+      return valueOf(mode.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+        String.format("Invalid blob mode '%s'. Must be one of 'whole', 'chunked', or 'metadata'.", mode), e);
+    }
+  }
+}
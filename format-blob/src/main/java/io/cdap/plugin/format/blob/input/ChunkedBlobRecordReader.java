@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.blob.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads a file as a sequence of fixed-size chunks, emitting a record for each chunk.
+ *
+ * Chunks are aligned to multiples of the chunk size from the start of the file, so that every split reads the chunks
+ * that start within it, even if the last one extends past the end of the split. Each chunk is read directly into the
+ * array that is emitted, since records may be held by later stages after the next chunk has been read.
+ */
+class ChunkedBlobRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+  private final Schema schema;
+  private final int chunkSize;
+  private final boolean hasOffsetField;
+  private final boolean hasChunkIndexField;
+  private FSDataInputStream input;
+  private long start;
+  private long end;
+  private long position;
+  private long offset;
+  private byte[] chunk;
+
+  ChunkedBlobRecordReader(Schema schema, int chunkSize) {
+    this.schema = schema;
+    this.chunkSize = chunkSize;
+    this.hasOffsetField = schema.getField(BlobInputFormatProvider.BlobConfig.NAME_OFFSET) != null;
+    this.hasChunkIndexField = schema.getField(BlobInputFormatProvider.BlobConfig.NAME_CHUNK_INDEX) != null;
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+    FileSplit fileSplit = (FileSplit) split;
+    start = fileSplit.getStart();
+    end = start + fileSplit.getLength();
+    // skip to the first chunk that starts within this split
+    position = (start + chunkSize - 1) / chunkSize * chunkSize;
+
+    Path path = fileSplit.getPath();
+    FileSystem fs = path.getFileSystem(context.getConfiguration());
+    input = fs.open(path);
+    if (position > 0 && position < end) {
+      input.seek(position);
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    if (position >= end) {
+      return false;
+    }
+    chunk = readChunk();
+    if (chunk.length == 0) {
+      return false;
+    }
+    offset = position;
+    position += chunk.length;
+    return true;
+  }
+
+  private byte[] readChunk() throws IOException {
+    byte[] bytes = new byte[chunkSize];
+    int length = 0;
+    while (length < chunkSize) {
+      int read = input.read(bytes, length, chunkSize - length);
+      if (read < 0) {
+        break;
+      }
+      length += read;
+    }
+    return length == chunkSize ? bytes : Arrays.copyOf(bytes, length);
+  }
+
+  @Override
+  public NullWritable getCurrentKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public StructuredRecord.Builder getCurrentValue() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema)
+      .set(BlobInputFormatProvider.BlobConfig.NAME_BODY, chunk);
+    if (hasOffsetField) {
+      builder.set(BlobInputFormatProvider.BlobConfig.NAME_OFFSET, offset);
+    }
+    if (hasChunkIndexField) {
+      builder.set(BlobInputFormatProvider.BlobConfig.NAME_CHUNK_INDEX, offset / chunkSize);
+    }
+    return builder;
+  }
+
+  @Override
+  public float getProgress() {
+    return end == start ? 1.0f : Math.min(1.0f, (position - start) / (float) (end - start));
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (input != null) {
+      input.close();
+    }
+  }
+}
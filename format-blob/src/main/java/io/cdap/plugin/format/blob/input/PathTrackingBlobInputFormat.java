@@ -20,6 +20,7 @@ import com.google.common.io.ByteStreams;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -35,9 +36,13 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 /**
- * Blob input format
+ * Blob input format. Depending on the {@link BlobMode}, it reads each file into a single record, reads each file
+ * as a sequence of fixed-size chunks, or only emits the metadata of each file.
  */
 public class PathTrackingBlobInputFormat extends PathTrackingInputFormat {
+  static final String MODE = "blob.mode";
+  static final String CHUNK_SIZE = "blob.chunk.size";
+  static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
 
   @Override
   public List<InputSplit> getSplits(JobContext job) throws IOException {
@@ -50,13 +55,31 @@ public class PathTrackingBlobInputFormat extends PathTrackingInputFormat {
     }
   }
 
+  /**
+   * Only chunked files can be split, since every other mode emits a single record per file.
+   */
+  @Override
+  protected boolean isSplitable(JobContext context, Path filename) {
+    return getMode(context.getConfiguration()) == BlobMode.CHUNKED;
+  }
+
   @Override
   protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
                                                                                     TaskAttemptContext context,
                                                                                     @Nullable String pathField,
                                                                                     @Nullable Schema schema) {
+    Configuration conf = context.getConfiguration();
+    BlobMode mode = getMode(conf);
+    if (mode == BlobMode.CHUNKED) {
+      return new ChunkedBlobRecordReader(schema, conf.getInt(CHUNK_SIZE, DEFAULT_CHUNK_SIZE));
+    }
+    if (mode == BlobMode.METADATA) {
+      return new BlobMetadataRecordReader(schema);
+    }
+
     if (split.getLength() > Integer.MAX_VALUE) {
-      throw new IllegalArgumentException("Blob format cannot be used with files larger than 2GB");
+      throw new IllegalArgumentException("Blob format cannot be used with files larger than 2GB "
+                                           + "unless files are read in 'chunked' or 'metadata' mode.");
     }
     return new RecordReader<NullWritable, StructuredRecord.Builder>() {
       boolean hasNext;
@@ -110,4 +133,8 @@ public class PathTrackingBlobInputFormat extends PathTrackingInputFormat {
     };
 
   }
+
+  private static BlobMode getMode(Configuration conf) {
+    return BlobMode.from(conf.get(MODE, BlobMode.WHOLE.name()));
+  }
 }
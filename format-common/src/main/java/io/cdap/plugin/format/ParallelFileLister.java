@@ -0,0 +1,285 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.fs.RemoteIterator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Lists the files under a set of paths, which may contain globs. Globs and directories of the same depth are
+ * listed concurrently with a bounded thread pool. Hidden files, whose names start with '_' or '.', are skipped
+ * the same way FileInputFormat skips them.
+ *
+ * When block locations are requested, directories are listed with their block locations in the same call and the
+ * locations of files matched directly by a path are looked up in the pool, so that split planning does not need
+ * to look them up again one file at a time.
+ */
+public class ParallelFileLister {
+  private final Configuration conf;
+  private final Predicate<FileStatus> filter;
+  private final boolean recursive;
+  private final int numThreads;
+  private boolean locateBlocks;
+
+  /**
+   * Creates a lister that only returns files whose path matches the given pattern.
+   * Unlike going through a {@link RegexPathFilter}, the pattern is applied to the listed {@link FileStatus}
+   * directly, so no additional FileSystem calls are made per file.
+   */
+  public ParallelFileLister(Configuration conf, @Nullable Pattern pattern, boolean recursive, int numThreads) {
+    this(conf, patternFilter(pattern), recursive, numThreads);
+  }
+
+  /**
+   * Creates a lister that only returns files and traverses directories accepted by the given filter.
+   */
+  public ParallelFileLister(Configuration conf, @Nullable PathFilter pathFilter, boolean recursive, int numThreads) {
+    this(conf, pathFilter(pathFilter), recursive, numThreads);
+  }
+
+  private ParallelFileLister(Configuration conf, Predicate<FileStatus> filter, boolean recursive, int numThreads) {
+    if (numThreads < 1) {
+      throw new IllegalArgumentException(String.format("Number of listing threads must be at least 1, but was %d.",
+                                                       numThreads));
+    }
+    this.conf = conf;
+    this.filter = filter;
+    this.recursive = recursive;
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Sets whether the returned statuses should be {@link LocatedFileStatus} that include block locations.
+   */
+  public ParallelFileLister setLocateBlocks(boolean locateBlocks) {
+    this.locateBlocks = locateBlocks;
+    return this;
+  }
+
+  /**
+   * Lists all the files that match the given path.
+   *
+   * @param path the path to list
+   * @return the status of every file under the path, or null if the path does not exist
+   * @throws IOException if there was an error listing a directory
+   */
+  @Nullable
+  public List<FileStatus> list(Path path) throws IOException {
+    FileStatus[] matches = path.getFileSystem(conf).globStatus(path, ParallelFileLister::isVisible);
+    if (matches == null) {
+      return null;
+    }
+    ExecutorService executor = createExecutor();
+    try {
+      return expand(executor, matches);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Lists all the files that match any of the given paths.
+   *
+   * @param paths the paths to list
+   * @return the status of every file under the paths
+   * @throws IOException if any of the paths does not match anything, or if there was an error listing a directory
+   */
+  public List<FileStatus> list(Collection<Path> paths) throws IOException {
+    ExecutorService executor = createExecutor();
+    try {
+      List<Future<FileStatus[]>> futures = new ArrayList<>(paths.size());
+      for (Path path : paths) {
+        futures.add(executor.submit(() -> path.getFileSystem(conf).globStatus(path, ParallelFileLister::isVisible)));
+      }
+      List<FileStatus> matches = new ArrayList<>();
+      int i = 0;
+      for (Path path : paths) {
+        FileStatus[] pathMatches = getResult(futures.get(i++));
+        if (pathMatches == null) {
+          throw new IOException(String.format("Input path %s does not exist.", path));
+        }
+        if (pathMatches.length == 0) {
+          throw new IOException(String.format("Input pattern %s matches 0 files.", path));
+        }
+        for (FileStatus match : pathMatches) {
+          matches.add(match);
+        }
+      }
+      return expand(executor, matches.toArray(new FileStatus[0]));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Looks up the block locations of the given files concurrently.
+   *
+   * @param files the files to locate
+   * @return a {@link LocatedFileStatus} for each file, in the same order
+   * @throws IOException if the locations of any of the files could not be looked up
+   */
+  public List<FileStatus> locate(List<FileStatus> files) throws IOException {
+    ExecutorService executor = createExecutor();
+    try {
+      List<Future<FileStatus>> futures = new ArrayList<>(files.size());
+      for (FileStatus file : files) {
+        futures.add(executor.submit(locateTask(file)));
+      }
+      List<FileStatus> located = new ArrayList<>(files.size());
+      for (Future<FileStatus> future : futures) {
+        located.add(getResult(future));
+      }
+      return located;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private List<FileStatus> expand(ExecutorService executor, FileStatus[] matches) throws IOException {
+    List<FileStatus> files = new ArrayList<>();
+    List<Future<FileStatus>> locatedFiles = new ArrayList<>();
+    List<Path> directories = new ArrayList<>();
+    for (FileStatus match : matches) {
+      if (!filter.test(match)) {
+        continue;
+      }
+      if (match.isDirectory()) {
+        directories.add(match.getPath());
+      } else if (locateBlocks && !(match instanceof LocatedFileStatus)) {
+        locatedFiles.add(executor.submit(locateTask(match)));
+      } else {
+        files.add(match);
+      }
+    }
+
+    // the matched directories are listed even when not recursive, just like FileInputFormat does
+    boolean first = true;
+    while (!directories.isEmpty() && (first || recursive)) {
+      first = false;
+      List<Future<List<FileStatus>>> futures = new ArrayList<>(directories.size());
+      for (Path directory : directories) {
+        futures.add(executor.submit(listTask(directory)));
+      }
+      List<Path> nextLevel = new ArrayList<>();
+      for (Future<List<FileStatus>> future : futures) {
+        for (FileStatus status : getResult(future)) {
+          if (status.isDirectory()) {
+            nextLevel.add(status.getPath());
+          } else {
+            files.add(status);
+          }
+        }
+      }
+      directories = nextLevel;
+    }
+
+    for (Future<FileStatus> future : locatedFiles) {
+      files.add(getResult(future));
+    }
+    return files;
+  }
+
+  private Callable<List<FileStatus>> listTask(Path directory) {
+    return () -> {
+      FileSystem fileSystem = directory.getFileSystem(conf);
+      List<FileStatus> statuses = new ArrayList<>();
+      if (locateBlocks) {
+        RemoteIterator<LocatedFileStatus> iterator = fileSystem.listLocatedStatus(directory);
+        while (iterator.hasNext()) {
+          LocatedFileStatus status = iterator.next();
+          if (isVisible(status.getPath()) && filter.test(status)) {
+            statuses.add(status);
+          }
+        }
+      } else {
+        for (FileStatus status : fileSystem.listStatus(directory, ParallelFileLister::isVisible)) {
+          if (filter.test(status)) {
+            statuses.add(status);
+          }
+        }
+      }
+      return statuses;
+    };
+  }
+
+  private Callable<FileStatus> locateTask(FileStatus status) {
+    return () -> {
+      FileSystem fileSystem = status.getPath().getFileSystem(conf);
+      return new LocatedFileStatus(status, fileSystem.getFileBlockLocations(status, 0, status.getLen()));
+    };
+  }
+
+  private ExecutorService createExecutor() {
+    return Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder()
+      .setNameFormat("file-lister-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  private static Predicate<FileStatus> patternFilter(@Nullable Pattern pattern) {
+    if (pattern == null) {
+      return status -> true;
+    }
+    return status -> status.isDirectory() || pattern.matcher(status.getPath().toUri().getPath()).matches();
+  }
+
+  private static Predicate<FileStatus> pathFilter(@Nullable PathFilter pathFilter) {
+    if (pathFilter == null) {
+      return status -> true;
+    }
+    return status -> pathFilter.accept(status.getPath());
+  }
+
+  private static <V> V getResult(Future<V> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while listing files.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("Failed to list files: " + cause.getMessage(), cause);
+    }
+  }
+
+  private static boolean isVisible(Path path) {
+    String name = path.getName();
+    return !name.startsWith("_") && !name.startsWith(".");
+  }
+}
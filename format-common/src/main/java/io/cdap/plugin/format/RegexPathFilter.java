@@ -24,6 +24,7 @@ import org.apache.hadoop.fs.PathFilter;
 
 import java.io.IOException;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 
 /**
  * A PathFilter that only allows files whose name matches a specific regex.
@@ -51,6 +52,14 @@ public class RegexPathFilter extends Configured implements PathFilter {
     }
   }
 
+  /**
+   * @return the pattern that file paths must match, or null if every file is allowed
+   */
+  @Nullable
+  public Pattern getPattern() {
+    return pattern;
+  }
+
   @Override
   public void setConf(Configuration conf) {
     super.setConf(conf);
@@ -17,21 +17,87 @@
 package io.cdap.plugin.format.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.format.ParallelFileLister;
+import io.cdap.plugin.format.RegexPathFilter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReader;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.security.TokenCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Similar to CombineTextInputFormat except it uses PathTrackingInputFormat to keep track of filepaths that
  * records were read from.
+ *
+ * Input paths are listed concurrently with a bounded thread pool, and files are listed together with their
+ * block locations so that split planning does not have to look them up one file at a time. If a
+ * {@link FileManifest} is set, the files in the manifest are read instead of listing the input paths.
  */
 public abstract class CombinePathTrackingInputFormat extends CombineFileInputFormat<NullWritable, StructuredRecord> {
+  /**
+   * Number of threads used to list the input paths. This is the same property that newer versions of
+   * FileInputFormat use for multi-threaded listing.
+   */
+  public static final String LISTING_THREADS = "mapreduce.input.fileinputformat.list-status.num-threads";
+  private static final Logger LOG = LoggerFactory.getLogger(CombinePathTrackingInputFormat.class);
+
+  @Override
+  public List<InputSplit> getSplits(JobContext job) throws IOException {
+    ClassLoader cl = job.getConfiguration().getClassLoader();
+    job.getConfiguration().setClassLoader(getClass().getClassLoader());
+    long start = System.nanoTime();
+    try {
+      List<InputSplit> splits = super.getSplits(job);
+      long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      LOG.debug("Planned {} splits in {} ms.", splits.size(), millis);
+      FileManifest.writePlanningTime(job, millis);
+      return splits;
+    } finally {
+      job.getConfiguration().setClassLoader(cl);
+    }
+  }
+
+  @Override
+  protected List<FileStatus> listStatus(JobContext job) throws IOException {
+    Path[] paths = getInputPaths(job);
+    if (paths.length == 0) {
+      throw new IOException("No input paths specified in job");
+    }
+    Configuration conf = job.getConfiguration();
+    TokenCache.obtainTokensForNamenodes(job.getCredentials(), paths, conf);
+
+    boolean recursive = getInputDirRecursive(job);
+    int numThreads = conf.getInt(LISTING_THREADS, 1);
+    List<FileStatus> manifestFiles = FileManifest.read(job);
+    if (manifestFiles != null) {
+      return new ParallelFileLister(conf, (PathFilter) null, recursive, numThreads).locate(manifestFiles);
+    }
+    PathFilter pathFilter = getInputPathFilter(job);
+    // apply the regex directly to the listed statuses, since the filter itself looks up every path it is given
+    ParallelFileLister lister = pathFilter instanceof RegexPathFilter ?
+      new ParallelFileLister(conf, ((RegexPathFilter) pathFilter).getPattern(), recursive, numThreads) :
+      new ParallelFileLister(conf, pathFilter, recursive, numThreads);
+
+    long start = System.nanoTime();
+    List<FileStatus> files = lister.setLocateBlocks(true).list(Arrays.asList(paths));
+    LOG.debug("Listed {} files in {} ms.", files.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    return files;
+  }
 
   /**
    * Creates a RecordReader that delegates to some other RecordReader for each path in the input split.
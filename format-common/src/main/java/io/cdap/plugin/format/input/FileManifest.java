@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.JobContext;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A file that lists the input files of a job, together with the status they had when they were listed.
+ *
+ * When a manifest is set in the configuration, {@link PathTrackingInputFormat} and
+ * {@link CombinePathTrackingInputFormat} plan their splits from the files in the manifest instead of listing the
+ * input paths again. This lets a source read exactly the files it listed before the job was submitted, with the
+ * lengths they had then, without adding every one of them to the job configuration.
+ *
+ * Since split planning happens after the source prepared the run, the input formats also write the time it took next
+ * to the manifest, for the source to report as a metric when the run finishes.
+ */
+public final class FileManifest {
+  /**
+   * Path of the manifest file to plan splits from.
+   */
+  public static final String PATH = "path.tracking.manifest";
+  private static final String PLANNING_TIME_SUFFIX = ".planning";
+
+  private FileManifest() {
+    // no-op
+  }
+
+  /**
+   * Writes the given files to a new manifest file.
+   *
+   * @param conf the configuration used to access the file system of the manifest
+   * @param manifest the path to write the manifest to, which must not exist
+   * @param files the files to write
+   * @throws IOException if the manifest could not be written
+   */
+  public static void write(Configuration conf, Path manifest, Collection<FileStatus> files) throws IOException {
+    try (DataOutputStream out = manifest.getFileSystem(conf).create(manifest, false)) {
+      out.writeInt(files.size());
+      for (FileStatus file : files) {
+        out.writeUTF(file.getPath().toString());
+        out.writeLong(file.getLen());
+        out.writeShort(file.getReplication());
+        out.writeLong(file.getBlockSize());
+        out.writeLong(file.getModificationTime());
+      }
+    }
+  }
+
+  /**
+   * Reads the files of the manifest that is set in the configuration of the given job.
+   *
+   * @return the files in the manifest, in the order they were written, or null if no manifest is set
+   * @throws IOException if the manifest could not be read
+   */
+  @Nullable
+  public static List<FileStatus> read(JobContext job) throws IOException {
+    Configuration conf = job.getConfiguration();
+    String manifestPath = conf.get(PATH);
+    if (manifestPath == null) {
+      return null;
+    }
+    Path manifest = new Path(manifestPath);
+    try (DataInputStream in = manifest.getFileSystem(conf).open(manifest)) {
+      int count = in.readInt();
+      List<FileStatus> files = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        Path path = new Path(in.readUTF());
+        long length = in.readLong();
+        short replication = in.readShort();
+        long blockSize = in.readLong();
+        long modificationTime = in.readLong();
+        files.add(new FileStatus(length, false, replication, blockSize, modificationTime, path));
+      }
+      return files;
+    }
+  }
+
+  /**
+   * Records how long it took to plan the splits of a job, if the job reads a manifest.
+   *
+   * @throws IOException if the time could not be written
+   */
+  public static void writePlanningTime(JobContext job, long millis) throws IOException {
+    Configuration conf = job.getConfiguration();
+    String manifestPath = conf.get(PATH);
+    if (manifestPath == null) {
+      return;
+    }
+    Path path = new Path(manifestPath + PLANNING_TIME_SUFFIX);
+    try (DataOutputStream out = path.getFileSystem(conf).create(path, true)) {
+      out.writeLong(millis);
+    }
+  }
+
+  /**
+   * Reads the time it took to plan the splits from the given manifest.
+   *
+   * @return the planning time in milliseconds, or null if the splits were not planned from the manifest
+   * @throws IOException if the time could not be read
+   */
+  @Nullable
+  public static Long readPlanningTime(Configuration conf, Path manifest) throws IOException {
+    Path path = manifest.suffix(PLANNING_TIME_SUFFIX);
+    FileSystem fs = path.getFileSystem(conf);
+    if (!fs.exists(path)) {
+      return null;
+    }
+    try (DataInputStream in = fs.open(path)) {
+      return in.readLong();
+    }
+  }
+
+  /**
+   * Deletes a manifest, together with the planning time that was written for it.
+   *
+   * @throws IOException if the files could not be deleted
+   */
+  public static void delete(Configuration conf, Path manifest) throws IOException {
+    FileSystem fs = manifest.getFileSystem(conf);
+    fs.delete(manifest, false);
+    fs.delete(manifest.suffix(PLANNING_TIME_SUFFIX), false);
+  }
+}
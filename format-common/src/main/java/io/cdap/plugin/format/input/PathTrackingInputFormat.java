@@ -19,14 +19,17 @@ package io.cdap.plugin.format.input;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 
 import java.io.IOException;
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -34,6 +37,8 @@ import javax.annotation.Nullable;
  * underlying input formats. The responsibility of this class is to keep track of which file each record is reading
  * from, and to add the file URI to each record. In addition, for text files, it can be configured to keep track
  * of the header for the file, which underlying record readers can use.
+ *
+ * If a {@link FileManifest} is set, the files in the manifest are read instead of listing the input paths.
  */
 public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritable, StructuredRecord> {
   /**
@@ -47,6 +52,12 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
   static final String FILENAME_ONLY = "path.tracking.filename.only";
   static final String SCHEMA = "schema";
 
+  @Override
+  protected List<FileStatus> listStatus(JobContext job) throws IOException {
+    List<FileStatus> files = FileManifest.read(job);
+    return files == null ? super.listStatus(job) : files;
+  }
+
   @Override
   public RecordReader<NullWritable, StructuredRecord> createRecordReader(InputSplit split,
                                                                          TaskAttemptContext context)
@@ -16,11 +16,16 @@
 
 package io.cdap.plugin.format.plugin;
 
+import io.cdap.cdap.api.annotation.TransactionPolicy;
 import io.cdap.cdap.api.data.batch.Input;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.dataset.DatasetProperties;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.cdap.api.dataset.lib.KeyValueTable;
 import io.cdap.cdap.api.plugin.PluginConfig;
+import io.cdap.cdap.api.tx.TransactionControl;
+import io.cdap.cdap.api.tx.TransactionFailureException;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
@@ -32,8 +37,10 @@ import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.common.SourceInputFormatProvider;
 import io.cdap.plugin.common.batch.JobUtils;
 import io.cdap.plugin.format.FileFormat;
-import io.cdap.plugin.format.RegexPathFilter;
+import io.cdap.plugin.format.ParallelFileLister;
+import io.cdap.plugin.format.input.CombinePathTrackingInputFormat;
 import io.cdap.plugin.format.input.EmptyInputFormat;
+import io.cdap.plugin.format.input.FileManifest;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
@@ -41,11 +48,14 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -64,8 +74,14 @@ import javax.annotation.Nullable;
  */
 public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProperties>
   extends BatchSource<NullWritable, StructuredRecord, StructuredRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractFileSource.class);
   private static final String FORMAT_PLUGIN_ID = "format";
+  private static final String LISTING_TIME_METRIC = "file.listing.time.ms";
+  private static final String SPLIT_PLANNING_TIME_METRIC = "file.split.planning.time.ms";
   private final T config;
+  private List<FileStatus> unprocessedFiles;
+  private Configuration manifestConf;
+  private Path manifest;
 
   protected AbstractFileSource(T config) {
     this.config = config;
@@ -93,9 +109,15 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
 
     validatePathField(collector, schema);
     pipelineConfigurer.getStageConfigurer().setOutputSchema(schema);
+
+    String checkpointTable = config.getCheckpointTable();
+    if (checkpointTable != null) {
+      pipelineConfigurer.createDataset(checkpointTable, KeyValueTable.class.getName());
+    }
   }
 
   @Override
+  @TransactionPolicy(TransactionControl.EXPLICIT)
   public void prepareRun(BatchSourceContext context) throws Exception {
     FailureCollector collector = context.getFailureCollector();
     config.validate(collector);
@@ -110,10 +132,6 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
     Configuration conf = job.getConfiguration();
 
     Pattern pattern = config.getFilePattern();
-    if (pattern != null) {
-      RegexPathFilter.configure(conf, pattern);
-      FileInputFormat.setInputPathFilter(job, RegexPathFilter.class);
-    }
     FileInputFormat.setInputDirRecursive(job, config.shouldReadRecursively());
 
     Schema schema = config.getSchema();
@@ -131,20 +149,45 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
     }
 
     Path path = new Path(config.getPath());
-    FileSystem pathFileSystem = FileSystem.get(path.toUri(), conf);
+    ParallelFileLister lister = new ParallelFileLister(conf, pattern, config.shouldReadRecursively(),
+                                                       config.getListingThreads());
+    long listingStart = System.currentTimeMillis();
+    List<FileStatus> listedFiles = lister.list(path);
+    context.getMetrics().gauge(LISTING_TIME_METRIC, System.currentTimeMillis() - listingStart);
 
-    FileStatus[] fileStatus = pathFileSystem.globStatus(path);
+    // listing can take longer than a transaction may last, so only the checkpoint lookup runs in a transaction
+    List<FileStatus> files = listedFiles;
+    String checkpointTable = config.getCheckpointTable();
+    if (files != null && checkpointTable != null) {
+      // Create dataset if macros were provided at configure time
+      if (!context.datasetExists(checkpointTable)) {
+        context.createDataset(checkpointTable, KeyValueTable.class.getName(), DatasetProperties.EMPTY);
+      }
+      context.execute(datasetContext -> {
+        KeyValueTable table = datasetContext.getDataset(checkpointTable);
+        unprocessedFiles = new FileCheckpoint(table).getUnprocessed(listedFiles);
+      });
+      files = unprocessedFiles;
+    }
 
     String inputFormatClass;
-    if (fileStatus == null) {
-      if (config.shouldAllowEmptyInput()) {
+    if (files == null || files.isEmpty()) {
+      if (files != null || config.shouldAllowEmptyInput()) {
         inputFormatClass = EmptyInputFormat.class.getName();
       } else {
         throw new IOException(String.format("Input path %s does not exist", path));
       }
     } else {
       FileInputFormat.addInputPath(job, path);
+      // splits are planned from exactly the files that were listed, which are the files that are checkpointed when
+      // the run finishes, with the lengths they had when they were listed
+      manifestConf = conf;
+      manifest = FileSystem.get(conf).makeQualified(
+        new Path(conf.get("hadoop.tmp.dir", "/tmp"), String.format("file-source-%s.manifest", UUID.randomUUID())));
+      FileManifest.write(conf, manifest, files);
+      conf.set(FileManifest.PATH, manifest.toString());
       FileInputFormat.setMaxInputSplitSize(job, config.getMaxSplitSize());
+      conf.setInt(CombinePathTrackingInputFormat.LISTING_THREADS, config.getListingThreads());
       inputFormatClass = validatingInputFormat.getInputFormatClassName();
       Configuration hConf = job.getConfiguration();
       Map<String, String> inputFormatConfiguration = validatingInputFormat.getInputFormatConfiguration();
@@ -161,6 +204,41 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
     context.setInput(Input.of(config.getReferenceName(), new SourceInputFormatProvider(inputFormatClass, conf)));
   }
 
+  @Override
+  @TransactionPolicy(TransactionControl.EXPLICIT)
+  public void onRunFinish(boolean succeeded, BatchSourceContext context) {
+    super.onRunFinish(succeeded, context);
+    if (manifest != null) {
+      try {
+        Long planningTime = FileManifest.readPlanningTime(manifestConf, manifest);
+        if (planningTime != null) {
+          context.getMetrics().gauge(SPLIT_PLANNING_TIME_METRIC, planningTime);
+        }
+        FileManifest.delete(manifestConf, manifest);
+      } catch (IOException e) {
+        LOG.warn("Failed to clean up the input manifest {}.", manifest, e);
+      }
+    }
+    if (!succeeded || unprocessedFiles == null) {
+      return;
+    }
+    // each batch is committed in its own transaction, so that recording many files does not time out
+    String checkpointTable = config.getCheckpointTable();
+    try {
+      for (int start = 0; start < unprocessedFiles.size(); start += FileCheckpoint.BATCH_SIZE) {
+        List<FileStatus> batch =
+          unprocessedFiles.subList(start, Math.min(start + FileCheckpoint.BATCH_SIZE, unprocessedFiles.size()));
+        context.execute(datasetContext -> {
+          KeyValueTable table = datasetContext.getDataset(checkpointTable);
+          new FileCheckpoint(table).commit(batch);
+        });
+      }
+    } catch (TransactionFailureException e) {
+      LOG.error("Failed to record the files that were read in checkpoint table '{}'. "
+                  + "The files that were not recorded will be read again in the next run.", checkpointTable, e);
+    }
+  }
+
   @Override
   public void transform(KeyValue<NullWritable, StructuredRecord> input,
                         Emitter<StructuredRecord> emitter) throws Exception {
@@ -37,6 +37,8 @@ import javax.annotation.Nullable;
 public abstract class AbstractFileSourceConfig extends PluginConfig implements FileSourceProperties {
   public static final String NAME_FORMAT = "format";
   public static final String NAME_SCHEMA = "schema";
+  public static final String NAME_CHECKPOINT_TABLE = "checkpointTable";
+  public static final String NAME_LISTING_THREADS = "listingThreads";
 
 
   @Description("Name be used to uniquely identify this source for lineage, annotating metadata, etc.")
@@ -94,11 +96,40 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     + "is anything other than 'delimited'.")
   private String delimiter;
 
+  @Macro
+  @Nullable
+  @Description("How files are read if the format is 'blob'. 'whole' reads each file into a single record. "
+    + "'chunked' reads each file as fixed-size chunks, with a record per chunk. 'metadata' only emits the length "
+    + "and modification time of each file along with its path. The mode is ignored for any other format. "
+    + "The default is 'whole'.")
+  private String blobMode;
+
+  @Macro
+  @Nullable
+  @Description("Size in bytes of each chunk if the format is 'blob' and files are read in 'chunked' mode. "
+    + "The default is 8MB.")
+  private Integer chunkSize;
+
   // this is a hidden property that only exists for wrangler's parse-as-csv that uses the header as the schema
   // when this is true and the format is text, the header will be the first record returned by every record reader
   @Nullable
   private Boolean copyHeader;
 
+  @Macro
+  @Nullable
+  @Name(NAME_CHECKPOINT_TABLE)
+  @Description("Name of the dataset used to keep track of the files that have been read. If specified, "
+    + "each run will only read files that are new or that have changed in length or modification time since the "
+    + "last successful run. If not specified, every file in the path is read on every run.")
+  private String checkpointTable;
+
+  @Macro
+  @Nullable
+  @Name(NAME_LISTING_THREADS)
+  @Description("Number of threads to use when listing the files in the input path. Directories of the same depth "
+    + "are listed concurrently, which speeds up listing of deep recursive layouts. The default value is 1.")
+  private Integer listingThreads;
+
   protected AbstractFileSourceConfig() {
     // empty constructor is used to set default values.
     format = FileFormat.TEXT.name().toLowerCase();
@@ -107,6 +138,7 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     recursive = false;
     filenameOnly = false;
     copyHeader = false;
+    listingThreads = 1;
   }
 
   public void validate() {
@@ -127,6 +159,10 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     } catch (IllegalArgumentException e) {
       collector.addFailure(e.getMessage(), null).withConfigProperty(NAME_SCHEMA).withStacktrace(e.getStackTrace());
     }
+    if (!containsMacro(NAME_LISTING_THREADS) && listingThreads != null && listingThreads < 1) {
+      collector.addFailure(String.format("Invalid number of listing threads '%d'.", listingThreads),
+                           "It must be at least 1.").withConfigProperty(NAME_LISTING_THREADS);
+    }
 
     // if failure collector has not collected any errors, that would mean either validation has succeeded or config
     // is using deprecated validate method without collector. In that case, call deprecated validate method.
@@ -190,6 +226,17 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     }
   }
 
+  @Nullable
+  @Override
+  public String getCheckpointTable() {
+    return Strings.isNullOrEmpty(checkpointTable) ? null : checkpointTable;
+  }
+
+  @Override
+  public int getListingThreads() {
+    return listingThreads == null ? 1 : listingThreads;
+  }
+
   public boolean shouldCopyHeader() {
     return copyHeader;
   }
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.plugin;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.cdap.api.dataset.lib.KeyValueTable;
+import org.apache.hadoop.fs.FileStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the files that have already been read by a file source, so that only new or changed files are read
+ * in later runs. Each file is stored in a {@link KeyValueTable} keyed by its path, with a 16 byte value that
+ * contains the file length followed by its modification time.
+ *
+ * Files are looked up and recorded in batches of {@link #BATCH_SIZE}, so that neither the checkpoint table nor a
+ * whole listing has to be held in memory at once, and so that each batch can be committed in its own transaction.
+ */
+final class FileCheckpoint {
+  static final int BATCH_SIZE = 1000;
+  private final KeyValueTable table;
+
+  FileCheckpoint(KeyValueTable table) {
+    this.table = table;
+  }
+
+  /**
+   * @return whether no file has been checkpointed yet
+   */
+  boolean isEmpty() {
+    try (CloseableIterator<KeyValue<byte[], byte[]>> iterator = table.scan(null, null)) {
+      return !iterator.hasNext();
+    }
+  }
+
+  /**
+   * Returns the files that have not been checkpointed, or whose length or modification time changed
+   * since they were checkpointed.
+   */
+  List<FileStatus> getUnprocessed(List<FileStatus> files) {
+    if (isEmpty()) {
+      return files;
+    }
+    List<FileStatus> unprocessed = new ArrayList<>();
+    for (int start = 0; start < files.size(); start += BATCH_SIZE) {
+      List<FileStatus> batch = files.subList(start, Math.min(start + BATCH_SIZE, files.size()));
+      byte[][] keys = new byte[batch.size()][];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = Bytes.toBytes(batch.get(i).getPath().toString());
+      }
+      // the map returned by the table is keyed by byte arrays, which are compared by identity
+      Map<String, byte[]> processed = new HashMap<>();
+      for (Map.Entry<byte[], byte[]> entry : table.readAll(keys).entrySet()) {
+        if (entry.getValue() != null) {
+          processed.put(Bytes.toString(entry.getKey()), entry.getValue());
+        }
+      }
+      for (FileStatus file : batch) {
+        byte[] value = processed.get(file.getPath().toString());
+        if (value == null || Bytes.toLong(value, 0) != file.getLen()
+          || Bytes.toLong(value, Bytes.SIZEOF_LONG) != file.getModificationTime()) {
+          unprocessed.add(file);
+        }
+      }
+    }
+    return unprocessed;
+  }
+
+  /**
+   * Records the given files as processed. Callers should pass at most {@link #BATCH_SIZE} files per transaction.
+   */
+  void commit(List<FileStatus> files) {
+    for (FileStatus file : files) {
+      byte[] value = Bytes.add(Bytes.toBytes(file.getLen()), Bytes.toBytes(file.getModificationTime()));
+      table.write(Bytes.toBytes(file.getPath().toString()), value);
+    }
+  }
+}
@@ -106,4 +106,20 @@ public interface FileSourceProperties {
    */
   @Nullable
   Schema getSchema();
+
+  /**
+   * The name of the dataset used to keep track of files that have already been read. If this is non-null,
+   * only files that are new or that changed since the last successful run will be read.
+   */
+  @Nullable
+  default String getCheckpointTable() {
+    return null;
+  }
+
+  /**
+   * The number of threads to use when listing the files in the input path.
+   */
+  default int getListingThreads() {
+    return 1;
+  }
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Tests for {@link ParallelFileLister}.
+ */
+public class ParallelFileListerTest {
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static File inputDir;
+
+  @BeforeClass
+  public static void setupInput() throws IOException {
+    inputDir = TEMP_FOLDER.newFolder("input");
+    File subDir = new File(inputDir, "sub");
+    File nestedDir = new File(subDir, "nested");
+    Assert.assertTrue(nestedDir.mkdirs());
+    write(new File(inputDir, "a.txt"), "a");
+    write(new File(inputDir, "b.csv"), "bb");
+    write(new File(inputDir, ".hidden.txt"), "hidden");
+    write(new File(inputDir, "_SUCCESS"), "");
+    write(new File(subDir, "c.txt"), "ccc");
+    write(new File(nestedDir, "d.txt"), "dddd");
+  }
+
+  @Test
+  public void testList() throws IOException {
+    Path path = new Path(inputDir.toURI());
+    Assert.assertEquals(ImmutableSet.of("a.txt", "b.csv"),
+                        getNames(new ParallelFileLister(new Configuration(), (Pattern) null, false, 2).list(path)));
+    Assert.assertEquals(ImmutableSet.of("a.txt", "b.csv", "c.txt", "d.txt"),
+                        getNames(new ParallelFileLister(new Configuration(), (Pattern) null, true, 2).list(path)));
+    // the pattern only applies to files, so the files of directories that don't match are listed too
+    Assert.assertEquals(ImmutableSet.of("a.txt", "c.txt", "d.txt"),
+                        getNames(new ParallelFileLister(new Configuration(), Pattern.compile(".*\\.txt"), true, 2)
+                                   .list(path)));
+    Assert.assertEquals(ImmutableSet.of("a.txt", "b.csv"),
+                        getNames(new ParallelFileLister(new Configuration(), (Pattern) null, true, 1)
+                                   .list(new Path(inputDir.toURI().toString(), "*.*"))));
+  }
+
+  @Test
+  public void testListMissing() throws IOException {
+    ParallelFileLister lister = new ParallelFileLister(new Configuration(), (Pattern) null, true, 2);
+    Path missing = new Path(new File(inputDir, "missing").toURI());
+    Assert.assertNull(lister.list(missing));
+    try {
+      lister.list(Arrays.asList(new Path(inputDir.toURI()), missing));
+      Assert.fail("Expected listing a path that does not exist to fail.");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testLocate() throws IOException {
+    ParallelFileLister lister = new ParallelFileLister(new Configuration(), (Pattern) null, true, 3);
+    List<FileStatus> files = lister.list(new Path(inputDir.toURI()));
+    List<FileStatus> located = lister.locate(files);
+    Assert.assertEquals(files.size(), located.size());
+    for (int i = 0; i < files.size(); i++) {
+      Assert.assertTrue(located.get(i) instanceof LocatedFileStatus);
+      Assert.assertEquals(files.get(i).getPath(), located.get(i).getPath());
+      Assert.assertEquals(files.get(i).getLen(), located.get(i).getLen());
+    }
+
+    for (FileStatus file : lister.setLocateBlocks(true).list(new Path(inputDir.toURI()))) {
+      Assert.assertTrue(file instanceof LocatedFileStatus);
+    }
+  }
+
+  private static Set<String> getNames(List<FileStatus> files) {
+    Set<String> names = new HashSet<>();
+    for (FileStatus file : files) {
+      Assert.assertTrue(names.add(file.getPath().getName()));
+    }
+    return names;
+  }
+
+  private static void write(File file, String content) throws IOException {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+}
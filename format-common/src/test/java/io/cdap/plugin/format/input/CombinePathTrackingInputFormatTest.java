@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link CombinePathTrackingInputFormat} and {@link FileManifest}.
+ */
+public class CombinePathTrackingInputFormatTest {
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSplitsFromManifest() throws Exception {
+    File inputDir = TEMP_FOLDER.newFolder();
+    FileStatus first = write(new File(inputDir, "first"), "0123456789");
+    FileStatus second = write(new File(inputDir, "second"), "01234");
+    write(new File(inputDir, "added"), "0123");
+
+    // the second file was appended to after it was listed, and the third file was added
+    FileStatus listedSecond = new FileStatus(3, false, second.getReplication(), second.getBlockSize(),
+                                             second.getModificationTime(), second.getPath());
+    Configuration conf = new Configuration();
+    Path manifest = new Path(TEMP_FOLDER.newFolder().toURI().toString(), "input.manifest");
+    FileManifest.write(conf, manifest, Arrays.asList(first, listedSecond));
+
+    Job job = Job.getInstance(conf);
+    FileInputFormat.addInputPath(job, new Path(inputDir.toURI()));
+    job.getConfiguration().set(FileManifest.PATH, manifest.toString());
+    Assert.assertNull(FileManifest.readPlanningTime(conf, manifest));
+
+    Map<String, Long> lengths = getLengths(new TestInputFormat().getSplits(job));
+    Assert.assertEquals(ImmutableMap.of("first", 10L, "second", 3L), lengths);
+    Long planningTime = FileManifest.readPlanningTime(conf, manifest);
+    Assert.assertNotNull(planningTime);
+    Assert.assertTrue(planningTime >= 0);
+
+    FileManifest.delete(conf, manifest);
+    Assert.assertFalse(manifest.getFileSystem(conf).exists(manifest));
+    Assert.assertNull(FileManifest.readPlanningTime(conf, manifest));
+  }
+
+  @Test
+  public void testSplitsWithoutManifest() throws Exception {
+    File inputDir = TEMP_FOLDER.newFolder();
+    write(new File(inputDir, "first"), "0123456789");
+    write(new File(new File(inputDir, "nested"), "second"), "01234");
+
+    Job job = Job.getInstance(new Configuration());
+    FileInputFormat.addInputPath(job, new Path(inputDir.toURI()));
+    job.getConfiguration().setInt(CombinePathTrackingInputFormat.LISTING_THREADS, 2);
+    Assert.assertEquals(ImmutableMap.of("first", 10L), getLengths(new TestInputFormat().getSplits(job)));
+
+    FileInputFormat.setInputDirRecursive(job, true);
+    Assert.assertEquals(ImmutableMap.of("first", 10L, "second", 5L),
+                        getLengths(new TestInputFormat().getSplits(job)));
+  }
+
+  @Test
+  public void testSplitsFromEmptyManifest() throws Exception {
+    File inputDir = TEMP_FOLDER.newFolder();
+    write(new File(inputDir, "first"), "0123456789");
+    Configuration conf = new Configuration();
+    Path manifest = new Path(TEMP_FOLDER.newFolder().toURI().toString(), "input.manifest");
+    FileManifest.write(conf, manifest, Collections.<FileStatus>emptyList());
+
+    Job job = Job.getInstance(conf);
+    FileInputFormat.addInputPath(job, new Path(inputDir.toURI()));
+    job.getConfiguration().set(FileManifest.PATH, manifest.toString());
+    Assert.assertTrue(new TestInputFormat().getSplits(job).isEmpty());
+  }
+
+  /**
+   * Returns the length of every file in the given splits by file name.
+   */
+  private static Map<String, Long> getLengths(List<InputSplit> splits) {
+    Map<String, Long> lengths = new HashMap<>();
+    for (InputSplit split : splits) {
+      CombineFileSplit combineSplit = (CombineFileSplit) split;
+      for (int i = 0; i < combineSplit.getNumPaths(); i++) {
+        String name = combineSplit.getPath(i).getName();
+        lengths.put(name, lengths.getOrDefault(name, 0L) + combineSplit.getLength(i));
+      }
+    }
+    return lengths;
+  }
+
+  private static FileStatus write(File file, String content) throws IOException {
+    Assert.assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    Path path = new Path(file.toURI());
+    return path.getFileSystem(new Configuration()).getFileStatus(path);
+  }
+
+  /**
+   * An input format that only plans splits.
+   */
+  private static class TestInputFormat extends CombinePathTrackingInputFormat {
+    @Override
+    protected Class<? extends RecordReader<NullWritable, StructuredRecord>> getRecordReaderClass() {
+      return null;
+    }
+  }
+}
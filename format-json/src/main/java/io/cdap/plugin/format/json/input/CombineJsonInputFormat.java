@@ -17,43 +17,24 @@
 package io.cdap.plugin.format.json.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.format.input.CombinePathTrackingInputFormat;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.mapreduce.InputSplit;
-import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.hadoop.mapreduce.lib.input.CombineFileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReader;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReaderWrapper;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
 
 import java.io.IOException;
-import java.util.List;
 
 /**
  * Combined input format that tracks which file each json record was read from.
  */
-public class CombineJsonInputFormat extends CombineFileInputFormat<NullWritable, StructuredRecord> {
+public class CombineJsonInputFormat extends CombinePathTrackingInputFormat {
 
   @Override
-  public List<InputSplit> getSplits(JobContext job) throws IOException {
-    ClassLoader cl = job.getConfiguration().getClassLoader();
-    job.getConfiguration().setClassLoader(getClass().getClassLoader());
-    try {
-      return super.getSplits(job);
-    } finally {
-      job.getConfiguration().setClassLoader(cl);
-    }
-  }
-
-  /**
-   * Creates a RecordReader that delegates to some other RecordReader for each path in the input split.
-   */
-  @Override
-  public RecordReader<NullWritable, StructuredRecord> createRecordReader(InputSplit split, TaskAttemptContext context)
-    throws IOException {
-    return new CombineFileRecordReader<>((CombineFileSplit) split, context, WrapperReader.class);
+  protected Class<? extends RecordReader<NullWritable, StructuredRecord>> getRecordReaderClass() {
+    return WrapperReader.class;
   }
 
   /**
@@ -17,6 +17,7 @@
 package io.cdap.plugin.format.text.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.format.input.CombinePathTrackingInputFormat;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -26,8 +27,6 @@ import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.hadoop.mapreduce.lib.input.CombineFileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReader;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReaderWrapper;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
 
@@ -43,7 +42,7 @@ import javax.annotation.Nullable;
  * Combined input format that tracks which file each text record was read from and optionally emits a file header
  * as the first record for each split.
  */
-public class CombineTextInputFormat extends CombineFileInputFormat<NullWritable, StructuredRecord> {
+public class CombineTextInputFormat extends CombinePathTrackingInputFormat {
   static final String HEADER = "combine.path.tracking.header";
 
   /**
@@ -56,14 +55,7 @@ public class CombineTextInputFormat extends CombineFileInputFormat<NullWritable,
    */
   @Override
   public List<InputSplit> getSplits(JobContext job) throws IOException {
-    ClassLoader cl = job.getConfiguration().getClassLoader();
-    job.getConfiguration().setClassLoader(getClass().getClassLoader());
-    List<InputSplit> fileSplits;
-    try {
-      fileSplits = super.getSplits(job);
-    } finally {
-      job.getConfiguration().setClassLoader(cl);
-    }
+    List<InputSplit> fileSplits = super.getSplits(job);
     Configuration hConf = job.getConfiguration();
 
     boolean shouldCopyHeader = hConf.getBoolean(PathTrackingInputFormat.COPY_HEADER, false);
@@ -82,33 +74,46 @@ public class CombineTextInputFormat extends CombineFileInputFormat<NullWritable,
     return splits;
   }
 
+  /**
+   * Reads the header from the first non-empty file in the split. Empty files are skipped based on the
+   * length of their split without opening them, so usually only a single file is opened.
+   */
   @Nullable
   private String getHeader(Configuration hConf, CombineFileSplit split) throws IOException {
-    String header = null;
-    for (Path path : split.getPaths()) {
-      try (FileSystem fs = path.getFileSystem(hConf);
-        BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(path), StandardCharsets.UTF_8))) {
-        header = reader.readLine();
+    Path[] paths = split.getPaths();
+    for (int i = 0; i < paths.length; i++) {
+      if (split.getLength(i) == 0) {
+        continue;
+      }
+      Path path = paths[i];
+      // the FileSystem is cached and shared, so it must not be closed
+      FileSystem fs = path.getFileSystem(hConf);
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(path), StandardCharsets.UTF_8))) {
+        String header = reader.readLine();
         if (header != null) {
-          break;
+          return header;
         }
       }
     }
-    return header;
+    return null;
   }
 
   /**
-   * Creates a RecordReader that delegates to some other RecordReader for each path in the input split.
-   * The header for each file is set in the context Configuration to make it available to the delegate RecordReaders.
+   * Sets the header of the split in the context Configuration to make it available to the delegate RecordReaders.
    */
   @Override
   public RecordReader<NullWritable, StructuredRecord> createRecordReader(InputSplit split, TaskAttemptContext context)
     throws IOException {
-    CombineHeaderFileSplit combineSplit = (CombineHeaderFileSplit) split;
-    if (combineSplit.getHeader() != null) {
-      context.getConfiguration().set(HEADER, combineSplit.getHeader());
+    String header = ((CombineHeaderFileSplit) split).getHeader();
+    if (header != null) {
+      context.getConfiguration().set(HEADER, header);
     }
-    return new CombineFileRecordReader<>(combineSplit, context, WrapperReader.class);
+    return super.createRecordReader(split, context);
+  }
+
+  @Override
+  protected Class<? extends RecordReader<NullWritable, StructuredRecord>> getRecordReaderClass() {
+    return WrapperReader.class;
   }
 
   /**
@@ -18,6 +18,7 @@ package io.cdap.plugin.sink;
 
 import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.batch.Output;
@@ -39,9 +40,11 @@ import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.common.ReferenceBatchSink;
 import io.cdap.plugin.common.SchemaValidator;
 import io.cdap.plugin.common.batch.JobUtils;
+import io.cdap.plugin.sink.mapreduce.HBaseBulkLoadOutputFormat;
 import io.cdap.plugin.sink.mapreduce.HBaseTableOutputFormat;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.client.Durability;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.mapreduce.KeyValueSerialization;
 import org.apache.hadoop.hbase.mapreduce.MutationSerialization;
@@ -53,6 +56,7 @@ import org.apache.hadoop.util.StringUtils;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import javax.annotation.Nullable;
 
 /**
@@ -62,9 +66,16 @@ import javax.annotation.Nullable;
 @Name("HBase")
 @Description("HBase Batch Sink")
 public class HBaseSink extends ReferenceBatchSink<StructuredRecord, NullWritable, Mutation> {
+  private static final String WRITE_MODE_PUT = "put";
+  private static final String WRITE_MODE_BULK_LOAD = "bulkload";
+  private static final String DEFAULT_BULK_LOAD_DIRECTORY = "/tmp/hbase-bulkload";
+  // the client side write buffer size used by the HTable of TableOutputFormat
+  private static final String WRITE_BUFFER_SIZE = "hbase.client.write.buffer";
 
   private HBaseSinkConfig config;
   private RecordPutTransformer recordPutTransformer;
+  private byte[] columnFamily;
+  private Durability durability;
 
   public HBaseSink(HBaseSinkConfig config) {
     super(config);
@@ -112,10 +123,25 @@ public class HBaseSink extends ReferenceBatchSink<StructuredRecord, NullWritable
   private class HBaseOutputFormatProvider implements OutputFormatProvider {
 
     private final Map<String, String> conf;
+    private final boolean bulkLoad;
 
     HBaseOutputFormatProvider(HBaseSinkConfig config, Configuration configuration) {
       this.conf = new HashMap<>();
+      this.bulkLoad = config.isBulkLoad();
       conf.put(TableOutputFormat.OUTPUT_TABLE, config.tableName);
+      if (bulkLoad) {
+        // each run writes its HFiles to its own directory, which is deleted once they are loaded
+        String bulkLoadDir = !Strings.isNullOrEmpty(config.bulkLoadDirectory) ?
+          config.bulkLoadDirectory : DEFAULT_BULK_LOAD_DIRECTORY;
+        conf.put(HBaseBulkLoadOutputFormat.OUTPUT_DIR,
+                 String.format("%s/%s-%s", bulkLoadDir, config.tableName, UUID.randomUUID()));
+        conf.put(HBaseBulkLoadOutputFormat.COLUMN_FAMILY, config.columnFamily);
+        if (config.writeBufferSize != null) {
+          conf.put(HBaseBulkLoadOutputFormat.BUFFER_SIZE, String.valueOf(config.writeBufferSize));
+        }
+      } else if (config.writeBufferSize != null) {
+        conf.put(WRITE_BUFFER_SIZE, String.valueOf(config.writeBufferSize));
+      }
       String zkQuorum = !Strings.isNullOrEmpty(config.zkQuorum) ? config.zkQuorum : "localhost";
       String zkClientPort = !Strings.isNullOrEmpty(config.zkClientPort) ? config.zkClientPort : "2181";
       String zkNodeParent = !Strings.isNullOrEmpty(config.zkNodeParent) ? config.zkNodeParent : "/hbase";
@@ -130,7 +156,7 @@ public class HBaseSink extends ReferenceBatchSink<StructuredRecord, NullWritable
 
     @Override
     public String getOutputFormatClassName() {
-      return HBaseTableOutputFormat.class.getName();
+      return bulkLoad ? HBaseBulkLoadOutputFormat.class.getName() : HBaseTableOutputFormat.class.getName();
     }
 
     @Override
@@ -145,6 +171,8 @@ public class HBaseSink extends ReferenceBatchSink<StructuredRecord, NullWritable
     // If a schema string is present in the properties, use that to construct the outputSchema and pass it to the
     // recordPutTransformer
     recordPutTransformer = new RecordPutTransformer(config.rowField, config.getSchema());
+    columnFamily = config.columnFamily.getBytes();
+    durability = config.getDurability();
   }
 
   @Override
@@ -152,7 +180,10 @@ public class HBaseSink extends ReferenceBatchSink<StructuredRecord, NullWritable
     Put put = recordPutTransformer.toPut(input);
     org.apache.hadoop.hbase.client.Put hbasePut = new org.apache.hadoop.hbase.client.Put(put.getRow());
     for (Map.Entry<byte[], byte[]> entry : put.getValues().entrySet()) {
-      hbasePut.add(config.columnFamily.getBytes(), entry.getKey(), entry.getValue());
+      hbasePut.add(columnFamily, entry.getKey(), entry.getValue());
+    }
+    if (durability != null) {
+      hbasePut.setDurability(durability);
     }
     emitter.emit(new KeyValue<NullWritable, Mutation>(NullWritable.get(), hbasePut));
   }
@@ -161,10 +192,43 @@ public class HBaseSink extends ReferenceBatchSink<StructuredRecord, NullWritable
    * HBaseSink plugin.
    */
   public static class HBaseSinkConfig extends HBaseConfig {
+    private static final String NAME_WRITE_MODE = "writeMode";
+    private static final String NAME_WRITE_BUFFER_SIZE = "writeBufferSize";
+    private static final String NAME_DURABILITY = "durability";
+
     @Description("Parent Node of HBase in Zookeeper. Defaults to '/hbase'")
     @Nullable
     private String zkNodeParent;
 
+    @Name(NAME_WRITE_MODE)
+    @Description("How records are written to the table. 'put' sends buffered Puts to the region servers, which " +
+      "is best for small incremental writes. 'bulkload' writes sorted HFiles split at the region boundaries of " +
+      "the table and bulk loads them at the end of the run, which is best for large loads. Defaults to 'put'.")
+    @Nullable
+    @Macro
+    private String writeMode;
+
+    @Name(NAME_WRITE_BUFFER_SIZE)
+    @Description("Number of bytes buffered by each task before writing. In 'put' mode, this is the client side " +
+      "write buffer, which defaults to the hbase.client.write.buffer setting. In 'bulkload' mode, this is the " +
+      "amount of data sorted in memory before it is spilled to local disk, which defaults to 64 MB.")
+    @Nullable
+    @Macro
+    private Long writeBufferSize;
+
+    @Name(NAME_DURABILITY)
+    @Description("Write-ahead log durability of the Puts in 'put' mode. One of 'USE_DEFAULT', 'SKIP_WAL', " +
+      "'ASYNC_WAL', 'SYNC_WAL' or 'FSYNC_WAL'. Defaults to the durability of the table.")
+    @Nullable
+    @Macro
+    private String durability;
+
+    @Description("Directory that HFiles are written to in 'bulkload' mode. It must be on a file system that " +
+      "the HBase region servers can access. Defaults to '/tmp/hbase-bulkload'.")
+    @Nullable
+    @Macro
+    private String bulkLoadDirectory;
+
     public HBaseSinkConfig(String tableName, String rowField, @Nullable String schema) {
       super(String.format("HBase_%s", tableName), tableName, rowField, schema);
     }
@@ -173,11 +237,39 @@ public class HBaseSink extends ReferenceBatchSink<StructuredRecord, NullWritable
       super(referenceName, tableName, rowField, schema);
     }
 
+    public boolean isBulkLoad() {
+      return WRITE_MODE_BULK_LOAD.equalsIgnoreCase(writeMode);
+    }
+
+    @Nullable
+    public Durability getDurability() {
+      return Strings.isNullOrEmpty(durability) ? null : Durability.valueOf(durability.toUpperCase());
+    }
+
     public void validate(FailureCollector collector) {
       IdUtils.validateReferenceName(referenceName, collector);
       if (Strings.isNullOrEmpty(rowField)) {
         collector.addFailure("Row field must be given as a property.", null).withConfigProperty(NAME_ROWFIELD);
       }
+      if (!containsMacro(NAME_WRITE_MODE) && !Strings.isNullOrEmpty(writeMode) &&
+        !WRITE_MODE_PUT.equalsIgnoreCase(writeMode) && !WRITE_MODE_BULK_LOAD.equalsIgnoreCase(writeMode)) {
+        collector.addFailure(String.format("Invalid write mode '%s'.", writeMode),
+                             String.format("Write mode must be '%s' or '%s'.", WRITE_MODE_PUT, WRITE_MODE_BULK_LOAD))
+          .withConfigProperty(NAME_WRITE_MODE);
+      }
+      if (!containsMacro(NAME_WRITE_BUFFER_SIZE) && writeBufferSize != null && writeBufferSize < 1) {
+        collector.addFailure(String.format("Invalid write buffer size %d.", writeBufferSize),
+                             "Write buffer size must be positive.").withConfigProperty(NAME_WRITE_BUFFER_SIZE);
+      }
+      if (!containsMacro(NAME_DURABILITY)) {
+        try {
+          getDurability();
+        } catch (IllegalArgumentException e) {
+          collector.addFailure(String.format("Invalid durability '%s'.", durability),
+                               "Durability must be one of 'USE_DEFAULT', 'SKIP_WAL', 'ASYNC_WAL', 'SYNC_WAL' or " +
+                                 "'FSYNC_WAL'.").withConfigProperty(NAME_DURABILITY);
+        }
+      }
     }
   }
 }
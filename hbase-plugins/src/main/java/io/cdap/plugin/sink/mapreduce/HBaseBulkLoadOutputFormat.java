@@ -0,0 +1,512 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.sink.mapreduce;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.HConnection;
+import org.apache.hadoop.hbase.client.HConnectionManager;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
+import org.apache.hadoop.hbase.mapreduce.TableOutputFormat;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.zookeeper.ZKUtil;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * An OutputFormat that writes {@link Put Puts} as HFiles and bulk loads them into an HBase table when the job
+ * is committed, instead of sending them to the region servers one RPC at a time.
+ *
+ * Each task buffers the cells it receives and sorts them. Whenever the buffer is full, the sorted cells are
+ * spilled to a file on the local disk of the task. When the task closes, the spilled runs and the buffer are
+ * merged, and the task writes at most one HFile for every region of the table that its rows fall into, using the
+ * region boundaries of the table when the task started. Of several cells with the same key, only the one written
+ * last is kept. Files are written with the compression, block size and bloom filter settings of the column
+ * family. A task writes to its own attempt directory, which is moved into the output directory when the task
+ * commits. The job commit then bulk loads the output directory into the table and deletes it.
+ */
+public class HBaseBulkLoadOutputFormat extends OutputFormat<NullWritable, Mutation> {
+  /**
+   * Directory to write the HFiles to. It must be on a file system that the region servers can access.
+   */
+  public static final String OUTPUT_DIR = "cdap.hbase.bulkload.dir";
+  /**
+   * Column family that all cells are written to.
+   */
+  public static final String COLUMN_FAMILY = "cdap.hbase.bulkload.family";
+  /**
+   * Approximate number of bytes of cells a task buffers in memory before sorting them and spilling them to disk.
+   */
+  public static final String BUFFER_SIZE = "cdap.hbase.bulkload.buffer.size";
+  public static final long DEFAULT_BUFFER_SIZE = 64L * 1024 * 1024;
+  private static final String TEMPORARY_DIR = "_temporary";
+
+  @Override
+  public RecordWriter<NullWritable, Mutation> getRecordWriter(TaskAttemptContext context) throws IOException {
+    Configuration conf = getHBaseConfiguration(context.getConfiguration());
+    Path attemptDir = getAttemptDir(context);
+    return new HFileRecordWriter(conf, attemptDir.getFileSystem(conf), attemptDir,
+                                 context.getTaskAttemptID().toString());
+  }
+
+  @Override
+  public void checkOutputSpecs(JobContext context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    if (conf.get(OUTPUT_DIR) == null || conf.get(TableOutputFormat.OUTPUT_TABLE) == null ||
+      conf.get(COLUMN_FAMILY) == null) {
+      throw new IOException(String.format("The %s, %s and %s properties must be set.",
+                                          OUTPUT_DIR, TableOutputFormat.OUTPUT_TABLE, COLUMN_FAMILY));
+    }
+  }
+
+  @Override
+  public OutputCommitter getOutputCommitter(TaskAttemptContext context) {
+    return new BulkLoadCommitter();
+  }
+
+  /**
+   * Creates the configuration used to connect to HBase, in the same way as {@link TableOutputFormat}.
+   */
+  private static Configuration getHBaseConfiguration(Configuration otherConf) throws IOException {
+    // set the current class's classloader so that it gets picked up when HBaseConfiguration loads its resources,
+    // for the same reason as in HBaseTableOutputFormat
+    ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(HBaseBulkLoadOutputFormat.class.getClassLoader());
+    try {
+      Configuration conf = HBaseConfiguration.create(otherConf);
+      String address = conf.get(TableOutputFormat.QUORUM_ADDRESS);
+      if (address != null) {
+        ZKUtil.applyClusterKeyToConf(conf, address);
+      }
+      return conf;
+    } finally {
+      Thread.currentThread().setContextClassLoader(originalClassLoader);
+    }
+  }
+
+  private static Path getOutputDir(JobContext context) {
+    return new Path(context.getConfiguration().get(OUTPUT_DIR));
+  }
+
+  private static Path getAttemptDir(TaskAttemptContext context) {
+    return new Path(new Path(getOutputDir(context), TEMPORARY_DIR), context.getTaskAttemptID().toString());
+  }
+
+  /**
+   * Buffers cells, spills them to local sorted runs, and merges the runs into HFiles split at the region
+   * boundaries of the table.
+   */
+  private static final class HFileRecordWriter extends RecordWriter<NullWritable, Mutation> {
+    private final Configuration conf;
+    private final FileSystem fs;
+    private final Path familyDir;
+    private final String taskId;
+    private final byte[] family;
+    private final byte[][] startKeys;
+    private final HColumnDescriptor familyDescriptor;
+    private final CacheConfig cacheConfig;
+    private final long bufferSize;
+    private final byte[] now;
+    private final List<KeyValue> buffer;
+    // the sorted runs spilled to local disk, in the order they were written
+    private final List<SpillFile> spills;
+    private File spillDir;
+    private long bufferedBytes;
+
+    private HFileRecordWriter(Configuration conf, FileSystem fs, Path attemptDir, String taskId) throws IOException {
+      this.conf = conf;
+      this.fs = fs;
+      this.taskId = taskId;
+      String familyName = conf.get(COLUMN_FAMILY);
+      this.family = Bytes.toBytes(familyName);
+      this.familyDir = new Path(attemptDir, familyName);
+      TableName tableName = TableName.valueOf(conf.get(TableOutputFormat.OUTPUT_TABLE));
+      HConnection connection = HConnectionManager.createConnection(conf);
+      try {
+        List<HRegionLocation> regions = connection.locateRegions(tableName, false, false);
+        byte[][] keys = new byte[regions.size()][];
+        for (int i = 0; i < keys.length; i++) {
+          keys[i] = regions.get(i).getRegionInfo().getStartKey();
+        }
+        Arrays.sort(keys, Bytes.BYTES_COMPARATOR);
+        this.startKeys = keys;
+        this.familyDescriptor = connection.getHTableDescriptor(tableName).getFamily(family);
+      } finally {
+        connection.close();
+      }
+      if (familyDescriptor == null) {
+        throw new IOException(String.format("Column family '%s' does not exist in table '%s'.",
+                                            familyName, tableName));
+      }
+      // HFiles are only written, so there is no need to allocate a block cache
+      Configuration cacheConf = new Configuration(conf);
+      cacheConf.setFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY, 0.0f);
+      this.cacheConfig = new CacheConfig(cacheConf);
+      this.bufferSize = conf.getLong(BUFFER_SIZE, DEFAULT_BUFFER_SIZE);
+      // cells without a timestamp get the time the writer was created, the same way HFileOutputFormat does it
+      this.now = Bytes.toBytes(System.currentTimeMillis());
+      this.buffer = new ArrayList<>();
+      this.spills = new ArrayList<>();
+    }
+
+    @Override
+    public void write(NullWritable key, Mutation mutation) throws IOException {
+      if (!(mutation instanceof Put)) {
+        throw new IOException("Only Puts can be bulk loaded, but got a " + mutation.getClass().getSimpleName());
+      }
+      for (Map.Entry<byte[], List<Cell>> entry : mutation.getFamilyCellMap().entrySet()) {
+        if (!Bytes.equals(family, entry.getKey())) {
+          throw new IOException(String.format("Cannot bulk load into column family '%s', only into '%s'.",
+                                              Bytes.toString(entry.getKey()), Bytes.toString(family)));
+        }
+        for (Cell cell : entry.getValue()) {
+          KeyValue keyValue = KeyValueUtil.ensureKeyValue(cell);
+          keyValue.updateLatestStamp(now);
+          buffer.add(keyValue);
+          bufferedBytes += keyValue.heapSize();
+        }
+      }
+      if (bufferedBytes >= bufferSize) {
+        spill();
+      }
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) throws IOException {
+      List<Run> runs = new ArrayList<>();
+      try {
+        for (int i = 0; i < spills.size(); i++) {
+          runs.add(new Run(i, spills.get(i)));
+        }
+        // the buffer is the last run, so its cells win over spilled cells with the same key
+        runs.add(new Run(spills.size(), sortBuffer().iterator()));
+        writeHFiles(runs);
+      } finally {
+        for (Run run : runs) {
+          run.close();
+        }
+        buffer.clear();
+        deleteSpills();
+      }
+    }
+
+    /**
+     * Sorts the buffer and removes all but the last written of the cells with the same key.
+     */
+    private List<KeyValue> sortBuffer() {
+      // the sort is stable, so of several cells with the same key, the one written last comes last
+      Collections.sort(buffer, KeyValue.COMPARATOR);
+      int size = 0;
+      for (int i = 0; i < buffer.size(); i++) {
+        if (i + 1 < buffer.size() && isSameKey(buffer.get(i), buffer.get(i + 1))) {
+          continue;
+        }
+        buffer.set(size++, buffer.get(i));
+      }
+      return buffer.subList(0, size);
+    }
+
+    /**
+     * Writes the sorted buffer to a file on the local disk of the task and clears it.
+     */
+    private void spill() throws IOException {
+      if (spillDir == null) {
+        spillDir = Files.createTempDirectory("hbase-bulkload-").toFile();
+      }
+      File file = new File(spillDir, "spill-" + spills.size());
+      List<KeyValue> sorted = sortBuffer();
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+        for (KeyValue keyValue : sorted) {
+          KeyValue.write(keyValue, out);
+        }
+      }
+      spills.add(new SpillFile(file, sorted.size()));
+      buffer.clear();
+      bufferedBytes = 0;
+    }
+
+    private void deleteSpills() {
+      for (SpillFile spill : spills) {
+        spill.file.delete();
+      }
+      spills.clear();
+      if (spillDir != null) {
+        spillDir.delete();
+        spillDir = null;
+      }
+    }
+
+    /**
+     * Merges the sorted runs and writes the cells into one HFile for every region they fall into.
+     */
+    private void writeHFiles(List<Run> runs) throws IOException {
+      // of runs at the same key, the latest one comes first
+      PriorityQueue<Run> heads = new PriorityQueue<>(runs.size(), new Comparator<Run>() {
+        @Override
+        public int compare(Run run1, Run run2) {
+          int cmp = KeyValue.COMPARATOR.compare(run1.current, run2.current);
+          return cmp != 0 ? cmp : Integer.compare(run2.index, run1.index);
+        }
+      });
+      for (Run run : runs) {
+        if (run.next()) {
+          heads.add(run);
+        }
+      }
+
+      int region = 0;
+      StoreFile.Writer writer = null;
+      try {
+        while (!heads.isEmpty()) {
+          Run head = heads.poll();
+          KeyValue keyValue = head.current;
+          advance(head, heads);
+          // only the last value written for a cell is kept
+          while (!heads.isEmpty() && isSameKey(keyValue, heads.peek().current)) {
+            advance(heads.poll(), heads);
+          }
+
+          int cellRegion = region;
+          while (cellRegion + 1 < startKeys.length &&
+            Bytes.compareTo(keyValue.getRowArray(), keyValue.getRowOffset(), keyValue.getRowLength(),
+                            startKeys[cellRegion + 1], 0, startKeys[cellRegion + 1].length) >= 0) {
+            cellRegion++;
+          }
+          if (writer == null || cellRegion != region) {
+            close(writer);
+            writer = createWriter();
+            region = cellRegion;
+          }
+          writer.append(keyValue);
+        }
+      } finally {
+        close(writer);
+      }
+    }
+
+    private static void advance(Run run, PriorityQueue<Run> heads) throws IOException {
+      if (run.next()) {
+        heads.add(run);
+      }
+    }
+
+    private StoreFile.Writer createWriter() throws IOException {
+      HFileContext context = new HFileContextBuilder()
+        .withCompression(familyDescriptor.getCompression())
+        .withBlockSize(familyDescriptor.getBlocksize())
+        .build();
+      return new StoreFile.WriterBuilder(conf, cacheConfig, fs)
+        .withFilePath(new Path(familyDir, UUID.randomUUID().toString().replace("-", "")))
+        .withComparator(KeyValue.COMPARATOR)
+        .withBloomType(familyDescriptor.getBloomFilterType())
+        .withFileContext(context)
+        .build();
+    }
+
+    private void close(@Nullable StoreFile.Writer writer) throws IOException {
+      if (writer == null) {
+        return;
+      }
+      writer.appendFileInfo(StoreFile.BULKLOAD_TIME_KEY, Bytes.toBytes(System.currentTimeMillis()));
+      writer.appendFileInfo(StoreFile.BULKLOAD_TASK_KEY, Bytes.toBytes(taskId));
+      writer.appendTrackedTimestampsToMetadata();
+      writer.close();
+    }
+
+    private static boolean isSameKey(KeyValue kv1, KeyValue kv2) {
+      return Bytes.equals(kv1.getBuffer(), kv1.getKeyOffset(), kv1.getKeyLength(),
+                          kv2.getBuffer(), kv2.getKeyOffset(), kv2.getKeyLength());
+    }
+  }
+
+  /**
+   * A sorted run of cells spilled to the local disk.
+   */
+  private static final class SpillFile {
+    private final File file;
+    private final int size;
+
+    private SpillFile(File file, int size) {
+      this.file = file;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Reads the cells of a sorted run, either from a spill file or from the in-memory buffer.
+   */
+  private static final class Run implements Closeable {
+    private final int index;
+    private final DataInputStream in;
+    private final Iterator<KeyValue> iterator;
+    private int remaining;
+    private KeyValue current;
+
+    private Run(int index, SpillFile spill) throws IOException {
+      this.index = index;
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(spill.file)));
+      this.iterator = null;
+      this.remaining = spill.size;
+    }
+
+    private Run(int index, Iterator<KeyValue> iterator) {
+      this.index = index;
+      this.in = null;
+      this.iterator = iterator;
+    }
+
+    /**
+     * Moves to the next cell of the run, and returns false if there is none.
+     */
+    private boolean next() throws IOException {
+      if (iterator != null) {
+        current = iterator.hasNext() ? iterator.next() : null;
+      } else {
+        current = remaining > 0 ? KeyValue.create(in) : null;
+        remaining--;
+      }
+      return current != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (in != null) {
+        in.close();
+      }
+    }
+  }
+
+  /**
+   * Moves the HFiles of each task into the output directory, and bulk loads them when the job commits.
+   */
+  private static final class BulkLoadCommitter extends OutputCommitter {
+
+    @Override
+    public void setupJob(JobContext context) throws IOException {
+      Path outputDir = getOutputDir(context);
+      outputDir.getFileSystem(context.getConfiguration()).mkdirs(outputDir);
+    }
+
+    @Override
+    public void setupTask(TaskAttemptContext context) {
+      // no-op, the attempt directory is created when the first HFile is written
+    }
+
+    @Override
+    public boolean needsTaskCommit(TaskAttemptContext context) throws IOException {
+      Path attemptDir = getAttemptDir(context);
+      return attemptDir.getFileSystem(context.getConfiguration()).exists(attemptDir);
+    }
+
+    @Override
+    public void commitTask(TaskAttemptContext context) throws IOException {
+      Configuration conf = context.getConfiguration();
+      Path attemptDir = getAttemptDir(context);
+      FileSystem fs = attemptDir.getFileSystem(conf);
+      Path outputDir = getOutputDir(context);
+      for (FileStatus familyDir : fs.listStatus(attemptDir)) {
+        Path targetDir = new Path(outputDir, familyDir.getPath().getName());
+        fs.mkdirs(targetDir);
+        for (FileStatus file : fs.listStatus(familyDir.getPath())) {
+          Path target = new Path(targetDir, file.getPath().getName());
+          if (!fs.rename(file.getPath(), target)) {
+            throw new IOException(String.format("Failed to move %s to %s.", file.getPath(), target));
+          }
+        }
+      }
+      fs.delete(attemptDir, true);
+    }
+
+    @Override
+    public void abortTask(TaskAttemptContext context) throws IOException {
+      Path attemptDir = getAttemptDir(context);
+      attemptDir.getFileSystem(context.getConfiguration()).delete(attemptDir, true);
+    }
+
+    @Override
+    public void commitJob(JobContext context) throws IOException {
+      Path outputDir = getOutputDir(context);
+      Configuration conf = getHBaseConfiguration(context.getConfiguration());
+      FileSystem fs = outputDir.getFileSystem(conf);
+      // every directory in the output directory is treated as a column family by the bulk load
+      fs.delete(new Path(outputDir, TEMPORARY_DIR), true);
+      try {
+        if (fs.listStatus(outputDir).length > 0) {
+          // LoadIncrementalHFiles in this version of HBase needs an HTable, which is created on a shared
+          // connection rather than with the deprecated constructor that manages its own connection
+          HConnection connection = HConnectionManager.createConnection(conf);
+          try (HTable table = new HTable(TableName.valueOf(conf.get(TableOutputFormat.OUTPUT_TABLE)), connection)) {
+            new LoadIncrementalHFiles(conf).doBulkLoad(outputDir, table);
+          } finally {
+            connection.close();
+          }
+        }
+      } finally {
+        fs.delete(outputDir, true);
+      }
+    }
+
+    @Override
+    public void abortJob(JobContext context, JobStatus.State state) throws IOException {
+      Path outputDir = getOutputDir(context);
+      outputDir.getFileSystem(context.getConfiguration()).delete(outputDir, true);
+    }
+  }
+}
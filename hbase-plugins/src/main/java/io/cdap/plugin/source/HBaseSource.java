@@ -16,15 +16,16 @@
 
 package io.cdap.plugin.source;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.batch.Input;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
-import io.cdap.cdap.api.dataset.table.Row;
 import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
@@ -37,12 +38,17 @@ import io.cdap.plugin.common.SourceInputFormatProvider;
 import io.cdap.plugin.source.mapreduce.HBaseTableInputFormat;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.filter.ParseFilter;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.KeyValueSerialization;
 import org.apache.hadoop.hbase.mapreduce.MutationSerialization;
 import org.apache.hadoop.hbase.mapreduce.ResultSerialization;
 import org.apache.hadoop.hbase.mapreduce.TableInputFormat;
 
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Nullable;
+
 /**
  *
  */
@@ -51,9 +57,9 @@ import org.apache.hadoop.hbase.mapreduce.TableInputFormat;
 @Description("Read from an HBase table in batch")
 public class HBaseSource extends ReferenceBatchSource<ImmutableBytesWritable, Result, StructuredRecord> {
   private RowRecordTransformer rowRecordTransformer;
-  private HBaseConfig config;
+  private HBaseSourceConfig config;
 
-  public HBaseSource(HBaseConfig config) {
+  public HBaseSource(HBaseSourceConfig config) {
     super(config);
     this.config = config;
   }
@@ -82,6 +88,26 @@ public class HBaseSource extends ReferenceBatchSource<ImmutableBytesWritable, Re
     String zkClientPort = !Strings.isNullOrEmpty(config.zkClientPort) ? config.zkClientPort : "2181";
     conf.set("hbase.zookeeper.quorum", zkQuorum);
     conf.set("hbase.zookeeper.property.clientPort", zkClientPort);
+    // only read the columns that are in the schema
+    List<String> columns = new RowRecordTransformer(config.getSchema(), config.rowField).getColumns();
+    if (!columns.isEmpty()) {
+      conf.set(HBaseTableInputFormat.SCAN_QUALIFIERS, Joiner.on(',').join(columns));
+    }
+    if (config.scanCaching != null) {
+      conf.setInt(TableInputFormat.SCAN_CACHEDROWS, config.scanCaching);
+    }
+    if (config.scanBatchSize != null) {
+      conf.setInt(HBaseTableInputFormat.SCAN_BATCH_SIZE, config.scanBatchSize);
+    }
+    if (!Strings.isNullOrEmpty(config.startRow)) {
+      conf.set(TableInputFormat.SCAN_ROW_START, config.startRow);
+    }
+    if (!Strings.isNullOrEmpty(config.stopRow)) {
+      conf.set(TableInputFormat.SCAN_ROW_STOP, config.stopRow);
+    }
+    if (!Strings.isNullOrEmpty(config.filter)) {
+      conf.set(HBaseTableInputFormat.SCAN_FILTER, config.filter);
+    }
     conf.setStrings(ioSerializations,
                     MutationSerialization.class.getName(), ResultSerialization.class.getName(),
                     KeyValueSerialization.class.getName());
@@ -100,9 +126,71 @@ public class HBaseSource extends ReferenceBatchSource<ImmutableBytesWritable, Re
   @Override
   public void transform(KeyValue<ImmutableBytesWritable, Result> input, Emitter<StructuredRecord> emitter)
     throws Exception {
-    Row cdapRow = new io.cdap.cdap.api.dataset.table.Result(
-      input.getValue().getRow(), input.getValue().getFamilyMap(config.columnFamily.getBytes()));
-    StructuredRecord record = rowRecordTransformer.toRecord(cdapRow);
-    emitter.emit(record);
+    emitter.emit(rowRecordTransformer.toRecord(input.getValue()));
+  }
+
+  /**
+   * Config for the HBase source.
+   */
+  public static class HBaseSourceConfig extends HBaseConfig {
+    private static final String NAME_SCAN_CACHING = "scanCaching";
+    private static final String NAME_SCAN_BATCH_SIZE = "scanBatchSize";
+    private static final String NAME_FILTER = "filter";
+
+    @Name(NAME_SCAN_CACHING)
+    @Description("Number of rows fetched from a region server in each call. Higher values make the scan faster, " +
+      "at the cost of more memory. By default, the client's hbase.client.scanner.caching setting is used.")
+    @Nullable
+    @Macro
+    private Integer scanCaching;
+
+    @Name(NAME_SCAN_BATCH_SIZE)
+    @Description("Maximum number of columns fetched for a row in each call. This bounds the memory used by very " +
+      "wide rows. Each row is still read as a single record. By default, all columns of a row are fetched at once.")
+    @Nullable
+    @Macro
+    private Integer scanBatchSize;
+
+    @Description("Row key to start the scan at, inclusive. By default, the scan starts at the first row.")
+    @Nullable
+    @Macro
+    private String startRow;
+
+    @Description("Row key to stop the scan at, exclusive. By default, the scan ends at the last row.")
+    @Nullable
+    @Macro
+    private String stopRow;
+
+    @Name(NAME_FILTER)
+    @Description("Filter to apply on the region servers, written in the HBase filter language. " +
+      "For example, \"PrefixFilter ('user')\".")
+    @Nullable
+    @Macro
+    private String filter;
+
+    public HBaseSourceConfig(String referenceName, String tableName, String rowField, @Nullable String schema) {
+      super(referenceName, tableName, rowField, schema);
+    }
+
+    @Override
+    public void validate(FailureCollector collector) {
+      super.validate(collector);
+      if (!containsMacro(NAME_SCAN_CACHING) && scanCaching != null && scanCaching < 1) {
+        collector.addFailure(String.format("Invalid scan caching %d.", scanCaching), "Scan caching must be positive.")
+          .withConfigProperty(NAME_SCAN_CACHING);
+      }
+      if (!containsMacro(NAME_SCAN_BATCH_SIZE) && scanBatchSize != null && scanBatchSize < 1) {
+        collector.addFailure(String.format("Invalid scan batch size %d.", scanBatchSize),
+                             "Scan batch size must be positive.").withConfigProperty(NAME_SCAN_BATCH_SIZE);
+      }
+      if (!containsMacro(NAME_FILTER) && !Strings.isNullOrEmpty(filter)) {
+        try {
+          new ParseFilter().parseFilterString(filter);
+        } catch (IOException | IllegalArgumentException e) {
+          collector.addFailure(String.format("Invalid filter '%s': %s", filter, e.getMessage()),
+                               "Specify a filter in the HBase filter language.").withConfigProperty(NAME_FILTER);
+        }
+      }
+    }
   }
 }
@@ -21,13 +21,27 @@ import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.table.Row;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Transforms Rows into Records.
+ *
+ * HBase {@link Result Results} are decoded directly from their cells. The column qualifier of every field is
+ * computed once and kept sorted, so each cell is matched to its field with a binary search over the qualifier
+ * bytes in place, without copying the qualifier or building an intermediate map of the row.
  */
 public class RowRecordTransformer {
   private final Schema schema;
   private final Schema.Field rowField;
+  // column fields sorted by qualifier, with their qualifiers and non-nullable types at the same index
+  private final byte[][] qualifiers;
+  private final Schema.Field[] columnFields;
+  private final Schema.Type[] columnTypes;
 
   public RowRecordTransformer(Schema schema, String rowFieldName) {
     validateSchema(schema);
@@ -41,6 +55,68 @@ public class RowRecordTransformer {
     } else {
       rowField = null;
     }
+
+    List<Schema.Field> fields = new ArrayList<>();
+    for (Schema.Field field : schema.getFields()) {
+      if (rowField == null || !field.getName().equals(rowField.getName())) {
+        fields.add(field);
+      }
+    }
+    fields.sort((f1, f2) -> Bytes.compareTo(Bytes.toBytes(f1.getName()), Bytes.toBytes(f2.getName())));
+    qualifiers = new byte[fields.size()][];
+    columnFields = new Schema.Field[fields.size()];
+    columnTypes = new Schema.Type[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
+      Schema fieldSchema = field.getSchema();
+      qualifiers[i] = Bytes.toBytes(field.getName());
+      columnFields[i] = field;
+      columnTypes[i] = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
+    }
+  }
+
+  /**
+   * @return the names of the columns read into the record, which are all the fields except the row field
+   */
+  public List<String> getColumns() {
+    List<String> columns = new ArrayList<>(columnFields.length);
+    for (Schema.Field field : columnFields) {
+      columns.add(field.getName());
+    }
+    return columns;
+  }
+
+  /**
+   * Converts an HBase result of a single column family into a record. Cells whose qualifier does not match
+   * a field in the schema are ignored.
+   */
+  public StructuredRecord toRecord(Result result) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    if (rowField != null) {
+      setField(builder, rowField, result.getRow());
+    }
+
+    boolean[] found = new boolean[columnFields.length];
+    Cell[] cells = result.rawCells();
+    if (cells != null) {
+      for (Cell cell : cells) {
+        int index = indexOf(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+        if (index < 0) {
+          continue;
+        }
+        found[index] = true;
+        builder.set(columnFields[index].getName(), decode(columnTypes[index], columnFields[index].getName(),
+                                                          cell.getValueArray(), cell.getValueOffset(),
+                                                          cell.getValueLength()));
+      }
+    }
+
+    for (int i = 0; i < found.length; i++) {
+      if (!found[i] && !columnFields[i].getSchema().isNullable()) {
+        throw new IllegalArgumentException("null value found for non-nullable field " + columnFields[i].getName());
+      }
+    }
+    return builder.build();
   }
 
   public StructuredRecord toRecord(Row row) {
@@ -78,6 +154,49 @@ public class RowRecordTransformer {
     }
   }
 
+  private int indexOf(byte[] buffer, int offset, int length) {
+    int low = 0;
+    int high = qualifiers.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = Bytes.compareTo(qualifiers[mid], 0, qualifiers[mid].length, buffer, offset, length);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private static Object decode(Schema.Type fieldType, String fieldName, byte[] buffer, int offset, int length) {
+    switch (fieldType) {
+      case BOOLEAN:
+        if (length != 1) {
+          throw new IllegalArgumentException(String.format("Invalid boolean of %d bytes for field %s.",
+                                                           length, fieldName));
+        }
+        return buffer[offset] != (byte) 0;
+      case INT:
+        return Bytes.toInt(buffer, offset, length);
+      case LONG:
+        return Bytes.toLong(buffer, offset, length);
+      case FLOAT:
+        return Bytes.toFloat(buffer, offset);
+      case DOUBLE:
+        return Bytes.toDouble(buffer, offset);
+      case BYTES:
+        return Arrays.copyOfRange(buffer, offset, offset + length);
+      case STRING:
+        return Bytes.toString(buffer, offset, length);
+      default:
+        // shouldn't ever happen
+        throw new IllegalArgumentException("Unsupported type " + fieldType + " for field " + fieldName);
+    }
+  }
+
   private void setField(StructuredRecord.Builder builder, Schema.Field field, byte[] fieldBytes) {
     String fieldName = field.getName();
     Schema fieldSchema = field.getSchema();
@@ -16,14 +16,48 @@
 
 package io.cdap.plugin.source.mapreduce;
 
+import com.google.common.base.Strings;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.ParseFilter;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableInputFormat;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * A wrapper class around TableInputFormat, that sets the current class's classloader as the classloader of the
  * Configuration object used by TableInputFormat.
+ *
+ * In addition to the scan properties of TableInputFormat, it can restrict the scan to a set of qualifiers in the
+ * column family, apply a filter written in the HBase filter language, and limit the number of cells returned per
+ * call with a batch size. When a batch size is set, the partial results of a row are merged back together so that
+ * each row is still read as a single {@link Result}.
  */
 public class HBaseTableInputFormat extends TableInputFormat {
+  /**
+   * Comma separated list of qualifiers to read from the scanned column family.
+   */
+  public static final String SCAN_QUALIFIERS = "cdap.hbase.scan.qualifiers";
+  /**
+   * Filter to apply on the region servers, in the HBase filter language.
+   */
+  public static final String SCAN_FILTER = "cdap.hbase.scan.filter";
+  /**
+   * Maximum number of cells to return for each call to next().
+   */
+  public static final String SCAN_BATCH_SIZE = "cdap.hbase.scan.batchsize";
+
+  private int batchSize;
 
   @Override
   public void setConf(Configuration otherConf) {
@@ -33,5 +67,105 @@ public class HBaseTableInputFormat extends TableInputFormat {
     Configuration clonedConf = new Configuration(otherConf);
     clonedConf.setClassLoader(getClass().getClassLoader());
     super.setConf(clonedConf);
+
+    Scan scan = getScan();
+    String family = clonedConf.get(SCAN_COLUMN_FAMILY);
+    String qualifiers = clonedConf.get(SCAN_QUALIFIERS);
+    if (family != null && !Strings.isNullOrEmpty(qualifiers)) {
+      for (String qualifier : qualifiers.split(",")) {
+        scan.addColumn(Bytes.toBytes(family), Bytes.toBytes(qualifier));
+      }
+    }
+    String filter = clonedConf.get(SCAN_FILTER);
+    if (!Strings.isNullOrEmpty(filter)) {
+      try {
+        scan.setFilter(new ParseFilter().parseFilterString(filter));
+      } catch (IOException e) {
+        throw new IllegalArgumentException(String.format("Invalid filter '%s': %s", filter, e.getMessage()), e);
+      }
+    }
+    batchSize = clonedConf.getInt(SCAN_BATCH_SIZE, 0);
+    if (batchSize > 0) {
+      scan.setBatch(batchSize);
+    }
+    // a full scan of the table should not evict the blocks of the online workload from the block cache
+    scan.setCacheBlocks(clonedConf.getBoolean(SCAN_CACHEBLOCKS, false));
+  }
+
+  @Override
+  public RecordReader<ImmutableBytesWritable, Result> createRecordReader(InputSplit split, TaskAttemptContext context)
+    throws IOException {
+    RecordReader<ImmutableBytesWritable, Result> reader = super.createRecordReader(split, context);
+    return batchSize > 0 ? new RowMergingRecordReader(reader) : reader;
+  }
+
+  /**
+   * Merges the consecutive partial results of a row, which are returned when the scan has a batch size.
+   */
+  private static final class RowMergingRecordReader extends RecordReader<ImmutableBytesWritable, Result> {
+    private final RecordReader<ImmutableBytesWritable, Result> delegate;
+    private Result next;
+    private ImmutableBytesWritable currentKey;
+    private Result currentValue;
+
+    private RowMergingRecordReader(RecordReader<ImmutableBytesWritable, Result> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+      delegate.initialize(split, context);
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+      Result first = next;
+      next = null;
+      if (first == null) {
+        if (!delegate.nextKeyValue()) {
+          return false;
+        }
+        first = delegate.getCurrentValue();
+      }
+
+      List<Cell> cells = null;
+      while (delegate.nextKeyValue()) {
+        Result result = delegate.getCurrentValue();
+        if (!Bytes.equals(first.getRow(), result.getRow())) {
+          next = result;
+          break;
+        }
+        if (cells == null) {
+          cells = new ArrayList<>();
+          Collections.addAll(cells, first.rawCells());
+        }
+        Collections.addAll(cells, result.rawCells());
+      }
+
+      // the key is created from the row, since the delegate reuses its key
+      currentKey = new ImmutableBytesWritable(first.getRow());
+      currentValue = cells == null ? first : Result.create(cells);
+      return true;
+    }
+
+    @Override
+    public ImmutableBytesWritable getCurrentKey() {
+      return currentKey;
+    }
+
+    @Override
+    public Result getCurrentValue() {
+      return currentValue;
+    }
+
+    @Override
+    public float getProgress() throws IOException, InterruptedException {
+      return delegate.getProgress();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
   }
 }
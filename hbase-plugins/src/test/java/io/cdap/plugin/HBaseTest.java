@@ -44,6 +44,7 @@ import io.cdap.cdap.test.TestConfiguration;
 import io.cdap.cdap.test.WorkflowManager;
 import io.cdap.plugin.common.Constants;
 import io.cdap.plugin.sink.HBaseSink;
+import io.cdap.plugin.sink.mapreduce.HBaseBulkLoadOutputFormat;
 import io.cdap.plugin.sink.mapreduce.HBaseTableOutputFormat;
 import io.cdap.plugin.source.HBaseSource;
 import io.cdap.plugin.source.mapreduce.HBaseTableInputFormat;
@@ -58,6 +59,7 @@ import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableInputFormat;
+import org.apache.hadoop.hbase.regionserver.HRegion;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -116,6 +118,7 @@ public class HBaseTest extends HydratorTestBase {
     addPluginArtifact(NamespaceId.DEFAULT.artifact("batch-plugins", "1.0.0"), BATCH_APP_ARTIFACT_ID,
                       HBaseSource.class, HBaseSink.class,
                       HBaseTableInputFormat.class, TableInputFormat.class, HBaseTableOutputFormat.class,
+                      HBaseBulkLoadOutputFormat.class,
                       Result.class, ImmutableBytesWritable.class,
                       Put.class, Mutation.class);
   }
@@ -154,7 +157,25 @@ public class HBaseTest extends HydratorTestBase {
 
   @Test
   public void testHBaseSink() throws Exception {
-    String inputDatasetName = "input-hbasesinktest";
+    testHBaseSink(new HashMap<>(), "HBaseSinkTest");
+  }
+
+  @Test
+  public void testHBaseSinkBulkLoad() throws Exception {
+    Map<String, String> bulkLoadProps = new HashMap<>();
+    bulkLoadProps.put("writeMode", "bulkload");
+    bulkLoadProps.put("bulkLoadDirectory", temporaryFolder.newFolder().getAbsolutePath());
+    // small enough to write several sets of HFiles
+    bulkLoadProps.put("writeBufferSize", "64");
+    testHBaseSink(bulkLoadProps, "HBaseSinkBulkLoadTest");
+    // the spilled runs are merged, so the task writes a single HFile for the single region of the table
+    for (HRegion region : testUtil.getHBaseCluster().getRegions(HBASE_TABLE_NAME.getBytes())) {
+      Assert.assertEquals(1, region.getStore(HBASE_FAMILY_COLUMN.getBytes()).getStorefilesCount());
+    }
+  }
+
+  private void testHBaseSink(Map<String, String> extraProps, String appName) throws Exception {
+    String inputDatasetName = "input-" + appName.toLowerCase();
     ETLStage source = new ETLStage("source", MockSource.getPlugin(inputDatasetName));
 
     Map<String, String> hBaseProps = new HashMap<>();
@@ -164,7 +185,8 @@ public class HBaseTest extends HydratorTestBase {
     hBaseProps.put("schema", BODY_SCHEMA.toString());
     hBaseProps.put("zkNodeParent", testUtil.getConfiguration().get("zookeeper.znode.parent"));
     hBaseProps.put("rowField", "ticker");
-    hBaseProps.put(Constants.Reference.REFERENCE_NAME, "HBaseSinkTest");
+    hBaseProps.put(Constants.Reference.REFERENCE_NAME, appName);
+    hBaseProps.putAll(extraProps);
     ETLStage sink = new ETLStage("HBase", new ETLPlugin("HBase", BatchSink.PLUGIN_TYPE, hBaseProps, null));
     ETLBatchConfig etlConfig = ETLBatchConfig.builder("* * * * *")
       .addStage(source)
@@ -173,7 +195,7 @@ public class HBaseTest extends HydratorTestBase {
       .build();
 
     AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(BATCH_ARTIFACT, etlConfig);
-    ApplicationId appId = NamespaceId.DEFAULT.app("HBaseSinkTest");
+    ApplicationId appId = NamespaceId.DEFAULT.app(appName);
     ApplicationManager appManager = deployApplication(appId, appRequest);
 
     DataSetManager<Table> inputManager = getDataset(inputDatasetName);
@@ -245,4 +267,46 @@ public class HBaseTest extends HydratorTestBase {
     Assert.assertEquals(VAL1, row2.get(COL1));
     Assert.assertEquals(VAL2, row2.get(COL2));
   }
+
+  @Test
+  public void testHBaseSourceScanOptions() throws Exception {
+    Map<String, String> hBaseProps = new HashMap<>();
+    hBaseProps.put("tableName", HBASE_TABLE_NAME);
+    hBaseProps.put("columnFamily", HBASE_FAMILY_COLUMN);
+    hBaseProps.put("zkClientPort", Integer.toString(testUtil.getZkCluster().getClientPort()));
+    hBaseProps.put("schema", BODY_SCHEMA.toString());
+    hBaseProps.put("rowField", "ticker");
+    hBaseProps.put("scanCaching", "10");
+    // one cell per call, so the cells of each row have to be merged back together
+    hBaseProps.put("scanBatchSize", "1");
+    hBaseProps.put("startRow", ROW2);
+    hBaseProps.put("filter", "PrefixFilter ('row')");
+    hBaseProps.put(Constants.Reference.REFERENCE_NAME, "HBaseSourceScanTest");
+
+    ETLStage source = new ETLStage("HBase", new ETLPlugin("HBase", BatchSource.PLUGIN_TYPE, hBaseProps, null));
+    String outputDatasetName = "output-hbasesourcescantest";
+    ETLStage sink = new ETLStage("sink", MockSink.getPlugin(outputDatasetName));
+
+    ETLBatchConfig etlConfig = ETLBatchConfig.builder("* * * * *")
+      .addStage(source)
+      .addStage(sink)
+      .addConnection(source.getName(), sink.getName())
+      .build();
+
+    AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(BATCH_ARTIFACT, etlConfig);
+    ApplicationId appId = NamespaceId.DEFAULT.app("HBaseSourceScanTest");
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+    workflowManager.start();
+    workflowManager.waitForRuns(ProgramRunStatus.COMPLETED, 1, 5, TimeUnit.MINUTES);
+
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    List<StructuredRecord> outputRecords = MockSink.readOutput(outputManager);
+    Assert.assertEquals(1, outputRecords.size());
+    StructuredRecord row2 = outputRecords.get(0);
+    Assert.assertEquals(ROW2, row2.get("ticker"));
+    Assert.assertEquals(VAL1, row2.get(COL1));
+    Assert.assertEquals(VAL2, row2.get(COL2));
+  }
 }
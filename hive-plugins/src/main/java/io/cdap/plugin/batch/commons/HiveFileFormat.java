@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.commons;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hive.hcatalog.data.schema.HCatFieldSchema;
+
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Storage formats of Hive tables whose files can be read and written directly, without HCatalog and the table's
+ * SerDe.
+ */
+public enum HiveFileFormat {
+  ORC("org.apache.hadoop.hive.ql.io.orc.OrcInputFormat"),
+  PARQUET("org.apache.hadoop.hive.ql.io.parquet.MapredParquetInputFormat");
+
+  private final String inputFormatClassName;
+
+  HiveFileFormat(String inputFormatClassName) {
+    this.inputFormatClassName = inputFormatClassName;
+  }
+
+  /**
+   * @return the format of the given Hive input format class, or null if its files can't be read directly
+   */
+  @Nullable
+  public static HiveFileFormat fromInputFormat(@Nullable String inputFormatClassName) {
+    for (HiveFileFormat format : values()) {
+      if (format.inputFormatClassName.equals(inputFormatClassName)) {
+        return format;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether a table is transactional. The files of transactional tables are base and delta directories that
+   * have to be merged by the ACID reader, so they can only be read and written through HCatalog.
+   */
+  public static boolean isTransactional(@Nullable Table table) {
+    if (table == null) {
+      return false;
+    }
+    Map<String, String> parameters = table.getParameters();
+    return parameters != null
+      && "true".equalsIgnoreCase(parameters.get(hive_metastoreConstants.TABLE_IS_TRANSACTIONAL));
+  }
+
+  /**
+   * Returns the type that the values of a table column have when its file is read directly, which is the type that
+   * {@link HiveSchemaConverter#toSchema} converts the column to, or null if the column has a type that can't be read
+   * directly.
+   */
+  @Nullable
+  public static Schema.Type getType(HCatFieldSchema field) {
+    if (field.isComplex()) {
+      return null;
+    }
+    PrimitiveObjectInspector.PrimitiveCategory category = field.getTypeInfo().getPrimitiveCategory();
+    switch (category) {
+      case BOOLEAN:
+        return Schema.Type.BOOLEAN;
+      case BYTE:
+      case SHORT:
+      case INT:
+        return Schema.Type.INT;
+      case LONG:
+        return Schema.Type.LONG;
+      case FLOAT:
+        return Schema.Type.FLOAT;
+      case DOUBLE:
+        return Schema.Type.DOUBLE;
+      case CHAR:
+      case STRING:
+      case VARCHAR:
+        return Schema.Type.STRING;
+      case BINARY:
+        return Schema.Type.BYTES;
+      default:
+        return null;
+    }
+  }
+}
@@ -30,6 +30,7 @@ import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.batch.BatchSinkContext;
+import io.cdap.plugin.batch.commons.HiveFileFormat;
 import io.cdap.plugin.batch.commons.HiveSchemaConverter;
 import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.common.ReferenceBatchSink;
@@ -51,6 +52,8 @@ import org.apache.hive.hcatalog.data.schema.HCatSchema;
 import org.apache.hive.hcatalog.mapreduce.HCatOutputFormat;
 import org.apache.hive.hcatalog.mapreduce.OutputJobInfo;
 import org.apache.hive.service.auth.HiveAuthFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
@@ -65,6 +68,7 @@ import java.util.Map;
 @Description("Batch Sink to write to external Hive tables.")
 public class HiveBatchSink extends ReferenceBatchSink<StructuredRecord, NullWritable, HCatRecord> {
 
+  private static final Logger LOG = LoggerFactory.getLogger(HiveBatchSink.class);
   private static final Gson GSON = new Gson();
   private static final Type STRING_MAP_TYPE = new TypeToken<Map<String, String>>() { }.getType();
 
@@ -114,6 +118,7 @@ public class HiveBatchSink extends ReferenceBatchSink<StructuredRecord, NullWrit
   public static class HiveSinkOutputFormatProvider implements OutputFormatProvider {
     private final Map<String, String> conf;
     private HCatSchema hiveSchema;
+    private HiveFileFormat nativeFormat;
 
     public HiveSinkOutputFormatProvider(Job job, HiveSinkConfig config) throws IOException {
       Configuration originalConf = job.getConfiguration();
@@ -129,6 +134,27 @@ public class HiveBatchSink extends ReferenceBatchSink<StructuredRecord, NullWrit
       hiveSchema = HCatOutputFormat.getTableSchema(modifiedConf);
 
       OutputJobInfo jobInfo = HCatOutputFormat.getJobInfo(modifiedConf);
+      if (config.useNativeWriter()) {
+        Schema schema;
+        if (config.getSchema() == null) {
+          schema = HiveSchemaConverter.toSchema(jobInfo.getTableInfo().getDataColumns());
+        } else {
+          // the same checks of the given schema against the table as when writing through HCatalog
+          schema = config.getSchema();
+          HiveSchemaConverter.toHiveSchema(schema, hiveSchema);
+        }
+        nativeFormat = HiveFileOutputFormat.setOutput(modifiedConf, jobInfo, schema);
+        if (nativeFormat != null) {
+          LOG.info("Writing {} table {} directly to files.", nativeFormat, config.getDBTable());
+          // files have all columns of the table, in order, and columns that are not in the schema are null
+          hiveSchema = jobInfo.getTableInfo().getDataColumns();
+          conf = ConfigurationUtils.getNonDefaultConfigurations(modifiedConf);
+          return;
+        }
+        LOG.info("Partition of table {} can't be written directly to files. Writing it through HCatalog.",
+                 config.getDBTable());
+      }
+
       // if dynamic partitioning was used then append the dynamic partitioning columns to the table schema obtained from
       // hive as the schema obtained does not have these columns. The partition columns which are static
       // does not need to be appended since they are not expected to be present in the incoming record.
@@ -181,7 +207,7 @@ public class HiveBatchSink extends ReferenceBatchSink<StructuredRecord, NullWrit
 
     @Override
     public String getOutputFormatClassName() {
-      return HCatOutputFormat.class.getName();
+      return nativeFormat == null ? HCatOutputFormat.class.getName() : HiveFileOutputFormat.class.getName();
     }
 
     @Override
@@ -0,0 +1,460 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.sink;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.batch.commons.HiveFileFormat;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.type.HiveChar;
+import org.apache.hadoop.hive.common.type.HiveVarchar;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.HiveMetaStoreClient;
+import org.apache.hadoop.hive.metastore.Warehouse;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.ql.io.orc.CompressionKind;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.ql.io.orc.Writer;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.CharTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.hive.serde2.typeinfo.VarcharTypeInfo;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.apache.hive.hcatalog.data.schema.HCatFieldSchema;
+import org.apache.hive.hcatalog.data.schema.HCatSchema;
+import org.apache.hive.hcatalog.mapreduce.HCatTableInfo;
+import org.apache.hive.hcatalog.mapreduce.OutputJobInfo;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Writes a new static partition of an ORC or Parquet Hive table directly to files in the partition's location,
+ * without going through HCatalog and the table's SerDe, and adds the partition to the metastore when the job
+ * commits.
+ *
+ * <p>ORC files are written with Hive's ORC writer with the table columns in order, the same way Hive writes them.
+ * Parquet files are written with the Avro Parquet writer used by the Parquet format plugins, with the table
+ * column names.</p>
+ */
+public class HiveFileOutputFormat extends FileOutputFormat<NullWritable, HCatRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(HiveFileOutputFormat.class);
+  private static final String FORMAT = "cdap.hive.file.output.format";
+  private static final String COLUMNS = "cdap.hive.file.output.columns";
+  private static final String COLUMN_TYPES = "cdap.hive.file.output.column.types";
+  private static final String COMPRESSION = "cdap.hive.file.output.compression";
+  private static final String DATABASE = "cdap.hive.file.output.database";
+  private static final String TABLE = "cdap.hive.file.output.table";
+  private static final String PARTITION_VALUES = "cdap.hive.file.output.partition.values";
+  private static final String ORC_COMPRESSION = "orc.compress";
+  private static final String PARQUET_COMPRESSION = "parquet.compression";
+  // column types that Hive's Parquet reader reads from the types that Avro writes
+  private static final Set<Schema.Type> PARQUET_TYPES = EnumSet.of(
+    Schema.Type.BOOLEAN, Schema.Type.INT, Schema.Type.LONG, Schema.Type.FLOAT, Schema.Type.DOUBLE,
+    Schema.Type.STRING, Schema.Type.BYTES);
+
+  private FileOutputCommitter committer;
+
+  /**
+   * Configures the job to write the partition set by {@code HCatOutputFormat.setOutput} directly to files, if it
+   * is a static partition that does not exist yet, the table is stored as ORC or Parquet and is neither
+   * transactional nor bucketed, and the fields of the schema have the types of their columns.
+   *
+   * @param conf the configuration that the output was set on
+   * @param jobInfo the output job info of HCatalog
+   * @param schema the schema of the records to write
+   * @return the storage format of the table, or null if the partition can't be written directly
+   */
+  @Nullable
+  static HiveFileFormat setOutput(Configuration conf, OutputJobInfo jobInfo, Schema schema) throws IOException {
+    HCatTableInfo tableInfo = jobInfo.getTableInfo();
+    Table table = tableInfo.getTable();
+    Map<String, String> partitionValues = jobInfo.getPartitionValues();
+    if (jobInfo.isDynamicPartitioningUsed() || partitionValues == null || partitionValues.isEmpty()) {
+      LOG.info("Only new static partitions of table {} can be written directly.", tableInfo.getTableName());
+      return null;
+    }
+    if (HiveFileFormat.isTransactional(table) || table.getSd().getNumBuckets() > 0) {
+      LOG.info("Table {} is transactional or bucketed, so its files can only be written by Hive.",
+               tableInfo.getTableName());
+      return null;
+    }
+    HiveFileFormat format = HiveFileFormat.fromInputFormat(tableInfo.getStorerInfo().getIfClass());
+    if (format == null || !canWrite(format, schema, tableInfo.getDataColumns())) {
+      return null;
+    }
+
+    List<String> values = new ArrayList<>();
+    for (String partitionKey : tableInfo.getPartitionColumns().getFieldNames()) {
+      values.add(partitionValues.get(partitionKey));
+    }
+    Path location;
+    HiveMetaStoreClient client = createClient(conf);
+    try {
+      client.getPartition(tableInfo.getDatabaseName(), tableInfo.getTableName(), values);
+      LOG.info("Partition {} of table {} already exists, so it can only be written through HCatalog.",
+               values, tableInfo.getTableName());
+      return null;
+    } catch (NoSuchObjectException e) {
+      // the partition is new
+    } catch (TException e) {
+      throw new IOException(String.format("Failed to look up partition %s of table %s.",
+                                          values, tableInfo.getTableName()), e);
+    } finally {
+      client.close();
+    }
+    try {
+      location = new Path(tableInfo.getTableLocation(), Warehouse.makePartName(table.getPartitionKeys(), values));
+    } catch (MetaException e) {
+      throw new IOException(String.format("Invalid values %s of partition of table %s.",
+                                          values, tableInfo.getTableName()), e);
+    }
+    // files that were left behind in the location of the partition would be added to it
+    FileSystem fs = location.getFileSystem(conf);
+    if (fs.exists(location)) {
+      LOG.info("Location {} of the new partition already exists, so it can only be written through HCatalog.",
+               location);
+      return null;
+    }
+
+    String compression = table.getParameters() == null ? null
+      : table.getParameters().get(format == HiveFileFormat.ORC ? ORC_COMPRESSION : PARQUET_COMPRESSION);
+    configure(conf, format, tableInfo.getDataColumns(), compression);
+    conf.set(DATABASE, tableInfo.getDatabaseName());
+    conf.set(TABLE, tableInfo.getTableName());
+    conf.setStrings(PARTITION_VALUES, values.toArray(new String[0]));
+    conf.set(FileOutputFormat.OUTDIR, location.toString());
+    return format;
+  }
+
+  /**
+   * Sets the configuration that the record writers write files with the given columns with.
+   */
+  static void configure(Configuration conf, HiveFileFormat format, HCatSchema dataColumns,
+                        @Nullable String compression) {
+    List<String> columns = new ArrayList<>();
+    List<String> columnTypes = new ArrayList<>();
+    for (HCatFieldSchema column : dataColumns.getFields()) {
+      columns.add(column.getName());
+      columnTypes.add(column.getTypeString());
+    }
+    conf.set(FORMAT, format.name());
+    conf.setStrings(COLUMNS, columns.toArray(new String[0]));
+    // separated by colons, like the column types in the properties of Hive's SerDes
+    conf.set(COLUMN_TYPES, String.join(":", columnTypes));
+    if (compression != null) {
+      conf.set(COMPRESSION, compression);
+    }
+  }
+
+  /**
+   * Returns whether every data column has a type that can be written directly in the given format, and every
+   * field of the schema that is a data column has the type that the column is read as.
+   */
+  static boolean canWrite(HiveFileFormat format, Schema schema, HCatSchema dataColumns) {
+    Map<String, Schema.Type> columnTypes = new HashMap<>();
+    for (HCatFieldSchema column : dataColumns.getFields()) {
+      Schema.Type type = HiveFileFormat.getType(column);
+      boolean writable = format == HiveFileFormat.PARQUET
+        ? type != null && PARQUET_TYPES.contains(type) && column.getTypeInfo().equals(toTypeInfo(type))
+        : type != null;
+      if (!writable) {
+        LOG.info("Column '{}' of type {} can't be written directly as {}.", column.getName(),
+                 column.getTypeString(), format);
+        return false;
+      }
+      columnTypes.put(column.getName().toLowerCase(), type);
+    }
+    for (Schema.Field field : schema.getFields()) {
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+      Schema.Type columnType = columnTypes.get(field.getName().toLowerCase());
+      if (columnType != null && columnType != fieldSchema.getType()) {
+        LOG.info("Field '{}' of type {} can't be written directly to a column of type {}.",
+                 field.getName(), fieldSchema.getType(), columnType);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public RecordWriter<NullWritable, HCatRecord> getRecordWriter(TaskAttemptContext context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    List<String> columns = Arrays.asList(conf.getStrings(COLUMNS));
+    List<TypeInfo> columnTypes = TypeInfoUtils.getTypeInfosFromTypeString(conf.get(COLUMN_TYPES));
+    String compression = conf.get(COMPRESSION);
+    if (HiveFileFormat.valueOf(conf.get(FORMAT)) == HiveFileFormat.ORC) {
+      Path file = getDefaultWorkFile(context, ".orc");
+      ObjectInspector inspector = TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(
+        TypeInfoFactory.getStructTypeInfo(columns, columnTypes));
+      OrcFile.WriterOptions options = OrcFile.writerOptions(conf).inspector(inspector);
+      if (compression != null) {
+        options.compress(CompressionKind.valueOf(compression.toUpperCase()));
+      }
+      return new OrcRecordWriter(OrcFile.createWriter(file, options), columnTypes);
+    }
+    Path file = getDefaultWorkFile(context, ".parquet");
+    CompressionCodecName codec = compression == null ? CompressionCodecName.UNCOMPRESSED
+      : CompressionCodecName.fromConf(compression.toUpperCase());
+    org.apache.avro.Schema schema = toAvroSchema(columns, columnTypes);
+    return new ParquetRecordWriter(new AvroParquetWriter<GenericRecord>(file, schema, codec,
+                                                                        ParquetWriter.DEFAULT_BLOCK_SIZE,
+                                                                        ParquetWriter.DEFAULT_PAGE_SIZE, true, conf),
+                                   schema);
+  }
+
+  @Override
+  public synchronized OutputCommitter getOutputCommitter(TaskAttemptContext context) throws IOException {
+    if (committer == null) {
+      committer = new PartitionCommitter(getOutputPath(context), context);
+    }
+    return committer;
+  }
+
+  private static HiveMetaStoreClient createClient(Configuration conf) throws IOException {
+    try {
+      return new HiveMetaStoreClient(new HiveConf(conf, HiveFileOutputFormat.class));
+    } catch (TException e) {
+      throw new IOException("Failed to connect to the Hive metastore.", e);
+    }
+  }
+
+  private static PrimitiveTypeInfo toTypeInfo(Schema.Type type) {
+    switch (type) {
+      case BOOLEAN:
+        return TypeInfoFactory.booleanTypeInfo;
+      case INT:
+        return TypeInfoFactory.intTypeInfo;
+      case LONG:
+        return TypeInfoFactory.longTypeInfo;
+      case FLOAT:
+        return TypeInfoFactory.floatTypeInfo;
+      case DOUBLE:
+        return TypeInfoFactory.doubleTypeInfo;
+      case STRING:
+        return TypeInfoFactory.stringTypeInfo;
+      default:
+        return TypeInfoFactory.binaryTypeInfo;
+    }
+  }
+
+  /**
+   * Returns the Avro schema of the Parquet files of a table with the given columns, which only have the types in
+   * {@link #PARQUET_TYPES}.
+   */
+  private static org.apache.avro.Schema toAvroSchema(List<String> columns, List<TypeInfo> columnTypes) {
+    List<org.apache.avro.Schema.Field> fields = new ArrayList<>(columns.size());
+    for (int i = 0; i < columns.size(); i++) {
+      org.apache.avro.Schema.Type type;
+      switch (((PrimitiveTypeInfo) columnTypes.get(i)).getPrimitiveCategory()) {
+        case BOOLEAN:
+          type = org.apache.avro.Schema.Type.BOOLEAN;
+          break;
+        case INT:
+          type = org.apache.avro.Schema.Type.INT;
+          break;
+        case LONG:
+          type = org.apache.avro.Schema.Type.LONG;
+          break;
+        case FLOAT:
+          type = org.apache.avro.Schema.Type.FLOAT;
+          break;
+        case DOUBLE:
+          type = org.apache.avro.Schema.Type.DOUBLE;
+          break;
+        case STRING:
+          type = org.apache.avro.Schema.Type.STRING;
+          break;
+        default:
+          type = org.apache.avro.Schema.Type.BYTES;
+          break;
+      }
+      org.apache.avro.Schema nullable = org.apache.avro.Schema.createUnion(Arrays.asList(
+        org.apache.avro.Schema.create(org.apache.avro.Schema.Type.NULL), org.apache.avro.Schema.create(type)));
+      fields.add(new org.apache.avro.Schema.Field(columns.get(i), nullable, null, null));
+    }
+    org.apache.avro.Schema schema = org.apache.avro.Schema.createRecord("hive_schema", null, null, false);
+    schema.setFields(fields);
+    return schema;
+  }
+
+  @Nullable
+  private static byte[] toBytes(@Nullable Object value) {
+    if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = (ByteBuffer) value;
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.duplicate().get(bytes);
+      return bytes;
+    }
+    return (byte[]) value;
+  }
+
+  /**
+   * Commits the files of the tasks to the location of the partition, and then adds the partition to the metastore.
+   */
+  private static class PartitionCommitter extends FileOutputCommitter {
+    private final Path location;
+
+    PartitionCommitter(Path location, TaskAttemptContext context) throws IOException {
+      super(location, context);
+      this.location = location;
+    }
+
+    @Override
+    public void commitJob(JobContext context) throws IOException {
+      super.commitJob(context);
+      Configuration conf = context.getConfiguration();
+      String database = conf.get(DATABASE);
+      String tableName = conf.get(TABLE);
+      List<String> values = Arrays.asList(conf.getStrings(PARTITION_VALUES));
+      HiveMetaStoreClient client = createClient(conf);
+      try {
+        Table table = client.getTable(database, tableName);
+        StorageDescriptor sd = new StorageDescriptor(table.getSd());
+        sd.setLocation(location.toString());
+        Partition partition = new Partition();
+        partition.setDbName(database);
+        partition.setTableName(tableName);
+        partition.setValues(values);
+        partition.setSd(sd);
+        partition.setParameters(new HashMap<String, String>());
+        client.add_partition(partition);
+      } catch (TException e) {
+        throw new IOException(String.format("Failed to add partition %s of table %s at %s to the metastore.",
+                                            values, tableName, location), e);
+      } finally {
+        client.close();
+      }
+    }
+  }
+
+  /**
+   * Writes the rows of an ORC file with Java objects of the column types.
+   */
+  private static class OrcRecordWriter extends RecordWriter<NullWritable, HCatRecord> {
+    private final Writer writer;
+    private final List<TypeInfo> columnTypes;
+    private final List<Object> row;
+
+    OrcRecordWriter(Writer writer, List<TypeInfo> columnTypes) {
+      this.writer = writer;
+      this.columnTypes = columnTypes;
+      this.row = new ArrayList<>(columnTypes.size());
+    }
+
+    @Override
+    public void write(NullWritable key, HCatRecord record) throws IOException {
+      row.clear();
+      for (int i = 0; i < columnTypes.size(); i++) {
+        row.add(toJava(record.get(i), (PrimitiveTypeInfo) columnTypes.get(i)));
+      }
+      writer.addRow(row);
+    }
+
+    /**
+     * Converts a record value to the Java object of a column type. Columns of the types that are read as ints and
+     * strings are written from ints and strings.
+     */
+    @Nullable
+    private static Object toJava(@Nullable Object value, PrimitiveTypeInfo type) {
+      if (value == null) {
+        return null;
+      }
+      switch (type.getPrimitiveCategory()) {
+        case BYTE:
+          return ((Number) value).byteValue();
+        case SHORT:
+          return ((Number) value).shortValue();
+        case CHAR:
+          return new HiveChar(value.toString(), ((CharTypeInfo) type).getLength());
+        case VARCHAR:
+          return new HiveVarchar(value.toString(), ((VarcharTypeInfo) type).getLength());
+        case BINARY:
+          return toBytes(value);
+        default:
+          return value;
+      }
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) throws IOException {
+      writer.close();
+    }
+  }
+
+  /**
+   * Writes the rows of a Parquet file as Avro records.
+   */
+  private static class ParquetRecordWriter extends RecordWriter<NullWritable, HCatRecord> {
+    private final ParquetWriter<GenericRecord> writer;
+    private final org.apache.avro.Schema schema;
+    private final int columnCount;
+
+    ParquetRecordWriter(ParquetWriter<GenericRecord> writer, org.apache.avro.Schema schema) {
+      this.writer = writer;
+      this.schema = schema;
+      this.columnCount = schema.getFields().size();
+    }
+
+    @Override
+    public void write(NullWritable key, HCatRecord record) throws IOException {
+      GenericRecord row = new GenericData.Record(schema);
+      for (int i = 0; i < columnCount; i++) {
+        Object value = record.get(i);
+        // binary columns are written from ByteBuffers
+        row.put(i, value instanceof byte[] ? ByteBuffer.wrap((byte[]) value) : value);
+      }
+      writer.write(row);
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) throws IOException {
+      writer.close();
+    }
+  }
+}
@@ -44,6 +44,21 @@ public class HiveSinkConfig extends HiveConfig {
   @Nullable
   public String schema;
 
+  @Name(Hive.NATIVE_WRITER)
+  @Description("Whether to write a new static partition of a table stored as ORC or Parquet directly to files in " +
+    "the partition's location instead of through HCatalog, and add the partition to the metastore when the run " +
+    "succeeds. Existing partitions, dynamic partitions, unpartitioned tables, transactional and bucketed tables, " +
+    "and schemas with types that differ from the table are always written through HCatalog. Defaults to false.")
+  @Nullable
+  public Boolean nativeWriter;
+
+  /**
+   * @return whether new partitions of ORC and Parquet tables should be written directly to files
+   */
+  public boolean useNativeWriter() {
+    return nativeWriter != null && nativeWriter;
+  }
+
   /**
    * @return {@link Schema} of the dataset if one was given else null
    */
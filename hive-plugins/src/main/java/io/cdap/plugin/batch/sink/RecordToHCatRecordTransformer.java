@@ -25,41 +25,63 @@ import org.apache.hive.hcatalog.data.DefaultHCatRecord;
 import org.apache.hive.hcatalog.data.HCatRecord;
 import org.apache.hive.hcatalog.data.schema.HCatSchema;
 
+import java.util.List;
+
 /**
  * A transform to convert a {@link StructuredRecord} to Hive's {@link HCatRecord}.
+ * The position of every field in the {@link HCatSchema} is resolved once, when the transformer is created.
  */
 public class RecordToHCatRecordTransformer {
 
-  private final HCatSchema hCatSchema;
-  private final Schema schema;
+  // the number of columns of the table, which may have columns that are not in the schema
+  private final int size;
+  private final String[] names;
+  private final int[] positions;
+  // the last record schema that was checked to contain all fields, since records usually share one schema
+  private Schema checkedSchema;
 
   /**
    * A transform to convert a {@link StructuredRecord} to Hive's {@link HCatRecord}. The given {@link Schema} and
    * {@link HCatSchema} must be compatible. To convert one schema to another and supported types
    * see {@link HiveSchemaConverter}
+   *
+   * @throws IllegalArgumentException if a field of the schema is missing from the table
    */
   public RecordToHCatRecordTransformer(HCatSchema hCatSchema, Schema schema) {
-    this.hCatSchema = hCatSchema;
-    this.schema = schema;
+    this.size = hCatSchema.size();
+    List<Schema.Field> fields = schema.getFields();
+    this.names = new String[fields.size()];
+    this.positions = new int[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      String name = fields.get(i).getName();
+      Integer position = hCatSchema.getPosition(name);
+      Preconditions.checkArgument(position != null, "Field '%s' is not present in the table schema %s.",
+                                  name, hCatSchema.getFieldNames());
+      names[i] = name;
+      positions[i] = position;
+    }
   }
 
   /**
-   * Converts a {@link StructuredRecord} to {@link HCatRecord} using the {@link #hCatSchema}.
+   * Converts a {@link StructuredRecord} to {@link HCatRecord} using the {@link HCatSchema}.
    *
    * @param record {@link StructuredRecord} to be converted
    * @return {@link HCatRecord} for the given {@link StructuredRecord}
    * @throws HCatException if failed to set the field in {@link HCatRecord}
    */
   public HCatRecord toHCatRecord(StructuredRecord record) throws HCatException {
-
-    HCatRecord hCatRecord = new DefaultHCatRecord(schema.getFields().size());
-
-    for (Schema.Field field : schema.getFields()) {
-      Preconditions.checkNotNull(record.getSchema().getField(field.getName()), "Missing schema field '%s' in record " +
-        "to be written.", field.getName());
-      hCatRecord.set(field.getName(), hCatSchema, record.get(field.getName()));
+    if (record.getSchema() != checkedSchema) {
+      for (String name : names) {
+        Preconditions.checkNotNull(record.getSchema().getField(name), "Missing schema field '%s' in record " +
+          "to be written.", name);
+      }
+      checkedSchema = record.getSchema();
     }
 
+    HCatRecord hCatRecord = new DefaultHCatRecord(size);
+    for (int i = 0; i < names.length; i++) {
+      hCatRecord.set(positions[i], record.get(names[i]));
+    }
     return hCatRecord;
   }
 }
@@ -19,42 +19,42 @@ package io.cdap.plugin.batch.source;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.batch.commons.HiveSchemaConverter;
-import org.apache.hadoop.hive.common.type.HiveChar;
-import org.apache.hadoop.hive.common.type.HiveVarchar;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
-import org.apache.hive.hcatalog.common.HCatException;
 import org.apache.hive.hcatalog.data.HCatRecord;
 import org.apache.hive.hcatalog.data.schema.HCatFieldSchema;
 import org.apache.hive.hcatalog.data.schema.HCatSchema;
 
+import java.util.List;
+
 /**
  * A transform to convert a {@link HCatRecord} from hive to {@link StructuredRecord}.
+ * The position of every field in the {@link HCatSchema} and the converter for its type are resolved once, when the
+ * transformer is created, so converting a record reads every value by position.
  */
 public class HCatRecordTransformer {
-  private final HCatSchema hCatSchema;
   private final Schema schema;
+  private final String[] names;
+  private final Schema.Type[] types;
+  private final int[] positions;
+  private final ValueConverter[] converters;
 
   /**
    * A transform to convert a {@link HCatRecord} to Hive's {@link StructuredRecord}. The given {@link Schema} and
    * {@link HCatSchema} must be compatible. To convert one schema to another and supported types
    * see {@link HiveSchemaConverter}
+   *
+   * @throws IllegalStateException if the schema contains a field of an unsupported type
+   * @throws IllegalArgumentException if a field of the schema is missing from the table or has an unsupported type
    */
   public HCatRecordTransformer(HCatSchema hCatSchema, Schema schema) {
-    this.hCatSchema = hCatSchema;
     this.schema = schema;
-  }
-
-  /**
-   * Converts a {@link HCatRecord} read from a hive table to {@link StructuredRecord} using the {@link Schema} created
-   * from the {@link HCatSchema}.
-   *
-   * @param hCatRecord the record
-   * @return the converted {@link StructuredRecord}
-   */
-  public StructuredRecord toRecord(HCatRecord hCatRecord) {
-    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-
-    for (Schema.Field field : schema.getFields()) {
+    List<Schema.Field> fields = schema.getFields();
+    this.names = new String[fields.size()];
+    this.types = new Schema.Type[fields.size()];
+    this.positions = new int[fields.size()];
+    this.converters = new ValueConverter[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
       String fieldName = field.getName();
       Schema.Type type = field.getSchema().isNullable() ? field.getSchema().getNonNullable().getType() :
         field.getSchema().getType();
@@ -65,65 +65,77 @@ public class HCatRecordTransformer {
         case FLOAT:
         case DOUBLE:
         case STRING:
-        case BYTES: {
-          try {
-            builder.set(fieldName, getSchemaCompatibleValue(hCatRecord, fieldName));
-            break;
-          } catch (Throwable t) {
-            throw new RuntimeException(String.format("Error converting field '%s' of type %s",
-                                                     fieldName, type), t);
-          }
-        }
-        default: {
+        case BYTES:
+          break;
+        default:
           throw new IllegalStateException(String.format("Output schema contains field '%s' with unsupported type %s.",
                                                         fieldName, type));
-        }
+      }
+      Integer position = hCatSchema.getPosition(fieldName);
+      if (position == null) {
+        throw new IllegalArgumentException(String.format("Field '%s' is not present in the table schema %s.",
+                                                         fieldName, hCatSchema.getFieldNames()));
+      }
+      names[i] = fieldName;
+      types[i] = type;
+      positions[i] = position;
+      converters[i] = createConverter(hCatSchema.getFields().get(position));
+    }
+  }
+
+  /**
+   * Converts a {@link HCatRecord} read from a hive table to {@link StructuredRecord} using the {@link Schema} created
+   * from the {@link HCatSchema}.
+   *
+   * @param hCatRecord the record
+   * @return the converted {@link StructuredRecord}
+   */
+  public StructuredRecord toRecord(HCatRecord hCatRecord) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (int i = 0; i < names.length; i++) {
+      try {
+        Object value = hCatRecord.get(positions[i]);
+        builder.set(names[i], value == null ? null : converters[i].convert(value));
+      } catch (Throwable t) {
+        throw new RuntimeException(String.format("Error converting field '%s' of type %s", names[i], types[i]), t);
       }
     }
     return builder.build();
   }
 
   /**
-   * Converts the value for a field from {@link HCatRecord} to the compatible {@link Schema} type to be represented in
-   * {@link StructuredRecord}. For schema conversion details and supported type see {@link HiveSchemaConverter}.
-   * @param hCatRecord the record being converted to {@link StructuredRecord}
-   * @param fieldName name of the field
-   * @return the value for the given field which is of type compatible with {@link Schema}.
-   * @throws HCatException if failed to get {@link HCatFieldSchema} for the given field
+   * Creates the converter from the value of a {@link HCatRecord} field to the compatible {@link Schema} type to be
+   * represented in {@link StructuredRecord}. For schema conversion details and supported type see
+   * {@link HiveSchemaConverter}.
+   *
+   * @param fieldSchema the schema of the field in the table
+   * @return the converter for values of the given field
    */
-  private Object getSchemaCompatibleValue(HCatRecord hCatRecord, String fieldName) throws HCatException {
-    PrimitiveObjectInspector.PrimitiveCategory category = hCatSchema.get(fieldName)
-      .getTypeInfo().getPrimitiveCategory();
+  private static ValueConverter createConverter(HCatFieldSchema fieldSchema) {
+    if (fieldSchema.getCategory() != HCatFieldSchema.Category.PRIMITIVE) {
+      throw unsupported(fieldSchema.getName(), fieldSchema.getCategory().name());
+    }
+    PrimitiveObjectInspector.PrimitiveCategory category = fieldSchema.getTypeInfo().getPrimitiveCategory();
     switch (category) {
       // Its not required to check that the schema has the same type because if the user provided  the Schema then
       // the HCatSchema was obtained through the convertor and if the user didn't the Schema was obtained through the
       // and hence the types will be same.
       case BOOLEAN:
-        return hCatRecord.getBoolean(fieldName, hCatSchema);
-      case BYTE:
-        Byte byteValue = hCatRecord.getByte(fieldName, hCatSchema);
-        return byteValue == null ? null : (int) byteValue;
-      case SHORT:
-        Short shortValue = hCatRecord.getShort(fieldName, hCatSchema);
-        return shortValue == null ? null : (int) shortValue;
       case INT:
-        return hCatRecord.getInteger(fieldName, hCatSchema);
       case LONG:
-        return hCatRecord.getLong(fieldName, hCatSchema);
       case FLOAT:
-        return hCatRecord.getFloat(fieldName, hCatSchema);
       case DOUBLE:
-        return hCatRecord.getDouble(fieldName, hCatSchema);
-      case CHAR:
-        HiveChar charValue = hCatRecord.getChar(fieldName, hCatSchema);
-        return charValue == null ? null : charValue.toString();
       case STRING:
-        return hCatRecord.getString(fieldName, hCatSchema);
-      case VARCHAR:
-        HiveVarchar varcharValue = hCatRecord.getVarchar(fieldName, hCatSchema);
-        return varcharValue == null ? null : varcharValue.toString();
       case BINARY:
-        return hCatRecord.getByteArray(fieldName, hCatSchema);
+        return value -> value;
+      case BYTE:
+        return value -> (int) (Byte) value;
+      case SHORT:
+        return value -> (int) (Short) value;
+      case CHAR:
+      case VARCHAR:
+        // HiveChar and HiveVarchar return their value from toString
+        return Object::toString;
       // We can support VOID by having Schema type as null but HCatRecord does not support VOID and since we read
       // write through HCatSchema and HCatRecord we are not supporting VOID too for consistent behavior.
       case VOID:
@@ -132,9 +144,20 @@ public class HCatRecordTransformer {
       case DECIMAL:
       case UNKNOWN:
       default:
-        throw new IllegalArgumentException(String.format("Table schema contains field '%s' with unsupported type %s. " +
-                                                           "To read this table you should provide input schema in " +
-                                                           "which this field is dropped.", fieldName, category.name()));
+        throw unsupported(fieldSchema.getName(), category.name());
     }
   }
+
+  private static IllegalArgumentException unsupported(String fieldName, String type) {
+    return new IllegalArgumentException(String.format("Table schema contains field '%s' with unsupported type %s. " +
+                                                        "To read this table you should provide input schema in " +
+                                                        "which this field is dropped.", fieldName, type));
+  }
+
+  /**
+   * Converts a non-null value of a {@link HCatRecord} field.
+   */
+  private interface ValueConverter {
+    Object convert(Object value);
+  }
 }
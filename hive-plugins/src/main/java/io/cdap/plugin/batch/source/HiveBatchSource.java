@@ -28,6 +28,7 @@ import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSourceContext;
+import io.cdap.plugin.batch.commons.HiveFileFormat;
 import io.cdap.plugin.batch.commons.HiveSchemaConverter;
 import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.common.ReferenceBatchSource;
@@ -35,7 +36,6 @@ import io.cdap.plugin.common.SourceInputFormatProvider;
 import io.cdap.plugin.common.batch.JobUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.conf.HiveConf;
-import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hive.hcatalog.data.HCatRecord;
@@ -52,7 +52,7 @@ import org.slf4j.LoggerFactory;
 @Plugin(type = "batchsource")
 @Name("Hive")
 @Description("Batch source to read from external Hive table")
-public class HiveBatchSource extends ReferenceBatchSource<WritableComparable, HCatRecord, StructuredRecord> {
+public class HiveBatchSource extends ReferenceBatchSource<Object, Object, StructuredRecord> {
 
   private static final Logger LOG = LoggerFactory.getLogger(HiveBatchSource.class);
   private static final Gson GSON = new Gson();
@@ -93,6 +93,27 @@ public class HiveBatchSource extends ReferenceBatchSource<WritableComparable, HC
       HCatInputFormat.setInput(conf, config.dbName, config.tableName, config.partitions);
 
       HCatSchema hCatSchema = HCatInputFormat.getTableSchema(conf);
+      if (config.useNativeReader()) {
+        Schema schema = config.getSchema();
+        if (schema == null) {
+          schema = HiveSchemaConverter.toSchema(hCatSchema);
+        } else {
+          // the same checks of the given schema against the table as when reading through HCatalog
+          HiveSchemaConverter.toHiveSchema(schema, hCatSchema);
+        }
+        HiveFileFormat format = HiveFileInputFormat.setInput(job, schema);
+        if (format != null) {
+          LOG.info("Reading {} table {} directly from its files.", format, config.getDBTable());
+          context.getArguments().set(config.getDBTable(), GSON.toJson(hCatSchema));
+          LineageRecorder lineageRecorder = new LineageRecorder(context, config.referenceName);
+          lineageRecorder.createExternalDataset(config.getSchema());
+          context.setInput(Input.of(config.referenceName,
+                                    new SourceInputFormatProvider(HiveFileInputFormat.class, conf)));
+          return;
+        }
+        LOG.info("Table {} is not a non-transactional ORC or Parquet table with the same columns in every " +
+                   "partition and the types of the schema. Reading it through HCatalog.", config.getDBTable());
+      }
       if (config.getSchema() != null) {
         // if the user provided a schema then we should use that schema to read the table. This will allow user to
         // drop non-primitive types and read the table.
@@ -123,9 +144,12 @@ public class HiveBatchSource extends ReferenceBatchSource<WritableComparable, HC
   }
 
   @Override
-  public void transform(KeyValue<WritableComparable, HCatRecord> input,
-                        Emitter<StructuredRecord> emitter) throws Exception {
-    StructuredRecord record = hCatRecordTransformer.toRecord(input.getValue());
-    emitter.emit(record);
+  public void transform(KeyValue<Object, Object> input, Emitter<StructuredRecord> emitter) throws Exception {
+    // records read directly from the table's files are already converted
+    if (input.getValue() instanceof StructuredRecord) {
+      emitter.emit((StructuredRecord) input.getValue());
+      return;
+    }
+    emitter.emit(hCatRecordTransformer.toRecord((HCatRecord) input.getValue()));
   }
 }
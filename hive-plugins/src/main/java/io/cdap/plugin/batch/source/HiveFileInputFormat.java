@@ -0,0 +1,505 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.source;
+
+import com.google.common.base.Charsets;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.batch.commons.HiveFileFormat;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.type.HiveChar;
+import org.apache.hadoop.hive.common.type.HiveVarchar;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.ql.io.orc.OrcProto;
+import org.apache.hadoop.hive.ql.io.orc.Reader;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hive.hcatalog.common.HCatConstants;
+import org.apache.hive.hcatalog.common.HCatUtil;
+import org.apache.hive.hcatalog.data.schema.HCatFieldSchema;
+import org.apache.hive.hcatalog.data.schema.HCatSchema;
+import org.apache.hive.hcatalog.mapreduce.HCatTableInfo;
+import org.apache.hive.hcatalog.mapreduce.InputJobInfo;
+import org.apache.hive.hcatalog.mapreduce.PartInfo;
+import org.apache.parquet.avro.AvroParquetInputFormat;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the files of an ORC or Parquet Hive table directly, without going through HCatalog and the table's SerDe.
+ * Partition column values are not stored in the files, so they are taken from the metastore partition that
+ * contains each file.
+ *
+ * <p>ORC files are read with Hive's ORC reader and mapped to table columns by position, the same way Hive reads
+ * them, since older Hive versions do not store column names in ORC files. Parquet files are read with the Avro
+ * Parquet reader used by the Parquet format plugins and mapped to table columns by name.</p>
+ */
+public class HiveFileInputFormat extends FileInputFormat<NullWritable, StructuredRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(HiveFileInputFormat.class);
+  private static final String FORMAT = "cdap.hive.file.format";
+  private static final String SCHEMA = "cdap.hive.file.schema";
+  private static final String DATA_COLUMNS = "cdap.hive.file.data.columns";
+  private static final String PARTITIONS = "cdap.hive.file.partitions";
+  private static final String DEFAULT_PARTITION_NAME = "__HIVE_DEFAULT_PARTITION__";
+  private static final Gson GSON = new Gson();
+  private static final Type PARTITIONS_TYPE = new TypeToken<List<Partition>>() { }.getType();
+  // the types that partition values can be parsed as
+  private static final Set<Schema.Type> PARTITION_TYPES = EnumSet.of(
+    Schema.Type.BOOLEAN, Schema.Type.INT, Schema.Type.LONG, Schema.Type.FLOAT, Schema.Type.DOUBLE,
+    Schema.Type.STRING, Schema.Type.BYTES);
+
+  /**
+   * Configures the job to read the table set by {@code HCatInputFormat.setInput} directly from its files, if
+   * every partition to read is stored as ORC or every partition is stored as Parquet, every partition has
+   * the same columns as the table, the table is not transactional and the data columns in the schema have the
+   * types that they are read as.
+   *
+   * @param job the job that the input was set on
+   * @param schema the schema of the records to read, which may contain both data and partition columns
+   * @return the storage format of the table, or null if the table can't be read directly
+   * @throws IllegalArgumentException if a field of the schema is neither a column nor a partition column
+   */
+  @Nullable
+  static HiveFileFormat setInput(Job job, Schema schema) throws IOException {
+    Configuration conf = job.getConfiguration();
+    InputJobInfo jobInfo = (InputJobInfo) HCatUtil.deserialize(conf.get(HCatConstants.HCAT_KEY_JOB_INFO));
+    HCatTableInfo tableInfo = jobInfo.getTableInfo();
+    if (HiveFileFormat.isTransactional(tableInfo.getTable())) {
+      LOG.info("Table {} is transactional, so its files can only be read through the ACID reader.",
+               tableInfo.getTableName());
+      return null;
+    }
+    HCatSchema dataColumns = tableInfo.getDataColumns();
+    if (!canRead(schema, dataColumns, tableInfo.getPartitionColumns())) {
+      return null;
+    }
+    List<PartInfo> partInfos = jobInfo.getPartitions();
+    if (partInfos == null || partInfos.isEmpty()) {
+      return null;
+    }
+
+    HiveFileFormat format = null;
+    List<Partition> partitions = new ArrayList<>(partInfos.size());
+    for (PartInfo partInfo : partInfos) {
+      HiveFileFormat partitionFormat = HiveFileFormat.fromInputFormat(partInfo.getInputFormatClassName());
+      if (partitionFormat == null || (format != null && format != partitionFormat) || partInfo.getLocation() == null ||
+        !dataColumns.getFieldNames().equals(partInfo.getPartitionSchema().getFieldNames())) {
+        return null;
+      }
+      format = partitionFormat;
+      partitions.add(new Partition(partInfo.getLocation(), partInfo.getPartitionValues()));
+    }
+
+    Path[] paths = new Path[partitions.size()];
+    for (int i = 0; i < paths.length; i++) {
+      paths[i] = new Path(partitions.get(i).location);
+    }
+    FileInputFormat.setInputPaths(job, paths);
+    // partitions written by inserts with unions or by some engines contain subdirectories
+    FileInputFormat.setInputDirRecursive(job, true);
+    configure(conf, format, schema, dataColumns.getFieldNames(), partitions);
+    return format;
+  }
+
+  /**
+   * Checks that every field of the schema is a data column or a partition column of the table. Column names are
+   * matched ignoring case, like Hive does.
+   *
+   * @return whether the fields of the schema have types that the columns can be read as directly
+   * @throws IllegalArgumentException if a field of the schema is neither a column nor a partition column
+   */
+  static boolean canRead(Schema schema, HCatSchema dataColumns, @Nullable HCatSchema partitionColumns) {
+    Map<String, HCatFieldSchema> columns = new HashMap<>();
+    for (HCatFieldSchema column : dataColumns.getFields()) {
+      columns.put(column.getName().toLowerCase(), column);
+    }
+    Set<String> partitionKeys = new HashSet<>();
+    // tables that are not partitioned may have no partition columns at all
+    if (partitionColumns != null) {
+      for (String partitionKey : partitionColumns.getFieldNames()) {
+        partitionKeys.add(partitionKey.toLowerCase());
+      }
+    }
+
+    boolean readable = true;
+    for (Schema.Field field : schema.getFields()) {
+      String name = field.getName().toLowerCase();
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+      HCatFieldSchema column = columns.get(name);
+      if (column != null) {
+        Schema.Type type = HiveFileFormat.getType(column);
+        if (type != fieldSchema.getType()) {
+          LOG.info("Column '{}' of type {} can't be read directly as {}.",
+                   column.getName(), column.getTypeString(), fieldSchema.getType());
+          readable = false;
+        }
+      } else if (partitionKeys.contains(name)) {
+        if (!PARTITION_TYPES.contains(fieldSchema.getType())) {
+          LOG.info("Partition column '{}' can't be read directly as {}.", field.getName(), fieldSchema.getType());
+          readable = false;
+        }
+      } else {
+        throw new IllegalArgumentException(String.format(
+          "Field '%s' of the schema is neither a column nor a partition column of the table. The columns are %s " +
+            "and the partition columns are %s.", field.getName(), dataColumns.getFieldNames(), partitionKeys));
+      }
+    }
+    return readable;
+  }
+
+  /**
+   * Sets the configuration that the record readers read the given partitions with.
+   */
+  static void configure(Configuration conf, HiveFileFormat format, Schema schema, List<String> dataColumns,
+                        List<Partition> partitions) {
+    List<String> columnNames = new ArrayList<>(dataColumns.size());
+    for (String dataColumn : dataColumns) {
+      columnNames.add(dataColumn.toLowerCase());
+    }
+    conf.set(FORMAT, format.name());
+    conf.set(SCHEMA, schema.toString());
+    conf.setStrings(DATA_COLUMNS, columnNames.toArray(new String[0]));
+    conf.set(PARTITIONS, GSON.toJson(partitions));
+
+    if (format == HiveFileFormat.PARQUET) {
+      // only read the columns in the schema, by their names in the table
+      List<Schema.Field> projection = new ArrayList<>();
+      for (Schema.Field field : schema.getFields()) {
+        int index = columnNames.indexOf(field.getName().toLowerCase());
+        if (index >= 0) {
+          Schema fieldSchema = field.getSchema();
+          projection.add(Schema.Field.of(dataColumns.get(index),
+                                         fieldSchema.isNullable() ? fieldSchema : Schema.nullableOf(fieldSchema)));
+        }
+      }
+      if (!projection.isEmpty()) {
+        conf.set(AvroReadSupport.AVRO_REQUESTED_PROJECTION, Schema.recordOf("projection", projection).toString());
+      }
+    }
+  }
+
+  @Override
+  public RecordReader<NullWritable, StructuredRecord> createRecordReader(InputSplit split,
+                                                                         TaskAttemptContext context)
+    throws IOException, InterruptedException {
+    Configuration conf = context.getConfiguration();
+    Schema schema = Schema.parseJson(conf.get(SCHEMA));
+    List<String> dataColumns = Arrays.asList(conf.getStrings(DATA_COLUMNS));
+    List<Partition> partitions = GSON.fromJson(conf.get(PARTITIONS), PARTITIONS_TYPE);
+    Path path = ((FileSplit) split).getPath();
+    Partition partition = getPartition(path, partitions);
+    if (HiveFileFormat.valueOf(conf.get(FORMAT)) == HiveFileFormat.ORC) {
+      return new OrcRecordReader(schema, dataColumns, partition);
+    }
+    return new ParquetRecordReader(schema, dataColumns, partition,
+                                   new AvroParquetInputFormat<GenericRecord>().createRecordReader(split, context));
+  }
+
+  private static Partition getPartition(Path path, List<Partition> partitions) throws IOException {
+    // pick the deepest location that contains the file, in case one partition location is nested in another
+    String filePath = path.toUri().getPath();
+    Partition match = null;
+    int matchLength = -1;
+    for (Partition partition : partitions) {
+      String location = new Path(partition.location).toUri().getPath();
+      if (filePath.startsWith(location + Path.SEPARATOR) && location.length() > matchLength) {
+        match = partition;
+        matchLength = location.length();
+      }
+    }
+    if (match == null) {
+      throw new IOException(String.format("File %s is not in the location of any partition of the table.", path));
+    }
+    return match;
+  }
+
+  /**
+   * Location and values of a partition.
+   */
+  static final class Partition {
+    private final String location;
+    private final Map<String, String> values;
+
+    Partition(String location, @Nullable Map<String, String> values) {
+      this.location = location;
+      this.values = new HashMap<>();
+      if (values == null) {
+        return;
+      }
+      // partition keys are matched to the fields of the schema ignoring case, like data columns
+      for (Map.Entry<String, String> entry : values.entrySet()) {
+        this.values.put(entry.getKey().toLowerCase(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Base reader that builds records from the data columns read from a file and the values of its partition.
+   */
+  private abstract static class HiveFileRecordReader extends RecordReader<NullWritable, StructuredRecord> {
+    protected final Schema schema;
+    // the names of the table data columns, in lower case
+    protected final List<String> dataColumns;
+    // for each field of the schema, the position of the table data column, or -1 for a partition column
+    protected final int[] dataColumnIndexes;
+    private final Object[] partitionValues;
+    private StructuredRecord current;
+
+    HiveFileRecordReader(Schema schema, List<String> dataColumns, Partition partition) {
+      this.schema = schema;
+      this.dataColumns = dataColumns;
+      List<Schema.Field> fields = schema.getFields();
+      this.dataColumnIndexes = new int[fields.size()];
+      this.partitionValues = new Object[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        Schema.Field field = fields.get(i);
+        String name = field.getName().toLowerCase();
+        dataColumnIndexes[i] = dataColumns.indexOf(name);
+        if (dataColumnIndexes[i] < 0) {
+          partitionValues[i] = parsePartitionValue(field, partition.values.get(name));
+        }
+      }
+    }
+
+    /**
+     * Reads the next row of the file.
+     *
+     * @return true if there is a row, with the data column values set on the builder
+     */
+    protected abstract boolean readNext(StructuredRecord.Builder builder) throws IOException, InterruptedException;
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      if (!readNext(builder)) {
+        current = null;
+        return false;
+      }
+      List<Schema.Field> fields = schema.getFields();
+      for (int i = 0; i < dataColumnIndexes.length; i++) {
+        if (dataColumnIndexes[i] < 0) {
+          builder.set(fields.get(i).getName(), partitionValues[i]);
+        }
+      }
+      current = builder.build();
+      return true;
+    }
+
+    @Override
+    public NullWritable getCurrentKey() {
+      return NullWritable.get();
+    }
+
+    @Override
+    public StructuredRecord getCurrentValue() {
+      return current;
+    }
+
+    @Nullable
+    private static Object parsePartitionValue(Schema.Field field, @Nullable String value) {
+      if (value == null || DEFAULT_PARTITION_NAME.equals(value)) {
+        return null;
+      }
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+      switch (fieldSchema.getType()) {
+        case BOOLEAN:
+          return Boolean.parseBoolean(value);
+        case INT:
+          return Integer.parseInt(value);
+        case LONG:
+          return Long.parseLong(value);
+        case FLOAT:
+          return Float.parseFloat(value);
+        case DOUBLE:
+          return Double.parseDouble(value);
+        case STRING:
+          return value;
+        case BYTES:
+          return value.getBytes(Charsets.UTF_8);
+        default:
+          throw new IllegalArgumentException(String.format("Partition column '%s' has unsupported type %s.",
+                                                           field.getName(), fieldSchema.getType()));
+      }
+    }
+  }
+
+  /**
+   * Reads the stripes of an ORC file that start in the split, and only the columns in the schema.
+   */
+  private static class OrcRecordReader extends HiveFileRecordReader {
+    private org.apache.hadoop.hive.ql.io.orc.RecordReader rows;
+    private StructObjectInspector inspector;
+    private StructField[] structFields;
+    private Object row;
+
+    OrcRecordReader(Schema schema, List<String> dataColumns, Partition partition) {
+      super(schema, dataColumns, partition);
+    }
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+      FileSplit fileSplit = (FileSplit) split;
+      Reader reader = OrcFile.createReader(fileSplit.getPath(), OrcFile.readerOptions(context.getConfiguration()));
+      List<OrcProto.Type> types = reader.getTypes();
+      OrcProto.Type root = types.get(0);
+      inspector = (StructObjectInspector) reader.getObjectInspector();
+      List<? extends StructField> allFields = inspector.getAllStructFieldRefs();
+
+      boolean[] include = new boolean[types.size()];
+      include[0] = true;
+      structFields = new StructField[dataColumnIndexes.length];
+      for (int i = 0; i < dataColumnIndexes.length; i++) {
+        int column = dataColumnIndexes[i];
+        // a file written before a column was added to the table does not have the column
+        if (column >= 0 && column < root.getSubtypesCount()) {
+          include[root.getSubtypes(column)] = true;
+          structFields[i] = allFields.get(column);
+        }
+      }
+      rows = reader.rowsOptions(new Reader.Options()
+                                  .include(include)
+                                  .range(fileSplit.getStart(), fileSplit.getLength()));
+    }
+
+    @Override
+    protected boolean readNext(StructuredRecord.Builder builder) throws IOException {
+      if (!rows.hasNext()) {
+        return false;
+      }
+      row = rows.next(row);
+      List<Schema.Field> fields = schema.getFields();
+      for (int i = 0; i < structFields.length; i++) {
+        if (structFields[i] != null) {
+          builder.set(fields.get(i).getName(), getValue(structFields[i]));
+        } else if (dataColumnIndexes[i] >= 0) {
+          builder.set(fields.get(i).getName(), null);
+        }
+      }
+      return true;
+    }
+
+    @Nullable
+    private Object getValue(StructField structField) {
+      Object data = inspector.getStructFieldData(row, structField);
+      if (data == null) {
+        return null;
+      }
+      Object value = ((PrimitiveObjectInspector) structField.getFieldObjectInspector()).getPrimitiveJavaObject(data);
+      if (value instanceof Byte) {
+        return (int) (Byte) value;
+      }
+      if (value instanceof Short) {
+        return (int) (Short) value;
+      }
+      if (value instanceof HiveChar || value instanceof HiveVarchar) {
+        return value.toString();
+      }
+      return value;
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+      return rows.getProgress();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (rows != null) {
+        rows.close();
+      }
+    }
+  }
+
+  /**
+   * Reads a Parquet file through the Avro Parquet reader, projected to the columns in the schema.
+   */
+  private static class ParquetRecordReader extends HiveFileRecordReader {
+    private final RecordReader<Void, GenericRecord> delegate;
+
+    ParquetRecordReader(Schema schema, List<String> dataColumns, Partition partition,
+                        RecordReader<Void, GenericRecord> delegate) {
+      super(schema, dataColumns, partition);
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+      delegate.initialize(split, context);
+    }
+
+    @Override
+    protected boolean readNext(StructuredRecord.Builder builder) throws IOException, InterruptedException {
+      if (!delegate.nextKeyValue()) {
+        return false;
+      }
+      GenericRecord record = delegate.getCurrentValue();
+      List<Schema.Field> fields = schema.getFields();
+      for (int i = 0; i < dataColumnIndexes.length; i++) {
+        if (dataColumnIndexes[i] >= 0) {
+          Object value = record.get(dataColumns.get(dataColumnIndexes[i]));
+          // strings are read as Utf8 and binary columns as ByteBuffers
+          if (value instanceof CharSequence) {
+            value = value.toString();
+          } else if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = (ByteBuffer) value;
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            value = bytes;
+          }
+          builder.set(fields.get(i).getName(), value);
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public float getProgress() throws IOException, InterruptedException {
+      return delegate.getProgress();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+}
@@ -42,6 +42,22 @@ public class HiveSourceConfig extends HiveConfig {
   @Nullable
   public String schema;
 
+  @Name(Hive.NATIVE_READER)
+  @Description("Whether to read tables stored as ORC or Parquet directly from their files instead of through " +
+    "HCatalog. The files of the partitions to read are located through the metastore, and the partition column " +
+    "values are taken from the metastore. Tables in other formats, transactional tables, tables with partitions " +
+    "whose columns differ from the table, and schemas with types that differ from the table are always read " +
+    "through HCatalog. Defaults to false.")
+  @Nullable
+  public Boolean nativeReader;
+
+  /**
+   * @return whether ORC and Parquet tables should be read directly from their files
+   */
+  public boolean useNativeReader() {
+    return nativeReader != null && nativeReader;
+  }
+
   /**
    * @return {@link Schema} of the dataset if one was given else null
    */
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.batch.commons.HiveFileFormat;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.ql.io.orc.Reader;
+import org.apache.hadoop.hive.serde2.io.ByteWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.hive.hcatalog.common.HCatException;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.apache.hive.hcatalog.data.schema.HCatFieldSchema;
+import org.apache.hive.hcatalog.data.schema.HCatSchema;
+import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link HiveFileOutputFormat}.
+ */
+public class HiveFileOutputFormatTest {
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("valid", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))));
+
+  @Test
+  public void testWriteOrc() throws Exception {
+    HCatSchema dataColumns = new HCatSchema(Arrays.asList(
+      new HCatFieldSchema("id", TypeInfoFactory.byteTypeInfo, null),
+      new HCatFieldSchema("name", TypeInfoFactory.getVarcharTypeInfo(3), null),
+      new HCatFieldSchema("valid", TypeInfoFactory.booleanTypeInfo, null)));
+    Path file = write(HiveFileFormat.ORC, dataColumns, "zlib");
+
+    Reader reader = OrcFile.createReader(file, OrcFile.readerOptions(new Configuration()));
+    StructObjectInspector inspector = (StructObjectInspector) reader.getObjectInspector();
+    Assert.assertEquals(2, reader.getNumberOfRows());
+    org.apache.hadoop.hive.ql.io.orc.RecordReader rows = reader.rows();
+    Object row = rows.next(null);
+    List<Object> values = inspector.getStructFieldsDataAsList(row);
+    Assert.assertEquals(1, ((ByteWritable) values.get(0)).get());
+    // varchar columns are truncated to their length, like Hive does
+    Assert.assertEquals("one", values.get(1).toString());
+    Assert.assertTrue(((BooleanWritable) values.get(2)).get());
+    row = rows.next(row);
+    values = inspector.getStructFieldsDataAsList(row);
+    Assert.assertEquals(2, ((ByteWritable) values.get(0)).get());
+    Assert.assertNull(values.get(1));
+    Assert.assertNull(values.get(2));
+    Assert.assertFalse(rows.hasNext());
+    rows.close();
+  }
+
+  @Test
+  public void testWriteParquet() throws Exception {
+    HCatSchema dataColumns = new HCatSchema(Arrays.asList(
+      new HCatFieldSchema("id", TypeInfoFactory.intTypeInfo, null),
+      new HCatFieldSchema("name", TypeInfoFactory.stringTypeInfo, null),
+      new HCatFieldSchema("valid", TypeInfoFactory.booleanTypeInfo, null)));
+    Path file = write(HiveFileFormat.PARQUET, dataColumns, null);
+
+    try (ParquetReader<GenericRecord> reader = new AvroParquetReader<>(file)) {
+      GenericRecord record = reader.read();
+      Assert.assertEquals(1, record.get("id"));
+      Assert.assertEquals("oneone", record.get("name").toString());
+      Assert.assertEquals(true, record.get("valid"));
+      record = reader.read();
+      Assert.assertEquals(2, record.get("id"));
+      Assert.assertNull(record.get("name"));
+      Assert.assertNull(record.get("valid"));
+      Assert.assertNull(reader.read());
+    }
+  }
+
+  @Test
+  public void testCanWrite() throws HCatException {
+    HCatSchema orcColumns = new HCatSchema(Arrays.asList(
+      new HCatFieldSchema("id", TypeInfoFactory.shortTypeInfo, null),
+      new HCatFieldSchema("name", TypeInfoFactory.getCharTypeInfo(10), null)));
+    Assert.assertTrue(HiveFileOutputFormat.canWrite(HiveFileFormat.ORC, SCHEMA, orcColumns));
+    // Avro has no types that Hive reads as small ints and chars from Parquet files
+    Assert.assertFalse(HiveFileOutputFormat.canWrite(HiveFileFormat.PARQUET, SCHEMA, orcColumns));
+
+    HCatSchema columns = new HCatSchema(Arrays.asList(
+      new HCatFieldSchema("id", TypeInfoFactory.longTypeInfo, null),
+      new HCatFieldSchema("name", TypeInfoFactory.stringTypeInfo, null)));
+    Assert.assertFalse(HiveFileOutputFormat.canWrite(HiveFileFormat.PARQUET, SCHEMA, columns));
+    Assert.assertFalse(HiveFileOutputFormat.canWrite(HiveFileFormat.ORC, SCHEMA, new HCatSchema(Arrays.asList(
+      new HCatFieldSchema("id", TypeInfoFactory.intTypeInfo, null),
+      new HCatFieldSchema("time", TypeInfoFactory.timestampTypeInfo, null)))));
+  }
+
+  /**
+   * Writes two records with the given columns and returns the file that they were written to.
+   */
+  private static Path write(HiveFileFormat format, HCatSchema dataColumns, String compression) throws Exception {
+    Configuration conf = new Configuration();
+    HiveFileOutputFormat.configure(conf, format, dataColumns, compression);
+    conf.set(FileOutputFormat.OUTDIR, TEMP_FOLDER.newFolder().toURI().toString());
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID("test", 1, TaskType.MAP, 0, 0));
+    HiveFileOutputFormat outputFormat = new HiveFileOutputFormat();
+
+    RecordToHCatRecordTransformer transformer = new RecordToHCatRecordTransformer(dataColumns, SCHEMA);
+    RecordWriter<NullWritable, HCatRecord> writer = outputFormat.getRecordWriter(context);
+    writer.write(NullWritable.get(), transformer.toHCatRecord(
+      StructuredRecord.builder(SCHEMA).set("id", 1).set("name", "oneone").set("valid", true).build()));
+    writer.write(NullWritable.get(), transformer.toHCatRecord(StructuredRecord.builder(SCHEMA).set("id", 2).build()));
+    writer.close(context);
+
+    Path workPath = ((FileOutputCommitter) outputFormat.getOutputCommitter(context)).getWorkPath();
+    // skip the checksum files of the local file system
+    FileStatus[] files = workPath.getFileSystem(conf).listStatus(workPath, new PathFilter() {
+      @Override
+      public boolean accept(Path path) {
+        return !path.getName().startsWith(".");
+      }
+    });
+    Assert.assertEquals(1, files.length);
+    return files[0].getPath();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.source;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.batch.sink.RecordToHCatRecordTransformer;
+import org.apache.hadoop.hive.common.type.HiveVarchar;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hive.hcatalog.data.DefaultHCatRecord;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.apache.hive.hcatalog.data.schema.HCatFieldSchema;
+import org.apache.hive.hcatalog.data.schema.HCatSchema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link HCatRecordTransformer} and {@link RecordToHCatRecordTransformer}.
+ */
+public class HCatRecordTransformerTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("price", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("valid", Schema.of(Schema.Type.BOOLEAN)));
+
+  @Test
+  public void testToRecord() throws Exception {
+    // the table has a column that is not in the schema, and the schema fields are in a different order
+    HCatSchema hCatSchema = new HCatSchema(Arrays.asList(
+      new HCatFieldSchema("id", TypeInfoFactory.byteTypeInfo, null),
+      new HCatFieldSchema("count", TypeInfoFactory.shortTypeInfo, null),
+      new HCatFieldSchema("unused", TypeInfoFactory.stringTypeInfo, null),
+      new HCatFieldSchema("code", TypeInfoFactory.getVarcharTypeInfo(5), null)));
+    Schema schema = Schema.recordOf(
+      "record",
+      Schema.Field.of("code", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("count", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+
+    HCatRecordTransformer transformer = new HCatRecordTransformer(hCatSchema, schema);
+    StructuredRecord record = transformer.toRecord(new DefaultHCatRecord(Arrays.<Object>asList(
+      (byte) 1, (short) 2, "unused", new HiveVarchar("abc", 5))));
+    Assert.assertEquals("abc", record.get("code"));
+    Assert.assertEquals(1, (int) record.<Integer>get("id"));
+    Assert.assertEquals(2, (int) record.<Integer>get("count"));
+
+    record = transformer.toRecord(new DefaultHCatRecord(Arrays.<Object>asList((byte) 3, null, null, null)));
+    Assert.assertNull(record.get("code"));
+    Assert.assertEquals(3, (int) record.<Integer>get("id"));
+    Assert.assertNull(record.get("count"));
+  }
+
+  @Test
+  public void testMissingField() throws Exception {
+    HCatSchema hCatSchema = new HCatSchema(Arrays.asList(
+      new HCatFieldSchema("id", TypeInfoFactory.longTypeInfo, null)));
+    try {
+      new HCatRecordTransformer(hCatSchema, SCHEMA);
+      Assert.fail("Expected a field that is not in the table to fail.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      new RecordToHCatRecordTransformer(hCatSchema, SCHEMA);
+      Assert.fail("Expected a field that is not in the table to fail.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    HCatSchema hCatSchema = new HCatSchema(Arrays.asList(
+      new HCatFieldSchema("id", TypeInfoFactory.longTypeInfo, null),
+      new HCatFieldSchema("name", TypeInfoFactory.stringTypeInfo, null),
+      new HCatFieldSchema("valid", TypeInfoFactory.booleanTypeInfo, null),
+      new HCatFieldSchema("price", TypeInfoFactory.doubleTypeInfo, null)));
+    int count = 20;
+    List<StructuredRecord> records = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      records.add(StructuredRecord.builder(SCHEMA)
+                    .set("name", i % 10 == 0 ? null : "name" + i)
+                    .set("id", (long) i)
+                    .set("price", i * 0.25)
+                    .set("valid", i % 2 == 0)
+                    .build());
+    }
+
+    RecordToHCatRecordTransformer writer = new RecordToHCatRecordTransformer(hCatSchema, SCHEMA);
+    HCatRecordTransformer reader = new HCatRecordTransformer(hCatSchema, SCHEMA);
+    List<StructuredRecord> output = new ArrayList<>(count);
+    for (StructuredRecord record : records) {
+      output.add(reader.toRecord(writer.toHCatRecord(record)));
+    }
+
+    Assert.assertEquals(count, output.size());
+    for (int i = 0; i < count; i++) {
+      StructuredRecord expected = records.get(i);
+      StructuredRecord actual = output.get(i);
+      Assert.assertEquals(expected.get("name"), actual.get("name"));
+      Assert.assertEquals(expected.get("id"), actual.get("id"));
+      Assert.assertEquals(expected.get("price"), actual.get("price"));
+      Assert.assertEquals(expected.get("valid"), actual.get("valid"));
+    }
+  }
+
+  @Test
+  public void testToHCatRecordByPosition() throws Exception {
+    HCatSchema hCatSchema = new HCatSchema(Arrays.asList(
+      new HCatFieldSchema("valid", TypeInfoFactory.booleanTypeInfo, null),
+      new HCatFieldSchema("extra", TypeInfoFactory.intTypeInfo, null),
+      new HCatFieldSchema("price", TypeInfoFactory.doubleTypeInfo, null),
+      new HCatFieldSchema("id", TypeInfoFactory.longTypeInfo, null),
+      new HCatFieldSchema("name", TypeInfoFactory.stringTypeInfo, null)));
+    HCatRecord hCatRecord = new RecordToHCatRecordTransformer(hCatSchema, SCHEMA).toHCatRecord(
+      StructuredRecord.builder(SCHEMA).set("name", "one").set("id", 1L).set("valid", true).build());
+    Assert.assertEquals(Arrays.<Object>asList(true, null, null, 1L, "one"), hCatRecord.getAll());
+  }
+}
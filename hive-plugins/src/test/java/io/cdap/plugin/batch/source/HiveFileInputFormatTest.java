@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.source;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.batch.commons.HiveFileFormat;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.ql.io.orc.Writer;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.hive.hcatalog.common.HCatException;
+import org.apache.hive.hcatalog.data.schema.HCatFieldSchema;
+import org.apache.hive.hcatalog.data.schema.HCatSchema;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link HiveFileInputFormat}.
+ */
+public class HiveFileInputFormatTest {
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final List<String> DATA_COLUMNS = Arrays.asList("id", "name", "flag");
+
+  @Test
+  public void testReadOrc() throws Exception {
+    File partitionDir = TEMP_FOLDER.newFolder("orc", "type=a");
+    Path path = new Path(new File(partitionDir, "000000_0").toURI());
+    Configuration conf = new Configuration();
+    ObjectInspector inspector = ObjectInspectorFactory.getStandardStructObjectInspector(
+      DATA_COLUMNS, Arrays.<ObjectInspector>asList(PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+                                                   PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                                                   PrimitiveObjectInspectorFactory.javaByteObjectInspector));
+    Writer writer = OrcFile.createWriter(path, OrcFile.writerOptions(conf).inspector(inspector));
+    writer.addRow(Arrays.<Object>asList(1, "one", (byte) 1));
+    writer.addRow(Arrays.<Object>asList(2, null, (byte) 0));
+    writer.close();
+
+    // fields are matched to columns ignoring case, and 'added' is a column that the file was written without
+    Schema schema = Schema.recordOf(
+      "record",
+      Schema.Field.of("NAME", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("id", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+      Schema.Field.of("flag", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+      Schema.Field.of("added", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+      Schema.Field.of("Type", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    List<String> dataColumns = new ArrayList<>(DATA_COLUMNS);
+    dataColumns.add("added");
+    HiveFileInputFormat.configure(conf, HiveFileFormat.ORC, schema, dataColumns, Collections.singletonList(
+      new HiveFileInputFormat.Partition(partitionDir.toURI().toString(), ImmutableMap.of("type", "a"))));
+
+    List<StructuredRecord> records = read(conf, path);
+    Assert.assertEquals(2, records.size());
+    assertRecord(records.get(0), "one", 1, 1, "a");
+    assertRecord(records.get(1), null, 2, 0, "a");
+  }
+
+  @Test
+  public void testReadParquet() throws Exception {
+    File partitionDir = TEMP_FOLDER.newFolder("parquet", "type=b");
+    Path path = new Path(new File(partitionDir, "000000_0").toURI());
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"hive_schema\",\"fields\":[" +
+        "{\"name\":\"id\",\"type\":[\"null\",\"int\"]}," +
+        "{\"name\":\"name\",\"type\":[\"null\",\"string\"]}," +
+        "{\"name\":\"flag\",\"type\":[\"null\",\"int\"]}]}");
+    try (ParquetWriter<GenericRecord> writer = new AvroParquetWriter<>(path, avroSchema)) {
+      GenericRecord record = new GenericData.Record(avroSchema);
+      record.put("id", 1);
+      record.put("name", "one");
+      record.put("flag", 1);
+      writer.write(record);
+    }
+
+    // only the columns in the schema are read, by the names of the table columns
+    Schema schema = Schema.recordOf(
+      "record",
+      Schema.Field.of("Name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("type", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Configuration conf = new Configuration();
+    HiveFileInputFormat.configure(conf, HiveFileFormat.PARQUET, schema, DATA_COLUMNS, Collections.singletonList(
+      new HiveFileInputFormat.Partition(partitionDir.toURI().toString(), ImmutableMap.of("type", "b"))));
+
+    List<StructuredRecord> records = read(conf, path);
+    Assert.assertEquals(1, records.size());
+    Assert.assertEquals("one", records.get(0).get("Name"));
+    Assert.assertEquals("b", records.get(0).get("type"));
+  }
+
+  @Test
+  public void testCanRead() throws HCatException {
+    HCatSchema dataColumns = new HCatSchema(Arrays.asList(
+      new HCatFieldSchema("id", TypeInfoFactory.intTypeInfo, null),
+      new HCatFieldSchema("name", TypeInfoFactory.stringTypeInfo, null),
+      new HCatFieldSchema("flag", TypeInfoFactory.byteTypeInfo, null)));
+    HCatSchema partitionColumns = new HCatSchema(Collections.singletonList(
+      new HCatFieldSchema("type", TypeInfoFactory.stringTypeInfo, null)));
+
+    Assert.assertTrue(HiveFileInputFormat.canRead(Schema.recordOf(
+      "record",
+      Schema.Field.of("ID", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("flag", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+      Schema.Field.of("type", Schema.of(Schema.Type.STRING))), dataColumns, partitionColumns));
+
+    // columns are only read as the type that they are converted to by HCatalog
+    Assert.assertFalse(HiveFileInputFormat.canRead(Schema.recordOf(
+      "record", Schema.Field.of("id", Schema.of(Schema.Type.LONG))), dataColumns, partitionColumns));
+    Assert.assertFalse(HiveFileInputFormat.canRead(Schema.recordOf(
+      "record", Schema.Field.of("type", Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+                                                   dataColumns, partitionColumns));
+
+    try {
+      HiveFileInputFormat.canRead(Schema.recordOf("record", Schema.Field.of("missing", Schema.of(Schema.Type.INT))),
+                                  dataColumns, partitionColumns);
+      Assert.fail("Expected a field that is not in the table to fail.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static List<StructuredRecord> read(Configuration conf, Path path) throws Exception {
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+    FileSplit split = new FileSplit(path, 0, path.getFileSystem(conf).getFileStatus(path).getLen(), new String[0]);
+    List<StructuredRecord> records = new ArrayList<>();
+    try (RecordReader<NullWritable, StructuredRecord> reader =
+           new HiveFileInputFormat().createRecordReader(split, context)) {
+      reader.initialize(split, context);
+      while (reader.nextKeyValue()) {
+        records.add(reader.getCurrentValue());
+      }
+    }
+    return records;
+  }
+
+  private static void assertRecord(StructuredRecord record, String name, int id, int flag, String type) {
+    Assert.assertEquals(name, record.get("NAME"));
+    Assert.assertEquals(id, (int) record.<Integer>get("id"));
+    Assert.assertEquals(flag, (int) record.<Integer>get("flag"));
+    Assert.assertNull(record.get("added"));
+    Assert.assertEquals(type, record.get("Type"));
+  }
+}
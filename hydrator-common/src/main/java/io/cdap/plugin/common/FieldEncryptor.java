@@ -21,20 +21,37 @@ import io.cdap.cdap.api.data.schema.Schema;
 import org.apache.commons.codec.binary.Hex;
 
 import java.io.InputStream;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyStore;
+import java.security.SecureRandom;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 
 /**
  * Encrypts and decrypts fields based on their schema.
+ *
+ * In GCM mode every value is encrypted with its own initialization vector, which is written in front of the
+ * encrypted value. The vectors are made of a random prefix chosen once per encryptor and a counter, so that no
+ * vector is used twice with the same key without having to draw random bytes for every value.
  */
 public abstract class FieldEncryptor {
+  private static final int GCM_IV_LENGTH = 12;
+  private static final int GCM_PREFIX_LENGTH = 8;
+  private static final int GCM_TAG_BITS = 128;
+
   private final KeystoreConf conf;
   private int mode;
   private Cipher cipher;
+  private Key key;
+  private boolean gcm;
+  private SecureRandom random;
+  private byte[] iv;
+  private int counter;
 
   public FieldEncryptor(KeystoreConf conf, int mode) {
     this.mode = mode;
@@ -46,9 +63,22 @@ public abstract class FieldEncryptor {
     try (InputStream keystoreStream = getKeystoreInputStream(conf.getKeystorePath())) {
       keystore.load(keystoreStream, conf.getKeystorePassword().toCharArray());
     }
-    Key key = keystore.getKey(conf.getKeyAlias(), conf.getKeyPassword().toCharArray());
+    key = keystore.getKey(conf.getKeyAlias(), conf.getKeyPassword().toCharArray());
     cipher = Cipher.getInstance(conf.getTransformation());
-    if (conf.getIvHex() != null) {
+    String[] transformation = conf.getTransformation().split("/");
+    gcm = transformation.length > 1 && "GCM".equalsIgnoreCase(transformation[1].trim());
+    if (gcm) {
+      if (conf.getIvHex() != null) {
+        throw new IllegalArgumentException("An initialization vector cannot be given for GCM mode, since every " +
+                                             "value must be encrypted with a different one.");
+      }
+      // the cipher is initialized again with the vector of every value
+      random = new SecureRandom();
+      iv = new byte[GCM_IV_LENGTH];
+      random.nextBytes(iv);
+      nextIv();
+      cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
+    } else if (conf.getIvHex() != null) {
       byte[] ivBytes = Hex.decodeHex(conf.getIvHex().toCharArray());
       IvParameterSpec ivParameterSpec = new IvParameterSpec(ivBytes);
       cipher.init(mode, key, ivParameterSpec);
@@ -88,7 +118,21 @@ public abstract class FieldEncryptor {
       default:
         throw new IllegalArgumentException("field type " + fieldType + " is not supported.");
     }
-    return cipher.doFinal(fieldBytes);
+    if (!gcm) {
+      return cipher.doFinal(fieldBytes);
+    }
+
+    nextIv();
+    init(iv, 0);
+    byte[] encrypted = new byte[GCM_IV_LENGTH + cipher.getOutputSize(fieldBytes.length)];
+    System.arraycopy(iv, 0, encrypted, 0, GCM_IV_LENGTH);
+    try {
+      cipher.doFinal(fieldBytes, 0, fieldBytes.length, encrypted, GCM_IV_LENGTH);
+    } catch (ShortBufferException e) {
+      // cannot happen, since the buffer has the size required by the cipher
+      throw new IllegalStateException(e);
+    }
+    return encrypted;
   }
 
   public Object decrypt(byte[] fieldBytes, Schema fieldSchema) throws BadPaddingException, IllegalBlockSizeException {
@@ -97,7 +141,15 @@ public abstract class FieldEncryptor {
     }
 
     Schema.Type fieldType = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
-    fieldBytes = cipher.doFinal(fieldBytes);
+    if (gcm) {
+      if (fieldBytes.length < GCM_IV_LENGTH) {
+        throw new IllegalBlockSizeException("Encrypted value is too short to contain an initialization vector.");
+      }
+      init(fieldBytes, 0);
+      fieldBytes = cipher.doFinal(fieldBytes, GCM_IV_LENGTH, fieldBytes.length - GCM_IV_LENGTH);
+    } else {
+      fieldBytes = cipher.doFinal(fieldBytes);
+    }
     switch (fieldType) {
       case INT:
         return Bytes.toInt(fieldBytes);
@@ -116,4 +168,29 @@ public abstract class FieldEncryptor {
     }
   }
 
+  /**
+   * Advances to the initialization vector of the next value, drawing a new random prefix when the counter wraps.
+   */
+  private void nextIv() {
+    if (++counter == 0) {
+      random.nextBytes(iv);
+    }
+    iv[GCM_PREFIX_LENGTH] = (byte) (counter >>> 24);
+    iv[GCM_PREFIX_LENGTH + 1] = (byte) (counter >>> 16);
+    iv[GCM_PREFIX_LENGTH + 2] = (byte) (counter >>> 8);
+    iv[GCM_PREFIX_LENGTH + 3] = (byte) counter;
+  }
+
+  /**
+   * Initializes the cipher with the key and the GCM initialization vector at the given offset. Initializing it with
+   * the same key object again does not recompute the key schedule.
+   */
+  private void init(byte[] ivBytes, int offset) {
+    try {
+      cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_BITS, ivBytes, offset, GCM_IV_LENGTH));
+    } catch (GeneralSecurityException e) {
+      // the key and mode were already used to initialize the cipher in initialize()
+      throw new IllegalStateException("Unable to initialize cipher: " + e.getMessage(), e);
+    }
+  }
 }
@@ -32,7 +32,8 @@ public class KeystoreConf extends PluginConfig {
   private String transformation;
 
   @Nullable
-  @Description("Initialization vector if using CBC mode")
+  @Description("Initialization vector if using CBC mode. Not used in GCM mode, where a different vector is " +
+    "generated for every value and stored in front of the encrypted value")
   @Macro
   private String ivHex;
 
@@ -23,8 +23,10 @@ import io.cdap.cdap.api.data.schema.Schema;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * Converts an object with a schema into another type of object with the same schema.
@@ -35,17 +37,61 @@ import java.util.Map;
  * @param <OUTPUT> type of output record
  */
 public abstract class RecordConverter<INPUT, OUTPUT> {
+  private static final int MAX_UNION_RESOLVERS = 1000;
+
+  // keyed by identity, since hashing a schema walks all of its nested schemas
+  private final Map<Schema, UnionResolver> unionResolvers = new IdentityHashMap<>();
 
   public abstract OUTPUT transform(INPUT record, Schema schema) throws IOException;
 
-  private Object convertUnion(Object value, List<Schema> schemas) {
+  private Object convertUnion(Object value, Schema unionSchema) throws IOException {
+    UnionResolver resolver = unionResolvers.get(unionSchema);
+    if (resolver == null) {
+      if (unionResolvers.size() >= MAX_UNION_RESOLVERS) {
+        // schemas are normally shared by all records, so this only happens if every record has a new schema
+        unionResolvers.clear();
+      }
+      resolver = new UnionResolver(unionSchema.getUnionSchemas());
+      unionResolvers.put(unionSchema, resolver);
+    }
+
+    if (value == null) {
+      if (resolver.isNullable()) {
+        return null;
+      }
+      throw new NullPointerException("Found a null value for a non-nullable field.");
+    }
+    Schema branch = resolver.resolve(value);
+    if (branch == null) {
+      String recordName = getRecordName(value);
+      branch = recordName == null ? null : resolver.resolveRecord(recordName);
+    }
+    if (branch != null) {
+      return convertField(value, branch);
+    }
+    return probeUnion(value, unionSchema.getUnionSchemas());
+  }
+
+  /**
+   * Returns the record name of the schema of a value, which picks the branch of a union of several records
+   * without trying each branch in turn. Implementations whose input records carry their schema should override this.
+   *
+   * @return the record name, or null if the value is not a record or its record name is not known
+   */
+  @Nullable
+  protected String getRecordName(Object value) {
+    return null;
+  }
+
+  /**
+   * Converts a value that matches none or several of the union branches by its Java type, by trying each
+   * branch in turn until one converts.
+   */
+  private Object probeUnion(Object value, List<Schema> schemas) {
     boolean isNullable = false;
     for (Schema possibleSchema : schemas) {
       if (possibleSchema.getType() == Schema.Type.NULL) {
         isNullable = true;
-        if (value == null) {
-          return value;
-        }
       } else {
         try {
           return convertField(value, possibleSchema);
@@ -98,10 +144,15 @@ public abstract class RecordConverter<INPUT, OUTPUT> {
     }
   }
 
+  /**
+   * Converts a value of the given schema. Apart from unions, whose resolvers are cached, converting a value only reads
+   * the type and the nested schemas of its schema, which the schema keeps as fields. Caching anything per schema
+   * would replace those reads with a lookup that costs more than they do, so nothing else is cached.
+   */
   protected Object convertField(Object field, Schema fieldSchema) throws IOException {
     Schema.Type fieldType = fieldSchema.getType();
     if (fieldType == Schema.Type.UNION) {
-      return convertUnion(field, fieldSchema.getUnionSchemas());
+      return convertUnion(field, fieldSchema);
     }
     if (field == null) {
       throw new NullPointerException("Found a null value for a non-nullable field.");
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keeps the objects that are created for each schema of the records a plugin processes, such as encoders or
+ * converters, so that they are created once per schema instead of once per record.
+ *
+ * Records usually share a single schema instance, so the schema of the previous lookup is compared by identity
+ * before schemas are compared by equality. At most {@link #MAX_SIZE} schemas are kept; when more are seen, the cache
+ * is cleared. Instances are not thread safe.
+ *
+ * @param <T> type of the objects created for a schema
+ */
+public final class SchemaCache<T> {
+  public static final int MAX_SIZE = 100;
+  private final Function<Schema, T> factory;
+  private final Map<Schema, T> values = new HashMap<>();
+  private Schema lastSchema;
+  private T lastValue;
+
+  /**
+   * @param factory creates the object for a schema that is not in the cache
+   */
+  public SchemaCache(Function<Schema, T> factory) {
+    this.factory = factory;
+  }
+
+  /**
+   * Returns the object for the given schema, creating it if it is not cached yet.
+   */
+  public T get(Schema schema) {
+    if (schema == lastSchema) {
+      return lastValue;
+    }
+    T value = values.get(schema);
+    if (value == null) {
+      value = factory.apply(schema);
+      if (values.size() >= MAX_SIZE) {
+        values.clear();
+      }
+      values.put(schema, value);
+    }
+    lastSchema = schema;
+    lastValue = value;
+    return value;
+  }
+
+  /**
+   * @return the number of schemas that are cached
+   */
+  public int size() {
+    return values.size();
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Picks the branch of a union schema that a value belongs to from the Java type of the value.
+ * The branch chosen for each class is remembered, so resolving the values of a field normally costs a single
+ * map lookup. Records all have the same Java type in a union of several records, so their branch is picked by
+ * record name instead.
+ */
+final class UnionResolver {
+  private final boolean nullable;
+  private final List<Schema> branches;
+  private final Map<Class<?>, Schema> branchByClass = new HashMap<>();
+  private final Map<Class<?>, Boolean> ambiguousClasses = new HashMap<>();
+  // the record branches by record name. Names that are shared by several branches map to null.
+  private final Map<String, Schema> recordBranches = new HashMap<>();
+
+  UnionResolver(List<Schema> unionSchemas) {
+    List<Schema> nonNull = new ArrayList<>(unionSchemas.size());
+    boolean hasNull = false;
+    for (Schema schema : unionSchemas) {
+      if (schema.getType() == Schema.Type.NULL) {
+        hasNull = true;
+      } else {
+        nonNull.add(schema);
+      }
+      if (schema.getType() == Schema.Type.RECORD) {
+        recordBranches.put(schema.getRecordName(), recordBranches.containsKey(schema.getRecordName()) ? null : schema);
+      }
+    }
+    this.nullable = hasNull;
+    this.branches = Collections.unmodifiableList(nonNull);
+  }
+
+  /**
+   * @return whether the union contains the null type
+   */
+  boolean isNullable() {
+    return nullable;
+  }
+
+  /**
+   * Returns the branch for a non-null value.
+   *
+   * @return the only branch whose type matches the Java type of the value, or null if no branch or more than one
+   *         branch matches, such as a record value for a union of two records
+   */
+  @Nullable
+  Schema resolve(Object value) {
+    Class<?> valueClass = value.getClass();
+    Schema branch = branchByClass.get(valueClass);
+    if (branch != null || ambiguousClasses.containsKey(valueClass)) {
+      return branch;
+    }
+
+    if (branches.size() == 1) {
+      branch = branches.get(0);
+    } else {
+      Schema.Type type = getType(value);
+      for (Schema candidate : branches) {
+        if (candidate.getType() == type) {
+          if (branch != null) {
+            branch = null;
+            break;
+          }
+          branch = candidate;
+        }
+      }
+    }
+
+    if (branch == null) {
+      ambiguousClasses.put(valueClass, Boolean.TRUE);
+    } else {
+      branchByClass.put(valueClass, branch);
+    }
+    return branch;
+  }
+
+  /**
+   * Returns the record branch with the given record name.
+   *
+   * @return the branch, or null if no branch or more than one branch has the name
+   */
+  @Nullable
+  Schema resolveRecord(String recordName) {
+    return recordBranches.get(recordName);
+  }
+
+  /**
+   * Returns the schema type that values of the given Java type are converted as. Values that are not a
+   * primitive, string, bytes, collection or map are assumed to be records.
+   */
+  private static Schema.Type getType(Object value) {
+    if (value instanceof Boolean) {
+      return Schema.Type.BOOLEAN;
+    }
+    if (value instanceof Integer) {
+      return Schema.Type.INT;
+    }
+    if (value instanceof Long) {
+      return Schema.Type.LONG;
+    }
+    if (value instanceof Float) {
+      return Schema.Type.FLOAT;
+    }
+    if (value instanceof Double) {
+      return Schema.Type.DOUBLE;
+    }
+    if (value instanceof CharSequence) {
+      return Schema.Type.STRING;
+    }
+    if (value instanceof ByteBuffer || value instanceof byte[]) {
+      return Schema.Type.BYTES;
+    }
+    if (value instanceof Collection || value.getClass().isArray()) {
+      return Schema.Type.ARRAY;
+    }
+    if (value instanceof Map) {
+      return Schema.Type.MAP;
+    }
+    return Schema.Type.RECORD;
+  }
+}
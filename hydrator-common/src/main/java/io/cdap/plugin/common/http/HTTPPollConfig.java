@@ -17,13 +17,18 @@
 package io.cdap.plugin.common.http;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.common.Constants;
 
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -33,6 +38,11 @@ public class HTTPPollConfig extends HTTPConfig {
   private static final String NAME_INTERVAL = "interval";
   private static final String NAME_READ_TIMEOUT = "readTimeout";
   private static final String NAME_CHARSET = "charset";
+  private static final String NAME_ADDITIONAL_URLS = "additionalUrls";
+  private static final String NAME_CONDITIONAL_REQUESTS = "conditionalRequests";
+  private static final String NAME_MAX_BODY_SIZE = "maxBodySize";
+  // Should be the same as the widgets json config
+  private static final String URL_DELIMITER = "\n";
 
   @Name(Constants.Reference.REFERENCE_NAME)
   @Description(Constants.Reference.REFERENCE_NAME_DESCRIPTION)
@@ -52,6 +62,25 @@ public class HTTPPollConfig extends HTTPConfig {
   @Nullable
   private Integer readTimeout;
 
+  @Name(NAME_ADDITIONAL_URLS)
+  @Description("Additional URLs to fetch data from, separated by newlines. All URLs are polled concurrently " +
+    "at each interval.")
+  @Nullable
+  private String additionalUrls;
+
+  @Name(NAME_CONDITIONAL_REQUESTS)
+  @Description("Whether to send conditional requests using the ETag and Last-Modified headers of the previous " +
+    "response. When the content has not changed, the server responds with 304 Not Modified and no record is " +
+    "emitted. Defaults to false.")
+  @Nullable
+  private Boolean conditionalRequests;
+
+  @Name(NAME_MAX_BODY_SIZE)
+  @Description("The maximum size in bytes of a response body. Responses with a larger body are dropped. " +
+    "Set to 0 for no limit. Defaults to 0.")
+  @Nullable
+  private Integer maxBodySize;
+
   public HTTPPollConfig() {
     this("", null, 60);
   }
@@ -61,11 +90,19 @@ public class HTTPPollConfig extends HTTPConfig {
   }
 
   public HTTPPollConfig(String referenceName, String url, long interval, String requestHeaders) {
+    this(referenceName, url, interval, requestHeaders, null, false, 0);
+  }
+
+  public HTTPPollConfig(String referenceName, String url, long interval, String requestHeaders,
+                        @Nullable String additionalUrls, boolean conditionalRequests, int maxBodySize) {
     super(url, requestHeaders);
     this.interval = interval;
     this.charset = Charsets.UTF_8.name();
     this.readTimeout = 60 * 1000;
     this.referenceName = referenceName;
+    this.additionalUrls = additionalUrls;
+    this.conditionalRequests = conditionalRequests;
+    this.maxBodySize = maxBodySize;
   }
 
   public long getInterval() {
@@ -80,6 +117,27 @@ public class HTTPPollConfig extends HTTPConfig {
     return readTimeout;
   }
 
+  /**
+   * @return the URL followed by any additional URLs to poll
+   */
+  public List<String> getUrls() {
+    List<String> urls = new ArrayList<>();
+    urls.add(getUrl());
+    urls.addAll(getAdditionalUrls());
+    return urls;
+  }
+
+  public boolean useConditionalRequests() {
+    return conditionalRequests != null && conditionalRequests;
+  }
+
+  /**
+   * @return the maximum size of a response body in bytes, or 0 if there is no limit
+   */
+  public int getMaxBodySize() {
+    return maxBodySize == null ? 0 : maxBodySize;
+  }
+
   @SuppressWarnings("ConstantConditions")
   public void validate() {
     super.validate();
@@ -96,6 +154,17 @@ public class HTTPPollConfig extends HTTPConfig {
     } catch (UnsupportedCharsetException e) {
       throw new IllegalArgumentException(String.format("Invalid charset %s.", charset));
     }
+    if (maxBodySize != null && maxBodySize < 0) {
+      throw new IllegalArgumentException(String.format(
+        "Invalid maxBodySize %d. Size must be 0 or a positive number.", maxBodySize));
+    }
+    for (String url : getAdditionalUrls()) {
+      try {
+        new URL(url);
+      } catch (MalformedURLException e) {
+        throw new IllegalArgumentException(String.format("URL '%s' is malformed: %s", url, e.getMessage()), e);
+      }
+    }
   }
 
   public void validate(FailureCollector collector) {
@@ -116,5 +185,31 @@ public class HTTPPollConfig extends HTTPConfig {
                            "Supported character sets are : ISO-8859-1, US-ASCII, UTF-8, UTF-16, UTF-16BE, UTF-16LE")
         .withConfigProperty(NAME_CHARSET);
     }
+
+    if (maxBodySize != null && maxBodySize < 0) {
+      collector.addFailure(String.format("Invalid maxBodySize '%d'.", maxBodySize),
+                           "Size must be 0 or a positive number.").withConfigProperty(NAME_MAX_BODY_SIZE);
+    }
+
+    for (String url : getAdditionalUrls()) {
+      try {
+        new URL(url);
+      } catch (MalformedURLException e) {
+        collector.addFailure(String.format("URL '%s' is malformed: %s", url, e.getMessage()), "Specify a valid url.")
+          .withConfigElement(NAME_ADDITIONAL_URLS, url);
+      }
+    }
+  }
+
+  private List<String> getAdditionalUrls() {
+    List<String> urls = new ArrayList<>();
+    if (!Strings.isNullOrEmpty(additionalUrls)) {
+      for (String additionalUrl : additionalUrls.split(URL_DELIMITER)) {
+        if (!additionalUrl.trim().isEmpty()) {
+          urls.add(additionalUrl.trim());
+        }
+      }
+    }
+    return urls;
   }
 }
@@ -18,21 +18,26 @@ package io.cdap.plugin.common.http;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
-import com.google.common.io.CharStreams;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * Utility code for performing a get request and formatting it as a StructuredRecord.
+ *
+ * The response body is always read fully and the stream closed without disconnecting, so that the underlying
+ * connection is returned to the JVM keep-alive pool and reused by the next request to the same host.
+ * When conditional requests are enabled, the ETag and Last-Modified headers of the last response are sent back
+ * with If-None-Match and If-Modified-Since, and unchanged content is skipped.
  */
 public class HTTPRequestor {
   public static final Schema SCHEMA = Schema.recordOf(
@@ -43,37 +48,76 @@ public class HTTPRequestor {
     Schema.Field.of("headers", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.STRING))),
     Schema.Field.of("body", Schema.of(Schema.Type.STRING))
   );
+  private static final int BUFFER_SIZE = 8192;
   private final HTTPPollConfig config;
+  private final String url;
+  private final Map<String, String> requestHeaders;
+  private String etag;
+  private String lastModified;
 
   public HTTPRequestor(HTTPPollConfig config) {
+    this(config, config.getUrl());
+  }
+
+  public HTTPRequestor(HTTPPollConfig config, String url) {
     this.config = config;
+    this.url = url;
+    this.requestHeaders = config.getRequestHeadersMap();
+  }
+
+  public String getUrl() {
+    return url;
   }
 
+  /**
+   * Performs the get request.
+   *
+   * @return the response as a record, or null if conditional requests are enabled and the content did not change
+   * @throws IOException if the request failed or the response body is larger than the configured maximum
+   */
+  @Nullable
   public StructuredRecord get() throws IOException {
-    URL url = new URL(config.getUrl());
-    String response = "";
-    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
     connection.setRequestMethod("GET");
     connection.setConnectTimeout(config.getConnectTimeout());
     connection.setReadTimeout(config.getReadTimeout());
     connection.setInstanceFollowRedirects(config.shouldFollowRedirects());
     // Set additional request headers
-    for (Map.Entry<String, String> requestHeader : config.getRequestHeadersMap().entrySet()) {
+    for (Map.Entry<String, String> requestHeader : requestHeaders.entrySet()) {
       connection.setRequestProperty(requestHeader.getKey(), requestHeader.getValue());
     }
-    int responseCode = connection.getResponseCode();
+    if (config.useConditionalRequests()) {
+      if (etag != null) {
+        connection.setRequestProperty("If-None-Match", etag);
+      }
+      if (lastModified != null) {
+        connection.setRequestProperty("If-Modified-Since", lastModified);
+      }
+    }
+
+    String response;
+    int responseCode;
     try {
-      if (connection.getErrorStream() != null) {
-        try (Reader reader = new InputStreamReader(connection.getErrorStream(), config.getCharset())) {
-          response = CharStreams.toString(reader);
-        }
-      } else if (connection.getInputStream() != null) {
-        try (Reader reader = new InputStreamReader(connection.getInputStream(), config.getCharset())) {
-          response = CharStreams.toString(reader);
-        }
+      responseCode = connection.getResponseCode();
+      InputStream stream = connection.getErrorStream();
+      if (stream == null && responseCode != HttpURLConnection.HTTP_NOT_MODIFIED) {
+        stream = connection.getInputStream();
       }
-    } finally {
+      response = stream == null ? "" : readBody(stream);
+    } catch (IOException e) {
+      // the connection can't be reused if the body was not read fully
       connection.disconnect();
+      throw e;
+    }
+
+    if (config.useConditionalRequests()) {
+      if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+        return null;
+      }
+      if (responseCode == HttpURLConnection.HTTP_OK) {
+        etag = connection.getHeaderField("ETag");
+        lastModified = connection.getHeaderField("Last-Modified");
+      }
     }
 
     Map<String, List<String>> headers = connection.getHeaderFields();
@@ -87,13 +131,30 @@ public class HTTPRequestor {
     return createStructuredRecord(response, flattenedHeaders, responseCode);
   }
 
+  private String readBody(InputStream stream) throws IOException {
+    int maxBodySize = config.getMaxBodySize();
+    try (InputStream body = stream) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = body.read(buffer)) >= 0) {
+        bytes.write(buffer, 0, read);
+        if (maxBodySize > 0 && bytes.size() > maxBodySize) {
+          throw new IOException(String.format("Response body from %s is larger than the maximum of %d bytes.",
+                                              url, maxBodySize));
+        }
+      }
+      return new String(bytes.toByteArray(), config.getCharset());
+    }
+  }
+
   private StructuredRecord createStructuredRecord(String response,
                                                   Map<String, String> headerFields,
                                                   int responseCode) {
     StructuredRecord.Builder recordBuilder = StructuredRecord.builder(SCHEMA);
     recordBuilder
       .set("ts", System.currentTimeMillis())
-      .set("url", config.getUrl())
+      .set("url", url)
       .set("responseCode", responseCode)
       .set("headers", headerFields)
       .set("body", response);
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * Tests for union handling in {@link RecordConverter}.
+ */
+public class RecordConverterTest {
+
+  private static final RecordConverter<Object, Object> CONVERTER = new RecordConverter<Object, Object>() {
+    @Override
+    public Object transform(Object record, Schema schema) {
+      return record;
+    }
+  };
+
+  @Test
+  public void testNullableUnion() throws IOException {
+    Schema schema = Schema.nullableOf(Schema.of(Schema.Type.LONG));
+    Assert.assertNull(CONVERTER.convertField(null, schema));
+    Assert.assertEquals(5L, CONVERTER.convertField(5L, schema));
+  }
+
+  @Test
+  public void testMultipleBranches() throws IOException {
+    Schema schema = Schema.unionOf(Schema.of(Schema.Type.NULL), Schema.of(Schema.Type.INT),
+                                   Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.BOOLEAN));
+    Assert.assertEquals("abc", CONVERTER.convertField("abc", schema));
+    Assert.assertEquals(1, CONVERTER.convertField(1, schema));
+    Assert.assertEquals(true, CONVERTER.convertField(true, schema));
+    Assert.assertEquals("def", CONVERTER.convertField("def", schema));
+    Assert.assertNull(CONVERTER.convertField(null, schema));
+  }
+
+  @Test
+  public void testRecordBranches() throws IOException {
+    // records that only differ by name, so every branch would convert them
+    Schema first = Schema.recordOf("first", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    Schema second = Schema.recordOf("second", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    Schema schema = Schema.unionOf(first, second);
+    // converts a record to the name of the branch it was converted as
+    RecordConverter<StructuredRecord, String> converter = new RecordConverter<StructuredRecord, String>() {
+      @Override
+      public String transform(StructuredRecord record, Schema schema) {
+        return schema.getRecordName();
+      }
+
+      @Override
+      protected String getRecordName(Object value) {
+        return ((StructuredRecord) value).getSchema().getRecordName();
+      }
+    };
+
+    Assert.assertEquals("second", converter.convertField(StructuredRecord.builder(second).set("x", 1).build(), schema));
+    Assert.assertEquals("first", converter.convertField(StructuredRecord.builder(first).set("x", 2).build(), schema));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullForNonNullableUnion() throws IOException {
+    Schema schema = Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING));
+    CONVERTER.convertField(null, schema);
+  }
+}
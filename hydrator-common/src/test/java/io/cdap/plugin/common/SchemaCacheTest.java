@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link SchemaCache}.
+ */
+public class SchemaCacheTest {
+
+  @Test
+  public void testGet() {
+    AtomicInteger created = new AtomicInteger();
+    SchemaCache<String> cache = new SchemaCache<>(schema -> schema.getRecordName() + created.incrementAndGet());
+
+    Schema schema = createSchema(0);
+    Assert.assertEquals("r01", cache.get(schema));
+    Assert.assertEquals("r01", cache.get(schema));
+    // equal schemas share the same value
+    Assert.assertEquals("r01", cache.get(createSchema(0)));
+    Assert.assertEquals("r12", cache.get(createSchema(1)));
+    Assert.assertEquals("r01", cache.get(schema));
+    Assert.assertEquals(2, created.get());
+  }
+
+  @Test
+  public void testMaxSize() {
+    AtomicInteger created = new AtomicInteger();
+    SchemaCache<Integer> cache = new SchemaCache<>(schema -> created.incrementAndGet());
+    for (int i = 0; i < SchemaCache.MAX_SIZE; i++) {
+      cache.get(createSchema(i));
+    }
+    Assert.assertEquals(SchemaCache.MAX_SIZE, cache.size());
+
+    // the cache is cleared once it is full, so a schema that was cached before is created again
+    cache.get(createSchema(SchemaCache.MAX_SIZE));
+    Assert.assertEquals(1, cache.size());
+    cache.get(createSchema(0));
+    Assert.assertEquals(SchemaCache.MAX_SIZE + 2, created.get());
+  }
+
+  private static Schema createSchema(int i) {
+    return Schema.recordOf("r" + i, Schema.Field.of("f", Schema.of(Schema.Type.INT)));
+  }
+}
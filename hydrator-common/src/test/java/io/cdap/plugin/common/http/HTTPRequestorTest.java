@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common.http;
+
+import com.google.common.base.Charsets;
+import com.sun.net.httpserver.HttpServer;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+
+/**
+ * Tests for {@link HTTPRequestor}.
+ */
+public class HTTPRequestorTest {
+  private static final String ETAG = "\"v1\"";
+  private static final byte[] BODY = "{\"status\":\"ok\"}".getBytes(Charsets.UTF_8);
+  private static HttpServer server;
+  private static String baseURL;
+
+  @BeforeClass
+  public static void setup() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/status", exchange -> {
+      if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+      } else {
+        exchange.getResponseHeaders().set("ETag", ETAG);
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, BODY.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+          os.write(BODY);
+        }
+      }
+      exchange.close();
+    });
+    server.start();
+    baseURL = String.format("http://localhost:%d", server.getAddress().getPort());
+  }
+
+  @AfterClass
+  public static void teardown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testGet() throws IOException {
+    HTTPPollConfig config = new HTTPPollConfig("ref", baseURL + "/status", 1);
+    HTTPRequestor requestor = new HTTPRequestor(config);
+    for (int i = 0; i < 2; i++) {
+      StructuredRecord record = requestor.get();
+      Assert.assertNotNull(record);
+      Assert.assertEquals(HttpURLConnection.HTTP_OK, (int) record.<Integer>get("responseCode"));
+      Assert.assertEquals(new String(BODY, Charsets.UTF_8), record.get("body"));
+    }
+  }
+
+  @Test
+  public void testConditionalRequests() throws IOException {
+    HTTPPollConfig config = new HTTPPollConfig("ref", baseURL + "/status", 1, null, null, true, 0);
+    HTTPRequestor requestor = new HTTPRequestor(config);
+    StructuredRecord record = requestor.get();
+    Assert.assertNotNull(record);
+    Assert.assertEquals(new String(BODY, Charsets.UTF_8), record.get("body"));
+    // the server responds with 304 Not Modified to the ETag of the first response
+    Assert.assertNull(requestor.get());
+  }
+
+  @Test(expected = IOException.class)
+  public void testMaxBodySize() throws IOException {
+    HTTPPollConfig config = new HTTPPollConfig("ref", baseURL + "/status", 1, null, null, false, BODY.length - 1);
+    new HTTPRequestor(config).get();
+  }
+
+  @Test
+  public void testAdditionalUrls() {
+    HTTPPollConfig config = new HTTPPollConfig("ref", baseURL + "/a", 1, null,
+                                               baseURL + "/b\n\n" + baseURL + "/c", false, 0);
+    config.validate();
+    Assert.assertEquals(3, config.getUrls().size());
+    Assert.assertEquals(baseURL + "/c", config.getUrls().get(2));
+  }
+}
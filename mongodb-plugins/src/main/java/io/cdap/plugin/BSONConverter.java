@@ -24,10 +24,14 @@ import org.bson.BSONObject;
 import org.bson.types.BasicBSONList;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Converts {@link BSONObject} to {@link StructuredRecord}.
+ *
+ * A decoder is compiled for every field when the converter is created, so converting a document only looks up
+ * each field and applies its decoder, instead of inspecting the field schema again for every value.
  */
 public class BSONConverter {
   private static final List<Schema.Type> VALID_TYPES = Lists.newArrayList(Schema.Type.ARRAY, Schema.Type.BOOLEAN,
@@ -36,15 +40,24 @@ public class BSONConverter {
                                                                           Schema.Type.FLOAT, Schema.Type.INT,
                                                                           Schema.Type.LONG, Schema.Type.NULL);
   private final Schema schema;
+  private final String[] names;
+  private final Decoder[] decoders;
 
   public BSONConverter(Schema schema) throws IOException {
     this.schema = schema;
+    List<Schema.Field> fields = schema.getFields();
+    this.names = new String[fields.size()];
+    this.decoders = new Decoder[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      names[i] = fields.get(i).getName();
+      decoders[i] = compile(fields.get(i).getSchema());
+    }
   }
 
   public StructuredRecord transform(BSONObject bsonObject) throws IOException {
     StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-    for (Schema.Field field : schema.getFields()) {
-      builder.set(field.getName(), extractValue(bsonObject.get(field.getName()), field.getSchema()));
+    for (int i = 0; i < names.length; i++) {
+      builder.set(names[i], decoders[i].decode(bsonObject.get(names[i])));
     }
     return builder.build();
   }
@@ -62,17 +75,26 @@ public class BSONConverter {
     }
   }
 
-  private Object extractValue(Object object, Schema schema) {
+  /**
+   * Creates the decoder for values of the given schema.
+   */
+  private static Decoder compile(Schema schema) {
     if (schema.isNullable()) {
-      if (object == null) {
-        return null;
-      }
-      schema = schema.getNonNullable();
+      Decoder decoder = compile(schema.getNonNullable());
+      return object -> object == null ? null : decoder.decode(object);
     }
     Schema.Type fieldType = schema.getType();
     switch (fieldType) {
       case ARRAY:
-        return convertArray(object, schema.getComponentSchema());
+        Decoder componentDecoder = compile(schema.getComponentSchema());
+        return object -> {
+          BasicBSONList bsonList = (BasicBSONList) object;
+          List<Object> values = new ArrayList<>(bsonList.size());
+          for (Object obj : bsonList) {
+            values.add(componentDecoder.decode(obj));
+          }
+          return values;
+        };
       case BYTES:
       case INT:
       case LONG:
@@ -80,20 +102,20 @@ public class BSONConverter {
       case DOUBLE:
       case BOOLEAN:
       case STRING:
-        return object;
+        return object -> object;
       case NULL:
-        return null;
+        return object -> null;
       default:
-        throw new UnexpectedFormatException("field type " + fieldType + " is not supported.");
+        return object -> {
+          throw new UnexpectedFormatException("field type " + fieldType + " is not supported.");
+        };
     }
   }
 
-  private Object convertArray(Object object, Schema schema) {
-    BasicBSONList bsonList = (BasicBSONList) object;
-    List<Object> values = Lists.newArrayListWithCapacity(bsonList.size());
-    for (Object obj : bsonList) {
-      values.add(extractValue(obj, schema));
-    }
-    return values;
+  /**
+   * Decodes a BSON value into the value of a record field.
+   */
+  private interface Decoder {
+    Object decode(Object object);
   }
 }
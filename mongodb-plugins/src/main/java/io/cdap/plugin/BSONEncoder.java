@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.common.SchemaCache;
+import org.bson.Document;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts {@link StructuredRecord StructuredRecords} of a single schema into BSON {@link Document Documents}.
+ * The name, type and nested encoder of every field are resolved once, when the encoder is created, so encoding
+ * a record only has to convert the values that BSON can't store as they are. Records nested in arrays, maps and
+ * unions are encoded with encoders that are created once per schema. Instances are not thread safe.
+ */
+public final class BSONEncoder {
+  private final Schema schema;
+  private final String[] names;
+  private final Schema[] schemas;
+  private final BSONEncoder[] recordEncoders;
+  private SchemaCache<BSONEncoder> nestedEncoders;
+
+  public BSONEncoder(Schema schema) {
+    this.schema = schema;
+    List<Schema.Field> fields = schema.getFields();
+    this.names = new String[fields.size()];
+    this.schemas = new Schema[fields.size()];
+    this.recordEncoders = new BSONEncoder[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
+      Schema fieldSchema = field.getSchema();
+      if (fieldSchema.isNullable()) {
+        fieldSchema = fieldSchema.getNonNullable();
+      }
+      names[i] = field.getName();
+      schemas[i] = fieldSchema;
+      if (fieldSchema.getType() == Schema.Type.RECORD) {
+        recordEncoders[i] = new BSONEncoder(fieldSchema);
+      }
+    }
+  }
+
+  /**
+   * @return the schema of the records that this encoder was created for
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Converts a record into a document. Fields are added in schema order, and null values are kept.
+   */
+  public Document encode(StructuredRecord record) {
+    Document document = new Document();
+    for (int i = 0; i < names.length; i++) {
+      Object value = record.get(names[i]);
+      if (value == null) {
+        document.put(names[i], null);
+      } else if (recordEncoders[i] != null) {
+        document.put(names[i], recordEncoders[i].encode((StructuredRecord) value));
+      } else {
+        document.put(names[i], convert(value, schemas[i]));
+      }
+    }
+    return document;
+  }
+
+  private Object convert(Object value, Schema schema) {
+    switch (schema.getType()) {
+      case FLOAT:
+        // BSON has no single precision type
+        return ((Float) value).doubleValue();
+      case BYTES:
+        return value instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) value) : value;
+      case ENUM:
+        return value.toString();
+      case ARRAY:
+        return convertArray(value, schema.getComponentSchema());
+      case MAP:
+        Document map = new Document();
+        Schema valueSchema = schema.getMapSchema().getValue();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          map.put(entry.getKey().toString(), convertNullable(entry.getValue(), valueSchema));
+        }
+        return map;
+      case RECORD:
+        return encodeNested((StructuredRecord) value, schema);
+      case UNION:
+        return convertUnion(value, schema);
+      default:
+        return value;
+    }
+  }
+
+  private List<Object> convertArray(Object value, Schema componentSchema) {
+    List<Object> list;
+    if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      list = new ArrayList<>(collection.size());
+      for (Object element : collection) {
+        list.add(convertNullable(element, componentSchema));
+      }
+    } else {
+      Object[] array = (Object[]) value;
+      list = new ArrayList<>(array.length);
+      for (Object element : array) {
+        list.add(convertNullable(element, componentSchema));
+      }
+    }
+    return list;
+  }
+
+  private Object convertUnion(Object value, Schema schema) {
+    // pick the branch by the type of the value, since a union does not record which branch was used
+    if (value instanceof StructuredRecord) {
+      StructuredRecord record = (StructuredRecord) value;
+      return encodeNested(record, record.getSchema());
+    }
+    for (Schema branch : schema.getUnionSchemas()) {
+      Schema.Type type = branch.getType();
+      if ((type == Schema.Type.FLOAT && value instanceof Float) ||
+        (type == Schema.Type.BYTES && value instanceof ByteBuffer) ||
+        (type == Schema.Type.ARRAY && (value instanceof Collection || value instanceof Object[])) ||
+        (type == Schema.Type.MAP && value instanceof Map)) {
+        return convert(value, branch);
+      }
+    }
+    return value;
+  }
+
+  private Object convertNullable(Object value, Schema schema) {
+    if (value == null) {
+      return null;
+    }
+    return convert(value, schema.isNullable() ? schema.getNonNullable() : schema);
+  }
+
+  private Document encodeNested(StructuredRecord record, Schema schema) {
+    if (nestedEncoders == null) {
+      nestedEncoders = new SchemaCache<>(BSONEncoder::new);
+    }
+    return nestedEncoders.get(schema).encode(record);
+  }
+}
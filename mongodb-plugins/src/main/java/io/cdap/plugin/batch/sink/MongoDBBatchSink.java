@@ -16,9 +16,7 @@
 
 package io.cdap.plugin.batch.sink;
 
-import com.mongodb.BasicDBObjectBuilder;
-import com.mongodb.hadoop.MongoOutputFormat;
-import com.mongodb.hadoop.io.BSONWritable;
+import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
@@ -29,67 +27,76 @@ import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
 import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.batch.BatchSinkContext;
+import io.cdap.plugin.BSONEncoder;
 import io.cdap.plugin.common.ReferenceBatchSink;
 import io.cdap.plugin.common.ReferencePluginConfig;
-import org.apache.hadoop.conf.Configuration;
+import io.cdap.plugin.common.SchemaCache;
 import org.apache.hadoop.io.NullWritable;
+import org.bson.Document;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
+import javax.annotation.Nullable;
 
 /**
  * A {@link BatchSink} that writes data to MongoDB.
  * This {@link MongoDBBatchSink} takes a {@link StructuredRecord} in,
- * converts it to {@link BSONWritable}, and writes it to MongoDB.
+ * converts it to a BSON {@link Document}, and writes it to MongoDB in unordered bulk writes.
  */
 @Plugin(type = "batchsink")
 @Name("MongoDB")
-@Description("MongoDB Batch Sink converts a StructuredRecord to a BSONWritable and writes it to MongoDB.")
-public class MongoDBBatchSink extends ReferenceBatchSink<StructuredRecord, NullWritable, BSONWritable> {
+@Description("MongoDB Batch Sink converts a StructuredRecord to a BSON Document and writes it to MongoDB.")
+public class MongoDBBatchSink extends ReferenceBatchSink<StructuredRecord, NullWritable, Document> {
 
   private final MongoDBSinkConfig config;
+  private final SchemaCache<BSONEncoder> encoders = new SchemaCache<>(BSONEncoder::new);
 
   public MongoDBBatchSink(MongoDBSinkConfig config) {
     super(config);
     this.config = config;
   }
 
+  @Override
+  public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
+    super.configurePipeline(pipelineConfigurer);
+    FailureCollector collector = pipelineConfigurer.getStageConfigurer().getFailureCollector();
+    config.validate(collector, pipelineConfigurer.getStageConfigurer().getInputSchema());
+  }
+
   @Override
   public void prepareRun(BatchSinkContext context) throws Exception {
-    Configuration conf = new Configuration();
-    String path = conf.get(
-      "mapreduce.task.tmp.dir",
-      conf.get(
-        "mapred.child.tmp",
-        conf.get("hadoop.tmp.dir", System.getProperty("java.io.tmpdir")))) + "/" + UUID.randomUUID().toString();
-    context.addOutput(Output.of(config.referenceName, new MongoDBOutputFormatProvider(config, path)));
+    FailureCollector collector = context.getFailureCollector();
+    config.validate(collector, context.getInputSchema());
+    collector.getOrThrowException();
+    context.addOutput(Output.of(config.referenceName, new MongoDBOutputFormatProvider(config)));
   }
 
   @Override
-  public void transform(StructuredRecord input, Emitter<KeyValue<NullWritable, BSONWritable>> emitter)
+  public void transform(StructuredRecord input, Emitter<KeyValue<NullWritable, Document>> emitter)
     throws Exception {
-    BasicDBObjectBuilder bsonBuilder = BasicDBObjectBuilder.start();
-    for (Schema.Field field : input.getSchema().getFields()) {
-      bsonBuilder.add(field.getName(), input.get(field.getName()));
-    }
-    emitter.emit(new KeyValue<>(NullWritable.get(), new BSONWritable(bsonBuilder.get())));
+    emitter.emit(new KeyValue<>(NullWritable.get(), encoders.get(input.getSchema()).encode(input)));
   }
 
   private static class MongoDBOutputFormatProvider implements OutputFormatProvider {
     private final Map<String, String> conf;
 
-    MongoDBOutputFormatProvider(MongoDBSinkConfig config, String path) {
+    MongoDBOutputFormatProvider(MongoDBSinkConfig config) {
       this.conf = new HashMap<>();
-      conf.put("mongo.output.uri", config.connectionString);
-      conf.put("mapreduce.task.tmp.dir", path);
+      conf.put(MongoDBBulkOutputFormat.OUTPUT_URI, config.connectionString);
+      conf.put(MongoDBBulkOutputFormat.BATCH_SIZE, String.valueOf(config.getBatchSize()));
+      conf.put(MongoDBBulkOutputFormat.WRITE_MODE, config.getWriteMode().name());
+      if (!Strings.isNullOrEmpty(config.keyField)) {
+        conf.put(MongoDBBulkOutputFormat.KEY_FIELD, config.keyField);
+      }
     }
 
     @Override
     public String getOutputFormatClassName() {
-      return MongoOutputFormat.class.getName();
+      return MongoDBBulkOutputFormat.class.getName();
     }
 
     @Override
@@ -108,10 +115,70 @@ public class MongoDBBatchSink extends ReferenceBatchSink<StructuredRecord, NullW
     @Macro
     private String connectionString;
 
+    @Name(Properties.BATCH_SIZE)
+    @Description("Number of documents sent to MongoDB in each bulk write. Defaults to 1000.")
+    @Nullable
+    @Macro
+    private Integer batchSize;
+
+    @Name(Properties.WRITE_MODE)
+    @Description("How documents are written. 'insert' inserts every record as a new document. 'replace' " +
+      "replaces the document with the same value of the key field. 'upsert' replaces the document with the same " +
+      "value of the key field, or inserts it if there is none. Defaults to 'insert'.")
+    @Nullable
+    @Macro
+    private String writeMode;
+
+    @Name(Properties.KEY_FIELD)
+    @Description("Field used to find the document to replace in the 'replace' and 'upsert' write modes. " +
+      "For best performance, the collection should have an index on this field.")
+    @Nullable
+    @Macro
+    private String keyField;
+
     public MongoDBSinkConfig(String referenceName, String connectionString) {
       super(referenceName);
       this.connectionString = connectionString;
     }
+
+    public int getBatchSize() {
+      return batchSize == null ? MongoDBBulkOutputFormat.DEFAULT_BATCH_SIZE : batchSize;
+    }
+
+    public MongoDBBulkOutputFormat.WriteMode getWriteMode() {
+      return Strings.isNullOrEmpty(writeMode) ?
+        MongoDBBulkOutputFormat.WriteMode.INSERT : MongoDBBulkOutputFormat.WriteMode.valueOf(writeMode.toUpperCase());
+    }
+
+    public void validate(FailureCollector collector, @Nullable Schema inputSchema) {
+      if (!containsMacro(Properties.BATCH_SIZE) && batchSize != null && batchSize < 1) {
+        collector.addFailure(String.format("Invalid batch size %d.", batchSize), "Batch size must be positive.")
+          .withConfigProperty(Properties.BATCH_SIZE);
+      }
+      if (containsMacro(Properties.WRITE_MODE)) {
+        return;
+      }
+      MongoDBBulkOutputFormat.WriteMode mode;
+      try {
+        mode = getWriteMode();
+      } catch (IllegalArgumentException e) {
+        collector.addFailure(String.format("Invalid write mode '%s'.", writeMode),
+                             "Write mode must be 'insert', 'replace' or 'upsert'.")
+          .withConfigProperty(Properties.WRITE_MODE);
+        return;
+      }
+      if (mode == MongoDBBulkOutputFormat.WriteMode.INSERT || containsMacro(Properties.KEY_FIELD)) {
+        return;
+      }
+      if (Strings.isNullOrEmpty(keyField)) {
+        collector.addFailure(String.format("A key field is required for the '%s' write mode.",
+                                           writeMode.toLowerCase()), null)
+          .withConfigProperty(Properties.KEY_FIELD);
+      } else if (inputSchema != null && inputSchema.getField(keyField) == null) {
+        collector.addFailure(String.format("Key field '%s' does not exist in the input schema.", keyField), null)
+          .withConfigProperty(Properties.KEY_FIELD);
+      }
+    }
   }
 
   /**
@@ -119,5 +186,8 @@ public class MongoDBBatchSink extends ReferenceBatchSink<StructuredRecord, NullW
    */
   public static class Properties {
     public static final String CONNECTION_STRING = "connectionString";
+    public static final String BATCH_SIZE = "batchSize";
+    public static final String WRITE_MODE = "writeMode";
+    public static final String KEY_FIELD = "keyField";
   }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.sink;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes {@link Document Documents} to a MongoDB collection with unordered bulk writes. Documents are either
+ * inserted, or replaced by the value of a key field, optionally inserting the ones that don't exist yet.
+ */
+public class MongoDBBulkOutputFormat extends NullOutputFormat<NullWritable, Document> {
+  public static final String OUTPUT_URI = "mongo.output.uri";
+  public static final String BATCH_SIZE = "mongo.output.batch.size";
+  public static final String WRITE_MODE = "mongo.output.write.mode";
+  public static final String KEY_FIELD = "mongo.output.key.field";
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  @Override
+  public RecordWriter<NullWritable, Document> getRecordWriter(TaskAttemptContext context) {
+    return new BulkRecordWriter(context.getConfiguration());
+  }
+
+  /**
+   * How documents are written to the collection.
+   */
+  public enum WriteMode {
+    INSERT,
+    REPLACE,
+    UPSERT
+  }
+
+  /**
+   * Buffers documents and writes them with one unordered bulk write per batch.
+   */
+  private static final class BulkRecordWriter extends RecordWriter<NullWritable, Document> {
+    private final MongoClient client;
+    private final MongoCollection<Document> collection;
+    private final int batchSize;
+    private final WriteMode writeMode;
+    private final String keyField;
+    private final UpdateOptions updateOptions;
+    private final BulkWriteOptions bulkWriteOptions;
+    private final List<WriteModel<Document>> batch;
+
+    private BulkRecordWriter(Configuration conf) {
+      MongoClientURI uri = new MongoClientURI(conf.get(OUTPUT_URI));
+      this.client = new MongoClient(uri);
+      this.collection = client.getDatabase(uri.getDatabase()).getCollection(uri.getCollection());
+      this.batchSize = conf.getInt(BATCH_SIZE, DEFAULT_BATCH_SIZE);
+      this.writeMode = WriteMode.valueOf(conf.get(WRITE_MODE, WriteMode.INSERT.name()));
+      this.keyField = conf.get(KEY_FIELD);
+      this.updateOptions = new UpdateOptions().upsert(writeMode == WriteMode.UPSERT);
+      // unordered writes let the server apply the batch in parallel and continue past individual failures
+      this.bulkWriteOptions = new BulkWriteOptions().ordered(false);
+      this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void write(NullWritable key, Document document) {
+      if (writeMode == WriteMode.INSERT) {
+        batch.add(new InsertOneModel<>(document));
+      } else {
+        Object keyValue = document.get(keyField);
+        if (keyValue == null) {
+          throw new IllegalArgumentException(String.format("Key field '%s' must not be null.", keyField));
+        }
+        batch.add(new ReplaceOneModel<>(Filters.eq(keyField, keyValue), document, updateOptions));
+      }
+      if (batch.size() >= batchSize) {
+        flush();
+      }
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) {
+      try {
+        flush();
+      } finally {
+        client.close();
+      }
+    }
+
+    private void flush() {
+      if (!batch.isEmpty()) {
+        collection.bulkWrite(batch, bulkWriteOptions);
+        batch.clear();
+      }
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package io.cdap.plugin.batch.source;
 
 import com.google.common.base.Strings;
+import com.mongodb.BasicDBObject;
 import com.mongodb.hadoop.MongoInputFormat;
 import com.mongodb.hadoop.splitter.MongoSplitter;
 import com.mongodb.hadoop.splitter.StandaloneMongoSplitter;
@@ -54,6 +55,7 @@ import javax.annotation.Nullable;
 @Description("MongoDB Batch Source will read documents from MongoDB and convert each document " +
   "into a StructuredRecord with the help of the specified Schema. ")
 public class MongoDBBatchSource extends ReferenceBatchSource<Object, BSONObject, StructuredRecord> {
+  private static final String ID_FIELD = "_id";
 
   private final MongoDBConfig config;
   private BSONConverter bsonConverter;
@@ -86,10 +88,14 @@ public class MongoDBBatchSource extends ReferenceBatchSource<Object, BSONObject,
     }
     if (!Strings.isNullOrEmpty(config.inputFields)) {
       MongoConfigUtil.setFields(conf, config.inputFields);
+    } else {
+      // only read the fields in the schema
+      MongoConfigUtil.setFields(conf, getProjection(config.getSchema()).toString());
     }
     if (!Strings.isNullOrEmpty(config.splitterClass)) {
-      String className = String.format("%s.%s", StandaloneMongoSplitter.class.getPackage().getName(),
-                                       config.splitterClass);
+      String className = SampleMongoSplitter.class.getSimpleName().equals(config.splitterClass) ?
+        SampleMongoSplitter.class.getName() :
+        String.format("%s.%s", StandaloneMongoSplitter.class.getPackage().getName(), config.splitterClass);
       Class<? extends MongoSplitter> klass = getClass().getClassLoader().loadClass(
         className).asSubclass(MongoSplitter.class);
       MongoConfigUtil.setSplitterClass(conf, klass);
@@ -100,6 +106,21 @@ public class MongoDBBatchSource extends ReferenceBatchSource<Object, BSONObject,
                               new SourceInputFormatProvider(MongoConfigUtil.getInputFormat(conf), conf)));
   }
 
+  /**
+   * Creates a projection document that includes every field of the schema. The _id field is excluded unless it
+   * is in the schema, since the server returns it by default.
+   */
+  private static BasicDBObject getProjection(Schema schema) {
+    BasicDBObject projection = new BasicDBObject();
+    for (Schema.Field field : schema.getFields()) {
+      projection.put(field.getName(), 1);
+    }
+    if (schema.getField(ID_FIELD) == null) {
+      projection.put(ID_FIELD, 0);
+    }
+    return projection;
+  }
+
   @Override
   public void initialize(BatchRuntimeContext context) throws Exception {
     super.initialize(context);
@@ -157,14 +178,15 @@ public class MongoDBBatchSource extends ReferenceBatchSource<Object, BSONObject,
     @Name(Properties.INPUT_FIELDS)
     @Nullable
     @Description("A projection document limiting the fields that appear in each document. " +
-      "If no projection document is provided, all fields will be read.")
+      "If no projection document is provided, only the fields in the schema will be read.")
     @Macro
     private String inputFields;
 
     @Name(Properties.SPLITTER_CLASS)
     @Nullable
     @Description("The name of the Splitter class to use. If left empty, the MongoDB Hadoop Connector will attempt " +
-      "to make a best guess as to what Splitter to use.")
+      "to make a best guess as to what Splitter to use. 'SampleMongoSplitter' splits unsharded collections into " +
+      "balanced ranges by sampling documents.")
     @Macro
     private String splitterClass;
 
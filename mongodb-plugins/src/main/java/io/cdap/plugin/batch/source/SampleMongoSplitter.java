@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.source;
+
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.Cursor;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClientURI;
+import com.mongodb.MongoException;
+import com.mongodb.hadoop.splitter.MongoCollectionSplitter;
+import com.mongodb.hadoop.splitter.SplitFailedException;
+import com.mongodb.hadoop.splitter.StandaloneMongoSplitter;
+import com.mongodb.hadoop.util.MongoConfigUtil;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Splits an unsharded collection into ranges of the split key that contain about the same number of documents.
+ *
+ * The number of splits is the size of the collection divided by the configured split size. A random sample of
+ * the documents that match the input query is taken with the $sample aggregation stage, and the split boundaries
+ * are picked at even intervals of the sorted sample. Unlike {@link StandaloneMongoSplitter}, this does not need
+ * the splitVector command, which requires cluster privileges and scans the whole index.
+ *
+ * If the server does not support $sample, which was added in MongoDB 3.2, the collection is split by
+ * {@link StandaloneMongoSplitter} instead.
+ */
+public class SampleMongoSplitter extends MongoCollectionSplitter {
+  /**
+   * Number of documents sampled for each split. More samples give more evenly sized splits.
+   */
+  public static final String SAMPLES_PER_SPLIT = "mongo.input.split.samples.per.split";
+  private static final int DEFAULT_SAMPLES_PER_SPLIT = 10;
+  // upper bound on the number of splits, so that the sample of numSplits * samples per split documents
+  // stays well within an int and can be sorted in memory
+  private static final int MAX_SPLITS = 100000;
+  private static final Logger LOG = LoggerFactory.getLogger(SampleMongoSplitter.class);
+
+  public SampleMongoSplitter() {
+  }
+
+  public SampleMongoSplitter(Configuration conf) {
+    super(conf);
+  }
+
+  @Override
+  public List<InputSplit> calculateSplits() throws SplitFailedException {
+    Configuration conf = getConfiguration();
+    MongoClientURI inputURI = MongoConfigUtil.getInputURI(conf);
+    MongoClientURI authURI = MongoConfigUtil.getAuthURI(conf);
+    DBCollection collection = null;
+    try {
+      collection = authURI == null ?
+        MongoConfigUtil.getCollection(inputURI) : MongoConfigUtil.getCollectionWithAuth(inputURI, authURI);
+      return calculateSplits(conf, collection);
+    } catch (MongoException e) {
+      LOG.warn("Unable to sample collection {}, falling back to {}: {}",
+               inputURI.getCollection(), StandaloneMongoSplitter.class.getSimpleName(), e.getMessage());
+      return new StandaloneMongoSplitter(conf).calculateSplits();
+    } finally {
+      if (collection != null) {
+        MongoConfigUtil.close(collection.getDB().getMongo());
+      }
+    }
+  }
+
+  private List<InputSplit> calculateSplits(Configuration conf, DBCollection collection) throws SplitFailedException {
+    List<InputSplit> splits = new ArrayList<>();
+    CommandResult stats = collection.getStats();
+    Object size = stats.get("size");
+    long collectionSize = size instanceof Number ? ((Number) size).longValue() : 0L;
+    long splitSize = MongoConfigUtil.getSplitSize(conf) * 1024L * 1024L;
+    int numSplits = (int) Math.max(1L, Math.min(MAX_SPLITS, (collectionSize + splitSize - 1) / splitSize));
+    if (numSplits == 1) {
+      splits.add(createSplitFromBounds(null, null));
+      return splits;
+    }
+
+    String splitKey = MongoConfigUtil.getInputSplitKey(conf).keySet().iterator().next();
+    int sampleSize = numSplits * conf.getInt(SAMPLES_PER_SPLIT, DEFAULT_SAMPLES_PER_SPLIT);
+    List<DBObject> pipeline = new ArrayList<>();
+    DBObject query = MongoConfigUtil.getQuery(conf);
+    if (query != null && !query.keySet().isEmpty()) {
+      pipeline.add(new BasicDBObject("$match", query));
+    }
+    pipeline.add(new BasicDBObject("$sample", new BasicDBObject("size", sampleSize)));
+    pipeline.add(new BasicDBObject("$project", new BasicDBObject(splitKey, 1)));
+    pipeline.add(new BasicDBObject("$sort", new BasicDBObject(splitKey, 1)));
+
+    List<Object> samples = new ArrayList<>(sampleSize);
+    AggregationOptions options = AggregationOptions.builder()
+      .allowDiskUse(true)
+      .outputMode(AggregationOptions.OutputMode.CURSOR)
+      .build();
+    try (Cursor cursor = collection.aggregate(pipeline, options)) {
+      while (cursor.hasNext()) {
+        samples.add(cursor.next().get(splitKey));
+      }
+    }
+
+    BasicDBObject lowerBound = null;
+    Object lastBoundary = null;
+    for (int i = 1; i < numSplits; i++) {
+      Object boundary = samples.isEmpty() ? null : samples.get(i * samples.size() / numSplits);
+      // skip repeated boundaries, which happen when a sample is smaller than the number of splits
+      if (boundary == null || Objects.equals(boundary, lastBoundary)) {
+        continue;
+      }
+      BasicDBObject upperBound = new BasicDBObject(splitKey, boundary);
+      splits.add(createSplitFromBounds(lowerBound, upperBound));
+      lowerBound = upperBound;
+      lastBoundary = boundary;
+    }
+    splits.add(createSplitFromBounds(lowerBound, null));
+    LOG.debug("Split collection {} into {} splits from {} samples.",
+              collection.getName(), splits.size(), samples.size());
+    return splits;
+  }
+}
@@ -16,11 +16,13 @@
 
 package io.cdap.plugin.test;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import com.mongodb.MongoClient;
 import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoCollection;
@@ -30,8 +32,11 @@ import com.mongodb.hadoop.MongoInputFormat;
 import com.mongodb.hadoop.input.MongoInputSplit;
 import com.mongodb.hadoop.splitter.MongoSplitter;
 import com.mongodb.hadoop.splitter.StandaloneMongoSplitter;
-import de.flapdoodle.embed.mongo.distribution.Version;
+import com.mongodb.hadoop.util.MongoConfigUtil;
+import de.flapdoodle.embed.mongo.distribution.Feature;
+import de.flapdoodle.embed.mongo.distribution.Versions;
 import de.flapdoodle.embed.mongo.tests.MongodForTestsFactory;
+import de.flapdoodle.embed.process.distribution.GenericVersion;
 import io.cdap.cdap.api.artifact.ArtifactRange;
 import io.cdap.cdap.api.artifact.ArtifactSummary;
 import io.cdap.cdap.api.artifact.ArtifactVersion;
@@ -56,9 +61,18 @@ import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.test.ApplicationManager;
 import io.cdap.cdap.test.DataSetManager;
 import io.cdap.cdap.test.WorkflowManager;
+import io.cdap.plugin.BSONConverter;
 import io.cdap.plugin.batch.sink.MongoDBBatchSink;
 import io.cdap.plugin.batch.source.MongoDBBatchSource;
+import io.cdap.plugin.batch.source.SampleMongoSplitter;
 import io.cdap.plugin.common.Constants;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.bson.BSONObject;
 import org.bson.Document;
 import org.junit.After;
 import org.junit.Assert;
@@ -66,6 +80,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -89,6 +104,9 @@ public class MongoDBTest extends HydratorTestBase {
   private static final String MONGO_DB = "cdap";
   private static final String MONGO_SOURCE_COLLECTIONS = "stocks";
   private static final String MONGO_SINK_COLLECTIONS = "copy";
+  private static final String MONGO_SAMPLED_COLLECTION = "sampled";
+  // about 3MB of documents, so a split size of 1MB gives several splits
+  private static final int SAMPLED_DOCUMENTS = 3000;
 
   private static final Schema SINK_BODY_SCHEMA = Schema.recordOf(
     "event",
@@ -114,13 +132,13 @@ public class MongoDBTest extends HydratorTestBase {
 
     addPluginArtifact(NamespaceId.DEFAULT.artifact("mongo-plugins", "1.0.0"), parents,
                       MongoDBBatchSource.class, MongoInputFormat.class, MongoSplitter.class, MongoInputSplit.class,
-                      MongoDBBatchSink.class);
+                      SampleMongoSplitter.class, MongoDBBatchSink.class);
   }
 
   @Before
   public void beforeTest() throws Exception {
-    // Start an embedded mongodb server
-    factory = MongodForTestsFactory.with(Version.Main.V3_1);
+    // Start an embedded mongodb server. 3.2 is the first version with the $sample stage used by SampleMongoSplitter
+    factory = MongodForTestsFactory.with(Versions.withFeatures(new GenericVersion("3.2.0"), Feature.SYNC_DELAY));
     MongoClient mongoClient = factory.newMongo();
     List<ServerAddress> serverAddressList = mongoClient.getAllAddress();
     mongoPort = serverAddressList.get(0).getPort();
@@ -197,6 +215,50 @@ public class MongoDBTest extends HydratorTestBase {
     verifyMongoSinkData(secondCollectionName);
   }
 
+  @Test
+  public void testMongoDBSinkUpsert() throws Exception {
+    // an existing document that is replaced by the record with the same ticker
+    MongoClient mongoClient = factory.newMongo();
+    mongoClient.getDatabase(MONGO_DB).getCollection(MONGO_SINK_COLLECTIONS)
+      .insertOne(new Document(ImmutableMap.<String, Object>of("ticker", "AAPL", "num", 1, "price", 1.0)));
+
+    String inputDatasetName = "input-batchsinkupserttest";
+    ETLStage source = new ETLStage("source", MockSource.getPlugin(inputDatasetName));
+    ETLStage sink = new ETLStage("MongoDB", new ETLPlugin(
+      "MongoDB",
+      BatchSink.PLUGIN_TYPE,
+      new ImmutableMap.Builder<String, String>()
+        .put(MongoDBBatchSink.Properties.CONNECTION_STRING,
+             String.format("mongodb://localhost:%d/%s.%s",
+                           mongoPort, MONGO_DB, MONGO_SINK_COLLECTIONS))
+        .put(MongoDBBatchSink.Properties.WRITE_MODE, "upsert")
+        .put(MongoDBBatchSink.Properties.KEY_FIELD, "ticker")
+        .put(MongoDBBatchSink.Properties.BATCH_SIZE, "1")
+        .put(Constants.Reference.REFERENCE_NAME, "MongoTestDBSinkUpsert").build(),
+      null));
+    ETLBatchConfig etlConfig = ETLBatchConfig.builder("* * * * *")
+      .addStage(source)
+      .addStage(sink)
+      .addConnection(source.getName(), sink.getName())
+      .build();
+    AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(ETLBATCH_ARTIFACT, etlConfig);
+    ApplicationId appId = NamespaceId.DEFAULT.app("MongoSinkUpsertTest");
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    List<StructuredRecord> inputRecords = ImmutableList.of(
+      StructuredRecord.builder(SINK_BODY_SCHEMA).set("ticker", "AAPL").set("num", 10).set("price", 500.32).build(),
+      StructuredRecord.builder(SINK_BODY_SCHEMA).set("ticker", "CDAP").set("num", 13).set("price", 212.36).build()
+    );
+    DataSetManager<Table> inputManager = getDataset(inputDatasetName);
+    MockSource.writeInput(inputManager, inputRecords);
+
+    WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+    workflowManager.start();
+    workflowManager.waitForRuns(ProgramRunStatus.COMPLETED, 1, 5, TimeUnit.MINUTES);
+
+    verifyMongoSinkData(MONGO_SINK_COLLECTIONS);
+  }
+
   @Test
   public void testMongoToMongo() throws Exception {
     ETLStage source = new ETLStage("MongoDBSource", new ETLPlugin(
@@ -255,9 +317,18 @@ public class MongoDBTest extends HydratorTestBase {
     }
   }
 
-  @SuppressWarnings("ConstantConditions")
   @Test
   public void testMongoDBSource() throws Exception {
+    testMongoDBSource(StandaloneMongoSplitter.class.getSimpleName(), "MongoSourceTest");
+  }
+
+  @Test
+  public void testMongoDBSourceSampleSplitter() throws Exception {
+    testMongoDBSource(SampleMongoSplitter.class.getSimpleName(), "MongoSourceSampleTest");
+  }
+
+  @SuppressWarnings("ConstantConditions")
+  private void testMongoDBSource(String splitterClass, String appName) throws Exception {
     ETLStage source = new ETLStage("MongoDB", new ETLPlugin(
       "MongoDB",
       BatchSource.PLUGIN_TYPE,
@@ -266,11 +337,10 @@ public class MongoDBTest extends HydratorTestBase {
              String.format("mongodb://localhost:%d/%s.%s",
                            mongoPort, MONGO_DB, MONGO_SOURCE_COLLECTIONS))
         .put(MongoDBBatchSource.Properties.SCHEMA, SOURCE_BODY_SCHEMA.toString())
-        .put(MongoDBBatchSource.Properties.SPLITTER_CLASS,
-             StandaloneMongoSplitter.class.getSimpleName())
-        .put(Constants.Reference.REFERENCE_NAME, "SimpleMongoTest").build(),
+        .put(MongoDBBatchSource.Properties.SPLITTER_CLASS, splitterClass)
+        .put(Constants.Reference.REFERENCE_NAME, appName).build(),
       null));
-    String outputDatasetName = "output-batchsourcetest";
+    String outputDatasetName = "output-" + appName.toLowerCase();
     ETLStage sink = new ETLStage("sink", MockSink.getPlugin(outputDatasetName));
     ETLBatchConfig etlConfig = ETLBatchConfig.builder("* * * * *")
       .addStage(source)
@@ -279,7 +349,7 @@ public class MongoDBTest extends HydratorTestBase {
       .build();
 
     AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(ETLBATCH_ARTIFACT, etlConfig);
-    ApplicationId appId = NamespaceId.DEFAULT.app("MongoSourceTest");
+    ApplicationId appId = NamespaceId.DEFAULT.app(appName);
     ApplicationManager appManager = deployApplication(appId, appRequest);
 
     WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
@@ -301,6 +371,111 @@ public class MongoDBTest extends HydratorTestBase {
     Assert.assertEquals(10.10, (double) row2.get("price"), 0.00001);
   }
 
+  @Test
+  public void testSampleMongoSplitter() throws Exception {
+    writeSampledDocuments();
+    // only the first half of the documents match the query, so every split should contain some of them
+    Configuration conf = getSampledConfiguration();
+    MongoConfigUtil.setQuery(conf, new BasicDBObject("num", new BasicDBObject("$lt", SAMPLED_DOCUMENTS / 2)));
+    List<InputSplit> splits = new SampleMongoSplitter(conf).calculateSplits();
+    Assert.assertTrue(splits.size() > 1);
+
+    MongoCollection<Document> documents = factory.newMongo().getDatabase(MONGO_DB)
+      .getCollection(MONGO_SAMPLED_COLLECTION);
+    long total = 0;
+    Object lastMax = null;
+    for (InputSplit split : splits) {
+      MongoInputSplit mongoSplit = (MongoInputSplit) split;
+      Object min = getBound(mongoSplit.getMin());
+      Object max = getBound(mongoSplit.getMax());
+      // splits are contiguous ranges of _id
+      Assert.assertEquals(lastMax, min);
+      lastMax = max;
+
+      Document range = new Document();
+      if (min != null) {
+        range.append("$gte", min);
+      }
+      if (max != null) {
+        range.append("$lt", max);
+      }
+      Document filter = new Document("num", new Document("$lt", SAMPLED_DOCUMENTS / 2));
+      if (!range.isEmpty()) {
+        filter.append("_id", range);
+      }
+      long count = documents.count(filter);
+      Assert.assertTrue(String.format("Split [%s, %s) contains no documents that match the query.", min, max),
+                        count > 0);
+      total += count;
+    }
+    Assert.assertNull(lastMax);
+    Assert.assertEquals(SAMPLED_DOCUMENTS / 2, total);
+  }
+
+  @Test
+  public void testSampledSplitsReadEveryDocument() throws Exception {
+    writeSampledDocuments();
+    Configuration conf = getSampledConfiguration();
+    BSONConverter converter = new BSONConverter(SINK_BODY_SCHEMA);
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+    MongoInputFormat inputFormat = new MongoInputFormat();
+
+    List<InputSplit> splits = new SampleMongoSplitter(conf).calculateSplits();
+    List<StructuredRecord> records = new ArrayList<>(SAMPLED_DOCUMENTS);
+    for (InputSplit split : splits) {
+      RecordReader<Object, BSONObject> reader = inputFormat.createRecordReader(split, context);
+      try {
+        reader.initialize(split, context);
+        while (reader.nextKeyValue()) {
+          records.add(converter.transform(reader.getCurrentValue()));
+        }
+      } finally {
+        reader.close();
+      }
+    }
+
+    Assert.assertTrue(splits.size() > 1);
+    Assert.assertEquals(SAMPLED_DOCUMENTS, records.size());
+    boolean[] seen = new boolean[SAMPLED_DOCUMENTS];
+    for (StructuredRecord record : records) {
+      int num = record.get("num");
+      Assert.assertFalse("Document " + num + " was read more than once.", seen[num]);
+      seen[num] = true;
+      Assert.assertEquals("T" + num, record.get("ticker"));
+      Assert.assertEquals(num * 0.5, (double) record.get("price"), 0.00001);
+    }
+  }
+
+  /**
+   * Writes documents with increasing ids to the sampled collection, each padded to about 1KB.
+   */
+  private void writeSampledDocuments() {
+    MongoCollection<Document> collection = factory.newMongo().getDatabase(MONGO_DB)
+      .getCollection(MONGO_SAMPLED_COLLECTION);
+    String padding = Strings.repeat("x", 1000);
+    List<Document> documents = new ArrayList<>(SAMPLED_DOCUMENTS);
+    for (int i = 0; i < SAMPLED_DOCUMENTS; i++) {
+      documents.add(new Document("_id", i).append("ticker", "T" + i).append("num", i).append("price", i * 0.5)
+                      .append("padding", padding));
+    }
+    collection.insertMany(documents);
+  }
+
+  private Configuration getSampledConfiguration() {
+    Configuration conf = new Configuration();
+    MongoConfigUtil.setInputURI(conf, String.format("mongodb://localhost:%d/%s.%s",
+                                                    mongoPort, MONGO_DB, MONGO_SAMPLED_COLLECTION));
+    MongoConfigUtil.setSplitSize(conf, 1);
+    return conf;
+  }
+
+  /**
+   * Returns the _id bound of a split, or null if the split is unbounded on that side.
+   */
+  private static Object getBound(DBObject bound) {
+    return bound == null ? null : bound.get("_id");
+  }
+
   private void verifyMongoSinkData(String collectionName) throws Exception {
     MongoClient mongoClient = factory.newMongo();
     MongoDatabase mongoDatabase = mongoClient.getDatabase(MONGO_DB);
@@ -15,8 +15,6 @@
  */
 package io.cdap.plugin.batch;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
@@ -32,13 +30,11 @@ import io.cdap.cdap.etl.api.StageMetrics;
 import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.batch.BatchSinkContext;
-import io.cdap.cdap.format.StructuredRecordStringConverter;
 import io.cdap.plugin.common.SolrOutputFormat;
 import io.cdap.plugin.common.SolrRecordWriter;
 import io.cdap.plugin.common.SolrSearchSinkConfig;
-import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.NullWritable;
 
-import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -51,11 +47,11 @@ import javax.annotation.Nullable;
 @Description("This plugin allows users to build the pipelines to write data to Solr. The input fields coming from " +
   "the previous stage of the pipeline are mapped to Solr fields. User can also specify the mode of the Solr to " +
   "connect to. For example, SingleNode Solr or SolrCloud.")
-public class SolrSearchSink extends BatchSink<StructuredRecord, Text, Text> {
-  private static final Gson GSON = new Gson();
-  private static final Type SCHEMA_TYPE = new TypeToken<Schema>() { }.getType();
+public class SolrSearchSink extends BatchSink<StructuredRecord, NullWritable, StructuredRecord> {
   private final BatchSolrSearchConfig batchConfig;
   private StageMetrics metrics;
+  private String keyField;
+  private Schema validatedSchema;
 
   public SolrSearchSink(BatchSolrSearchConfig batchConfig) {
     this.batchConfig = batchConfig;
@@ -63,7 +59,13 @@ public class SolrSearchSink extends BatchSink<StructuredRecord, Text, Text> {
 
   @Override
   public void prepareRun(BatchSinkContext context) throws Exception {
-    context.addOutput(Output.of(batchConfig.referenceName, new SolrSearchSink.SolrOutputFormatProvider(batchConfig)));
+    Schema inputSchema = context.getInputSchema();
+    if (inputSchema != null) {
+      batchConfig.validateKeyField(inputSchema);
+      batchConfig.validateInputFieldsDataType(inputSchema);
+    }
+    context.addOutput(Output.of(batchConfig.referenceName,
+                                new SolrSearchSink.SolrOutputFormatProvider(batchConfig, inputSchema)));
   }
 
   @Override
@@ -75,28 +77,34 @@ public class SolrSearchSink extends BatchSink<StructuredRecord, Text, Text> {
       batchConfig.validateInputFieldsDataType(inputSchema);
     }
     batchConfig.validateOutputFieldMappings();
+    batchConfig.validateWriterThreads();
   }
 
   @Override
   public void initialize(BatchRuntimeContext context) throws Exception {
     metrics = context.getMetrics();
+    keyField = batchConfig.getKeyField();
     //Calling testSolrConnection() before each mapper, to ensure that the connection is alive and available for
     //indexing.
     batchConfig.testSolrConnection();
   }
 
   @Override
-  public void transform(StructuredRecord structuredRecord, Emitter<KeyValue<Text, Text>> emitter) throws Exception {
+  public void transform(StructuredRecord structuredRecord,
+                        Emitter<KeyValue<NullWritable, StructuredRecord>> emitter) throws Exception {
+    // each schema is only validated once, and the record is converted into a Solr document by the record writer
+    // using a field mapping compiled for that schema
     Schema recordSchema = structuredRecord.getSchema();
-    batchConfig.validateKeyField(recordSchema);
-    batchConfig.validateInputFieldsDataType(recordSchema);
-
-    if (structuredRecord.get(batchConfig.getKeyField()) == null) {
+    if (recordSchema != validatedSchema) {
+      batchConfig.validateKeyField(recordSchema);
+      batchConfig.validateInputFieldsDataType(recordSchema);
+      validatedSchema = recordSchema;
+    }
+    if (structuredRecord.get(keyField) == null) {
       metrics.count("invalid", 1);
       return;
     }
-    emitter.emit(new KeyValue<Text, Text>((new Text(GSON.toJson(recordSchema, SCHEMA_TYPE))),
-                                          new Text(StructuredRecordStringConverter.toJsonString(structuredRecord))));
+    emitter.emit(new KeyValue<>(NullWritable.get(), structuredRecord));
   }
 
   /**
@@ -106,7 +114,7 @@ public class SolrSearchSink extends BatchSink<StructuredRecord, Text, Text> {
     private static final String DEAFULT_BATCHSIZE = "10000";
     private Map<String, String> conf;
 
-    private SolrOutputFormatProvider(BatchSolrSearchConfig batchConfig) {
+    private SolrOutputFormatProvider(BatchSolrSearchConfig batchConfig, @Nullable Schema inputSchema) {
       this.conf = new HashMap<>();
       conf.put(SolrRecordWriter.SERVER_URL, batchConfig.getSolrHost());
       conf.put(SolrRecordWriter.SERVER_MODE, batchConfig.getSolrMode());
@@ -119,6 +127,11 @@ public class SolrSearchSink extends BatchSink<StructuredRecord, Text, Text> {
       } else {
         conf.put(SolrRecordWriter.FIELD_MAPPINGS, batchConfig.getOutputFieldMappings());
       }
+      if (inputSchema != null) {
+        conf.put(SolrRecordWriter.INPUT_SCHEMA, inputSchema.toString());
+      }
+      conf.put(SolrRecordWriter.WRITER_THREADS, String.valueOf(batchConfig.getWriterThreads()));
+      conf.put(SolrRecordWriter.MAX_IN_FLIGHT_BATCHES, String.valueOf(batchConfig.getMaxInFlightBatches()));
     }
 
     @Override
@@ -142,6 +155,19 @@ public class SolrSearchSink extends BatchSink<StructuredRecord, Text, Text> {
     @Macro
     private final String batchSize;
 
+    @Description("Number of threads each task uses to send batches of documents to Solr concurrently. " +
+      "Default is 1, which sends every batch from the task itself. (Macro-enabled)")
+    @Nullable
+    @Macro
+    private Integer writerThreads;
+
+    @Description("Maximum number of batches each task can have in flight to Solr when more than one writer thread " +
+      "is used. Writing blocks until a batch completes once the limit is reached. Defaults to the number of " +
+      "writer threads. (Macro-enabled)")
+    @Nullable
+    @Macro
+    private Integer maxInFlightBatches;
+
     public BatchSolrSearchConfig(String referenceName, String solrMode, String solrHost, String collectionName,
                                  String keyField, @Nullable String outputFieldMappings, @Nullable String batchSize) {
       super(referenceName, solrMode, solrHost, collectionName, keyField, outputFieldMappings);
@@ -157,5 +183,37 @@ public class SolrSearchSink extends BatchSink<StructuredRecord, Text, Text> {
     public String getBatchSize() {
       return batchSize;
     }
+
+    /**
+     * Returns the number of threads used to send batches to Solr.
+     *
+     * @return number of writer threads
+     */
+    public int getWriterThreads() {
+      return writerThreads == null ? 1 : writerThreads;
+    }
+
+    /**
+     * Returns the maximum number of batches that can be sent to Solr concurrently.
+     *
+     * @return maximum number of in-flight batches
+     */
+    public int getMaxInFlightBatches() {
+      return maxInFlightBatches == null ? getWriterThreads() : maxInFlightBatches;
+    }
+
+    /**
+     * Validates the writer thread settings.
+     */
+    public void validateWriterThreads() {
+      if (!containsMacro("writerThreads") && writerThreads != null && writerThreads < 1) {
+        throw new IllegalArgumentException(
+          String.format("Number of writer threads must be at least 1, but was %d.", writerThreads));
+      }
+      if (!containsMacro("maxInFlightBatches") && maxInFlightBatches != null && maxInFlightBatches < 1) {
+        throw new IllegalArgumentException(
+          String.format("Maximum number of in-flight batches must be at least 1, but was %d.", maxInFlightBatches));
+      }
+    }
   }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.solr.common.SolrInputDocument;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts {@link StructuredRecord StructuredRecords} of a single schema into {@link SolrInputDocument
+ * SolrInputDocuments}. The Solr field name of each input field is resolved once, when the converter is created,
+ * so conversion only has to copy the field values.
+ */
+public final class SolrDocumentConverter {
+  private final Schema schema;
+  private final String[] inputFields;
+  private final String[] solrFields;
+
+  /**
+   * Creates a converter for records of the given schema.
+   *
+   * @param schema schema of the records to convert
+   * @param outputFieldMap map from input field name to Solr field name, for fields that are renamed
+   */
+  public SolrDocumentConverter(Schema schema, Map<String, String> outputFieldMap) {
+    this.schema = schema;
+    List<Schema.Field> fields = schema.getFields();
+    this.inputFields = new String[fields.size()];
+    this.solrFields = new String[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      String name = fields.get(i).getName();
+      inputFields[i] = name;
+      solrFields[i] = outputFieldMap.getOrDefault(name, name);
+    }
+  }
+
+  /**
+   * @return the schema of the records that this converter was created for
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Converts a record into a Solr document.
+   */
+  public SolrInputDocument toDocument(StructuredRecord record) {
+    SolrInputDocument document = new SolrInputDocument();
+    for (int i = 0; i < inputFields.length; i++) {
+      document.addField(solrFields[i], record.get(inputFields[i]));
+    }
+    return document;
+  }
+}
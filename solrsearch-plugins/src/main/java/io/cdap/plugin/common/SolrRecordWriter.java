@@ -15,13 +15,12 @@
  */
 package io.cdap.plugin.common;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
-import io.cdap.cdap.format.StructuredRecordStringConverter;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.solr.client.solrj.SolrClient;
@@ -29,81 +28,168 @@ import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrInputDocument;
 
 import java.io.IOException;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * SolrRecordWriter - Instantiate a record writer that will build a Solr index.
+ *
+ * Records are converted into Solr documents with a {@link SolrDocumentConverter} that is created once for each
+ * schema, starting with the input schema shipped through the job configuration. Batches of documents are sent to Solr
+ * either directly, or from a pool of writer threads with a bounded number of batches in flight. The documents are
+ * committed once, when the writer is closed, so that parallel batches don't each trigger a hard commit.
  */
-public class SolrRecordWriter extends RecordWriter<Text, Text> {
+public class SolrRecordWriter extends RecordWriter<NullWritable, StructuredRecord> {
   public static final String SERVER_URL = "solr.server.url";
   public static final String SERVER_MODE = "solr.server.mode";
   public static final String COLLECTION_NAME = "solr.server.collection";
   public static final String KEY_FIELD = "solr.server.keyfield";
   public static final String FIELD_MAPPINGS = "solr.output.field.mappings";
   public static final String BATCH_SIZE = "solr.batch.size";
-  private static final Gson GSON = new Gson();
-  private static final Type SCHEMA_TYPE = new TypeToken<Schema>() { }.getType();
+  public static final String INPUT_SCHEMA = "solr.input.schema";
+  public static final String WRITER_THREADS = "solr.writer.threads";
+  public static final String MAX_IN_FLIGHT_BATCHES = "solr.writer.max.inflight.batches";
   private final SolrSearchSinkConfig config;
-  private final List<SolrInputDocument> documentList = new ArrayList<SolrInputDocument>();
-  private SolrClient solrClient;
-  private Configuration conf;
-  private int batchSize;
-  private Map<String, String> outputFieldMap;
+  private final SolrClient solrClient;
+  private final int batchSize;
+  private final ExecutorService executor;
+  private final Semaphore inFlightBatches;
+  private final AtomicReference<Exception> failure = new AtomicReference<>();
+  private final SchemaCache<SolrDocumentConverter> converters;
+  private List<SolrInputDocument> documentList;
+  private boolean indexed;
 
   public SolrRecordWriter(TaskAttemptContext context) {
-    conf = context.getConfiguration();
-    config = new SolrSearchSinkConfig(null, conf.get(SERVER_MODE), conf.get(SERVER_URL), conf.get(COLLECTION_NAME),
-                                      conf.get(KEY_FIELD), conf.get(FIELD_MAPPINGS));
-    solrClient = config.getSolrConnection();
+    this(context, createConfig(context.getConfiguration()).getSolrConnection());
+  }
+
+  @VisibleForTesting
+  SolrRecordWriter(TaskAttemptContext context, SolrClient solrClient) {
+    Configuration conf = context.getConfiguration();
+    this.config = createConfig(conf);
+    this.solrClient = solrClient;
     batchSize = Integer.parseInt(conf.get(BATCH_SIZE));
-    if (outputFieldMap == null) {
-      outputFieldMap = config.createOutputFieldMap();
+    documentList = new ArrayList<>(batchSize);
+    Map<String, String> outputFieldMap = config.createOutputFieldMap();
+    // records of other schemas than the input schema are validated the same way the input schema was in prepareRun
+    converters = new SchemaCache<>(schema -> {
+      config.validateKeyField(schema);
+      config.validateInputFieldsDataType(schema);
+      return new SolrDocumentConverter(schema, outputFieldMap);
+    });
+    String inputSchema = conf.get(INPUT_SCHEMA);
+    if (inputSchema != null) {
+      try {
+        converters.get(Schema.parseJson(inputSchema));
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Unable to parse the input schema: " + e.getMessage(), e);
+      }
     }
 
+    int numThreads = conf.getInt(WRITER_THREADS, 1);
+    if (numThreads > 1) {
+      executor = Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder()
+        .setNameFormat("solr-writer-%d")
+        .setDaemon(true)
+        .build());
+      inFlightBatches = new Semaphore(conf.getInt(MAX_IN_FLIGHT_BATCHES, numThreads));
+    } else {
+      executor = null;
+      inFlightBatches = null;
+    }
+  }
+
+  private static SolrSearchSinkConfig createConfig(Configuration conf) {
+    return new SolrSearchSinkConfig(null, conf.get(SERVER_MODE), conf.get(SERVER_URL), conf.get(COLLECTION_NAME),
+                                    conf.get(KEY_FIELD), conf.get(FIELD_MAPPINGS));
   }
 
   @Override
-  public void write(Text key, Text value) throws IOException {
-    String solrFieldName;
-    SolrInputDocument document = new SolrInputDocument();
+  public void write(NullWritable key, StructuredRecord record) throws IOException {
+    if (record.get(config.getKeyField()) == null) {
+      throw new IllegalArgumentException(
+        String.format("Record does not have a value for the key field '%s'.", config.getKeyField()));
+    }
+    documentList.add(converters.get(record.getSchema()).toDocument(record));
+    if (documentList.size() == batchSize) {
+      flush();
+    }
+  }
 
-    Schema inputSchema = GSON.fromJson(key.toString(), SCHEMA_TYPE);
-    StructuredRecord structuredRecord = StructuredRecordStringConverter.fromJsonString(value.toString(), inputSchema);
-    for (Schema.Field field : structuredRecord.getSchema().getFields()) {
-      solrFieldName = field.getName();
-      if (outputFieldMap.containsKey(solrFieldName)) {
-        document.addField(outputFieldMap.get(solrFieldName), structuredRecord.get(solrFieldName));
-      } else {
-        document.addField(solrFieldName, structuredRecord.get(solrFieldName));
-      }
+  private void flush() throws IOException {
+    List<SolrInputDocument> batch = documentList;
+    documentList = new ArrayList<>(batchSize);
+    indexed = true;
+    if (executor == null) {
+      index(batch);
+      return;
     }
-    documentList.add(document);
+
+    checkFailure();
     try {
-      if (documentList.size() == batchSize) {
-        solrClient.add(documentList);
-        solrClient.commit();
-        documentList.clear();
+      inFlightBatches.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting to send documents to Solr.", e);
+    }
+    executor.execute(() -> {
+      try {
+        index(batch);
+      } catch (Exception e) {
+        failure.compareAndSet(null, e);
+      } finally {
+        inFlightBatches.release();
       }
+    });
+  }
+
+  private void index(List<SolrInputDocument> batch) throws IOException {
+    try {
+      solrClient.add(batch);
     } catch (SolrServerException e) {
       throw new IllegalArgumentException("Exception while indexing the documents to Solr. For more details, Please " +
                                            "check the logs.", e);
     }
   }
 
+  private void checkFailure() {
+    Exception e = failure.get();
+    if (e instanceof IllegalArgumentException) {
+      throw (IllegalArgumentException) e;
+    }
+    if (e != null) {
+      throw new IllegalArgumentException("Exception while indexing the documents to Solr. For more details, Please " +
+                                           "check the logs.", e);
+    }
+  }
+
   @Override
   public void close(TaskAttemptContext context) throws IOException, InterruptedException {
     try {
       if (!documentList.isEmpty()) {
-        solrClient.add(documentList);
+        flush();
+      }
+      if (executor != null) {
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        checkFailure();
+      }
+      if (indexed) {
         solrClient.commit();
       }
     } catch (SolrServerException e) {
-      throw new IllegalArgumentException("Exception while indexing the documents to Solr. For more details, Please " +
-                                           "check the logs.", e);
+      throw new IllegalArgumentException("Exception while committing the documents to Solr. For more details, " +
+                                           "Please check the logs.", e);
     } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
       documentList.clear();
       solrClient.shutdown();
     }
@@ -44,6 +44,7 @@ import io.cdap.cdap.test.TestConfiguration;
 import io.cdap.cdap.test.WorkflowManager;
 import io.cdap.plugin.batch.SolrSearchSink;
 import io.cdap.plugin.common.Constants;
+import io.cdap.plugin.common.SolrDocumentConverter;
 import io.cdap.plugin.common.SolrSearchSinkConfig;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
@@ -52,6 +53,7 @@ import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
@@ -444,4 +446,22 @@ public class SolrSearchSinkTest extends HydratorTestBase {
     MockPipelineConfigurer configurer = new MockPipelineConfigurer(inputSchema);
     sinkObject.configurePipeline(configurer);
   }
+
+  @Test
+  public void testDocumentConverter() {
+    SolrSearchSinkConfig config = new SolrSearchSinkConfig("SolrSink", SolrSearchSinkConfig.SINGLE_NODE_MODE,
+                                                           "localhost:8983", "collection1", "id",
+                                                           "office address:address,pincode:zip");
+    SolrDocumentConverter converter = new SolrDocumentConverter(inputSchema, config.createOutputFieldMap());
+    StructuredRecord record = StructuredRecord.builder(inputSchema).set("id", "1").set("firstname", "Brett")
+      .set("lastname", "Lee").set("office address", "NE lake side").set("pincode", 480001).build();
+
+    SolrInputDocument document = converter.toDocument(record);
+    Assert.assertEquals(ImmutableSet.of("id", "firstname", "lastname", "address", "zip"), document.getFieldNames());
+    Assert.assertEquals("1", document.getFieldValue("id"));
+    Assert.assertEquals("Brett", document.getFieldValue("firstname"));
+    Assert.assertEquals("Lee", document.getFieldValue("lastname"));
+    Assert.assertEquals("NE lake side", document.getFieldValue("address"));
+    Assert.assertEquals(480001, document.getFieldValue("zip"));
+  }
 }
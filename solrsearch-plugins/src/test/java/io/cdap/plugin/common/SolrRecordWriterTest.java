@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link SolrRecordWriter}, with a client that records the requests instead of sending them to Solr.
+ */
+public class SolrRecordWriterTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+  @Test
+  public void testWrite() throws Exception {
+    RecordingSolrClient client = new RecordingSolrClient();
+    TaskAttemptContext context = createContext(1);
+    SolrRecordWriter writer = new SolrRecordWriter(context, client);
+    for (int i = 0; i < 5; i++) {
+      writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA).set("id", "id" + i).set("name", "n" + i)
+        .build());
+    }
+    writer.close(context);
+
+    // batches of two, and the documents are committed once when the writer is closed
+    Assert.assertEquals(3, client.batches.size());
+    Assert.assertEquals(1, client.commits.get());
+    Assert.assertTrue(client.shutdown);
+    SolrInputDocument document = client.batches.get(0).get(1);
+    Assert.assertEquals("id1", document.getFieldValue("id"));
+    Assert.assertEquals("n1", document.getFieldValue("solr_name"));
+    Assert.assertNull(document.getField("name"));
+  }
+
+  @Test
+  public void testWriteParallel() throws Exception {
+    RecordingSolrClient client = new RecordingSolrClient();
+    TaskAttemptContext context = createContext(4);
+    SolrRecordWriter writer = new SolrRecordWriter(context, client);
+    for (int i = 0; i < 100; i++) {
+      writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA).set("id", "id" + i).build());
+    }
+    writer.close(context);
+
+    Assert.assertEquals(50, client.batches.size());
+    Assert.assertEquals(1, client.commits.get());
+  }
+
+  @Test
+  public void testNothingWritten() throws Exception {
+    RecordingSolrClient client = new RecordingSolrClient();
+    TaskAttemptContext context = createContext(1);
+    new SolrRecordWriter(context, client).close(context);
+
+    Assert.assertTrue(client.batches.isEmpty());
+    Assert.assertEquals(0, client.commits.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecordWithoutKey() throws Exception {
+    TaskAttemptContext context = createContext(1);
+    SolrRecordWriter writer = new SolrRecordWriter(context, new RecordingSolrClient());
+    writer.write(NullWritable.get(), StructuredRecord.builder(SCHEMA).set("name", "n").build());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSchemaWithoutKey() throws Exception {
+    TaskAttemptContext context = createContext(1);
+    SolrRecordWriter writer = new SolrRecordWriter(context, new RecordingSolrClient());
+    Schema schema = Schema.recordOf("other", Schema.Field.of("other", Schema.of(Schema.Type.STRING)));
+    writer.write(NullWritable.get(), StructuredRecord.builder(schema).set("other", "value").build());
+  }
+
+  private static TaskAttemptContext createContext(int writerThreads) {
+    Configuration conf = new Configuration();
+    conf.set(SolrRecordWriter.SERVER_MODE, SolrSearchSinkConfig.SINGLE_NODE_MODE);
+    conf.set(SolrRecordWriter.SERVER_URL, "localhost:8983");
+    conf.set(SolrRecordWriter.COLLECTION_NAME, "collection");
+    conf.set(SolrRecordWriter.KEY_FIELD, "id");
+    conf.set(SolrRecordWriter.FIELD_MAPPINGS, "name:solr_name");
+    conf.set(SolrRecordWriter.BATCH_SIZE, "2");
+    conf.set(SolrRecordWriter.INPUT_SCHEMA, SCHEMA.toString());
+    conf.setInt(SolrRecordWriter.WRITER_THREADS, writerThreads);
+    return new TaskAttemptContextImpl(conf, new TaskAttemptID());
+  }
+
+  /**
+   * A client that keeps the documents of every update request and counts the commits.
+   */
+  private static final class RecordingSolrClient extends SolrClient {
+    private final List<List<SolrInputDocument>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger commits = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    @Override
+    public NamedList<Object> request(SolrRequest request) {
+      UpdateRequest update = (UpdateRequest) request;
+      if (update.getDocuments() != null) {
+        batches.add(new ArrayList<>(update.getDocuments()));
+      }
+      if (update.getParams() != null && update.getParams().getBool(UpdateParams.COMMIT, false)) {
+        commits.incrementAndGet();
+      }
+      return new NamedList<>();
+    }
+
+    @Override
+    public void shutdown() {
+      shutdown = true;
+    }
+  }
+}
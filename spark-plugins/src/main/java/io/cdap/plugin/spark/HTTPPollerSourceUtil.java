@@ -16,6 +16,7 @@
 
 package io.cdap.plugin.spark;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.etl.api.streaming.StreamingContext;
 import io.cdap.plugin.common.http.HTTPPollConfig;
@@ -27,6 +28,13 @@ import org.apache.spark.streaming.receiver.Receiver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -44,11 +52,14 @@ class HTTPPollerSourceUtil {
 
   /**
    * Gets {@link JavaReceiverInputDStream} for {@link HTTPPollerSource}.
+   * At each interval, all the configured URLs are requested concurrently and the records of that poll are
+   * stored together as one block.
    *
    * @param conf {@link HTTPPollConfig} config
    */
   private static Receiver<StructuredRecord> getReceiver(HTTPPollConfig conf) {
     return new Receiver<StructuredRecord>(StorageLevel.MEMORY_ONLY()) {
+      private transient ExecutorService executor;
 
       @Override
       public StorageLevel storageLevel() {
@@ -57,35 +68,61 @@ class HTTPPollerSourceUtil {
 
       @Override
       public void onStart() {
+        List<HTTPRequestor> requestors = new ArrayList<>();
+        for (String url : conf.getUrls()) {
+          requestors.add(new HTTPRequestor(conf, url));
+        }
+        executor = Executors.newFixedThreadPool(requestors.size(), new ThreadFactoryBuilder()
+          .setNameFormat("http-poller-%d")
+          .setDaemon(true)
+          .build());
+        ExecutorService pollExecutor = executor;
+
         new Thread() {
           @Override
           public void run() {
-            HTTPRequestor httpRequestor = new HTTPRequestor(conf);
             while (!isStopped()) {
+              List<Future<StructuredRecord>> futures = new ArrayList<>(requestors.size());
               try {
-                store(httpRequestor.get());
-              } catch (Exception e) {
-                LOG.error("Error getting content from {}.", conf.getUrl(), e);
+                for (HTTPRequestor requestor : requestors) {
+                  futures.add(pollExecutor.submit(requestor::get));
+                }
+              } catch (RejectedExecutionException e) {
+                // the pool is shut down when the receiver is stopped
+                return;
               }
 
+              List<StructuredRecord> records = new ArrayList<>(requestors.size());
               try {
+                for (int i = 0; i < futures.size(); i++) {
+                  try {
+                    StructuredRecord record = futures.get(i).get();
+                    // null if the content did not change since the last poll
+                    if (record != null) {
+                      records.add(record);
+                    }
+                  } catch (ExecutionException e) {
+                    LOG.error("Error getting content from {}.", requestors.get(i).getUrl(), e.getCause());
+                  }
+                }
+                if (!records.isEmpty()) {
+                  store(records.iterator());
+                }
                 TimeUnit.SECONDS.sleep(conf.getInterval());
               } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+                // interrupted when the receiver is stopped
+                return;
               }
             }
           }
-
-          @Override
-          public void interrupt() {
-            super.interrupt();
-          }
         }.start();
       }
 
       @Override
       public void onStop() {
-        // no-op
+        if (executor != null) {
+          executor.shutdownNow();
+        }
       }
     };
   }
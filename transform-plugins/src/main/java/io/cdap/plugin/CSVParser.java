@@ -42,6 +42,7 @@ import org.apache.commons.csv.CSVRecord;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -81,6 +82,10 @@ public final class CSVParser extends Transform<StructuredRecord, StructuredRecor
   // List of fields specified in the schema.
   private List<Field> fields;
 
+  // The name of every output field and the converter from CSV text to its type, resolved once per task.
+  private String[] names;
+  private FieldConverter[] converters;
+
   // Format of CSV.
   private CSVFormat csvFormat = CSVFormat.DEFAULT;
 
@@ -185,6 +190,40 @@ public final class CSVParser extends Transform<StructuredRecord, StructuredRecor
     } catch (IOException e) {
       throw new IllegalArgumentException("Format of schema specified is invalid. Please check the format.");
     }
+
+    names = new String[fields.size()];
+    converters = new FieldConverter[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      names[i] = fields.get(i).getName();
+      converters[i] = createConverter(fields.get(i));
+    }
+  }
+
+  /**
+   * Creates the converter that turns the non-empty CSV text of a field into the value of the field.
+   */
+  private static FieldConverter createConverter(Field field) {
+    String name = field.getName();
+    Schema schema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+    if (schema.getLogicalType() != null) {
+      return (builder, value) -> builder.convertAndSet(name, value);
+    }
+    switch (schema.getType()) {
+      case STRING:
+        return (builder, value) -> builder.set(name, value);
+      case BOOLEAN:
+        return (builder, value) -> builder.set(name, Boolean.parseBoolean(value));
+      case INT:
+        return (builder, value) -> builder.set(name, Integer.parseInt(value));
+      case LONG:
+        return (builder, value) -> builder.set(name, Long.parseLong(value));
+      case FLOAT:
+        return (builder, value) -> builder.set(name, Float.parseFloat(value));
+      case DOUBLE:
+        return (builder, value) -> builder.set(name, Double.parseDouble(value));
+      default:
+        return (builder, value) -> builder.convertAndSet(name, value);
+    }
   }
 
   @Override
@@ -192,15 +231,25 @@ public final class CSVParser extends Transform<StructuredRecord, StructuredRecor
     // Field has to string to be parsed correctly. For others throw an exception.
     String body = in.get(config.field);
 
+    // The output fields that are present in the input are copied from it for every row of the body.
+    Object[] inputValues = new Object[names.length];
+    for (int i = 0; i < names.length; i++) {
+      inputValues[i] = in.get(names[i]);
+    }
+
     // Parse the text as CSV and emit it as structured record.
     try {
       if (body == null) {
-        emitter.emit(createStructuredRecord(null, in));
+        emitter.emit(createStructuredRecord(null, inputValues));
       } else {
-        org.apache.commons.csv.CSVParser parser = org.apache.commons.csv.CSVParser.parse(body, csvFormat);
-        List<CSVRecord> records = parser.getRecords();
-        for (CSVRecord record : records) {
-          emitter.emit(createStructuredRecord(record, in));
+        // rows are emitted as they are parsed, so the rows before a malformed row are emitted as well as the
+        // error for the body
+        try (org.apache.commons.csv.CSVParser parser = org.apache.commons.csv.CSVParser.parse(body, csvFormat)) {
+          Iterator<CSVRecord> iterator = parser.iterator();
+          CSVRecord record;
+          while ((record = nextRecord(iterator)) != null) {
+            emitter.emit(createStructuredRecord(record, inputValues));
+          }
         }
       }
     } catch (IOException e) {
@@ -208,24 +257,43 @@ public final class CSVParser extends Transform<StructuredRecord, StructuredRecor
     }
   }
 
-  private StructuredRecord createStructuredRecord(@Nullable CSVRecord record, StructuredRecord in) {
+  /**
+   * Returns the next row of the parser, or null if there are no more rows.
+   *
+   * @throws IOException if the row cannot be parsed
+   */
+  @Nullable
+  private static CSVRecord nextRecord(Iterator<CSVRecord> iterator) throws IOException {
+    try {
+      return iterator.hasNext() ? iterator.next() : null;
+    } catch (RuntimeException e) {
+      // the iterator wraps parse errors, since Iterator methods cannot throw checked exceptions
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private StructuredRecord createStructuredRecord(@Nullable CSVRecord record, Object[] inputValues) {
     StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
     int i = 0;
-    for (Field field : fields) {
-      String name = field.getName();
+    for (int index = 0; index < names.length; index++) {
+      String name = names[index];
       // If the field specified in the output field is present in the input, then
       // it's directly copied into the output, else field is parsed in from the CSV parser.
       // If the input record is null, propagate all supplied input fields and null other fields
       // assumed to be CSV-parsed fields
-      if (in.get(name) != null) {
-        builder.set(name, in.get(name));
+      if (inputValues[index] != null) {
+        builder.set(name, inputValues[index]);
       } else if (record == null) {
         builder.set(name, null);
       } else {
         String val = record.get(i);
-        Schema fieldSchema = field.getSchema();
 
         if (val.isEmpty()) {
+          Field field = fields.get(index);
+          Schema fieldSchema = field.getSchema();
           boolean isNullable = fieldSchema.isNullable();
           Schema.Type fieldType = isNullable ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
           // if the field is a string or a nullable string, set the value to the empty string
@@ -239,7 +307,7 @@ public final class CSVParser extends Transform<StructuredRecord, StructuredRecor
               i, field.getName(), field.getSchema().getType(), record));
           }
         } else {
-          builder.convertAndSet(field.getName(), val);
+          converters[index].convert(builder, val);
         }
         ++i;
       }
@@ -372,4 +440,11 @@ public final class CSVParser extends Transform<StructuredRecord, StructuredRecor
       throw collector.getOrThrowException();
     }
   }
+
+  /**
+   * Sets the value of an output field from its non-empty CSV text.
+   */
+  private interface FieldConverter {
+    void convert(StructuredRecord.Builder builder, String value);
+  }
 }
@@ -16,6 +16,8 @@
 
 package io.cdap.plugin;
 
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdException;
 import com.google.common.collect.Maps;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
@@ -30,17 +32,17 @@ import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
+import net.jpountz.lz4.LZ4CompressorWithLength;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xerial.snappy.Snappy;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.zip.Deflater;
 import javax.annotation.Nullable;
 
 /**
@@ -51,6 +53,7 @@ import javax.annotation.Nullable;
 @Description("Compresses configured fields using the algorithms specified.")
 public final class Compressor extends Transform<StructuredRecord, StructuredRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(Compressor.class);
+  private static final int DEFAULT_ZSTD_LEVEL = 3;
   private final Config config;
 
   // Output Schema associated with transform output.
@@ -61,6 +64,14 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
 
   private final Map<String, CompressorType> compMap = Maps.newTreeMap();
 
+  // Compression level of the fields that are configured with one.
+  private final Map<String, Integer> levels = Maps.newHashMap();
+
+  // Deflaters and LZ4 compressors reused for all records of the task. The LZ4 compressor depends on the level,
+  // so there is one for each field.
+  private DeflateCodec deflateCodec;
+  private final Map<String, LZ4CompressorWithLength> lz4Compressors = Maps.newHashMap();
+
   // This is used only for tests, otherwise this is being injected by the ingestion framework.
   public Compressor(Config config) {
     this.config = config;
@@ -81,7 +92,7 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
     for (String fieldName : compMap.keySet()) {
       if (!outSchemaMap.containsKey(fieldName)) {
         collector.addFailure(String.format("Field '%s' must be in output schema.", fieldName), null)
-          .withConfigElement(Config.NAME_COMPRESSOR, fieldName + Config.SEPARATOR + compMap.get(fieldName));
+          .withConfigElement(Config.NAME_COMPRESSOR, getConfigElement(fieldName));
         continue;
       }
 
@@ -93,7 +104,7 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
                                            field.getName(), nonNullableSchema.getDisplayName()),
                              "Ensure the compress field is of type bytes.")
           .withOutputSchemaField(field.getName())
-          .withConfigElement(Config.NAME_COMPRESSOR, fieldName + Config.SEPARATOR + compMap.get(fieldName));
+          .withConfigElement(Config.NAME_COMPRESSOR, getConfigElement(fieldName));
       }
     }
 
@@ -104,7 +115,19 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
   @Override
   public void initialize(TransformContext context) throws Exception {
     super.initialize(context);
-    parseConfiguration(config.compressor, context.getFailureCollector());
+    FailureCollector collector = context.getFailureCollector();
+    parseConfiguration(config.compressor, collector);
+    collector.getOrThrowException();
+
+    deflateCodec = new DeflateCodec();
+    for (Map.Entry<String, CompressorType> entry : compMap.entrySet()) {
+      if (entry.getValue() == CompressorType.LZ4) {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        Integer level = levels.get(entry.getKey());
+        lz4Compressors.put(entry.getKey(), new LZ4CompressorWithLength(
+          level == null ? factory.fastCompressor() : factory.highCompressor(level)));
+      }
+    }
     try {
       outSchema = Schema.parseJson(config.schema);
       List<Field> outFields = outSchema.getFields();
@@ -165,12 +188,17 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
         // value.
         byte[] outValue = new byte[0];
         CompressorType type = compMap.get(name);
+        Integer level = levels.get(name);
         if (type == CompressorType.SNAPPY) {
           outValue = Snappy.compress(obj);
         } else if (type == CompressorType.ZIP) {
-          outValue = zip(obj);
+          outValue = deflateCodec.zip(obj, level == null ? Deflater.BEST_COMPRESSION : level);
         } else if (type == CompressorType.GZIP) {
-          outValue = gzip(obj);
+          outValue = deflateCodec.gzip(obj, level == null ? Deflater.DEFAULT_COMPRESSION : level);
+        } else if (type == CompressorType.LZ4) {
+          outValue = lz4(lz4Compressors.get(name), obj);
+        } else if (type == CompressorType.ZSTD) {
+          outValue = zstd(obj, level == null ? DEFAULT_ZSTD_LEVEL : level);
         }
 
         // Depending on the output field type, either convert it to 
@@ -188,54 +216,40 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
     emitter.emit(builder.build());
   }
 
-  private static byte[] gzip(byte[] input) {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    GZIPOutputStream gzip = null;
-    try {
-      gzip = new GZIPOutputStream(out);
-      gzip.write(input, 0, input.length);
-    } catch (IOException e) {
-      // These are all in memory operations, so this should not happen. 
-      // But, if it happens then we just return null. Logging anything 
-      // here can be noise.
-      return null;
-    } finally {
-      if (gzip != null) {
-        try {
-          gzip.close();
-        } catch (IOException e) {
-          return null;
-        }
-      }
+  @Override
+  public void destroy() {
+    super.destroy();
+    if (deflateCodec != null) {
+      deflateCodec.close();
     }
-
-    return out.toByteArray();
   }
 
-  private byte[] zip(byte[] input) {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    ZipOutputStream zos = new ZipOutputStream(out);
+  /**
+   * Compresses using LZ4 Algorithm.
+   */
+  @Nullable
+  private static byte[] lz4(LZ4CompressorWithLength compressor, byte[] body) {
     try {
-      zos.setLevel(9);
-      zos.putNextEntry(new ZipEntry("c"));
-      zos.write(input, 0, input.length);
-      zos.finish();
-    } catch (IOException e) {
-      // These are all in memory operations, so this should not happen. 
-      // But, if it happens then we just return null. Logging anything 
-      // here can be noise. 
-      return null;
-    } finally {
-      try {
-        if (zos != null) {
-          zos.close();
-        }
-      } catch (IOException e) {
-        return null;
-      }
+      return compressor.compress(body);
+    } catch (LZ4Exception e) {
+      // The value is too large to be compressed.
+      // Logging here is not an option.
     }
+    return null;
+  }
 
-    return out.toByteArray();
+  /**
+   * Compresses using Zstandard Algorithm.
+   */
+  @Nullable
+  private static byte[] zstd(byte[] body, int level) {
+    try {
+      return Zstd.compress(body, level);
+    } catch (ZstdException e) {
+      // The value is too large to be compressed.
+      // Logging here is not an option.
+    }
+    return null;
   }
 
   /**
@@ -243,14 +257,25 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
    */
   private enum CompressorType {
     SNAPPY("SNAPPY"),
-    ZIP("ZIP"),
-    GZIP("GZIP"),
+    ZIP("ZIP", Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION),
+    GZIP("GZIP", Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION),
+    LZ4("LZ4", 1, 17),
+    ZSTD("ZSTD", 1, 22),
     NONE("NONE");
 
     private String type;
+    // the range of compression levels of the algorithm, which is empty if it has no levels
+    private final int minLevel;
+    private final int maxLevel;
 
     CompressorType(String type) {
+      this(type, 0, -1);
+    }
+
+    CompressorType(String type, int minLevel, int maxLevel) {
       this.type = type;
+      this.minLevel = minLevel;
+      this.maxLevel = maxLevel;
     }
 
     String getType() {
@@ -263,9 +288,9 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
     for (String mapping : mappings) {
       String[] params = mapping.split(Config.SEPARATOR);
 
-      if (params.length < 2) {
+      if (params.length < 2 || params.length > 3) {
         collector.addFailure(String.format("Configuration '%s' is incorrectly formed.", mapping),
-                             "Specify the configuration in the format <fieldname>:<compressor-type>.")
+                             "Specify the configuration in the format <fieldname>:<compressor-type>[:<level>].")
           .withConfigProperty(Config.NAME_COMPRESSOR);
         continue;
       }
@@ -282,7 +307,50 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
       }
 
       compMap.put(field, cType);
+      if (params.length == 3) {
+        Integer level = parseLevel(mapping, cType, params[2], collector);
+        if (level != null) {
+          levels.put(field, level);
+        }
+      }
+    }
+  }
+
+  @Nullable
+  private static Integer parseLevel(String mapping, CompressorType type, String value,
+                                    FailureCollector collector) {
+    if (type.minLevel > type.maxLevel) {
+      collector.addFailure(String.format("Compressor '%s' does not support compression levels.", type.getType()),
+                           "Remove the level from the configuration.")
+        .withConfigElement(Config.NAME_COMPRESSOR, mapping);
+      return null;
+    }
+    int level;
+    try {
+      level = Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      collector.addFailure(String.format("Compression level '%s' is not a number.", value),
+                           String.format("Specify a level between %d and %d.", type.minLevel, type.maxLevel))
+        .withConfigElement(Config.NAME_COMPRESSOR, mapping);
+      return null;
+    }
+    if (level < type.minLevel || level > type.maxLevel) {
+      collector.addFailure(String.format("Compression level %d is not valid for compressor '%s'.",
+                                         level, type.getType()),
+                           String.format("Specify a level between %d and %d.", type.minLevel, type.maxLevel))
+        .withConfigElement(Config.NAME_COMPRESSOR, mapping);
+      return null;
     }
+    return level;
+  }
+
+  /**
+   * Returns the element of the compressor configuration for a field, as it was configured.
+   */
+  private String getConfigElement(String fieldName) {
+    String element = fieldName + Config.SEPARATOR + compMap.get(fieldName);
+    Integer level = levels.get(fieldName);
+    return level == null ? element : element + Config.SEPARATOR + level;
   }
 
   private void validateInputSchema(@Nullable Schema inputSchema, FailureCollector collector) {
@@ -301,7 +369,7 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
                                              field.getName(), nonNullableSchema.getDisplayName()),
                                "Supported input types are bytes and string.")
             .withInputSchemaField(field.getName())
-            .withConfigElement(Config.NAME_COMPRESSOR, fieldName + Config.SEPARATOR + compMap.get(fieldName));
+            .withConfigElement(Config.NAME_COMPRESSOR, getConfigElement(fieldName));
         }
       }
     }
@@ -325,8 +393,8 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
     private static final String SEPARATOR = ":";
 
     @Name(NAME_COMPRESSOR)
-    @Description("Specify the field and compression type combination. " +
-      "Format is <field>:<compressor-type>[,<field>:<compressor-type>]*")
+    @Description("Specify the field and compression type combination, optionally followed by the compression " +
+      "level. Format is <field>:<compressor-type>[:<level>][,<field>:<compressor-type>[:<level>]]*")
     private final String compressor;
 
     @Name(NAME_SCHEMA)
@@ -16,6 +16,10 @@
 
 package io.cdap.plugin;
 
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdException;
+import com.github.luben.zstd.ZstdInputStream;
+import com.google.common.io.ByteStreams;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
@@ -28,20 +32,21 @@ import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xerial.snappy.Snappy;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipException;
 import javax.annotation.Nullable;
 
 /**
@@ -52,6 +57,11 @@ import javax.annotation.Nullable;
 @Description("Decompresses configured fields using the algorithms specified.")
 public final class Decompressor extends Transform<StructuredRecord, StructuredRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(Decompressor.class);
+  // the size of the largest array that can be allocated
+  private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+  // LZ4 can't expand a block by more than this factor, so a larger length prefix means that the data is corrupt
+  private static final int LZ4_MAX_RATIO = 255;
+  private static final int LZ4_LENGTH_SIZE = 4;
   private final Config config;
 
   // Output Schema associated with transform output.
@@ -63,6 +73,10 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
   // Map of field to decompressor type.
   private final Map<String, DecompressorType> deCompMap = new TreeMap<>();
 
+  // Inflater and LZ4 decompressor reused for all records of the task.
+  private DeflateCodec deflateCodec;
+  private LZ4SafeDecompressor lz4Decompressor;
+
   // This is used only for tests, otherwise this is being injected by the ingestion framework.
   public Decompressor(Config config) {
     this.config = config;
@@ -112,6 +126,11 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
     parseConfiguration(config.decompressor, collector);
     collector.getOrThrowException();
 
+    deflateCodec = new DeflateCodec();
+    if (deCompMap.containsValue(DecompressorType.LZ4)) {
+      lz4Decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+    }
+
     try {
       outSchema = Schema.parseJson(config.schema);
       List<Field> outFields = outSchema.getFields();
@@ -170,6 +189,10 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
           outValue = unzip(obj);
         } else if (type == DecompressorType.GZIP) {
           outValue = ungzip(obj);
+        } else if (type == DecompressorType.LZ4) {
+          outValue = unlz4(obj);
+        } else if (type == DecompressorType.ZSTD) {
+          outValue = unzstd(obj);
         }
 
         // Depending on the output field type, either convert it to
@@ -186,25 +209,22 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
     emitter.emit(builder.build());
   }
 
+  @Override
+  public void destroy() {
+    super.destroy();
+    if (deflateCodec != null) {
+      deflateCodec.close();
+    }
+  }
+
   /**
    * Decompresses using GZIP Algorithm. 
    */
   private byte[] ungzip(byte[] body) {
-    ByteArrayInputStream bytein = new ByteArrayInputStream(body);
-    try (GZIPInputStream gzin = new GZIPInputStream(bytein);
-         ByteArrayOutputStream byteout = new ByteArrayOutputStream()) {
-      int res = 0;
-      byte buf[] = new byte[1024];
-      while (res >= 0) {
-        res = gzin.read(buf, 0, buf.length);
-        if (res > 0) {
-          byteout.write(buf, 0, res);
-        }
-      }
-      byte uncompressed[] = byteout.toByteArray();
-      return uncompressed;
-    } catch (IOException e) {
-      // Most of operations here are in memory. So, we shouldn't get here.
+    try {
+      return deflateCodec.gunzip(body);
+    } catch (ZipException e) {
+      // The data is not valid GZIP data.
       // Logging here is not an option.
     }
     return null;
@@ -214,21 +234,62 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
    * Decompresses using ZIP Algorithm.
    */
   private byte[] unzip(byte[] body)  {
-    ZipEntry ze;
-    byte buf[] = new byte[1024];
-    try (ByteArrayOutputStream bao = new ByteArrayOutputStream();
-         ByteArrayInputStream bytein = new ByteArrayInputStream(body);
-         ZipInputStream zis = new ZipInputStream(bytein)) {
-      while ((ze = zis.getNextEntry()) != null) {
-        int l = 0;
-        while ((l = zis.read(buf)) > 0) {
-          bao.write(buf, 0, l);
-        }
+    try {
+      return deflateCodec.unzip(body);
+    } catch (ZipException e) {
+      // The data is not a valid ZIP archive.
+      // Logging here is not an option.
+    }
+    return null;
+  }
+
+  /**
+   * Decompresses an LZ4 block that is prefixed with the length of its content, as written by
+   * {@link net.jpountz.lz4.LZ4CompressorWithLength}.
+   */
+  private byte[] unlz4(byte[] body) {
+    if (body.length < LZ4_LENGTH_SIZE) {
+      return null;
+    }
+    // the length is in little endian byte order
+    int length = (body[0] & 0xff) | (body[1] & 0xff) << 8 | (body[2] & 0xff) << 16 | (body[3] & 0xff) << 24;
+    if (length < 0 || length > (long) (body.length - LZ4_LENGTH_SIZE) * LZ4_MAX_RATIO) {
+      return null;
+    }
+    byte[] content = new byte[length];
+    try {
+      int decompressed = lz4Decompressor.decompress(body, LZ4_LENGTH_SIZE, body.length - LZ4_LENGTH_SIZE,
+                                                    content, 0, length);
+      if (decompressed == length) {
+        return content;
       }
-      return bao.toByteArray();
-    } catch (IOException e) {
-      // Most of operations here are in memory. So, we shouldn't get here.
-      // Logging here is not an option.       
+    } catch (LZ4Exception e) {
+      // The data is not a valid LZ4 block.
+      // Logging here is not an option.
+    }
+    return null;
+  }
+
+  /**
+   * Decompresses using Zstandard Algorithm.
+   */
+  private static byte[] unzstd(byte[] body) {
+    long size = Zstd.decompressedSize(body);
+    if (size > MAX_ARRAY_SIZE) {
+      // The size in the frame is corrupt, or the content is too large to be decompressed into an array.
+      return null;
+    }
+    try {
+      if (size > 0) {
+        return Zstd.decompress(body, (int) size);
+      }
+      // Frames written by streaming compressors do not record the size of their content.
+      try (InputStream in = new ZstdInputStream(new ByteArrayInputStream(body))) {
+        return ByteStreams.toByteArray(in);
+      }
+    } catch (ZstdException | IOException e) {
+      // The data is not a valid Zstandard frame.
+      // Logging here is not an option.
     }
     return null;
   }
@@ -240,6 +301,8 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
     SNAPPY("SNAPPY"),
     ZIP("ZIP"),
     GZIP("GZIP"),
+    LZ4("LZ4"),
+    ZSTD("ZSTD"),
     NONE("NONE");
 
     private String type;
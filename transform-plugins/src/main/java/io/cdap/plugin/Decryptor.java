@@ -34,9 +34,11 @@ import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.plugin.common.FieldEncryptor;
 import io.cdap.plugin.common.KeystoreConf;
+import io.cdap.plugin.common.SchemaCache;
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
 import javax.crypto.Cipher;
@@ -53,6 +55,8 @@ public final class Decryptor extends Transform<StructuredRecord, StructuredRecor
   private Schema schema;
   private FieldEncryptor fieldEncryptor;
 
+  private final SchemaCache<DecryptionPlan> plans = new SchemaCache<>(DecryptionPlan::new);
+
   public Decryptor(Conf conf) {
     this.conf = conf;
   }
@@ -81,26 +85,21 @@ public final class Decryptor extends Transform<StructuredRecord, StructuredRecor
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
+    DecryptionPlan plan = plans.get(in.getSchema());
     StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
-    for (Field field : in.getSchema().getFields()) {
-      if (decryptFields.contains(field.getName())) {
-        Schema fieldSchema = field.getSchema();
-        Schema targetSchema = schema.getField(field.getName()).getSchema();
-        Object val = in.get(field.getName());
-        if (fieldSchema.isNullable() && val == null) {
-          recordBuilder.set(field.getName(), null);
-        } else {
-          Schema.Type fieldType =
-            fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
-          if (fieldType != Schema.Type.BYTES) {
-            throw new IllegalArgumentException(String.format(
-              "Cannot decrypt field '%s' because it is of type '%s' instead of bytes.",
-              field.getName(), fieldType));
-          }
-          recordBuilder.set(field.getName(), fieldEncryptor.decrypt((byte[]) val, targetSchema));
-        }
+    for (int i = 0; i < plan.fieldNames.length; i++) {
+      Object val = in.get(plan.fieldNames[i]);
+      if (plan.targetSchemas[i] == null) {
+        recordBuilder.set(plan.fieldNames[i], val);
+      } else if (val == null) {
+        recordBuilder.set(plan.fieldNames[i], null);
       } else {
-        recordBuilder.set(field.getName(), in.get(field.getName()));
+        if (plan.fieldTypes[i] != Schema.Type.BYTES) {
+          throw new IllegalArgumentException(String.format(
+            "Cannot decrypt field '%s' because it is of type '%s' instead of bytes.",
+            plan.fieldNames[i], plan.fieldTypes[i]));
+        }
+        recordBuilder.set(plan.fieldNames[i], fieldEncryptor.decrypt((byte[]) val, plan.targetSchemas[i]));
       }
     }
     emitter.emit(recordBuilder.build());
@@ -134,6 +133,31 @@ public final class Decryptor extends Transform<StructuredRecord, StructuredRecor
     }
   }
 
+  /**
+   * The fields of an input schema, with the output schema of each field that is decrypted.
+   */
+  private final class DecryptionPlan {
+    private final String[] fieldNames;
+    private final Schema.Type[] fieldTypes;
+    // the output schema of each field that is decrypted, or null if the field is copied as is
+    private final Schema[] targetSchemas;
+
+    private DecryptionPlan(Schema inputSchema) {
+      List<Field> fields = inputSchema.getFields();
+      this.fieldNames = new String[fields.size()];
+      this.fieldTypes = new Schema.Type[fields.size()];
+      this.targetSchemas = new Schema[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        Schema fieldSchema = fields.get(i).getSchema();
+        fieldNames[i] = fields.get(i).getName();
+        fieldTypes[i] = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
+        if (decryptFields.contains(fieldNames[i])) {
+          targetSchemas[i] = schema.getField(fieldNames[i]).getSchema();
+        }
+      }
+    }
+  }
+
   /**
    * Decryptor Plugin config.
    */
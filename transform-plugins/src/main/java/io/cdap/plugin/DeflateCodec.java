@@ -0,0 +1,360 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Writes and reads GZIP and ZIP data in memory with {@link Deflater Deflaters} and an {@link Inflater} that are
+ * created once and reset for every value, instead of the new native zlib stream that every
+ * {@link java.util.zip.GZIPOutputStream} or {@link java.util.zip.ZipInputStream} allocates. The output buffer is
+ * reused as well, so compressing a value only allocates the returned array.
+ *
+ * Instances are not thread safe and must be closed to release the native memory.
+ */
+final class DeflateCodec implements AutoCloseable {
+  private static final int GZIP_MAGIC = 0x8b1f;
+  private static final int GZIP_HEADER_SIZE = 10;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+  // the header that GZIPOutputStream writes, whose operating system field differs between Java versions
+  private static final byte[] GZIP_HEADER = getGzipHeader();
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int DESCRIPTOR_SIGNATURE = 0x08074b50;
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+  private static final int ENCRYPTED = 1;
+  private static final int HAS_DESCRIPTOR = 8;
+  private static final int ZIP_VERSION = 20;
+  // 1980-01-01 00:00, the earliest time that can be stored in a zip entry
+  private static final int ZIP_DATE = (1 << 5) | 1;
+  // the name of the single entry of a compressed value, as written by earlier versions of the plugin
+  private static final byte ENTRY_NAME = 'c';
+
+  // one deflater per level from Deflater.DEFAULT_COMPRESSION to Deflater.BEST_COMPRESSION, created when first used
+  private final Deflater[] deflaters = new Deflater[Deflater.BEST_COMPRESSION + 2];
+  private final CRC32 crc = new CRC32();
+  private Inflater inflater;
+  private byte[] out = new byte[8192];
+  private int size;
+
+  /**
+   * Compresses a value into a single GZIP member with the same header as {@link GZIPOutputStream}, so at the
+   * default level the output is the same as that of the stream.
+   */
+  byte[] gzip(byte[] input, int level) {
+    size = 0;
+    for (byte b : GZIP_HEADER) {
+      writeByte(b);
+    }
+    deflate(input, level);
+    crc.reset();
+    crc.update(input, 0, input.length);
+    writeInt((int) crc.getValue());
+    writeInt(input.length);
+    return Arrays.copyOf(out, size);
+  }
+
+  /**
+   * Compresses a value into a ZIP archive with a single entry.
+   */
+  byte[] zip(byte[] input, int level) {
+    // the sizes of the entry are only known after compressing it, so the local header is filled in afterwards
+    size = LOCAL_HEADER_SIZE;
+    writeByte(ENTRY_NAME);
+    deflate(input, level);
+    int compressedSize = size - LOCAL_HEADER_SIZE - 1;
+    crc.reset();
+    crc.update(input, 0, input.length);
+    int checksum = (int) crc.getValue();
+
+    int centralHeader = size;
+    size = 0;
+    writeInt(LOCAL_HEADER_SIGNATURE);
+    writeEntryHeader(checksum, compressedSize, input.length);
+    writeShort(0);
+
+    size = centralHeader;
+    writeInt(CENTRAL_HEADER_SIGNATURE);
+    writeShort(ZIP_VERSION);
+    writeEntryHeader(checksum, compressedSize, input.length);
+    // extra field, comment, disk number, attributes and offset of the local header
+    writeShort(0);
+    writeShort(0);
+    writeShort(0);
+    writeShort(0);
+    writeInt(0);
+    writeInt(0);
+    writeByte(ENTRY_NAME);
+
+    writeInt(END_SIGNATURE);
+    writeShort(0);
+    writeShort(0);
+    writeShort(1);
+    writeShort(1);
+    writeInt(CENTRAL_HEADER_SIZE + 1);
+    writeInt(centralHeader);
+    writeShort(0);
+    return Arrays.copyOf(out, size);
+  }
+
+  /**
+   * Decompresses GZIP data, including data made of several concatenated GZIP members.
+   *
+   * @throws ZipException if the data is not valid GZIP data
+   */
+  byte[] gunzip(byte[] input) throws ZipException {
+    size = 0;
+    int pos = 0;
+    do {
+      pos = skipGzipHeader(input, pos);
+      int start = size;
+      pos = inflate(input, pos, input.length - pos);
+      crc.reset();
+      crc.update(out, start, size - start);
+      if (pos + 8 > input.length || getInt(input, pos) != (int) crc.getValue()
+        || getInt(input, pos + 4) != size - start) {
+        throw new ZipException("Corrupt GZIP trailer");
+      }
+      pos += 8;
+      // like GZIPInputStream, bytes after the last member that are not another member are ignored
+    } while (pos + 2 <= input.length && getShort(input, pos) == GZIP_MAGIC);
+    return Arrays.copyOf(out, size);
+  }
+
+  /**
+   * Decompresses the entries of a ZIP archive and concatenates their contents.
+   *
+   * @throws ZipException if the data is not a valid ZIP archive or uses features that are not supported
+   */
+  byte[] unzip(byte[] input) throws ZipException {
+    size = 0;
+    int pos = 0;
+    while (pos + LOCAL_HEADER_SIZE <= input.length && getInt(input, pos) == LOCAL_HEADER_SIGNATURE) {
+      int flags = getShort(input, pos + 6);
+      int method = getShort(input, pos + 8);
+      int checksum = getInt(input, pos + 14);
+      int compressedSize = getInt(input, pos + 18);
+      int start = pos + LOCAL_HEADER_SIZE + getShort(input, pos + 26) + getShort(input, pos + 28);
+      if ((flags & ENCRYPTED) != 0) {
+        throw new ZipException("encrypted ZIP entry not supported");
+      }
+      if (start > input.length) {
+        throw new ZipException("Unexpected end of ZIP input");
+      }
+
+      int entryStart = size;
+      if (method == STORED) {
+        if ((flags & HAS_DESCRIPTOR) != 0) {
+          throw new ZipException("only DEFLATED entries can have EXT descriptor");
+        }
+        if (compressedSize < 0 || start + compressedSize > input.length) {
+          throw new ZipException("Unexpected end of ZIP input");
+        }
+        ensureCapacity(compressedSize);
+        System.arraycopy(input, start, out, size, compressedSize);
+        size += compressedSize;
+        pos = start + compressedSize;
+      } else if (method == DEFLATED) {
+        pos = inflate(input, start, input.length - start);
+        if ((flags & HAS_DESCRIPTOR) != 0) {
+          // the checksum and the sizes follow the data, optionally after a signature
+          compressedSize = pos - start;
+          if (pos + 4 <= input.length && getInt(input, pos) == DESCRIPTOR_SIGNATURE) {
+            pos += 4;
+          }
+          if (pos + 12 > input.length) {
+            throw new ZipException("Unexpected end of ZIP input");
+          }
+          checksum = getInt(input, pos);
+          // zip64 entries have 8 byte sizes
+          boolean zip64 = getInt(input, pos + 4) != compressedSize || getInt(input, pos + 8) != size - entryStart;
+          pos += zip64 ? 20 : 12;
+        }
+      } else {
+        throw new ZipException("invalid compression method");
+      }
+
+      crc.reset();
+      crc.update(out, entryStart, size - entryStart);
+      if ((int) crc.getValue() != checksum) {
+        throw new ZipException("invalid entry CRC");
+      }
+    }
+    return Arrays.copyOf(out, size);
+  }
+
+  @Override
+  public void close() {
+    for (Deflater deflater : deflaters) {
+      if (deflater != null) {
+        deflater.end();
+      }
+    }
+    Arrays.fill(deflaters, null);
+    if (inflater != null) {
+      inflater.end();
+      inflater = null;
+    }
+  }
+
+  private void deflate(byte[] input, int level) {
+    Deflater deflater = deflaters[level + 1];
+    if (deflater == null) {
+      deflater = new Deflater(level, true);
+      deflaters[level + 1] = deflater;
+    }
+    deflater.reset();
+    deflater.setInput(input);
+    deflater.finish();
+    while (!deflater.finished()) {
+      ensureCapacity(1);
+      size += deflater.deflate(out, size, out.length - size);
+    }
+  }
+
+  /**
+   * Inflates a raw deflate stream into the output buffer and returns the position after its end.
+   */
+  private int inflate(byte[] input, int offset, int length) throws ZipException {
+    if (inflater == null) {
+      inflater = new Inflater(true);
+    }
+    inflater.reset();
+    inflater.setInput(input, offset, length);
+    try {
+      while (!inflater.finished()) {
+        ensureCapacity(1);
+        int inflated = inflater.inflate(out, size, out.length - size);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new ZipException("Unexpected end of ZLIB input stream");
+        }
+        size += inflated;
+      }
+    } catch (DataFormatException e) {
+      String message = e.getMessage();
+      throw new ZipException(message == null ? "Invalid ZLIB data format" : message);
+    }
+    return offset + length - inflater.getRemaining();
+  }
+
+  private static byte[] getGzipHeader() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      // the stream writes its header when it is created
+      new GZIPOutputStream(bytes).close();
+    } catch (IOException e) {
+      // this can't happen, since the data is written to memory
+      throw new UncheckedIOException(e);
+    }
+    return Arrays.copyOf(bytes.toByteArray(), GZIP_HEADER_SIZE);
+  }
+
+  private static int skipGzipHeader(byte[] input, int pos) throws ZipException {
+    if (pos + GZIP_HEADER_SIZE > input.length || getShort(input, pos) != GZIP_MAGIC) {
+      throw new ZipException("Not in GZIP format");
+    }
+    if ((input[pos + 2] & 0xff) != DEFLATED) {
+      throw new ZipException("Unsupported compression method");
+    }
+    int flags = input[pos + 3] & 0xff;
+    pos += GZIP_HEADER_SIZE;
+    if ((flags & FEXTRA) != 0) {
+      pos += 2 + (pos + 2 <= input.length ? getShort(input, pos) : 0);
+    }
+    if ((flags & FNAME) != 0) {
+      pos = skipString(input, pos);
+    }
+    if ((flags & FCOMMENT) != 0) {
+      pos = skipString(input, pos);
+    }
+    if ((flags & FHCRC) != 0) {
+      pos += 2;
+    }
+    if (pos > input.length) {
+      throw new ZipException("Unexpected end of GZIP header");
+    }
+    return pos;
+  }
+
+  private static int skipString(byte[] input, int pos) {
+    while (pos < input.length && input[pos] != 0) {
+      pos++;
+    }
+    return pos + 1;
+  }
+
+  private static int getShort(byte[] input, int pos) {
+    return (input[pos] & 0xff) | (input[pos + 1] & 0xff) << 8;
+  }
+
+  private static int getInt(byte[] input, int pos) {
+    return getShort(input, pos) | getShort(input, pos + 2) << 16;
+  }
+
+  /**
+   * Writes the fields that the local and the central header of the entry have in common, up to the name length.
+   */
+  private void writeEntryHeader(int checksum, int compressedSize, int uncompressedSize) {
+    writeShort(ZIP_VERSION);
+    writeShort(0);
+    writeShort(DEFLATED);
+    writeShort(0);
+    writeShort(ZIP_DATE);
+    writeInt(checksum);
+    writeInt(compressedSize);
+    writeInt(uncompressedSize);
+    writeShort(1);
+  }
+
+  private void ensureCapacity(int length) {
+    if (size + length > out.length) {
+      out = Arrays.copyOf(out, Math.max(out.length * 2, size + length));
+    }
+  }
+
+  private void writeByte(int value) {
+    ensureCapacity(1);
+    out[size++] = (byte) value;
+  }
+
+  private void writeShort(int value) {
+    writeByte(value);
+    writeByte(value >>> 8);
+  }
+
+  private void writeInt(int value) {
+    writeShort(value);
+    writeShort(value >>> 16);
+  }
+}
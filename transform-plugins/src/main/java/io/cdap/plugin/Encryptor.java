@@ -31,6 +31,7 @@ import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.plugin.common.FieldEncryptor;
 import io.cdap.plugin.common.KeystoreConf;
+import io.cdap.plugin.common.SchemaCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,6 +53,8 @@ public final class Encryptor extends Transform<StructuredRecord, StructuredRecor
   private Set<String> encryptFields;
   private FieldEncryptor fieldEncryptor;
 
+  private final SchemaCache<EncryptionPlan> plans = new SchemaCache<>(EncryptionPlan::new);
+
   public Encryptor(Conf conf) {
     this.conf = conf;
   }
@@ -74,13 +77,14 @@ public final class Encryptor extends Transform<StructuredRecord, StructuredRecor
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
-    Schema schema = getOutputSchema(in.getSchema());
-    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
-    for (Field field : in.getSchema().getFields()) {
-      if (encryptFields.contains(field.getName())) {
-        recordBuilder.set(field.getName(), fieldEncryptor.encrypt(in.get(field.getName()), field.getSchema()));
+    EncryptionPlan plan = plans.get(in.getSchema());
+    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(plan.outputSchema);
+    for (int i = 0; i < plan.fieldNames.length; i++) {
+      Object value = in.get(plan.fieldNames[i]);
+      if (plan.encryptSchemas[i] != null) {
+        recordBuilder.set(plan.fieldNames[i], fieldEncryptor.encrypt(value, plan.encryptSchemas[i]));
       } else {
-        recordBuilder.set(field.getName(), in.get(field.getName()));
+        recordBuilder.set(plan.fieldNames[i], value);
       }
     }
     emitter.emit(recordBuilder.build());
@@ -98,6 +102,27 @@ public final class Encryptor extends Transform<StructuredRecord, StructuredRecor
     return Schema.recordOf(schema.getRecordName(), outputFields);
   }
 
+  /**
+   * The output schema and the fields to encrypt for an input schema.
+   */
+  private final class EncryptionPlan {
+    private final Schema outputSchema;
+    private final String[] fieldNames;
+    // the schema of each field that is encrypted, or null if the field is copied as is
+    private final Schema[] encryptSchemas;
+
+    private EncryptionPlan(Schema inputSchema) {
+      List<Field> fields = inputSchema.getFields();
+      this.fieldNames = new String[fields.size()];
+      this.encryptSchemas = new Schema[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        fieldNames[i] = fields.get(i).getName();
+        encryptSchemas[i] = encryptFields.contains(fieldNames[i]) ? fields.get(i).getSchema() : null;
+      }
+      this.outputSchema = getOutputSchema(inputSchema);
+    }
+  }
+
   /**
    * Decryptor Plugin config.
    */
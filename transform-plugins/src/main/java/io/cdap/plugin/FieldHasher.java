@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * Hashes values with one algorithm, reusing the digest instance and the output buffers for every value.
+ * Instances are not thread safe.
+ */
+final class FieldHasher {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * The supported hash algorithms.
+   */
+  enum Algorithm {
+    MD2("MD2", 16),
+    MD5("MD5", 16),
+    SHA1("SHA-1", 20),
+    SHA256("SHA-256", 32),
+    SHA384("SHA-384", 48),
+    SHA512("SHA-512", 64),
+    // non-cryptographic hashes, for bucketing and partitioning
+    XXHASH64(null, 8),
+    MURMUR3_128(null, 16);
+
+    // the name of the MessageDigest algorithm, or null if the hash is not a message digest
+    private final String digestName;
+    private final int length;
+
+    Algorithm(@Nullable String digestName, int length) {
+      this.digestName = digestName;
+      this.length = length;
+    }
+
+    /**
+     * @return the algorithm with the given case insensitive name, or null if there is no such algorithm
+     */
+    @Nullable
+    static Algorithm fromName(String name) {
+      for (Algorithm algorithm : values()) {
+        if (algorithm.name().equalsIgnoreCase(name)) {
+          return algorithm;
+        }
+      }
+      return null;
+    }
+  }
+
+  private final Algorithm algorithm;
+  private final MessageDigest digest;
+  private final XXHash64 xxHash;
+  private final HashFunction murmur;
+  private final byte[] hash;
+  private final char[] hex;
+
+  FieldHasher(Algorithm algorithm) throws NoSuchAlgorithmException {
+    this.algorithm = algorithm;
+    this.digest = algorithm.digestName == null ? null : MessageDigest.getInstance(algorithm.digestName);
+    this.xxHash = algorithm == Algorithm.XXHASH64 ? XXHashFactory.fastestInstance().hash64() : null;
+    this.murmur = algorithm == Algorithm.MURMUR3_128 ? Hashing.murmur3_128() : null;
+    this.hash = new byte[algorithm.length];
+    this.hex = new char[algorithm.length * 2];
+  }
+
+  /**
+   * @return the hash of the value as a lower case hex string
+   */
+  String hashHex(byte[] value) {
+    hash(value);
+    for (int i = 0; i < hash.length; i++) {
+      hex[2 * i] = HEX_DIGITS[(hash[i] >>> 4) & 0xf];
+      hex[2 * i + 1] = HEX_DIGITS[hash[i] & 0xf];
+    }
+    return new String(hex);
+  }
+
+  /**
+   * @return the hash of the value
+   */
+  byte[] hashBytes(byte[] value) {
+    hash(value);
+    return Arrays.copyOf(hash, hash.length);
+  }
+
+  private void hash(byte[] value) {
+    switch (algorithm) {
+      case XXHASH64:
+        long h = xxHash.hash(value, 0, value.length, 0L);
+        for (int i = 0; i < 8; i++) {
+          hash[i] = (byte) (h >>> (56 - 8 * i));
+        }
+        break;
+      case MURMUR3_128:
+        murmur.hashBytes(value).writeBytesTo(hash, 0, hash.length);
+        break;
+      default:
+        digest.update(value);
+        try {
+          digest.digest(hash, 0, hash.length);
+        } catch (DigestException e) {
+          // cannot happen, since the buffer has the length of the digest
+          throw new IllegalStateException(e);
+        }
+    }
+  }
+}
@@ -19,6 +19,7 @@ package io.cdap.plugin;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginConfig;
@@ -29,8 +30,10 @@ import io.cdap.cdap.etl.api.StageConfigurer;
 import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
-import org.apache.commons.codec.digest.DigestUtils;
+import io.cdap.plugin.common.SchemaCache;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -44,10 +47,14 @@ import javax.annotation.Nullable;
 @Plugin(type = "transform")
 @Name("Hasher")
 @Description("Encodes field values using one of the digest algorithms. MD2, MD5, SHA1, SHA256, " +
-  "SHA384 and SHA512 are the supported message digest algorithms.")
+  "SHA384 and SHA512 are the supported message digest algorithms. XXHASH64 and MURMUR3_128 are supported as " +
+  "fast non-cryptographic hashes.")
 public final class Hasher extends Transform<StructuredRecord, StructuredRecord> {
   private final Config config;
   private Set<String> fieldSet = new HashSet<>();
+  private FieldHasher hasher;
+
+  private final SchemaCache<HashPlan> plans = new SchemaCache<>(HashPlan::new);
 
   // For testing purpose only.
   public Hasher(Config config) {
@@ -59,7 +66,8 @@ public final class Hasher extends Transform<StructuredRecord, StructuredRecord>
     StageConfigurer stageConfigurer = pipelineConfigurer.getStageConfigurer();
     config.validate(stageConfigurer.getInputSchema(), stageConfigurer.getFailureCollector());
     stageConfigurer.getFailureCollector().getOrThrowException();
-    stageConfigurer.setOutputSchema(stageConfigurer.getInputSchema());
+    Schema inputSchema = stageConfigurer.getInputSchema();
+    stageConfigurer.setOutputSchema(inputSchema == null ? null : config.getOutputSchema(inputSchema));
   }
 
   @Override
@@ -72,52 +80,92 @@ public final class Hasher extends Transform<StructuredRecord, StructuredRecord>
   @Override
   public void initialize(TransformContext context) throws Exception {
     fieldSet = config.getFields();
+    FieldHasher.Algorithm algorithm = config.getAlgorithm();
+    hasher = algorithm == null ? null : new FieldHasher(algorithm);
   }
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
-    StructuredRecord.Builder builder = StructuredRecord.builder(in.getSchema());
-    
-    List<Schema.Field> fields = in.getSchema().getFields();
-    for (Schema.Field field : fields) {
-      String name = field.getName();
-      if (fieldSet.contains(name) && field.getSchema().getType() == Schema.Type.STRING) {
-        String value = in.get(name);
-        String digest = value;
-        switch(config.hash.toLowerCase()) {
-          case "md2":
-            digest = DigestUtils.md2Hex(value);
-            break;
-          case "md5":
-            digest = DigestUtils.md5Hex(value);
-            break;
-          case "sha1":
-            digest = DigestUtils.sha1Hex(value);
-            break;
-          case "sha256":
-            digest = DigestUtils.sha256Hex(value);
-            break;
-          case "sha384":
-            digest = DigestUtils.sha384Hex(value);
-            break;
-          case "sha512":
-            digest = DigestUtils.sha512Hex(value);
-            break;
-        }
-        builder.set(name, digest);
+    HashPlan plan = plans.get(in.getSchema());
+    StructuredRecord.Builder builder = StructuredRecord.builder(plan.outputSchema);
+    for (int i = 0; i < plan.fieldNames.length; i++) {
+      Object value = in.get(plan.fieldNames[i]);
+      if (plan.encoders[i] == null || value == null) {
+        builder.set(plan.fieldNames[i], value);
+      } else if (config.isBinary()) {
+        builder.set(plan.fieldNames[i], hasher.hashBytes(plan.encoders[i].encode(value)));
       } else {
-        builder.set(name, in.get(name));
+        builder.set(plan.fieldNames[i], hasher.hashHex(plan.encoders[i].encode(value)));
       }
     }
     emitter.emit(builder.build());
   }
 
+  /**
+   * Creates the encoder of values of the given schema into the bytes that are hashed, or returns null if
+   * values of the schema cannot be hashed.
+   */
+  @Nullable
+  private static ValueEncoder createEncoder(Schema schema) {
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    switch (nonNullable.getType()) {
+      case STRING:
+        return value -> Bytes.toBytes((String) value);
+      case BYTES:
+        return value -> value instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) value) : (byte[]) value;
+      case BOOLEAN:
+        return value -> Bytes.toBytes((Boolean) value);
+      case INT:
+        return value -> Bytes.toBytes((Integer) value);
+      case LONG:
+        return value -> Bytes.toBytes((Long) value);
+      case FLOAT:
+        return value -> Bytes.toBytes((Float) value);
+      case DOUBLE:
+        return value -> Bytes.toBytes((Double) value);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * The output schema and the fields to hash for an input schema.
+   */
+  private final class HashPlan {
+    private final Schema outputSchema;
+    private final String[] fieldNames;
+    // the encoder of each field that is hashed, or null if the field is copied as is
+    private final ValueEncoder[] encoders;
+
+    private HashPlan(Schema inputSchema) {
+      List<Schema.Field> fields = inputSchema.getFields();
+      this.fieldNames = new String[fields.size()];
+      this.encoders = new ValueEncoder[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        fieldNames[i] = fields.get(i).getName();
+        if (hasher != null && fieldSet.contains(fieldNames[i])) {
+          encoders[i] = createEncoder(fields.get(i).getSchema());
+        }
+      }
+      this.outputSchema = config.getOutputSchema(inputSchema);
+    }
+  }
+
+  /**
+   * Encodes a non-null field value into the bytes that are hashed.
+   */
+  private interface ValueEncoder {
+    byte[] encode(Object value);
+  }
+
   /**
    * Hasher Plugin Config.
    */
   public static class Config extends PluginConfig {
     private static final String HASH = "hash";
     private static final String FIELDS = "fields";
+    private static final String ENCODING = "encoding";
+    private static final String BINARY = "binary";
 
     @Name(HASH)
     @Description("Specifies the Hash method for hashing fields.")
@@ -125,21 +173,68 @@ public final class Hasher extends Transform<StructuredRecord, StructuredRecord>
     private final String hash;
     
     @Name(FIELDS)
-    @Description("List of fields to hash. Only string fields are allowed")
+    @Description("List of fields to hash. String, bytes, boolean and numeric fields are allowed")
     private final String fields;
-    
+
+    @Name(ENCODING)
+    @Description("How hashes are written to the output: 'hex' writes them as lower case hex strings and 'binary' " +
+      "as bytes. Defaults to 'hex'.")
+    @Nullable
+    private final String encoding;
+
     public Config(String hash, String fields) {
+      this(hash, fields, null);
+    }
+
+    public Config(String hash, String fields, @Nullable String encoding) {
       this.hash = hash;
       this.fields = fields;
+      this.encoding = encoding;
+    }
+
+    @Nullable
+    private FieldHasher.Algorithm getAlgorithm() {
+      return hash == null ? null : FieldHasher.Algorithm.fromName(hash);
+    }
+
+    private boolean isBinary() {
+      return BINARY.equalsIgnoreCase(encoding);
+    }
+
+    /**
+     * Returns the schema of the output records, in which the hashed fields are strings or bytes.
+     */
+    private Schema getOutputSchema(Schema inputSchema) {
+      if (hash == null) {
+        return inputSchema;
+      }
+      Set<String> hashFields = getFields();
+      Schema hashSchema = Schema.of(isBinary() ? Schema.Type.BYTES : Schema.Type.STRING);
+      boolean changed = false;
+      List<Schema.Field> outputFields = new ArrayList<>();
+      for (Schema.Field field : inputSchema.getFields()) {
+        Schema fieldSchema = field.getSchema();
+        if (hashFields.contains(field.getName()) && createEncoder(fieldSchema) != null) {
+          Schema outputSchema = fieldSchema.isNullable() ? Schema.nullableOf(hashSchema) : hashSchema;
+          changed |= !outputSchema.equals(fieldSchema);
+          outputFields.add(Schema.Field.of(field.getName(), outputSchema));
+        } else {
+          outputFields.add(field);
+        }
+      }
+      return changed ? Schema.recordOf(inputSchema.getRecordName(), outputFields) : inputSchema;
     }
 
     private void validate(@Nullable Schema inputSchema, FailureCollector failureCollector) {
       // Checks if hash specified is one of the supported types.
-      if (hash != null && !hash.equalsIgnoreCase("md2") && !hash.equalsIgnoreCase("md5") &&
-        !hash.equalsIgnoreCase("sha1") && !hash.equalsIgnoreCase("sha256") &&
-        !hash.equalsIgnoreCase("sha384") && !hash.equalsIgnoreCase("sha512")) {
+      if (hash != null && getAlgorithm() == null) {
         failureCollector.addFailure(String.format("Invalid hasher '%s' specified.", hash),
-                                    "Allowed hashers are md2, md5, sha1, sha256, sha384 and sha512");
+                                    "Allowed hashers are md2, md5, sha1, sha256, sha384, sha512, xxhash64 " +
+                                      "and murmur3_128");
+      }
+      if (encoding != null && !BINARY.equalsIgnoreCase(encoding) && !"hex".equalsIgnoreCase(encoding)) {
+        failureCollector.addFailure(String.format("Invalid encoding '%s' specified.", encoding),
+                                    "Allowed encodings are hex and binary").withConfigProperty(ENCODING);
       }
 
       if (inputSchema == null) {
@@ -152,11 +247,11 @@ public final class Hasher extends Transform<StructuredRecord, StructuredRecord>
           continue;
         }
         Schema inputFieldSchema = inputField.getSchema();
-        inputFieldSchema = inputFieldSchema.isNullable() ? inputFieldSchema.getNonNullable() : inputFieldSchema;
-        if (inputFieldSchema.getType() != Schema.Type.STRING) {
+        if (createEncoder(inputFieldSchema) == null) {
+          inputFieldSchema = inputFieldSchema.isNullable() ? inputFieldSchema.getNonNullable() : inputFieldSchema;
           failureCollector.addFailure(
             String.format("Field '%s' is of unsupported type '%s'.", field, inputFieldSchema.getDisplayName()),
-            "Ensure all fields to hash are strings.")
+            "Ensure all fields to hash are strings, bytes, booleans or numbers.")
             .withConfigElement(FIELDS, field);
         }
       }
@@ -19,8 +19,10 @@ package io.cdap.plugin;
 import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.PathNotFoundException;
+import com.jayway.jsonpath.spi.json.JsonProvider;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
@@ -37,6 +39,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -63,6 +66,15 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
   // Specifies whether mapping is simple or complex.
   private boolean isSimple = true;
 
+  // The compiled path of every output field, or null for fields that are copied from the input.
+  private JsonPath[] paths;
+  private JsonProvider jsonProvider;
+  // Only set if streaming is enabled, in which case the values of the mapped fields are stored in the arrays.
+  private StreamingJsonExtractor streamingExtractor;
+  private int[] streamingIndexes;
+  private Object[] streamingValues;
+  private boolean[] streamingFound;
+
   // Mainly used for testing.
   public JSONParser(Config config) {
     this.config = config;
@@ -86,6 +98,51 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
         .withConfigProperty(Config.FIELD);
     }
     extractMappings(collector);
+    if (config.isStreaming() && fields != null) {
+      validateStreaming(collector);
+    }
+  }
+
+  private void validateStreaming(FailureCollector collector) {
+    if (isSimple) {
+      return;
+    }
+    List<String> names = new ArrayList<>();
+    List<String> paths = new ArrayList<>();
+    for (Schema.Field field : fields) {
+      String path = mapping.get(field.getName());
+      if (path == null) {
+        continue;
+      }
+      if (!StreamingJsonExtractor.isSimplePath(path)) {
+        collector.addFailure(
+          String.format("Json path '%s' of field '%s' cannot be used with the streaming parser.",
+                        path, field.getName()),
+          "Only dotted paths from the root, such as '$.employee.name.first', can be used with the streaming parser.")
+          .withConfigElement(Config.MAPPING, field.getName() + ":" + path);
+      } else if (!StreamingJsonExtractor.isSimpleType(field.getSchema())) {
+        collector.addFailure(
+          String.format("Field '%s' cannot be extracted with the streaming parser.", field.getName()),
+          "Only boolean, int, long, float, double and string fields can be extracted with the streaming parser.")
+          .withOutputSchemaField(field.getName());
+      } else {
+        names.add(field.getName());
+        paths.add(path);
+      }
+    }
+
+    // the streaming parser reads every value once, so it cannot extract a value and a member inside it
+    for (int i = 0; i < paths.size(); i++) {
+      for (int j = 0; j < paths.size(); j++) {
+        if (paths.get(j).startsWith(paths.get(i) + ".")) {
+          collector.addFailure(
+            String.format("Json path '%s' of field '%s' is inside the value of json path '%s' of field '%s'.",
+                          paths.get(j), names.get(j), paths.get(i), names.get(i)),
+            "Remove one of the fields or disable the streaming parser.")
+            .withConfigElement(Config.MAPPING, names.get(j) + ":" + paths.get(j));
+        }
+      }
+    }
   }
 
   // If there is no config mapping, then we attempt to directly map output schema fields
@@ -123,7 +180,44 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
       throw collector.getOrThrowException();
     }
     extractMappings(collector);
+    if (config.isStreaming()) {
+      validateStreaming(collector);
+    }
     collector.getOrThrowException();
+    if (isSimple) {
+      return;
+    }
+
+    // paths are compiled once, since compiling a path is much more expensive than evaluating it
+    jsonProvider = Configuration.defaultConfiguration().jsonProvider();
+    paths = new JsonPath[fields.size()];
+    List<String> streamingPaths = new ArrayList<>();
+    List<Schema> streamingSchemas = new ArrayList<>();
+    List<Integer> indexes = new ArrayList<>();
+    for (int i = 0; i < fields.size(); i++) {
+      String path = mapping.get(fields.get(i).getName());
+      if (path == null) {
+        continue;
+      }
+      try {
+        paths[i] = JsonPath.compile(path);
+      } catch (InvalidPathException e) {
+        throw new IllegalArgumentException(
+          String.format("Invalid json path '%s' for field '%s': %s", path, fields.get(i).getName(), e.getMessage()), e);
+      }
+      streamingPaths.add(path);
+      streamingSchemas.add(fields.get(i).getSchema());
+      indexes.add(i);
+    }
+    if (config.isStreaming()) {
+      streamingExtractor = new StreamingJsonExtractor(streamingPaths, streamingSchemas);
+      streamingIndexes = new int[indexes.size()];
+      for (int i = 0; i < streamingIndexes.length; i++) {
+        streamingIndexes[i] = indexes.get(i);
+      }
+      streamingValues = new Object[indexes.size()];
+      streamingFound = new boolean[indexes.size()];
+    }
   }
 
   @Override
@@ -135,46 +229,80 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
       return;
     }
 
+    if (streamingExtractor != null) {
+      transformStreaming(input, emitter);
+      return;
+    }
+
     // When it's not a simple Json to be parsed, we use the Json path to map the input Json fields into the
     // output schema. In order to optimize for reading multiple paths from the Json we create a document that
     // allows the Json to be parsed only once. We then iterate through the output fields and apply the
     // path to extract the fields.
-    Object document = Configuration.defaultConfiguration().jsonProvider().parse((String) input.get(config.field));
+    Object document = jsonProvider.parse((String) input.get(config.field));
     StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
-    for (Schema.Field field : fields) {
+    for (int i = 0; i < paths.length; i++) {
+      Schema.Field field = fields.get(i);
       String name = field.getName();
-      if (mapping.containsKey(name)) {
-        String path = mapping.get(name);
+      if (paths[i] != null) {
         try {
-          Object value = JsonPath.read(document, path);
+          Object value = paths[i].read(document);
           builder.set(field.getName(), value);
         } catch (PathNotFoundException e) {
           if (field.getSchema().isNullable()) {
             builder.set(field.getName(), null);
           } else {
-            LOG.error("Json path '" + path + "' specified for the field '" + name + "' doesn't exist. " +
+            LOG.error("Json path '" + paths[i].getPath() + "' specified for the field '" + name + "' doesn't exist. " +
                         "Dropping the error record: " + StructuredRecordStringConverter.toJsonString(input));
             return;
           }
         }
       } else {
-        // We didn't find the field name in the mapping, we will not attempt to see if the field is present
-        // in the input; if it is, then we will transfer the input field value to the output field value.
-        Object value = input.get(name);
-        if (value != null) {
-          builder.set(name, value);
+        copyField(input, builder, name);
+      }
+    }
+    emitter.emit(builder.build());
+  }
+
+  /**
+   * Extracts all mapped fields in a single pass over the Json, without parsing it into a document.
+   */
+  private void transformStreaming(StructuredRecord input, Emitter<StructuredRecord> emitter) throws IOException {
+    streamingExtractor.extract((String) input.get(config.field), streamingValues, streamingFound);
+    StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
+    int next = 0;
+    for (int i = 0; i < fields.size(); i++) {
+      String name = fields.get(i).getName();
+      if (next < streamingIndexes.length && streamingIndexes[next] == i) {
+        if (!streamingFound[next] && !fields.get(i).getSchema().isNullable()) {
+          LOG.error("Json path '" + paths[i].getPath() + "' specified for the field '" + name + "' doesn't exist. " +
+                      "Dropping the error record: " + StructuredRecordStringConverter.toJsonString(input));
+          return;
         }
+        builder.set(name, streamingValues[next]);
+        next++;
+      } else {
+        copyField(input, builder, name);
       }
     }
     emitter.emit(builder.build());
   }
 
+  private static void copyField(StructuredRecord input, StructuredRecord.Builder builder, String name) {
+    // We didn't find the field name in the mapping, we will not attempt to see if the field is present
+    // in the input; if it is, then we will transfer the input field value to the output field value.
+    Object value = input.get(name);
+    if (value != null) {
+      builder.set(name, value);
+    }
+  }
+
   /**
    * JSONParser Plugin Config.
    */
   public static class Config extends PluginConfig {
     public static final String FIELD = "field";
     public static final String MAPPING = "mapping";
+    public static final String STREAMING = "streaming";
 
     @Name("field")
     @Description("Input field to be parsed as JSON")
@@ -191,10 +319,27 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
     @Description("Output schema")
     private String schema;
 
+    @Name(STREAMING)
+    @Description("Whether to extract the mapped fields with a streaming parser instead of parsing the whole JSON " +
+      "into a document. The JSON is read in a single pass and only until all mapped fields are found. Can only be " +
+      "used if every JSON path is a dotted path from the root, such as '$.employee.name.first', and every mapped " +
+      "field is a boolean, int, long, float, double or string. Defaults to false.")
+    @Nullable
+    private Boolean streaming;
+
     public Config(String field, @Nullable String mapping, String schema) {
+      this(field, mapping, schema, false);
+    }
+
+    public Config(String field, @Nullable String mapping, String schema, @Nullable Boolean streaming) {
       this.field = field;
       this.mapping = mapping;
       this.schema = schema;
+      this.streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+      return Boolean.TRUE.equals(streaming);
     }
 
   }
@@ -30,6 +30,7 @@ import io.cdap.cdap.etl.api.MultiOutputPipelineConfigurer;
 import io.cdap.cdap.etl.api.MultiOutputStageConfigurer;
 import io.cdap.cdap.etl.api.SplitterTransform;
 import io.cdap.cdap.etl.api.TransformContext;
+import io.cdap.plugin.common.SchemaCache;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -49,8 +50,8 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
   public static final String NULL_PORT = "null";
   public static final String NON_NULL_PORT = "nonnull";
   private final Conf conf;
-  // only used when input schema is variable
-  private Map<Schema, Schema> schemaMap;
+  // non-null output plans of the input schemas seen so far
+  private final SchemaCache<CopyPlan> plans = new SchemaCache<>(this::createPlan);
 
   public NullFieldSplitter(Conf conf) {
     this.conf = conf;
@@ -68,13 +69,11 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
 
   @Override
   public void initialize(TransformContext context) {
-    schemaMap = new HashMap<>();
     Schema inputSchema = context.getInputSchema();
     FailureCollector collector = context.getFailureCollector();
     if (inputSchema != null) {
-      Schema nonNullSchema = getNonNullSchema(context.getInputSchema(), conf.field, collector);
+      getNonNullSchema(inputSchema, conf.field, collector);
       collector.getOrThrowException();
-      schemaMap.put(inputSchema, nonNullSchema);
     }
   }
 
@@ -87,20 +86,27 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
     } else if (!conf.modifySchema) {
       emitter.emit(NON_NULL_PORT, record);
     } else {
-      Schema outputSchema = schemaMap.get(recordSchema);
-      if (outputSchema == null) {
-        outputSchema = getNonNullSchema(recordSchema, conf.field, null);
-        schemaMap.put(recordSchema, outputSchema);
-      }
-      StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-      for (Schema.Field recordField : record.getSchema().getFields()) {
-        String fieldName = recordField.getName();
+      CopyPlan plan = plans.get(recordSchema);
+      StructuredRecord.Builder builder = StructuredRecord.builder(plan.outputSchema);
+      for (String fieldName : plan.fieldNames) {
         builder.set(fieldName, record.get(fieldName));
       }
       emitter.emit(NON_NULL_PORT, builder.build());
     }
   }
 
+  /**
+   * @return the number of input schemas that non-null output plans are cached for
+   */
+  @VisibleForTesting
+  int getCachedSchemas() {
+    return plans.size();
+  }
+
+  private CopyPlan createPlan(Schema inputSchema) {
+    return new CopyPlan(inputSchema, getNonNullSchema(inputSchema, conf.field, null));
+  }
+
   private static Map<String, Schema> getOutputSchemas(Schema inputSchema, Conf conf, FailureCollector collector) {
     Map<String, Schema> outputs = new HashMap<>();
     if (inputSchema.getField(conf.field) == null) {
@@ -150,6 +156,23 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
     return Schema.recordOf(nullableSchema.getRecordName() + ".nonnull", fields);
   }
 
+  /**
+   * The non-null output schema of an input schema and the names of the fields to copy.
+   */
+  private static final class CopyPlan {
+    private final Schema outputSchema;
+    private final String[] fieldNames;
+
+    private CopyPlan(Schema inputSchema, Schema outputSchema) {
+      this.outputSchema = outputSchema;
+      List<Schema.Field> fields = inputSchema.getFields();
+      this.fieldNames = new String[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        fieldNames[i] = fields.get(i).getName();
+      }
+    }
+  }
+
   /**
    * Configuration for the plugin.
    */
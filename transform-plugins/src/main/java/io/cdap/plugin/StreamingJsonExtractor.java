@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Extracts fields of simple types from a JSON document with a streaming tokenizer, for JSON paths that are plain
+ * dotted paths from the root such as {@code $.employee.name.first}. All paths are resolved in a single pass and
+ * the document is never materialized; reading stops as soon as every path has been found.
+ */
+final class StreamingJsonExtractor {
+  private static final Pattern SIMPLE_PATH = Pattern.compile("\\$(\\.[A-Za-z_][A-Za-z0-9_\\-]*)+");
+
+  private final Node root = new Node();
+  private final Converter[] converters;
+
+  /**
+   * @return whether the given JSON path is a dotted path that can be extracted by this class
+   */
+  static boolean isSimplePath(String path) {
+    return SIMPLE_PATH.matcher(path).matches();
+  }
+
+  /**
+   * @return whether values of the given schema can be extracted by this class
+   */
+  static boolean isSimpleType(Schema schema) {
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    switch (nonNullable.getType()) {
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case STRING:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Creates an extractor for the given paths.
+   *
+   * @param paths the simple JSON path of each field
+   * @param schemas the schema of each field, which must be a simple type
+   * @throws IllegalArgumentException if a path is a prefix of another path
+   */
+  StreamingJsonExtractor(List<String> paths, List<Schema> schemas) {
+    this.converters = new Converter[paths.size()];
+    for (int i = 0; i < paths.size(); i++) {
+      Node node = root;
+      for (String step : paths.get(i).substring(2).split("\\.")) {
+        if (!node.fields.isEmpty()) {
+          throw new IllegalArgumentException(
+            String.format("Path '%s' is inside the value of another path.", paths.get(i)));
+        }
+        Node child = node.children.get(step);
+        if (child == null) {
+          child = new Node();
+          node.children.put(step, child);
+        }
+        node = child;
+      }
+      if (!node.children.isEmpty()) {
+        throw new IllegalArgumentException(
+          String.format("Path '%s' contains the value of another path.", paths.get(i)));
+      }
+      node.fields.add(i);
+      converters[i] = createConverter(schemas.get(i));
+    }
+  }
+
+  /**
+   * Extracts the values of all paths from a JSON document.
+   *
+   * @param json the JSON document
+   * @param values the array to store the value of every path in, in the order of the paths
+   * @param found the array to store whether every path was found in. A path whose value is null is found.
+   * @throws IOException if the document is not valid JSON or a value cannot be read as the type of its field
+   */
+  void extract(String json, Object[] values, boolean[] found) throws IOException {
+    for (int i = 0; i < found.length; i++) {
+      values[i] = null;
+      found[i] = false;
+    }
+    try (JsonReader reader = new JsonReader(new StringReader(json))) {
+      if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+        readObject(reader, root, values, found, new int[] { converters.length });
+      }
+    }
+  }
+
+  /**
+   * Reads the members of an object that lead to a path. Returns false if reading stopped because all paths were
+   * found, in which case the reader is left inside the object.
+   */
+  private boolean readObject(JsonReader reader, Node node, Object[] values, boolean[] found,
+                             int[] remaining) throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      Node child = node.children.get(reader.nextName());
+      if (child == null) {
+        reader.skipValue();
+      } else if (!child.fields.isEmpty()) {
+        String value = readValue(reader);
+        for (int field : child.fields) {
+          if (!found[field]) {
+            remaining[0]--;
+          }
+          values[field] = value == null ? null : converters[field].convert(value);
+          found[field] = true;
+        }
+        if (remaining[0] == 0) {
+          return false;
+        }
+      } else if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+        if (!readObject(reader, child, values, found, remaining)) {
+          return false;
+        }
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return true;
+  }
+
+  @Nullable
+  private static String readValue(JsonReader reader) throws IOException {
+    JsonToken token = reader.peek();
+    switch (token) {
+      case NULL:
+        reader.nextNull();
+        return null;
+      case BOOLEAN:
+        return Boolean.toString(reader.nextBoolean());
+      case NUMBER:
+      case STRING:
+        return reader.nextString();
+      default:
+        throw new IOException(String.format("Expected a simple value but found %s.", token));
+    }
+  }
+
+  private static Converter createConverter(Schema schema) {
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    switch (nonNullable.getType()) {
+      case BOOLEAN:
+        return Boolean::valueOf;
+      case INT:
+        return Integer::valueOf;
+      case LONG:
+        return Long::valueOf;
+      case FLOAT:
+        return Float::valueOf;
+      case DOUBLE:
+        return Double::valueOf;
+      case STRING:
+        return value -> value;
+      default:
+        throw new IllegalArgumentException(
+          String.format("Type %s cannot be extracted with the streaming parser.", nonNullable.getType()));
+    }
+  }
+
+  /**
+   * A member name in the tree of all paths, with the fields whose path ends at it.
+   */
+  private static final class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private final List<Integer> fields = new ArrayList<>();
+  }
+
+  /**
+   * Converts the text of a non-null JSON value into the type of a field.
+   */
+  private interface Converter {
+    Object convert(String value);
+  }
+}
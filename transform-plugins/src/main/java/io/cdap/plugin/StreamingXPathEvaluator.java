@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Evaluates absolute XPaths made only of child element steps, optionally ending in an attribute, such as
+ * {@code /book/title} or {@code /book/@category}, in a single pass over a StAX stream without building a DOM.
+ * The result is the same as evaluating the XPaths against a DOM and taking the text content of the first node.
+ */
+final class StreamingXPathEvaluator {
+  private static final String NAME = "[A-Za-z_][A-Za-z0-9_.\\-]*";
+  private static final Pattern SIMPLE_PATH = Pattern.compile("(/" + NAME + ")+(/@" + NAME + ")?");
+
+  private final XMLInputFactory factory;
+  private final String[] fieldNames;
+  private final String[][] elementPaths;
+  // the attribute that is the value of each field, or null if the value is the text of the element
+  private final String[] attributes;
+  private final boolean failOnArray;
+  private final String[] stack;
+
+  /**
+   * @return whether the given XPath can be evaluated by this class
+   */
+  static boolean isSimplePath(String xpath) {
+    return SIMPLE_PATH.matcher(xpath).matches();
+  }
+
+  /**
+   * Creates an evaluator for the given fields.
+   *
+   * @param fieldNames the names of the fields, used in error messages
+   * @param xpaths the XPath of each field. All of them must be simple paths.
+   * @param failOnArray whether to fail if an XPath matches more than one node
+   */
+  StreamingXPathEvaluator(List<String> fieldNames, List<String> xpaths, boolean failOnArray) {
+    this.factory = XMLInputFactory.newInstance();
+    // like the DOM, names keep their prefix, so prefixes do not need to be declared
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    // documents come from the records being processed, so they must not be able to read local files or URLs
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    this.fieldNames = fieldNames.toArray(new String[fieldNames.size()]);
+    this.elementPaths = new String[xpaths.size()][];
+    this.attributes = new String[xpaths.size()];
+    this.failOnArray = failOnArray;
+    int maxDepth = 0;
+    for (int i = 0; i < xpaths.size(); i++) {
+      String[] steps = xpaths.get(i).substring(1).split("/");
+      String last = steps[steps.length - 1];
+      if (last.startsWith("@")) {
+        attributes[i] = last.substring(1);
+        String[] elements = new String[steps.length - 1];
+        System.arraycopy(steps, 0, elements, 0, elements.length);
+        steps = elements;
+      }
+      elementPaths[i] = steps;
+      maxDepth = Math.max(maxDepth, steps.length);
+    }
+    this.stack = new String[maxDepth];
+  }
+
+  /**
+   * Evaluates the XPaths against a document.
+   *
+   * @return the value of every field, which is null if the XPath matched no node, or null if the first element
+   *         matched by some XPath has child elements, in which case the XPaths must be evaluated against a DOM
+   * @throws XMLStreamException if the document is not well formed
+   * @throws IllegalArgumentException if failOnArray is set and an XPath matches more than one node
+   */
+  @Nullable
+  String[] evaluate(String xml) throws XMLStreamException {
+    String[] values = new String[fieldNames.length];
+    int[] matches = new int[fieldNames.length];
+    boolean[] capturing = new boolean[fieldNames.length];
+    StringBuilder text = null;
+    int depth = 0;
+
+    XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(xml));
+    try {
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            if (text != null) {
+              // the value of a node with child elements is the node as xml, which needs the DOM
+              return null;
+            }
+            depth++;
+            if (depth > stack.length) {
+              break;
+            }
+            stack[depth - 1] = getName(reader.getPrefix(), reader.getLocalName());
+            for (int i = 0; i < elementPaths.length; i++) {
+              if (!isMatch(elementPaths[i], depth)) {
+                continue;
+              }
+              if (attributes[i] == null) {
+                if (++matches[i] == 1) {
+                  capturing[i] = true;
+                  text = new StringBuilder();
+                }
+                continue;
+              }
+              String value = getAttribute(reader, attributes[i]);
+              if (value != null && ++matches[i] == 1) {
+                values[i] = value;
+              }
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+          case XMLStreamConstants.SPACE:
+            if (text != null) {
+              text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+            break;
+          case XMLStreamConstants.ENTITY_REFERENCE:
+            if (text != null) {
+              text.append(reader.getText());
+            }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            if (text != null) {
+              // no child elements are allowed while capturing, so this ends the captured element
+              for (int i = 0; i < capturing.length; i++) {
+                if (capturing[i]) {
+                  values[i] = text.toString();
+                  capturing[i] = false;
+                }
+              }
+              text = null;
+            }
+            depth--;
+            break;
+          default:
+            break;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    if (failOnArray) {
+      for (int i = 0; i < matches.length; i++) {
+        if (matches[i] > 1) {
+          throw new IllegalArgumentException("Field " + fieldNames[i] + " is an array. " +
+                                               "Cannot specify an XPath that is an array unless failOnArray is false.");
+        }
+      }
+    }
+    return values;
+  }
+
+  private boolean isMatch(String[] path, int depth) {
+    if (path.length != depth) {
+      return false;
+    }
+    // compare from the deepest step, since documents usually share the leading steps
+    for (int i = depth - 1; i >= 0; i--) {
+      if (!path[i].equals(stack[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Nullable
+  private static String getAttribute(XMLStreamReader reader, String name) {
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      if (name.equals(getName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)))) {
+        return reader.getAttributeValue(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the name of a node as seen by XPath on a DOM that is not namespace aware, which includes the prefix.
+   */
+  private static String getName(@Nullable String prefix, String localName) {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+}
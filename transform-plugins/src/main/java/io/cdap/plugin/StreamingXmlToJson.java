@@ -0,0 +1,300 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import org.json.JSONObject;
+import org.json.XML;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Converts XML to a JSON string in a single pass over a StAX stream, following the same conventions as
+ * {@link XML#toJSONObject(String)}: attributes and child elements become members, repeated child elements become
+ * arrays, text that is mixed with attributes or child elements becomes the 'content' member and values are
+ * converted with {@link XML#stringToValue(String)}.
+ *
+ * Each member is written to the output as soon as it is read, so an element's JSON is complete in the output when
+ * the element ends. Only the elements on the current path are held, each with the position of its members in the
+ * output, so that a member that is repeated after other members can still be grouped into an array. When repeated
+ * members are adjacent, which is the common case, nothing is copied; otherwise the members of that one element are
+ * rearranged once when it ends. Members are written in the order in which they first appear in the document, and
+ * CDATA sections are read as text rather than kept as they are. DTDs and external entities are not processed.
+ * Instances are not thread safe.
+ */
+final class StreamingXmlToJson {
+  private static final String CONTENT = "content";
+  private static final String CONTENT_PREFIX = "{" + JSONObject.quote(CONTENT) + ":";
+  private static final String EMPTY = "\"\"";
+
+  private final XMLInputFactory factory;
+  private final StringBuilder text = new StringBuilder();
+  private final StringBuilder out = new StringBuilder();
+  // the elements on the current path, reused across elements and documents. The first one is the document.
+  private final List<Element> stack = new ArrayList<>();
+
+  StreamingXmlToJson() {
+    this.factory = XMLInputFactory.newInstance();
+    // like org.json, names keep their prefix and namespace declarations are plain attributes
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    // documents come from the records being processed, so they must not be able to read local files or URLs
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  }
+
+  /**
+   * Converts an XML document to a JSON object string.
+   *
+   * @throws XMLStreamException if the document is not well formed
+   */
+  String convert(String xml) throws XMLStreamException {
+    int depth = 0;
+    text.setLength(0);
+    out.setLength(0);
+    push(depth);
+
+    XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(xml));
+    try {
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            Element parent = stack.get(depth);
+            flushText(parent);
+            String name = getName(reader.getPrefix(), reader.getLocalName());
+            startMember(parent, name);
+            Element element = push(++depth);
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+              startMember(element, getName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)));
+              out.append(JSONObject.valueToString(XML.stringToValue(reader.getAttributeValue(i))));
+              endMember(element);
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+          case XMLStreamConstants.SPACE:
+            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            break;
+          case XMLStreamConstants.ENTITY_REFERENCE:
+            text.append(reader.getText());
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            Element ended = stack.get(depth);
+            flushText(ended);
+            end(ended, false);
+            endMember(stack.get(--depth));
+            break;
+          case XMLStreamConstants.COMMENT:
+          case XMLStreamConstants.PROCESSING_INSTRUCTION:
+            // org.json ends a text at any markup
+            flushText(stack.get(depth));
+            break;
+          default:
+            break;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    Element document = stack.get(0);
+    flushText(document);
+    end(document, true);
+    return out.toString();
+  }
+
+  private Element push(int depth) {
+    Element element;
+    if (depth < stack.size()) {
+      element = stack.get(depth);
+    } else {
+      element = new Element();
+      stack.add(element);
+    }
+    element.reset(out.length());
+    return element;
+  }
+
+  /**
+   * Adds the text read since the last markup to an element, if it is not only whitespace.
+   */
+  private void flushText(Element element) {
+    if (text.length() == 0) {
+      return;
+    }
+    String value = text.toString().trim();
+    text.setLength(0);
+    if (!value.isEmpty()) {
+      startMember(element, CONTENT);
+      out.append(JSONObject.valueToString(XML.stringToValue(value)));
+      endMember(element);
+    }
+  }
+
+  /**
+   * Writes what comes before the value of a member of an element. If the member has the same name as the one
+   * before it, the first value of the two is turned into an array. If it repeats a member that is not the one
+   * before it, the element is no longer written in order and is rearranged when it ends.
+   */
+  private void startMember(Element element, String name) {
+    int count = element.names.size();
+    if (count == 0) {
+      element.seen.add(name);
+      out.append('{').append(JSONObject.quote(name)).append(':');
+    } else if (!element.grouped) {
+      element.seen.add(name);
+    } else if (name.equals(element.names.get(count - 1))) {
+      if (count - element.run == 1) {
+        // only the first value of the member follows its position, so this moves just that value
+        out.insert(element.bounds[2 * element.run], '[');
+        element.bounds[2 * element.run]++;
+        element.bounds[2 * element.run + 1]++;
+      }
+      out.append(',');
+    } else if (element.seen.add(name)) {
+      closeRun(element);
+      element.run = count;
+      out.append(',').append(JSONObject.quote(name)).append(':');
+    } else {
+      element.grouped = false;
+    }
+    element.addValue(name, out.length());
+  }
+
+  private void endMember(Element element) {
+    element.bounds[2 * element.names.size() - 1] = out.length();
+  }
+
+  /**
+   * Closes the array of the last member of an element, if it is repeated.
+   */
+  private void closeRun(Element element) {
+    if (element.names.size() - element.run > 1) {
+      out.append(']');
+    }
+  }
+
+  /**
+   * Completes the JSON of an element that ended. An element is written as an empty string if it has no members,
+   * as its content if that is its only member, and as an object otherwise. The document is always an object.
+   */
+  private void end(Element element, boolean document) {
+    if (element.names.isEmpty()) {
+      out.append(document ? "{}" : EMPTY);
+    } else if (!element.grouped) {
+      rewrite(element);
+    } else {
+      closeRun(element);
+      if (!document && element.seen.size() == 1 && element.seen.contains(CONTENT)) {
+        out.delete(element.start, element.start + CONTENT_PREFIX.length());
+      } else {
+        out.append('}');
+      }
+    }
+  }
+
+  /**
+   * Rewrites the members of an element that repeats a member after other members, grouping the values of each
+   * member in the order in which the members first appear.
+   */
+  private void rewrite(Element element) {
+    Map<String, List<Integer>> members = new LinkedHashMap<>();
+    for (int i = 0; i < element.names.size(); i++) {
+      String name = element.names.get(i);
+      List<Integer> indexes = members.get(name);
+      if (indexes == null) {
+        indexes = new ArrayList<>();
+        members.put(name, indexes);
+      }
+      indexes.add(i);
+    }
+
+    String written = out.substring(element.start);
+    out.setLength(element.start);
+    out.append('{');
+    boolean first = true;
+    for (Map.Entry<String, List<Integer>> member : members.entrySet()) {
+      if (!first) {
+        out.append(',');
+      }
+      first = false;
+      out.append(JSONObject.quote(member.getKey())).append(':');
+      List<Integer> indexes = member.getValue();
+      if (indexes.size() > 1) {
+        out.append('[');
+      }
+      for (int i = 0; i < indexes.size(); i++) {
+        if (i > 0) {
+          out.append(',');
+        }
+        int index = indexes.get(i);
+        out.append(written, element.bounds[2 * index] - element.start, element.bounds[2 * index + 1] - element.start);
+      }
+      if (indexes.size() > 1) {
+        out.append(']');
+      }
+    }
+    out.append('}');
+  }
+
+  private static String getName(@Nullable String prefix, String localName) {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  /**
+   * An element on the current path, with the name and the position in the output of each of its member values,
+   * in document order.
+   */
+  private static final class Element {
+    private final List<String> names = new ArrayList<>();
+    // the start and end of each member value in the output
+    private int[] bounds = new int[16];
+    private final Set<String> seen = new HashSet<>();
+    // where the JSON of the element starts in the output
+    private int start;
+    // whether the values of each member are adjacent, so that the element is written in order
+    private boolean grouped;
+    // the index of the first value of the last member
+    private int run;
+
+    private void reset(int start) {
+      this.start = start;
+      names.clear();
+      seen.clear();
+      grouped = true;
+      run = 0;
+    }
+
+    private void addValue(String name, int start) {
+      int index = names.size();
+      names.add(name);
+      if (bounds.length < 2 * (index + 1)) {
+        bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+      }
+      bounds[2 * index] = start;
+    }
+  }
+}
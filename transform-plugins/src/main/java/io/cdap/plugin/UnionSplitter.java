@@ -29,6 +29,7 @@ import io.cdap.cdap.etl.api.MultiOutputEmitter;
 import io.cdap.cdap.etl.api.MultiOutputPipelineConfigurer;
 import io.cdap.cdap.etl.api.MultiOutputStageConfigurer;
 import io.cdap.cdap.etl.api.SplitterTransform;
+import io.cdap.plugin.common.SchemaCache;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -50,6 +51,9 @@ import javax.annotation.Nullable;
 public class UnionSplitter extends SplitterTransform<StructuredRecord, StructuredRecord> {
   private final Conf conf;
 
+  // Routing plans of the input schemas seen so far.
+  private final SchemaCache<RoutingPlan> plans = new SchemaCache<>(RoutingPlan::new);
+
   public UnionSplitter(Conf conf) {
     this.conf = conf;
   }
@@ -73,97 +77,108 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
       return;
     }
 
-    Schema.Field schemaField = record.getSchema().getField(conf.unionField);
-    if (schemaField == null) {
+    Schema inputSchema = record.getSchema();
+    RoutingPlan plan = plans.get(inputSchema);
+
+    if (plan.fieldSchema == null) {
       emitter.emitError(new InvalidEntry<>(100, String.format("Field '%s' does not exist.", conf.unionField), record));
       return;
     }
 
-    Schema fieldSchema = schemaField.getSchema();
-    if (fieldSchema.getType() != Schema.Type.UNION) {
+    if (plan.fieldSchema.getType() != Schema.Type.UNION) {
       emitter.emitError(new InvalidEntry<>(200, String.format("Field '%s' is not of type union, but is of type '%s'.",
-                                                              conf.unionField, fieldSchema.getType()), record));
+                                                              conf.unionField, plan.fieldSchema.getType()), record));
       return;
     }
 
     Object val = record.get(conf.unionField);
-    Schema valSchema;
+    Route route;
+    if (val instanceof StructuredRecord) {
+      route = plan.getRoute(((StructuredRecord) val).getSchema());
+    } else {
+      Class<?> valClass = val == null ? Void.class : val.getClass();
+      route = plan.simpleRoutes.get(valClass);
+      if (route == null) {
+        Schema.Type valType = getSimpleType(val);
+        if (valType == null) {
+          emitUnsupported(val, record, emitter);
+          return;
+        }
+        route = plan.getRoute(Schema.of(valType));
+        plan.simpleRoutes.put(valClass, route);
+      }
+    }
+
+    if (route.outputSchema == null) {
+      emitter.emitError(
+        new InvalidEntry<>(400, String.format("Field '%s' has schema '%s', which is not in its union schema.",
+                                              conf.unionField, route.valSchema), record));
+      return;
+    }
+
+    if (route.outputSchema == inputSchema) {
+      emitter.emit(route.port, record);
+      return;
+    }
+    StructuredRecord.Builder builder = StructuredRecord.builder(route.outputSchema);
+    for (String fieldName : plan.fieldNames) {
+      builder.set(fieldName, record.get(fieldName));
+    }
+    emitter.emit(route.port, builder.build());
+  }
+
+  /**
+   * Returns the schema type of a value of a simple type, or null if the value is not of a simple type.
+   */
+  @Nullable
+  private static Schema.Type getSimpleType(@Nullable Object val) {
     if (val == null) {
-      valSchema = Schema.of(Schema.Type.NULL);
+      return Schema.Type.NULL;
     } else if (val instanceof Boolean) {
-      valSchema = Schema.of(Schema.Type.BOOLEAN);
+      return Schema.Type.BOOLEAN;
     } else if (val instanceof ByteBuffer || val instanceof byte[] || val instanceof Byte[]) {
-      valSchema = Schema.of(Schema.Type.BYTES);
+      return Schema.Type.BYTES;
     } else if (val instanceof Integer) {
-      valSchema = Schema.of(Schema.Type.INT);
+      return Schema.Type.INT;
     } else if (val instanceof Long) {
-      valSchema = Schema.of(Schema.Type.LONG);
+      return Schema.Type.LONG;
     } else if (val instanceof Float) {
-      valSchema = Schema.of(Schema.Type.FLOAT);
+      return Schema.Type.FLOAT;
     } else if (val instanceof Double) {
-      valSchema = Schema.of(Schema.Type.DOUBLE);
+      return Schema.Type.DOUBLE;
     } else if (val instanceof String) {
-      valSchema = Schema.of(Schema.Type.STRING);
-    } else if (val instanceof StructuredRecord) {
-      valSchema = ((StructuredRecord) val).getSchema();
-    } else if (val.getClass().isEnum()) {
+      return Schema.Type.STRING;
+    }
+    return null;
+  }
+
+  private void emitUnsupported(Object val, StructuredRecord record, MultiOutputEmitter<StructuredRecord> emitter) {
+    if (val.getClass().isEnum()) {
       emitter.emitError(
         new InvalidEntry<>(300, String.format("Field '%s' is an Enum, which is not supported.", conf.unionField),
                            record));
-      return;
     } else if (val instanceof Map) {
       emitter.emitError(
         new InvalidEntry<>(301, String.format("Field '%s' is a Map, which is not supported.", conf.unionField),
                            record));
-      return;
     } else if (val instanceof Collection) {
       emitter.emitError(
         new InvalidEntry<>(302, String.format("Field '%s' is an array, which is not supported.", conf.unionField),
                            record));
-      return;
     } else {
       emitter.emitError(
         new InvalidEntry<>(303, String.format("Could not determine type for field '%s' with value of class '%s'.",
                                               conf.unionField, val.getClass().getName()),
                            record));
-      return;
-    }
-
-    boolean foundSchema = false;
-    for (Schema unionSchema : fieldSchema.getUnionSchemas()) {
-      // if the schema in the union matches the value's schema
-      if (unionSchema.equals(valSchema)) {
-        foundSchema = true;
-      }
-    }
-    if (!foundSchema) {
-      emitter.emitError(
-        new InvalidEntry<>(400, String.format("Field '%s' has schema '%s', which is not in its union schema.",
-                                              conf.unionField, valSchema), record));
-      return;
-    }
-
-    Schema inputSchema = record.getSchema();
-    List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields().size());
-    for (Schema.Field inputSchemaField : inputSchema.getFields()) {
-      String fieldName = inputSchemaField.getName();
-      if (fieldName.equals(conf.unionField)) {
-        fields.add(Schema.Field.of(fieldName, valSchema));
-      } else {
-        fields.add(inputSchemaField);
-      }
     }
+  }
 
-    Schema.Type valType = valSchema.getType();
-    String port = valType == Schema.Type.RECORD ? valSchema.getRecordName() : valType.name().toLowerCase();
-    Schema outputSchema = conf.modifySchema ?
-      Schema.recordOf(inputSchema.getRecordName() + "." + port, fields) : inputSchema;
-    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-    for (Schema.Field inputSchemaField : inputSchema.getFields()) {
-      String fieldName = inputSchemaField.getName();
-      builder.set(fieldName, record.get(fieldName));
-    }
-    emitter.emit(port, builder.build());
+  /**
+   * @return the number of input schemas that routing plans are cached for
+   */
+  @VisibleForTesting
+  int getCachedSchemas() {
+    return plans.size();
   }
 
   @VisibleForTesting
@@ -220,6 +235,76 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
     return outputPortSchemas;
   }
 
+  /**
+   * The position of the union field in an input schema and the routes of the branches of the union that were seen.
+   */
+  private final class RoutingPlan {
+    private final Schema inputSchema;
+    private final String[] fieldNames;
+    // the schema of the union field, or null if the input schema does not have the field
+    private final Schema fieldSchema;
+    // routes of values of simple types by the class of the value, where null values have the Void class
+    private final Map<Class<?>, Route> simpleRoutes = new HashMap<>();
+    // routes of record values by the schema of the record
+    private final SchemaCache<Route> recordRoutes = new SchemaCache<>(this::createRoute);
+
+    private RoutingPlan(Schema inputSchema) {
+      this.inputSchema = inputSchema;
+      List<Schema.Field> fields = inputSchema.getFields();
+      this.fieldNames = new String[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        fieldNames[i] = fields.get(i).getName();
+      }
+      Schema.Field field = inputSchema.getField(conf.unionField);
+      this.fieldSchema = field == null ? null : field.getSchema();
+    }
+
+    private Route getRoute(Schema valSchema) {
+      return valSchema.getType() == Schema.Type.RECORD ? recordRoutes.get(valSchema) : createRoute(valSchema);
+    }
+
+    private Route createRoute(Schema valSchema) {
+      Schema.Type valType = valSchema.getType();
+      String port = valType == Schema.Type.RECORD ? valSchema.getRecordName() : valType.name().toLowerCase();
+      Schema outputSchema = null;
+      // if the value's schema is one of the schemas in the union
+      if (fieldSchema.getUnionSchemas().contains(valSchema)) {
+        if (conf.modifySchema) {
+          List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields().size());
+          for (Schema.Field inputSchemaField : inputSchema.getFields()) {
+            String fieldName = inputSchemaField.getName();
+            if (fieldName.equals(conf.unionField)) {
+              fields.add(Schema.Field.of(fieldName, valSchema));
+            } else {
+              fields.add(inputSchemaField);
+            }
+          }
+          outputSchema = Schema.recordOf(inputSchema.getRecordName() + "." + port, fields);
+        } else {
+          outputSchema = inputSchema;
+        }
+      }
+
+      return new Route(valSchema, port, outputSchema);
+    }
+  }
+
+  /**
+   * The port and output schema of records whose union field has a value of one schema.
+   */
+  private static final class Route {
+    private final Schema valSchema;
+    private final String port;
+    // the schema of records emitted on the port, or null if the value's schema is not in the union
+    private final Schema outputSchema;
+
+    private Route(Schema valSchema, String port, @Nullable Schema outputSchema) {
+      this.valSchema = valSchema;
+      this.port = port;
+      this.outputSchema = outputSchema;
+    }
+  }
+
   /**
    * Plugin conf
    */
@@ -16,6 +16,7 @@
 
 package io.cdap.plugin;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
@@ -31,10 +32,15 @@ import io.cdap.cdap.etl.api.LookupTableConfig;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
+import io.cdap.plugin.common.SchemaCache;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Transforms records using custom mapping provided by the config.
@@ -49,6 +55,8 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
   private final Map<String, ValueMapping> mappingValues = new HashMap<>();
   private Map<String, String> defaultsMapping = new HashMap<>();
   private Map<String, Lookup<String>> lookupTableCache = new HashMap<String, Lookup<String>>();
+  private final SchemaCache<TransformPlan> plans = new SchemaCache<>(
+    schema -> new TransformPlan(schema, getOutputSchema(schema, getContext().getFailureCollector())));
 
   //for unit tests, otherwise config is injected by plugin framework.
   public ValueMapper(Config config) {
@@ -61,6 +69,8 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
   public static class Config extends PluginConfig {
     public static final String DEFAULTS = "defaults";
     public static final String MAPPING = "mapping";
+    public static final String CACHE_SIZE = "cacheSize";
+    public static final int DEFAULT_CACHE_SIZE = 0;
 
     @Name("mapping")
     @Description("Specify the source and target field mapping and lookup dataset name." +
@@ -76,9 +86,27 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
             "For example: lang_code:English,country_code:Britain")
     private final String defaults;
 
+    @Name(CACHE_SIZE)
+    @Description("Maximum number of values of each mapping table that are kept in memory. Values are read from the " +
+      "mapping table the first time they are seen, so mapping tables smaller than this are read only once. " +
+      "Once the limit is reached, the least recently used values are evicted. Cached values are kept for the " +
+      "whole run, so changes made to a mapping table while the pipeline runs may not be seen. " +
+      "Defaults to 0, which disables caching.")
+    @Nullable
+    private final Integer cacheSize;
+
     public Config(String mapping, String defaults) {
+      this(mapping, defaults, null);
+    }
+
+    public Config(String mapping, String defaults, @Nullable Integer cacheSize) {
       this.mapping = mapping;
       this.defaults = defaults;
+      this.cacheSize = cacheSize;
+    }
+
+    public int getCacheSize() {
+      return cacheSize == null ? DEFAULT_CACHE_SIZE : cacheSize;
     }
   }
 
@@ -121,6 +149,11 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
         mappingValues.put(mappingValueArray[0], valueMapping);
       }
     }
+    if (config.cacheSize != null && config.cacheSize < 0) {
+      collector.addFailure(String.format("Invalid cache size: %d.", config.cacheSize),
+                           "Cache size must be a positive number, or 0 to disable caching.")
+        .withConfigProperty(Config.CACHE_SIZE);
+    }
     collector.getOrThrowException();
   }
 
@@ -179,6 +212,9 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
       if (!lookupTableCache.containsKey(lookupTableName)) {
         LookupTableConfig tableConfig = new LookupTableConfig(LookupTableConfig.TableType.DATASET);
         Lookup<String> lookupTable = context.provide(lookupTableName, tableConfig.getDatasetProperties());
+        if (config.getCacheSize() > 0) {
+          lookupTable = new CachedLookup(lookupTable, config.getCacheSize());
+        }
         lookupTableCache.put(lookupTableName, lookupTable);
       }
     }
@@ -186,32 +222,31 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
 
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) throws Exception {
-    StructuredRecord.Builder builder = StructuredRecord.builder(
-        getOutputSchema(input.getSchema(), getContext().getFailureCollector()));
-    for (Schema.Field sourceField : input.getSchema().getFields()) {
-      String sourceFieldName = sourceField.getName();
-      if (mappingValues.containsKey(sourceFieldName)) {
-        ValueMapping mapping = mappingValues.get(sourceFieldName);
-        String sourceVal = input.get(sourceFieldName);
-        if (sourceVal == null || sourceVal.isEmpty()) {
-          if (mapping.getDefaultValue() != null) {
-            builder.set(mapping.getTargetField(), mapping.getDefaultValue());
-          } else {
-            builder.set(mapping.getTargetField(), sourceVal);
-          }
+    TransformPlan plan = plans.get(input.getSchema());
+    StructuredRecord.Builder builder = StructuredRecord.builder(plan.outputSchema);
+    for (int i = 0; i < plan.fieldNames.length; i++) {
+      String sourceFieldName = plan.fieldNames[i];
+      ValueMapping mapping = plan.mappings[i];
+      if (mapping == null) {
+        // for the fields except source fields
+        builder.set(sourceFieldName, input.get(sourceFieldName));
+        continue;
+      }
+      String sourceVal = input.get(sourceFieldName);
+      if (sourceVal == null || sourceVal.isEmpty()) {
+        if (mapping.getDefaultValue() != null) {
+          builder.set(mapping.getTargetField(), mapping.getDefaultValue());
         } else {
-          // for those source field whose values are neither NULL nor EMPTY
-          Lookup<String> valueMapperLookUp = lookupTableCache.get(mapping.getLookupTableName());
-          String lookupValue = valueMapperLookUp.lookup(sourceVal);
-          if (lookupValue != null && !lookupValue.isEmpty()) {
-            builder.set(mapping.getTargetField(), lookupValue);
-          } else {
-            builder.set(mapping.getTargetField(), mapping.getDefaultValue());
-          }
+          builder.set(mapping.getTargetField(), sourceVal);
         }
       } else {
-        // for the fields except source fields
-        builder.set(sourceFieldName, input.get(sourceFieldName));
+        // for those source field whose values are neither NULL nor EMPTY
+        String lookupValue = plan.lookups[i].lookup(sourceVal);
+        if (lookupValue != null && !lookupValue.isEmpty()) {
+          builder.set(mapping.getTargetField(), lookupValue);
+        } else {
+          builder.set(mapping.getTargetField(), mapping.getDefaultValue());
+        }
       }
     }
 
@@ -289,4 +324,74 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
     }
   }
 
+  /**
+   * The mapping and lookup table of every field of an input schema, so transforming a record does no schema or
+   * mapping lookups.
+   */
+  private final class TransformPlan {
+    private final Schema outputSchema;
+    private final String[] fieldNames;
+    // null for fields that are copied unchanged
+    private final ValueMapping[] mappings;
+    private final Lookup<String>[] lookups;
+
+    @SuppressWarnings("unchecked")
+    TransformPlan(Schema inputSchema, Schema outputSchema) {
+      this.outputSchema = outputSchema;
+      List<Schema.Field> fields = inputSchema.getFields();
+      this.fieldNames = new String[fields.size()];
+      this.mappings = new ValueMapping[fields.size()];
+      this.lookups = new Lookup[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        fieldNames[i] = fields.get(i).getName();
+        mappings[i] = mappingValues.get(fieldNames[i]);
+        if (mappings[i] != null) {
+          lookups[i] = lookupTableCache.get(mappings[i].getLookupTableName());
+        }
+      }
+    }
+  }
+
+  /**
+   * {@link Lookup} that keeps the values read from a mapping table in memory, including keys that are not in the
+   * table. Mapping tables are usually much smaller than the data mapped with them, so once the table has been
+   * read every lookup is served from memory. If the table has more distinct keys than the cache can hold, the
+   * least recently used ones are evicted.
+   */
+  @VisibleForTesting
+  static final class CachedLookup implements Lookup<String> {
+    private final Lookup<String> delegate;
+    // keys that are not in the mapping table are cached as empty values
+    private final Map<String, Optional<String>> cache;
+
+    CachedLookup(Lookup<String> delegate, final int maxSize) {
+      this.delegate = delegate;
+      this.cache = new LinkedHashMap<String, Optional<String>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Optional<String>> eldest) {
+          return size() > maxSize;
+        }
+      };
+    }
+
+    @Override
+    public String lookup(String key) {
+      Optional<String> value = cache.get(key);
+      if (value == null) {
+        value = Optional.ofNullable(delegate.lookup(key));
+        cache.put(key, value);
+      }
+      return value.orElse(null);
+    }
+
+    @Override
+    public Map<String, String> lookup(String... keys) {
+      return delegate.lookup(keys);
+    }
+
+    @Override
+    public Map<String, String> lookup(Set<String> keys) {
+      return delegate.lookup(keys);
+    }
+  }
 }
@@ -55,6 +55,8 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 /**
@@ -71,6 +73,12 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
   private final Config config;
   private Schema outSchema;
   private Map<String, String> xPathMapping = new HashMap<>();
+  private List<Schema.Field> outFields;
+  private DocumentBuilder documentBuilder;
+  private XPathExpression[] xPathExpressions;
+  private Transformer transformer;
+  // only set if every XPath is a simple path, in which case no DOM is built unless a value has child elements
+  private StreamingXPathEvaluator streamingEvaluator;
 
   // Required only for testing.
   public XMLParser(Config config) {
@@ -98,8 +106,33 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
     super.initialize(context);
     FailureCollector collector = getContext().getFailureCollector();
     outSchema = config.getOutputSchema(collector);
-    xPathMapping = getXPathMapping(collector);
+    validateXpathAndSchema(collector);
     collector.getOrThrowException();
+
+    // the builders and compiled expressions are reused for all records, since creating them is expensive
+    documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    XPath xpath = XPathFactory.newInstance().newXPath();
+    outFields = outSchema.getFields();
+    xPathExpressions = new XPathExpression[outFields.size()];
+    List<String> fieldNames = new ArrayList<>();
+    List<String> xpaths = new ArrayList<>();
+    boolean simplePaths = true;
+    for (int i = 0; i < outFields.size(); i++) {
+      String fieldName = outFields.get(i).getName();
+      String path = xPathMapping.get(fieldName);
+      try {
+        xPathExpressions[i] = xpath.compile(path);
+      } catch (XPathExpressionException e) {
+        throw new IllegalArgumentException(
+          String.format("Invalid XPath '%s' for field '%s': %s", path, fieldName, e.getMessage()), e);
+      }
+      fieldNames.add(fieldName);
+      xpaths.add(path);
+      simplePaths = simplePaths && StreamingXPathEvaluator.isSimplePath(path);
+    }
+    if (simplePaths) {
+      streamingEvaluator = new StreamingXPathEvaluator(fieldNames, xpaths, Boolean.TRUE.equals(config.failOnArray));
+    }
   }
 
   /**
@@ -159,32 +192,18 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) {
     try {
-      InputSource source = new InputSource(new StringReader((String) input.get(config.inputField)));
-      source.setEncoding(config.encoding);
-      DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-      Document document = documentBuilder.parse(source);
-      XPathFactory xpathFactory = XPathFactory.newInstance();
-      XPath xpath = xpathFactory.newXPath();
+      String xml = input.get(config.inputField);
+      String[] values = streamingEvaluator == null ? null : streamingEvaluator.evaluate(xml);
+      if (values == null) {
+        values = evaluate(xml);
+      }
       StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
-      for (Schema.Field field : outSchema.getFields()) {
-        String fieldName = field.getName();
-        //To evaluate a node, the type(Nodelist or Node) should be known before hand.
-        //Since, the type is not specified from user inputs, taking everything as NodeList and then evaluating.
-        NodeList nodeList = (NodeList) xpath.compile(xPathMapping.get(fieldName)).evaluate(document,
-                                                                                           XPathConstants.NODESET);
-        if (config.failOnArray && nodeList.getLength() > 1) {
-          throw new IllegalArgumentException("Field " + fieldName + " is an array. " +
-                                               "Cannot specify an XPath that is an array unless failOnArray is false.");
-        }
-        Node node = nodeList.item(0);
-        //Since all columns have nullable schema extracting not nullable type.
-        Schema.Type type = field.getSchema().getNonNullable().getType();
-        String value = getValue(node, type, fieldName);
-        if (value == null) {
+      for (int i = 0; i < values.length; i++) {
+        String fieldName = outFields.get(i).getName();
+        if (values[i] == null) {
           builder.set(fieldName, null);
         } else {
-          builder.convertAndSet(fieldName, value);
+          builder.convertAndSet(fieldName, values[i]);
         }
       }
       emitter.emit(builder.build());
@@ -202,6 +221,40 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
     }
   }
 
+  /**
+   * Parses the xml into a DOM and evaluates the XPath of every output field against it.
+   *
+   * @param xml the xml to parse
+   * @return the value of every output field, in schema order
+   */
+  private String[] evaluate(String xml) throws Exception {
+    InputSource source = new InputSource(new StringReader(xml));
+    source.setEncoding(config.encoding);
+    Document document;
+    try {
+      document = documentBuilder.parse(source);
+    } finally {
+      documentBuilder.reset();
+    }
+    String[] values = new String[outFields.size()];
+    for (int i = 0; i < values.length; i++) {
+      Schema.Field field = outFields.get(i);
+      String fieldName = field.getName();
+      //To evaluate a node, the type(Nodelist or Node) should be known before hand.
+      //Since, the type is not specified from user inputs, taking everything as NodeList and then evaluating.
+      NodeList nodeList = (NodeList) xPathExpressions[i].evaluate(document, XPathConstants.NODESET);
+      if (config.failOnArray && nodeList.getLength() > 1) {
+        throw new IllegalArgumentException("Field " + fieldName + " is an array. " +
+                                             "Cannot specify an XPath that is an array unless failOnArray is false.");
+      }
+      Node node = nodeList.item(0);
+      //Since all columns have nullable schema extracting not nullable type.
+      Schema.Type type = field.getSchema().getNonNullable().getType();
+      values[i] = getValue(node, type, fieldName);
+    }
+    return values;
+  }
+
   /**
    * Get the node value to be parsed into the required format by parseValues().
    *
@@ -239,9 +292,11 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
   private String nodeToString(Node node) {
     StringWriter stringWriter = new StringWriter();
     try {
-      Transformer transformer = TransformerFactory.newInstance().newTransformer();
-      transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-      transformer.setOutputProperty(OutputKeys.INDENT, "no");
+      if (transformer == null) {
+        transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+        transformer.setOutputProperty(OutputKeys.INDENT, "no");
+      }
       transformer.transform(new DOMSource(node), new StreamResult(stringWriter));
     } catch (TransformerException e) {
       throw new IllegalArgumentException("Cannot convert node to string. Transformer exception ", e);
@@ -29,11 +29,13 @@ import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.json.XML;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLStreamException;
 
 /**
  * A transform that parses an XML String field into a stringified JSON Object.
@@ -50,7 +52,12 @@ public final class XMLToJSON extends Transform<StructuredRecord, StructuredRecor
     Schema.Field.of("json_str", Schema.of(Schema.Type.STRING))
   );
   private Schema outputSchema;
-
+  private String outputFieldName;
+  // Only set if streaming is enabled.
+  private StreamingXmlToJson streamingConverter;
+  // The input fields that are copied to the output, for the last input schema.
+  private Schema inputSchema;
+  private String[] passthroughFields;
 
   // Used only for testing.
   public XMLToJSON(Config config) {
@@ -77,6 +84,10 @@ public final class XMLToJSON extends Transform<StructuredRecord, StructuredRecor
     } catch (IOException e) {
       throw new IllegalArgumentException("Output Schema specified is not a valid JSON. Please check the Schema JSON");
     }
+    outputFieldName = outputSchema.getField(config.outputField).getName();
+    if (config.isStreaming()) {
+      streamingConverter = new StreamingXmlToJson();
+    }
   }
 
   @Override
@@ -100,32 +111,39 @@ public final class XMLToJSON extends Transform<StructuredRecord, StructuredRecor
   
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) throws Exception {
-    JSONObject jsonBody;
+    String xml = input.get(config.inputField);
+    String json;
     try {
-      jsonBody = XML.toJSONObject((String) input.get(config.inputField));
-    } catch (JSONException e) {
-      throw new Exception(String.format("Failed to convert XML to JSON. XML In: '%s'",
-                                        (String) input.get(config.inputField)), e);
+      json = streamingConverter == null ? XML.toJSONObject(xml).toString() : streamingConverter.convert(xml);
+    } catch (JSONException | XMLStreamException e) {
+      throw new Exception(String.format("Failed to convert XML to JSON. XML In: '%s'", xml), e);
     }
     StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
 
-    Schema inSchema = input.getSchema();
-    List<Schema.Field> inFields = inSchema.getFields();
+    if (!input.getSchema().equals(inputSchema)) {
+      inputSchema = input.getSchema();
+      passthroughFields = getPassthroughFields(inputSchema);
+    }
+    for (String name : passthroughFields) {
+      builder.set(name, input.get(name));
+    }
+    // Finally add the transformed JSON string
+    builder.set(outputFieldName, json);
+    emitter.emit(builder.build());
+  }
 
-    for (Schema.Field field : inFields) {
+  /**
+   * Returns the input fields that are in the output schema, except for the input field containing the xml string.
+   */
+  private String[] getPassthroughFields(Schema inputSchema) {
+    List<String> names = new ArrayList<>();
+    for (Schema.Field field : inputSchema.getFields()) {
       String name = field.getName();
-
-      if (outputSchema.getField(name) != null) {
-        if (name.equals(config.inputField)) {
-          // skip the input field containing the xml string
-          continue;
-        }
-        builder.set(name, input.get(name));
+      if (outputSchema.getField(name) != null && !name.equals(config.inputField)) {
+        names.add(name);
       }
     }
-    // Finally add the transformed JSON string
-    builder.set(outputSchema.getField(config.outputField).getName(), jsonBody.toString());
-    emitter.emit(builder.build());
+    return names.toArray(new String[names.size()]);
   }
 
   /**
@@ -147,16 +165,30 @@ public final class XMLToJSON extends Transform<StructuredRecord, StructuredRecor
     @Description("Output schema")
     private String schema;
 
+    @Name("streaming")
+    @Description("Whether to convert the XML with a streaming parser instead of building a JSON object for the " +
+      "whole document. The JSON follows the same conventions, but members are written in the order in which they " +
+      "first appear in the XML. Defaults to false.")
+    @Nullable
+    private Boolean streaming;
+
     public Config(String inputField, String outputField) {
-      this.inputField = inputField;
-      this.outputField = outputField;
-      this.schema = DEFAULT_SCHEMA.toString();
+      this(inputField, outputField, DEFAULT_SCHEMA.toString());
     }
 
     public Config(String inputField, String outputField, String schema) {
+      this(inputField, outputField, schema, false);
+    }
+
+    public Config(String inputField, String outputField, String schema, @Nullable Boolean streaming) {
       this.inputField = inputField;
       this.outputField = outputField;
       this.schema = schema;
+      this.streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+      return Boolean.TRUE.equals(streaming);
     }
   }
 }
@@ -416,4 +416,21 @@ public class CSVParserTest {
     Assert.assertEquals("offset", 1, invalidEntry.getInvalidRecord().<Integer>get("offset").intValue());
     Assert.assertEquals("body", "0,\"020\"1,\"BS:12345  ORDER:111\"4", invalidEntry.getInvalidRecord().get("body"));
   }
+
+  @Test
+  public void testMalformedRowAfterParsedRows() throws Exception {
+    CSVParser.Config config = new CSVParser.Config("DEFAULT", null, "body", OUTPUT2.toString());
+    Transform<StructuredRecord, StructuredRecord> transform = new CSVParser(config);
+    transform.initialize(new MockTransformContext());
+    StructuredRecord inputRecord = StructuredRecord.builder(INPUT1)
+      .set("body", "1,2,3,4,true\n5,\"6\"7,8,9,false").build();
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(inputRecord, emitter);
+    // the row before the malformed one is emitted as it was parsed, followed by the error for the whole body
+    Assert.assertEquals(1, emitter.getEmitted().size());
+    Assert.assertEquals(1L, emitter.getEmitted().get(0).<Long>get("a").longValue());
+    Assert.assertEquals(1, emitter.getErrors().size());
+    Assert.assertEquals(31, emitter.getErrors().get(0).getErrorCode());
+    Assert.assertEquals(inputRecord, emitter.getErrors().get(0).getInvalidRecord());
+  }
 }
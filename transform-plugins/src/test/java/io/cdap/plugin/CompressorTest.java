@@ -16,6 +16,8 @@
 
 package io.cdap.plugin;
 
+import com.github.luben.zstd.Zstd;
+import com.google.common.io.ByteStreams;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.FailureCollector;
@@ -23,15 +25,20 @@ import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.mock.common.MockEmitter;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
 import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import net.jpountz.lz4.LZ4DecompressorWithLength;
+import net.jpountz.lz4.LZ4Factory;
 import org.junit.Assert;
 import org.junit.Test;
 import org.xerial.snappy.Snappy;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.zip.ZipInputStream;
 
 /**
  * Tests {@link Compressor}.
@@ -84,10 +91,9 @@ public class CompressorTest {
                           .set("d", "4")
                           .set("e", "5").build(), emitter);
 
-    byte[] expected = compressZIP("This is a test for testing zip compression".getBytes());
     byte[] actual = emitter.getEmitted().get(0).get("a");
     Assert.assertEquals(2, emitter.getEmitted().get(0).getSchema().getFields().size());
-    Assert.assertArrayEquals(expected, actual);
+    Assert.assertArrayEquals("This is a test for testing zip compression".getBytes(), decompressZIP(actual));
   }
 
   @Test
@@ -111,6 +117,117 @@ public class CompressorTest {
     Assert.assertArrayEquals(expected, actual);
   }
 
+  @Test
+  public void testGZIPCompressWithLevel() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Compressor(new Compressor.Config("a:GZIP:1,b:NONE", OUTPUT.toString()));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    // the same deflater is reused for every record
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    for (int i = 0; i < 3; i++) {
+      transform.transform(StructuredRecord.builder(INPUT)
+                            .set("a", "This is test " + i + " for testing gzip compression")
+                            .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+    }
+    transform.destroy();
+
+    Assert.assertEquals(3, emitter.getEmitted().size());
+    for (int i = 0; i < 3; i++) {
+      byte[] actual = emitter.getEmitted().get(i).get("a");
+      Assert.assertArrayEquals(("This is test " + i + " for testing gzip compression").getBytes(),
+                               decompressGZIP(actual));
+    }
+  }
+
+  @Test
+  public void testLZ4Compress() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Compressor(new Compressor.Config("a:LZ4", OUTPUT.toString()));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", "This is a test for testing lz4 compression")
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+
+    byte[] actual = emitter.getEmitted().get(0).get("a");
+    byte[] decompressed = new LZ4DecompressorWithLength(LZ4Factory.fastestInstance().fastDecompressor())
+      .decompress(actual);
+    Assert.assertArrayEquals("This is a test for testing lz4 compression".getBytes(), decompressed);
+  }
+
+  @Test
+  public void testZstdCompress() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Compressor(new Compressor.Config("a:ZSTD:19", OUTPUT.toString()));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", "This is a test for testing zstd compression")
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+
+    byte[] actual = emitter.getEmitted().get(0).get("a");
+    byte[] decompressed = Zstd.decompress(actual, (int) Zstd.decompressedSize(actual));
+    Assert.assertArrayEquals("This is a test for testing zstd compression".getBytes(), decompressed);
+  }
+
+  @Test
+  public void testLevelPerField() throws Exception {
+    Schema output = Schema.recordOf("output",
+                                    Schema.Field.of("a", Schema.of(Schema.Type.BYTES)),
+                                    Schema.Field.of("b", Schema.of(Schema.Type.BYTES)),
+                                    Schema.Field.of("c", Schema.of(Schema.Type.BYTES)));
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Compressor(new Compressor.Config("a:LZ4:9,b:LZ4,c:GZIP:9", output.toString()));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", "This is a test for testing lz4 compression at level 9")
+                          .set("b", "This is a test for testing lz4 compression")
+                          .set("c", "This is a test for testing gzip compression at level 9")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+    transform.destroy();
+
+    StructuredRecord record = emitter.getEmitted().get(0);
+    LZ4DecompressorWithLength decompressor =
+      new LZ4DecompressorWithLength(LZ4Factory.fastestInstance().fastDecompressor());
+    Assert.assertArrayEquals("This is a test for testing lz4 compression at level 9".getBytes(),
+                             decompressor.decompress(record.<byte[]>get("a")));
+    Assert.assertArrayEquals("This is a test for testing lz4 compression".getBytes(),
+                             decompressor.decompress(record.<byte[]>get("b")));
+    Assert.assertArrayEquals("This is a test for testing gzip compression at level 9".getBytes(),
+                             decompressGZIP(record.get("c")));
+  }
+
+  @Test
+  public void testInvalidLevel() {
+    for (String compressor : new String[] { "a:GZIP:12", "a:LZ4:0", "a:ZSTD:high", "a:SNAPPY:1", "a:ZIP:1:2" }) {
+      Transform<StructuredRecord, StructuredRecord> transform =
+        new Compressor(new Compressor.Config(compressor, OUTPUT.toString()));
+      MockPipelineConfigurer mockPipelineConfigurer = new MockPipelineConfigurer(INPUT);
+      transform.configurePipeline(mockPipelineConfigurer);
+      FailureCollector collector = mockPipelineConfigurer.getStageConfigurer().getFailureCollector();
+      Assert.assertEquals(compressor, 1, collector.getValidationFailures().size());
+    }
+  }
+
   @Test
   public void testSchemaValidation() {
     Transform<StructuredRecord, StructuredRecord> transform =
@@ -155,12 +272,66 @@ public class CompressorTest {
     return out.toByteArray();
   }
 
-  private byte[] compressZIP(byte[] input) throws IOException {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    ZipOutputStream zos = new ZipOutputStream(out);
-    zos.putNextEntry(new ZipEntry("c"));
-    zos.write(input, 0, input.length);
-    zos.close();
-    return out.toByteArray();
+  private static byte[] decompressGZIP(byte[] input) throws IOException {
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(input))) {
+      return ByteStreams.toByteArray(gzip);
+    }
+  }
+
+  private static byte[] decompressZIP(byte[] input) throws IOException {
+    try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(input))) {
+      ZipEntry entry = zis.getNextEntry();
+      Assert.assertEquals("c", entry.getName());
+      byte[] content = ByteStreams.toByteArray(zis);
+      Assert.assertNull(zis.getNextEntry());
+      return content;
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Schema decompressed = Schema.recordOf("decompressed",
+                                          Schema.Field.of("a", Schema.of(Schema.Type.STRING)),
+                                          Schema.Field.of("b", Schema.of(Schema.Type.STRING)));
+    // values of about 4KB that compress like typical text
+    int count = 20;
+    StructuredRecord[] records = new StructuredRecord[count];
+    for (int i = 0; i < count; i++) {
+      StringBuilder value = new StringBuilder();
+      for (int j = 0; value.length() < 4096; j++) {
+        value.append("event ").append(i).append(" field ").append(j).append(" value ").append(i * 31 + j).append(';');
+      }
+      records[i] = StructuredRecord.builder(INPUT).set("a", value.toString()).set("b", "2").set("c", "3")
+        .set("d", "4").set("e", "5").build();
+    }
+
+    for (String type : new String[] { "SNAPPY", "ZIP", "GZIP", "LZ4", "ZSTD" }) {
+      List<StructuredRecord> compressed = transform(
+        new Compressor(new Compressor.Config("a:" + type, OUTPUT.toString())), records);
+      List<StructuredRecord> output = transform(
+        new Decompressor(new Decompressor.Config("a:" + type, decompressed.toString())),
+        compressed.toArray(new StructuredRecord[0]));
+      Assert.assertEquals(count, output.size());
+      for (int i = 0; i < count; i++) {
+        Assert.assertTrue(type, compressed.get(i).<byte[]>get("a").length < records[i].<String>get("a").length());
+        Assert.assertEquals(type, records[i].get("a"), output.get(i).get("a"));
+        Assert.assertEquals(type, "2", output.get(i).get("b"));
+      }
+    }
+  }
+
+  /**
+   * Transforms the records and returns the output.
+   */
+  private static List<StructuredRecord> transform(Transform<StructuredRecord, StructuredRecord> transform,
+                                                  StructuredRecord[] records) throws Exception {
+    transform.initialize(new MockTransformContext());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    for (StructuredRecord record : records) {
+      transform.transform(record, emitter);
+    }
+    transform.destroy();
+    Assert.assertEquals(records.length, emitter.getEmitted().size());
+    return emitter.getEmitted();
   }
 }
@@ -17,6 +17,7 @@
 package io.cdap.plugin;
 
 
+import com.github.luben.zstd.Zstd;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.FailureCollector;
@@ -24,6 +25,8 @@ import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.mock.common.MockEmitter;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
 import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import net.jpountz.lz4.LZ4CompressorWithLength;
+import net.jpountz.lz4.LZ4Factory;
 import org.junit.Assert;
 import org.junit.Test;
 import org.xerial.snappy.Snappy;
@@ -112,6 +115,105 @@ public class DecompressorTest {
     Assert.assertEquals(decompressTester, actual);
   }
 
+  @Test
+  public void testGZipConcatenatedMembers() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:GZIP", OUTPUT.toString()));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    byte[] first = gzip("This is a test ".getBytes());
+    byte[] second = gzip("for testing gzip compression".getBytes());
+    byte[] compressed = new byte[first.length + second.length];
+    System.arraycopy(first, 0, compressed, 0, first.length);
+    System.arraycopy(second, 0, compressed, first.length, second.length);
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", compressed)
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+    transform.destroy();
+
+    Assert.assertEquals("This is a test for testing gzip compression", emitter.getEmitted().get(0).get("a"));
+  }
+
+  @Test
+  public void testLZ4Compress() throws Exception {
+    String decompressTester = "This is a test for testing lz4 compression";
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:LZ4", OUTPUT.toString()));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    byte[] compressed = new LZ4CompressorWithLength(LZ4Factory.fastestInstance().fastCompressor())
+      .compress(decompressTester.getBytes());
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", compressed)
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+    Assert.assertEquals(decompressTester, emitter.getEmitted().get(0).get("a"));
+  }
+
+  @Test
+  public void testZstdCompress() throws Exception {
+    String decompressTester = "This is a test for testing zstd compression";
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:ZSTD", OUTPUT.toString()));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    byte[] compressed = Zstd.compress(decompressTester.getBytes());
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", compressed)
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+    Assert.assertEquals(decompressTester, emitter.getEmitted().get(0).get("a"));
+  }
+
+  @Test
+  public void testInvalidData() throws Exception {
+    Schema output = Schema.recordOf("output",
+                                    Schema.Field.of("a", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("b", Schema.of(Schema.Type.STRING)));
+    byte[][] invalidValues = {
+      new byte[] { 1, 2 },
+      // an LZ4 length prefix of 10 followed by data that is not an LZ4 block
+      new byte[] { 10, 0, 0, 0, (byte) 0xff, (byte) 0xff, (byte) 0xff },
+      // an LZ4 length prefix that is far larger than the block can expand to
+      new byte[] { (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x7f, 0 },
+      "This is not compressed".getBytes()
+    };
+
+    // like for GZIP, values that can't be decompressed are left out of the output
+    for (String type : new String[] { "GZIP", "LZ4", "ZSTD" }) {
+      Transform<StructuredRecord, StructuredRecord> transform =
+        new Decompressor(new Decompressor.Config("a:" + type, output.toString()));
+      transform.initialize(new MockTransformContext());
+      MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+      for (byte[] value : invalidValues) {
+        transform.transform(StructuredRecord.builder(INPUT)
+                              .set("a", value)
+                              .set("b", "2")
+                              .set("c", "3")
+                              .set("d", "4")
+                              .set("e", "5").build(), emitter);
+      }
+      transform.destroy();
+      Assert.assertEquals(invalidValues.length, emitter.getEmitted().size());
+      for (StructuredRecord record : emitter.getEmitted()) {
+        Assert.assertNull(type, record.get("a"));
+        Assert.assertEquals("2", record.get("b"));
+      }
+    }
+  }
 
   private static byte[] gzip(byte[] input) throws IOException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -28,6 +28,7 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.security.KeyStore;
+import java.util.Arrays;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
@@ -75,4 +76,23 @@ public class FieldEncryptorTest {
     Assert.assertEquals("abc", decryptor.decrypt(encryptor.encrypt("abc", fieldSchema), fieldSchema));
   }
 
+  @Test
+  public void testGCMEncryption() throws Exception {
+    KeystoreConf gcmConf = new KeystoreConf("AES/GCM/NoPadding", null, keystoreConf.getKeystorePath(),
+                                            keystoreConf.getKeystorePassword(), keystoreConf.getKeystoreType(),
+                                            keystoreConf.getKeyAlias(), keystoreConf.getKeyPassword());
+    FieldEncryptor encryptor = new FileBasedFieldEncryptor(gcmConf, Cipher.ENCRYPT_MODE);
+    encryptor.initialize();
+    FieldEncryptor decryptor = new FileBasedFieldEncryptor(gcmConf, Cipher.DECRYPT_MODE);
+    decryptor.initialize();
+
+    // every value gets its own initialization vector, so equal values are encrypted differently
+    Schema fieldSchema = Schema.of(Schema.Type.LONG);
+    byte[] first = encryptor.encrypt(5L, fieldSchema);
+    byte[] second = encryptor.encrypt(5L, fieldSchema);
+    Assert.assertFalse(Arrays.equals(first, second));
+    Assert.assertEquals(5L, decryptor.decrypt(first, fieldSchema));
+    Assert.assertEquals(5L, decryptor.decrypt(second, fieldSchema));
+  }
+
 }
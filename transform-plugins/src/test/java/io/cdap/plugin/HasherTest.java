@@ -16,11 +16,14 @@
 
 package io.cdap.plugin;
 
+import com.google.common.hash.Hashing;
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.mock.common.MockEmitter;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
+import net.jpountz.xxhash.XXHashFactory;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.Assert;
 import org.junit.Test;
@@ -174,6 +177,52 @@ public class HasherTest {
     Assert.assertEquals(DigestUtils.sha512Hex("Field E"), emitter.getEmitted().get(0).get("e"));
   }
 
+  @Test
+  public void testHasherNonCryptographic() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Hasher(new Hasher.Config("XXHASH64", "a"));
+    transform.initialize(null);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    StructuredRecord record = StructuredRecord.builder(INPUT)
+      .set("a", "Field A")
+      .set("b", "Field B")
+      .set("c", "Field C")
+      .set("d", 4)
+      .set("e", "Field E").build();
+    transform.transform(record, emitter);
+    byte[] bytes = Bytes.toBytes("Field A");
+    long expected = XXHashFactory.fastestInstance().hash64().hash(bytes, 0, bytes.length, 0L);
+    Assert.assertEquals(String.format("%016x", expected), emitter.getEmitted().get(0).get("a"));
+
+    transform = new Hasher(new Hasher.Config("MURMUR3_128", "a"));
+    transform.initialize(null);
+    emitter.clear();
+    transform.transform(record, emitter);
+    Assert.assertEquals(Hashing.murmur3_128().hashBytes(bytes).toString(), emitter.getEmitted().get(0).get("a"));
+  }
+
+  @Test
+  public void testHasherBinaryNonString() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Hasher(new Hasher.Config("SHA256", "a,d", "binary"));
+    transform.initialize(null);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", "Field A")
+                          .set("b", "Field B")
+                          .set("c", "Field C")
+                          .set("d", 4)
+                          .set("e", "Field E").build(), emitter);
+
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals(Schema.of(Schema.Type.BYTES), output.getSchema().getField("a").getSchema());
+    Assert.assertEquals(Schema.of(Schema.Type.BYTES), output.getSchema().getField("d").getSchema());
+    Assert.assertArrayEquals(DigestUtils.sha256("Field A"), output.get("a"));
+    Assert.assertArrayEquals(DigestUtils.sha256(Bytes.toBytes(4)), output.get("d"));
+    Assert.assertEquals("Field B", output.get("b"));
+  }
+
   @Test
   public void testSchemaValidation() throws Exception {
     Transform<StructuredRecord, StructuredRecord> transform =
@@ -270,4 +270,63 @@ public class JSONParserTest {
     Assert.assertEquals(19.95d, emitter.getEmitted().get(0).get("bicycle_price"), 0.0001d);
     Assert.assertEquals(null, emitter.getEmitted().get(0).get("window"));
   }
+
+  @Test
+  public void testStreamingJSONParsing() throws Exception {
+    final String[] jsonPaths = {
+      "expensive:$.expensive",
+      "bicycle_color:$.store.bicycle.color",
+      "bicycle_price:$.store.bicycle.price",
+      "window:$.store.window"
+    };
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    JSONParser.Config config = new JSONParser.Config("body", Joiner.on(",").join(jsonPaths),
+                                                     OUTPUT5.toString(), true);
+    Transform<StructuredRecord, StructuredRecord> transform = new JSONParser(config);
+
+    MockPipelineConfigurer mockPipelineConfigurer = new MockPipelineConfigurer(INPUT1);
+    transform.configurePipeline(mockPipelineConfigurer);
+    Assert.assertEquals(0, mockPipelineConfigurer.getStageConfigurer().getFailureCollector()
+      .getValidationFailures().size());
+    transform.initialize(new MockTransformContext());
+    transform.transform(StructuredRecord.builder(INPUT1)
+                          .set("body", json)
+                          .build(), emitter);
+    Assert.assertEquals(10, emitter.getEmitted().get(0).<Integer>get("expensive").intValue());
+    Assert.assertEquals("red", emitter.getEmitted().get(0).get("bicycle_color"));
+    Assert.assertEquals(19.95f, emitter.getEmitted().get(0).<Float>get("bicycle_price"), 0.0001f);
+    Assert.assertNull(emitter.getEmitted().get(0).get("window"));
+
+    // records missing a non-nullable field are dropped
+    emitter.clear();
+    transform.transform(StructuredRecord.builder(INPUT1)
+                          .set("body", "{\"store\": {\"bicycle\": {\"color\": \"blue\"}}}")
+                          .build(), emitter);
+    Assert.assertEquals(0, emitter.getEmitted().size());
+  }
+
+  @Test
+  public void testStreamingWithComplexPath() throws Exception {
+    JSONParser.Config config = new JSONParser.Config("body", "expensive:$.expensive,bicycle_color:$..color",
+                                                     OUTPUT3.toString(), true);
+    MockPipelineConfigurer mockPipelineConfigurer = new MockPipelineConfigurer(INPUT1);
+    new JSONParser(config).configurePipeline(mockPipelineConfigurer);
+    FailureCollector collector = mockPipelineConfigurer.getStageConfigurer().getFailureCollector();
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
+  @Test
+  public void testStreamingWithNestedPaths() throws Exception {
+    JSONParser.Config config = new JSONParser.Config(
+      "body", "expensive:$.expensive,bicycle_color:$.store.bicycle,bicycle_price:$.store.bicycle.price",
+      OUTPUT3.toString(), true);
+    MockPipelineConfigurer mockPipelineConfigurer = new MockPipelineConfigurer(INPUT1);
+    new JSONParser(config).configurePipeline(mockPipelineConfigurer);
+    FailureCollector collector = mockPipelineConfigurer.getStageConfigurer().getFailureCollector();
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+    Assert.assertEquals(1, collector.getValidationFailures().get(0).getCauses().size());
+    Assert.assertEquals("bicycle_price:$.store.bicycle.price", collector.getValidationFailures().get(0).getCauses()
+      .get(0).getAttribute(CauseAttributes.CONFIG_ELEMENT));
+  }
 }
@@ -22,9 +22,12 @@ import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.mock.common.MockMultiOutputEmitter;
 import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import io.cdap.plugin.common.SchemaCache;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.List;
+
 /**
  * Tests {@link NullFieldSplitter}
  */
@@ -117,12 +120,15 @@ public class NullFieldSplitterTest {
 
     MockMultiOutputEmitter<StructuredRecord> mockEmitter = new MockMultiOutputEmitter<>();
 
-    // test non-null
-    nullFieldSplitter.transform(StructuredRecord.builder(schema).set("x", 0L).set("z", "abc").build(), mockEmitter);
+    // test non-null, which is emitted as is since its schema is not modified
+    StructuredRecord nonNullRecord = StructuredRecord.builder(schema).set("x", 0L).set("z", "abc").build();
+    nullFieldSplitter.transform(nonNullRecord, mockEmitter);
     Assert.assertEquals(
       ImmutableMap.of(NullFieldSplitter.NON_NULL_PORT,
                       ImmutableList.of(StructuredRecord.builder(schema).set("x", 0L).set("z", "abc").build())),
       mockEmitter.getEmitted());
+    Assert.assertSame(nonNullRecord, mockEmitter.getEmitted().get(NullFieldSplitter.NON_NULL_PORT).get(0));
+    Assert.assertEquals(0, nullFieldSplitter.getCachedSchemas());
 
     // test null
     mockEmitter.clear();
@@ -133,4 +139,34 @@ public class NullFieldSplitterTest {
       mockEmitter.getEmitted());
   }
 
+  @Test
+  public void testMultipleSchemas() throws Exception {
+    NullFieldSplitter nullFieldSplitter = new NullFieldSplitter(new NullFieldSplitter.Conf("z", true));
+    nullFieldSplitter.initialize(new MockTransformContext());
+    MockMultiOutputEmitter<StructuredRecord> mockEmitter = new MockMultiOutputEmitter<>();
+
+    // one more schema than are cached, followed by the first schema again after its plan was evicted
+    int numSchemas = SchemaCache.MAX_SIZE + 1;
+    for (int i = 0; i <= numSchemas; i++) {
+      nullFieldSplitter.transform(StructuredRecord.builder(getNullableSchema(i % numSchemas))
+                                    .set("x", (long) i).set("z", "abc").build(), mockEmitter);
+      Assert.assertTrue(nullFieldSplitter.getCachedSchemas() <= SchemaCache.MAX_SIZE);
+    }
+
+    List<Object> emitted = mockEmitter.getEmitted().get(NullFieldSplitter.NON_NULL_PORT);
+    Assert.assertEquals(numSchemas + 1, emitted.size());
+    for (int i = 0; i <= numSchemas; i++) {
+      Schema nonNullSchema = Schema.recordOf("test" + (i % numSchemas) + ".nonnull",
+                                             Schema.Field.of("x", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+                                             Schema.Field.of("z", Schema.of(Schema.Type.STRING)));
+      Assert.assertEquals(StructuredRecord.builder(nonNullSchema).set("x", (long) i).set("z", "abc").build(),
+                          emitted.get(i));
+    }
+  }
+
+  private static Schema getNullableSchema(int index) {
+    return Schema.recordOf("test" + index,
+                           Schema.Field.of("x", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+                           Schema.Field.of("z", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  }
 }
@@ -24,6 +24,7 @@ import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.cdap.etl.mock.common.MockMultiOutputEmitter;
 import io.cdap.cdap.etl.mock.transform.MockTransformContext;
 import io.cdap.cdap.etl.mock.validation.MockFailureCollector;
+import io.cdap.plugin.common.SchemaCache;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -297,4 +298,94 @@ public class UnionSplitterTest {
     Assert.assertEquals(expected, actual);
     Assert.assertEquals(0, context.getFailureCollector().getValidationFailures().size());
   }
+
+  @Test
+  public void testMultipleInputSchemas() throws Exception {
+    Schema unionSchema = Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING));
+    Schema inputSchema1 = Schema.recordOf("union1",
+                                          Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+                                          Schema.Field.of("b", unionSchema));
+    Schema inputSchema2 = Schema.recordOf("union2",
+                                          Schema.Field.of("b", unionSchema),
+                                          Schema.Field.of("c", Schema.of(Schema.Type.STRING)));
+    Schema intSchema1 = Schema.recordOf("union1.int",
+                                        Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+                                        Schema.Field.of("b", Schema.of(Schema.Type.INT)));
+    Schema stringSchema1 = Schema.recordOf("union1.string",
+                                           Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+                                           Schema.Field.of("b", Schema.of(Schema.Type.STRING)));
+    Schema intSchema2 = Schema.recordOf("union2.int",
+                                        Schema.Field.of("b", Schema.of(Schema.Type.INT)),
+                                        Schema.Field.of("c", Schema.of(Schema.Type.STRING)));
+
+    UnionSplitter unionSplitter = new UnionSplitter(new UnionSplitter.Conf("b", true));
+    unionSplitter.initialize(new MockTransformContext());
+    MockMultiOutputEmitter<StructuredRecord> mockEmitter = new MockMultiOutputEmitter<>();
+    // records of the two schemas alternate, so the plan of each schema is looked up again for every record
+    unionSplitter.transform(StructuredRecord.builder(inputSchema1).set("a", 0L).set("b", 1).build(), mockEmitter);
+    unionSplitter.transform(StructuredRecord.builder(inputSchema2).set("b", 2).set("c", "x").build(), mockEmitter);
+    unionSplitter.transform(StructuredRecord.builder(inputSchema1).set("a", 3L).set("b", "4").build(), mockEmitter);
+    unionSplitter.transform(StructuredRecord.builder(inputSchema2).set("b", 5).set("c", "y").build(), mockEmitter);
+
+    Map<String, List<StructuredRecord>> expected = new HashMap<>();
+    expected.put("int", ImmutableList.of(StructuredRecord.builder(intSchema1).set("a", 0L).set("b", 1).build(),
+                                         StructuredRecord.builder(intSchema2).set("b", 2).set("c", "x").build(),
+                                         StructuredRecord.builder(intSchema2).set("b", 5).set("c", "y").build()));
+    expected.put("string",
+                 ImmutableList.of(StructuredRecord.builder(stringSchema1).set("a", 3L).set("b", "4").build()));
+    Assert.assertEquals(expected, mockEmitter.getEmitted());
+    Assert.assertEquals(2, unionSplitter.getCachedSchemas());
+  }
+
+  @Test
+  public void testCachedSchemasAreBounded() throws Exception {
+    Schema unionSchema = Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING));
+    UnionSplitter unionSplitter = new UnionSplitter(new UnionSplitter.Conf("b", true));
+    unionSplitter.initialize(new MockTransformContext());
+    MockMultiOutputEmitter<StructuredRecord> mockEmitter = new MockMultiOutputEmitter<>();
+
+    int numSchemas = SchemaCache.MAX_SIZE + 1;
+    for (int i = 0; i <= numSchemas; i++) {
+      // the last record has the first schema again, after its plan was evicted
+      int schemaIndex = i % numSchemas;
+      Schema inputSchema = Schema.recordOf("union" + schemaIndex,
+                                           Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+                                           Schema.Field.of("b", unionSchema));
+      unionSplitter.transform(StructuredRecord.builder(inputSchema).set("a", (long) i).set("b", schemaIndex).build(),
+                              mockEmitter);
+      Assert.assertTrue(unionSplitter.getCachedSchemas() <= SchemaCache.MAX_SIZE);
+    }
+
+    List<Object> emitted = mockEmitter.getEmitted().get("int");
+    Assert.assertEquals(numSchemas + 1, emitted.size());
+    for (int i = 0; i <= numSchemas; i++) {
+      int schemaIndex = i % numSchemas;
+      Assert.assertEquals(StructuredRecord.builder(Schema.recordOf("union" + schemaIndex + ".int",
+                                                                   Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+                                                                   Schema.Field.of("b", Schema.of(Schema.Type.INT))))
+                            .set("a", (long) i).set("b", schemaIndex).build(),
+                          emitted.get(i));
+    }
+  }
+
+  @Test
+  public void testNoModifySchemaEmitsInput() throws Exception {
+    Schema inputSchema = Schema.recordOf("union",
+                                         Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+                                         Schema.Field.of("b", Schema.unionOf(Schema.of(Schema.Type.INT),
+                                                                             Schema.of(Schema.Type.STRING))));
+    UnionSplitter unionSplitter = new UnionSplitter(new UnionSplitter.Conf("b", false));
+    unionSplitter.initialize(new MockTransformContext());
+    MockMultiOutputEmitter<StructuredRecord> mockEmitter = new MockMultiOutputEmitter<>();
+    StructuredRecord intRecord = StructuredRecord.builder(inputSchema).set("a", 0L).set("b", 1).build();
+    StructuredRecord stringRecord = StructuredRecord.builder(inputSchema).set("a", 2L).set("b", "3").build();
+    unionSplitter.transform(intRecord, mockEmitter);
+    unionSplitter.transform(stringRecord, mockEmitter);
+
+    // the schema of the records is not modified, so they are emitted without being copied
+    Assert.assertEquals(1, mockEmitter.getEmitted().get("int").size());
+    Assert.assertSame(intRecord, mockEmitter.getEmitted().get("int").get(0));
+    Assert.assertEquals(1, mockEmitter.getEmitted().get("string").size());
+    Assert.assertSame(stringRecord, mockEmitter.getEmitted().get("string").get(0));
+  }
 }
@@ -24,6 +24,7 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValueTable;
 import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.datapipeline.SmartWorkflow;
+import io.cdap.cdap.etl.api.Lookup;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.validation.CauseAttributes;
 import io.cdap.cdap.etl.api.validation.ValidationException;
@@ -47,6 +48,7 @@ import org.junit.Test;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -447,4 +449,91 @@ public class ValueMapperTest extends TransformPluginsTestBase {
       Assert.assertEquals(expectedCause, e.getFailures().get(0).getCauses().get(0));
     }
   }
+
+  @Test
+  public void testInvalidCacheSize() throws Exception {
+    Schema inputSchema = Schema.recordOf("sourceRecord", Schema.Field.of(DESIGNATIONID, Schema.of(Schema.Type.STRING)));
+    ValueMapper.Config config = new ValueMapper.Config("designationid:designation_lookup_table:designationName",
+                                                       "", -1);
+
+    MockPipelineConfigurer configurer = new MockPipelineConfigurer(inputSchema);
+    try {
+      new ValueMapper(config).configurePipeline(configurer);
+      Assert.fail();
+    } catch (ValidationException e) {
+      Assert.assertEquals(1, e.getFailures().size());
+      Assert.assertEquals(1, e.getFailures().get(0).getCauses().size());
+      Cause expectedCause = new Cause();
+      expectedCause.addAttribute(STAGE, MOCK_STAGE);
+      expectedCause.addAttribute(CauseAttributes.STAGE_CONFIG, ValueMapper.Config.CACHE_SIZE);
+      Assert.assertEquals(expectedCause, e.getFailures().get(0).getCauses().get(0));
+    }
+
+    // 0 disables caching
+    new ValueMapper(new ValueMapper.Config("designationid:designation_lookup_table:designationName", "", 0))
+      .configurePipeline(new MockPipelineConfigurer(inputSchema));
+  }
+
+  @Test
+  public void testCachedLookup() {
+    CountingLookup table = new CountingLookup(ImmutableMap.of("1", "one", "2", "two"));
+    ValueMapper.CachedLookup lookup = new ValueMapper.CachedLookup(table, 10);
+
+    Assert.assertEquals("one", lookup.lookup("1"));
+    Assert.assertEquals("one", lookup.lookup("1"));
+    Assert.assertEquals("two", lookup.lookup("2"));
+    Assert.assertEquals(ImmutableMap.of("1", 1, "2", 1), table.reads);
+
+    // keys that are not in the table are cached too
+    Assert.assertNull(lookup.lookup("3"));
+    Assert.assertNull(lookup.lookup("3"));
+    Assert.assertEquals(1, (int) table.reads.get("3"));
+  }
+
+  @Test
+  public void testCachedLookupEviction() {
+    CountingLookup table = new CountingLookup(ImmutableMap.of("1", "one", "2", "two", "3", "three"));
+    ValueMapper.CachedLookup lookup = new ValueMapper.CachedLookup(table, 2);
+
+    Assert.assertEquals("one", lookup.lookup("1"));
+    Assert.assertEquals("two", lookup.lookup("2"));
+    // reading 1 again makes 2 the least recently used key, so it is the one evicted when 3 is read
+    Assert.assertEquals("one", lookup.lookup("1"));
+    Assert.assertEquals("three", lookup.lookup("3"));
+    Assert.assertEquals("one", lookup.lookup("1"));
+    Assert.assertEquals("three", lookup.lookup("3"));
+    Assert.assertEquals(ImmutableMap.of("1", 1, "2", 1, "3", 1), table.reads);
+
+    Assert.assertEquals("two", lookup.lookup("2"));
+    Assert.assertEquals(2, (int) table.reads.get("2"));
+  }
+
+  /**
+   * A {@link Lookup} over a map that counts how often each key is read.
+   */
+  private static class CountingLookup implements Lookup<String> {
+    private final Map<String, String> values;
+    private final Map<String, Integer> reads = new HashMap<>();
+
+    CountingLookup(Map<String, String> values) {
+      this.values = values;
+    }
+
+    @Override
+    public String lookup(String key) {
+      Integer count = reads.get(key);
+      reads.put(key, count == null ? 1 : count + 1);
+      return values.get(key);
+    }
+
+    @Override
+    public Map<String, String> lookup(String... keys) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, String> lookup(Set<String> keys) {
+      throw new UnsupportedOperationException();
+    }
+  }
 }
@@ -157,6 +157,73 @@ public class XMLParserTest {
     emitter.clear();
   }
 
+  @Test
+  public void testSimpleXPathWithAttributesAndChildElements() throws Exception {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("category", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("title", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("price", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+                                    Schema.Field.of("subcategory", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("isbn", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+    XMLParser.Config config = new XMLParser.Config(
+      "body", "UTF-8",
+      "category:/bookstore/book/@category,title:/bookstore/book/title,price:/bookstore/book/price," +
+        "subcategory:/bookstore/book/subcategory,isbn:/bookstore/book/isbn",
+      "category:string,title:string,price:double,subcategory:string,isbn:string",
+      "Exit on error");
+    Transform<StructuredRecord, StructuredRecord> transform = new XMLParser(config);
+    transform.initialize(new MockTransformContext());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    StructuredRecord inputRecord = StructuredRecord.builder(INPUT)
+      .set("offset", 1)
+      .set("body", "<bookstore><book category=\"cooking\"><title lang=\"en\">Everyday <![CDATA[Italian]]></title>" +
+        "<price>30.00</price></book><book category=\"web\"><title>Learning XML</title></book></bookstore>").build();
+    transform.transform(inputRecord, emitter);
+    List<StructuredRecord> expected = ImmutableList.of(
+      StructuredRecord.builder(schema).set("category", "cooking").set("title", "Everyday Italian")
+        .set("price", 30.00d).build());
+    Assert.assertEquals(expected, emitter.getEmitted());
+    emitter.clear();
+
+    // elements with child elements are returned as xml
+    inputRecord = StructuredRecord.builder(INPUT)
+      .set("offset", 2)
+      .set("body", "<bookstore><book category=\"children\"><subcategory><type>Series</type></subcategory>" +
+        "<title>Harry Potter</title></book></bookstore>").build();
+    transform.transform(inputRecord, emitter);
+    expected = ImmutableList.of(
+      StructuredRecord.builder(schema).set("category", "children").set("title", "Harry Potter")
+        .set("subcategory", "<subcategory><type>Series</type></subcategory>").build());
+    Assert.assertEquals(expected, emitter.getEmitted());
+  }
+
+  @Test
+  public void testSimpleXPathWithPrefixedElements() throws Exception {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("category", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("title", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+    XMLParser.Config config = new XMLParser.Config(
+      "body", "UTF-8", "category:/bookstore/book/@category,title:/bookstore/book/title",
+      "category:string,title:string", "Exit on error");
+    Transform<StructuredRecord, StructuredRecord> transform = new XMLParser(config);
+    transform.initialize(new MockTransformContext());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    // prefixes are part of the names and do not need to be declared, so prefixed nodes do not match the XPaths
+    StructuredRecord inputRecord = StructuredRecord.builder(INPUT)
+      .set("offset", 1)
+      .set("body", "<bookstore><x:book category=\"old\"><title>Hidden</title></x:book>" +
+        "<book x:category=\"old\" category=\"web\"><x:title>Hidden</x:title><title>Learning XML</title></book>" +
+        "</bookstore>").build();
+    transform.transform(inputRecord, emitter);
+    List<StructuredRecord> expected = ImmutableList.of(
+      StructuredRecord.builder(schema).set("category", "web").set("title", "Learning XML").build());
+    Assert.assertEquals(expected, emitter.getEmitted());
+  }
+
   @Test
   public void testEmitErrors() throws Exception {
     XMLParser.Config config = new XMLParser.Config("body", "UTF-8", "title:/book/title,author:/book/author," +
@@ -26,12 +26,21 @@ import io.cdap.cdap.etl.api.validation.ValidationFailure.Cause;
 import io.cdap.cdap.etl.mock.common.MockEmitter;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
 import org.junit.Assert;
+import org.junit.ClassRule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 /**
  * Tests {@link XMLToJSON}
  */
 public class XMLToJSONConverterTest {
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
   private static final Schema INPUT = Schema.recordOf("input1",
                                                       Schema.Field.of("body", Schema.of(Schema.Type.STRING)));
   private static final Schema OUTPUT = Schema.recordOf("output1",
@@ -65,6 +74,113 @@ public class XMLToJSONConverterTest {
                         emitter.getEmitted().get(0).get("jsonevent"));
   }
 
+  @Test
+  public void testStreaming() throws Exception {
+    Schema input = Schema.recordOf("input1",
+                                   Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                   Schema.Field.of("body", Schema.of(Schema.Type.STRING)));
+    Schema output = Schema.recordOf("output1",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("jsonevent", Schema.of(Schema.Type.STRING)));
+    XMLToJSON.Config config = new XMLToJSON.Config("body", "jsonevent", output.toString(), true);
+    Transform<StructuredRecord, StructuredRecord> transform = new XMLToJSON(config);
+    transform.initialize(null);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(input)
+                          .set("id", 1)
+                          .set("body",
+                               "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                                 "<CATALOG>" +
+                                 "  <PLANT>" +
+                                 "    <COMMON>Bloodroot</COMMON>" +
+                                 "    <BOTANICAL>Sanguinaria canadensis</BOTANICAL>" +
+                                 "  </PLANT>" +
+                                 "  <PLANT>" +
+                                 "    <COMMON>Columbine</COMMON>" +
+                                 "    <BOTANICAL>Aquilegia canadensis</BOTANICAL>" +
+                                 "  </PLANT>" +
+                                 "</CATALOG>")
+                          .build(), emitter);
+    transform.transform(StructuredRecord.builder(input)
+                          .set("id", 2)
+                          .set("body",
+                               "<book id=\"7\">Intro &amp; more<!-- comment -->" +
+                                 "<title>XML</title><tag>a</tag><empty/><tag>b</tag><price>9.5</price>" +
+                                 "</book>")
+                          .build(), emitter);
+
+    StructuredRecord record = emitter.getEmitted().get(0);
+    Assert.assertEquals(1, (int) record.get("id"));
+    Assert.assertEquals("{\"CATALOG\":" +
+                          "{\"PLANT\":" +
+                          "[{\"COMMON\":\"Bloodroot\",\"BOTANICAL\":\"Sanguinaria canadensis\"}," +
+                          "{\"COMMON\":\"Columbine\",\"BOTANICAL\":\"Aquilegia canadensis\"}]}}",
+                        record.get("jsonevent"));
+    record = emitter.getEmitted().get(1);
+    Assert.assertEquals(2, (int) record.get("id"));
+    Assert.assertEquals("{\"book\":{\"id\":7,\"content\":\"Intro & more\",\"title\":\"XML\"," +
+                          "\"tag\":[\"a\",\"b\"],\"empty\":\"\",\"price\":9.5}}",
+                        record.get("jsonevent"));
+  }
+
+  @Test
+  public void testStreamingRepeatedMembers() throws Exception {
+    XMLToJSON.Config config = new XMLToJSON.Config("body", "jsonevent", OUTPUT.toString(), true);
+    Transform<StructuredRecord, StructuredRecord> transform = new XMLToJSON(config);
+    transform.initialize(null);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    // an attribute and a child element with the same name, nested arrays and repeated content
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("body", "<a x=\"1\"><x>2</x><b><c>1</c><c>2</c></b><b>t<!--c-->u</b><d><e/></d></a>")
+                          .build(), emitter);
+    // members that are repeated after other members, at more than one level
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("body", "<r><a>1</a><b>2</b><a><z>1</z><y>2</y><z>3</z></a><b>4</b><c/></r>")
+                          .build(), emitter);
+
+    Assert.assertEquals("{\"a\":{\"x\":[1,2],\"b\":[{\"c\":[1,2]},[\"t\",\"u\"]],\"d\":{\"e\":\"\"}}}",
+                        emitter.getEmitted().get(0).get("jsonevent"));
+    Assert.assertEquals("{\"r\":{\"a\":[1,{\"z\":[1,3],\"y\":2}],\"b\":[2,4],\"c\":\"\"}}",
+                        emitter.getEmitted().get(1).get("jsonevent"));
+  }
+
+  @Test
+  public void testStreamingFailure() throws Exception {
+    XMLToJSON.Config config = new XMLToJSON.Config("body", "jsonevent", OUTPUT.toString(), true);
+    Transform<StructuredRecord, StructuredRecord> transform = new XMLToJSON(config);
+    transform.initialize(null);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    try {
+      transform.transform(StructuredRecord.builder(INPUT)
+                            .set("body", "<CATALOG><PLANT><COMMON>Bloodroot</COMMON></CATALOG>")
+                            .build(), emitter);
+      Assert.fail();
+    } catch (Exception e) {
+      Assert.assertTrue(e.getMessage().contains("Failed to convert XML to JSON"));
+    }
+  }
+
+  @Test
+  public void testStreamingExternalEntity() throws Exception {
+    File secret = TEMP_FOLDER.newFile("secret.txt");
+    Files.write(secret.toPath(), "secret".getBytes(StandardCharsets.UTF_8));
+    XMLToJSON.Config config = new XMLToJSON.Config("body", "jsonevent", OUTPUT.toString(), true);
+    Transform<StructuredRecord, StructuredRecord> transform = new XMLToJSON(config);
+    transform.initialize(null);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    try {
+      transform.transform(StructuredRecord.builder(INPUT)
+                            .set("body", "<?xml version=\"1.0\"?><!DOCTYPE r [<!ENTITY x SYSTEM \"" +
+                              secret.toURI() + "\">]><r>&x;</r>")
+                            .build(), emitter);
+      Assert.fail();
+    } catch (Exception e) {
+      // the DTD is not processed, so the entity is not declared
+      Assert.assertTrue(e.getMessage().contains("Failed to convert XML to JSON"));
+    }
+    Assert.assertTrue(emitter.getEmitted().isEmpty());
+  }
+
   @Test
   public void testFailure() throws Exception {
     XMLToJSON.Config config = new XMLToJSON.Config("body", "jsonevent", OUTPUT.toString());